@@ -0,0 +1,90 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revolut.app.rest.fundstransfer.mapper.AccountMapper;
+import com.revolut.app.rest.fundstransfer.model.Account;
+import com.revolut.app.rest.fundstransfer.service.AccountExportWriter;
+import com.revolut.core.fundstransfer.gateway.ServicesGateway;
+import com.revolut.sdk.fundstransfer.model.AccountVO;
+import com.revolut.sdk.fundstransfer.services.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Exports every account of a table of the given number of rows through the gateway to a discarding stream, streamed as
+ * newline delimited JSON against the list of all accounts serialized as one JSON array, as GET /account/list used to.
+ * Memory is compared with the gc profiler and a capped heap e.g.
+ * java -jar benchmarks.jar AccountExportBenchmark -prof gc -jvmArgs -Xmx2g -p rows=10000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AccountExportBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    private final ServicesGateway servicesGateway = ServicesGateway.getServicesGateway();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Setup
+    public void prepare() throws Exception {
+        BenchmarkDatabase.prepare();
+        //after the seeded accounts
+        BenchmarkDatabase.createAccounts(1000L, rows, new BigDecimal("1000.00"));
+    }
+
+    @Benchmark
+    public long streamingExport() throws Exception {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        AccountExportWriter exportWriter = new AccountExportWriter(outputStream);
+        servicesGateway.pass(AccountService.class, "exportAccounts", exportWriter);
+        exportWriter.flush();
+        return outputStream.count;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public long listExport() throws Exception {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        List<Account> accounts = ((List<AccountVO>) servicesGateway.pass(AccountService.class, "getAllAccounts"))
+                .stream()
+                .map(AccountMapper::convertFromVO)
+                .collect(Collectors.toList());
+        objectMapper.writeValue(outputStream, accounts);
+        return outputStream.count;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.conn.manage.ConnectionManager;
+import com.revolut.core.fundstransfer.impl.BalanceUpdateMode;
+import com.revolut.core.fundstransfer.journal.TransferIdGenerator;
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountAccessor;
+import com.revolut.core.fundstransfer.persist.accessor.DataAccessorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two balance update paths of the accessor with every thread updating the same account,
+ * i.e. under maximum row lock contention. Each operation is one committed transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class BalanceUpdateBenchmark {
+
+    private static final long CONTENDED_ACCOUNT_ID = 4L;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"SELECT_FOR_UPDATE", "CONDITIONAL_UPDATE"})
+    public BalanceUpdateMode balanceUpdateMode;
+
+    private final BankAccountAccessor bankAccountAccessor =
+            DataAccessorFactory.getDataAccessorFactory(DataAccessorFactory.DATA_ACCESSOR_FACTORY_H2).getBankAccountAccessor();
+    private final ConnectionManager connectionManager = ConnectionManager.getInstance();
+    private final TransferIdGenerator transferIdGenerator = TransferIdGenerator.getInstance();
+
+    @Setup
+    public void prepareDatabase() throws Exception {
+        BenchmarkDatabase.prepare();
+        BenchmarkDatabase.setBalance(new BigDecimal("100000000000000"), CONTENDED_ACCOUNT_ID);
+    }
+
+    @Benchmark
+    public int withdraw() throws Exception {
+        Connection connection = beginTransaction();
+        boolean isSuccessful = false;
+        try {
+            int updateCount = balanceUpdateMode == BalanceUpdateMode.CONDITIONAL_UPDATE
+                    ? bankAccountAccessor.subtractFromBalanceIfSufficient(connection, transferIdGenerator.nextTransferId(), CONTENDED_ACCOUNT_ID, AMOUNT)
+                    : bankAccountAccessor.withdraw(connection, transferIdGenerator.nextTransferId(), CONTENDED_ACCOUNT_ID, AMOUNT);
+            isSuccessful = true;
+            return updateCount;
+        } finally {
+            endTransaction(connection, isSuccessful);
+        }
+    }
+
+    @Benchmark
+    public int deposit() throws Exception {
+        Connection connection = beginTransaction();
+        boolean isSuccessful = false;
+        try {
+            int updateCount = balanceUpdateMode == BalanceUpdateMode.CONDITIONAL_UPDATE
+                    ? bankAccountAccessor.addToBalance(connection, transferIdGenerator.nextTransferId(), CONTENDED_ACCOUNT_ID, AMOUNT)
+                    : bankAccountAccessor.deposit(connection, transferIdGenerator.nextTransferId(), CONTENDED_ACCOUNT_ID, AMOUNT);
+            isSuccessful = true;
+            return updateCount;
+        } finally {
+            endTransaction(connection, isSuccessful);
+        }
+    }
+
+    private Connection beginTransaction() throws Exception {
+        Connection connection = connectionManager.getConnection();
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private void endTransaction(Connection connection, boolean isSuccessful) throws Exception {
+        try {
+            if (isSuccessful) {
+                connection.commit();
+            } else {
+                connection.rollback();
+            }
+        } finally {
+            connectionManager.release(connection);
+        }
+    }
+}
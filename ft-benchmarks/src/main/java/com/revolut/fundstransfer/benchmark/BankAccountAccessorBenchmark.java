@@ -0,0 +1,123 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.conn.manage.ConnectionManager;
+import com.revolut.core.fundstransfer.journal.TransferIdGenerator;
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountAccessor;
+import com.revolut.core.fundstransfer.persist.accessor.DataAccessorFactory;
+import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The statements of the H2 accessor against the in memory DB, bypassing the account cache, on random accounts out of
+ * many so that threads rarely wait on each other's row locks. Each operation is one committed transaction on a pooled
+ * connection. BalanceUpdateBenchmark covers the updates of a single contended account.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class BankAccountAccessorBenchmark {
+
+    private static final long FIRST_ACCOUNT_ID = 1000L;
+    private static final int ACCOUNTS = 10000;
+    private static final BigDecimal BALANCE = new BigDecimal("1000.00");
+
+    private final BankAccountAccessor bankAccountAccessor =
+            DataAccessorFactory.getDataAccessorFactory(DataAccessorFactory.DATA_ACCESSOR_FACTORY_H2).getBankAccountAccessor();
+    private final ConnectionManager connectionManager = ConnectionManager.getInstance();
+    private final TransferIdGenerator transferIdGenerator = TransferIdGenerator.getInstance();
+
+    @Setup
+    public void prepareDatabase() throws Exception {
+        BenchmarkDatabase.prepare();
+        BenchmarkDatabase.createAccounts(FIRST_ACCOUNT_ID, ACCOUNTS, BALANCE);
+    }
+
+    @Benchmark
+    public BankAccountTO getAccount() throws Exception {
+        Connection connection = beginTransaction();
+        boolean isSuccessful = false;
+        try {
+            BankAccountTO account = bankAccountAccessor.getAccount(connection, randomAccountId());
+            isSuccessful = true;
+            return account;
+        } finally {
+            endTransaction(connection, isSuccessful);
+        }
+    }
+
+    @Benchmark
+    public List<BankAccountTO> lockAccounts() throws Exception {
+        Connection connection = beginTransaction();
+        boolean isSuccessful = false;
+        try {
+            List<BankAccountTO> accounts = bankAccountAccessor.lockAccounts(connection, randomAccountId(), randomAccountId());
+            isSuccessful = true;
+            return accounts;
+        } finally {
+            endTransaction(connection, isSuccessful);
+        }
+    }
+
+    /*
+        locks and reads both accounts then writes both balances back, i.e. the statements of a single transaction transfer.
+        The balances are written unchanged so that they never run out
+     */
+    @Benchmark
+    public int[] lockAndUpdateBalances() throws Exception {
+        Connection connection = beginTransaction();
+        boolean isSuccessful = false;
+        try {
+            long firstAccountId = randomAccountId();
+            long secondAccountId = firstAccountId == FIRST_ACCOUNT_ID ? firstAccountId + 1 : firstAccountId - 1;
+            List<BankAccountTO> accounts = bankAccountAccessor.lockAccounts(connection, firstAccountId, secondAccountId);
+            int[] updateCounts = bankAccountAccessor.updateBalances(connection, transferIdGenerator.nextTransferId(),
+                    accounts.get(0), BALANCE, accounts.get(1), BALANCE);
+            isSuccessful = true;
+            return updateCounts;
+        } finally {
+            endTransaction(connection, isSuccessful);
+        }
+    }
+
+    private static long randomAccountId() {
+        return FIRST_ACCOUNT_ID + ThreadLocalRandom.current().nextInt(ACCOUNTS);
+    }
+
+    private Connection beginTransaction() throws Exception {
+        Connection connection = connectionManager.getConnection();
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private void endTransaction(Connection connection, boolean isSuccessful) throws Exception {
+        try {
+            if (isSuccessful) {
+                connection.commit();
+            } else {
+                connection.rollback();
+            }
+        } finally {
+            connectionManager.release(connection);
+        }
+    }
+}
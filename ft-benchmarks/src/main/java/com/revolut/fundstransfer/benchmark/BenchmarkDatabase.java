@@ -0,0 +1,57 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.persist.conn.ConnectionHelper;
+import com.revolut.fundstransfer.tools.H2SchemaGenerator;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Prepares the in memory H2 DB used by the benchmarks, see prepareh2.sql of ft-engine for the seeded accounts.
+ */
+public class BenchmarkDatabase {
+
+    private static final String UPDATE_BALANCE = "UPDATE BANK_ACCOUNT SET BALANCE = ? WHERE BANK_ACCOUNT_ID = ?";
+    private static final int INSERT_BATCH_SIZE = 10000;
+    private static final String INSERT_ACCOUNT = "INSERT INTO BANK_ACCOUNT (BANK_ACCOUNT_ID,ACCOUNT_NUMBER,ACCOUNT_NAME,BALANCE) VALUES (?,?,?,?)";
+
+    public static void prepare() {
+        H2SchemaGenerator.generate();
+    }
+
+    /**
+     * Sets the balance of the given accounts so that a benchmark never runs out of funds.
+     */
+    public static void setBalance(BigDecimal balance, long... accountIds) throws SQLException {
+        try (Connection connection = ConnectionHelper.createNewConnection();
+             PreparedStatement statement = connection.prepareStatement(UPDATE_BALANCE)) {
+            for (long accountId : accountIds) {
+                statement.setBigDecimal(1, balance);
+                statement.setLong(2, accountId);
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Adds count accounts with consecutive ids from the first one, for benchmarks spreading the load over many accounts.
+     */
+    public static void createAccounts(long firstAccountId, int count, BigDecimal balance) throws SQLException {
+        try (Connection connection = ConnectionHelper.createNewConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_ACCOUNT)) {
+            for (long accountId = firstAccountId; accountId < firstAccountId + count; accountId++) {
+                statement.setLong(1, accountId);
+                statement.setLong(2, accountId);
+                statement.setString(3, "account-" + accountId);
+                statement.setBigDecimal(4, balance);
+                statement.addBatch();
+                if ((accountId - firstAccountId + 1) % INSERT_BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.revolut.fundstransfer.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the hot path suites and writes their results as JMH JSON files, one per run, so that runs of two builds can be
+ * compared file by file. LockManagerBenchmark is repeated with 1, 2, 4... threads up to the given maximum.
+ * PartitionedExecutionBenchmark is repeated with 1, 2, 4... partitions up to the available processors, with two calling
+ * threads per partition, to show how the shared and partitioned execution modes scale with the cores.
+ * java -cp ft-benchmarks/target/benchmarks.jar com.revolut.fundstransfer.benchmark.BenchmarkRunner [result directory] [max threads]
+ */
+public class BenchmarkRunner {
+
+    private static final Class<?>[] HOT_PATH_BENCHMARKS = {
+            ServicesGatewayBenchmark.class,
+            GatewayDispatchBenchmark.class,
+            TransactionManagerBenchmark.class,
+            BankAccountAccessorBenchmark.class,
+            JsonMappingBenchmark.class,
+            MetricsBenchmark.class
+    };
+
+    public static void main(String[] args) throws Exception {
+        File resultDirectory = new File(args.length > 0 ? args[0] : "jmh-results");
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        if (!resultDirectory.isDirectory() && !resultDirectory.mkdirs()) {
+            throw new IllegalArgumentException("Can't create the result directory " + resultDirectory);
+        }
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            new Runner(new OptionsBuilder()
+                    .include(LockManagerBenchmark.class.getName() + "\\.")
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDirectory, "LockManagerBenchmark-" + threads + "-threads.json").getPath())
+                    .build()).run();
+        }
+
+        for (int cores = 1; cores <= Runtime.getRuntime().availableProcessors(); cores *= 2) {
+            new Runner(new OptionsBuilder()
+                    .include(PartitionedExecutionBenchmark.class.getName() + "\\.")
+                    .threads(2 * cores)
+                    .param("partitions", String.valueOf(cores))
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDirectory, "PartitionedExecutionBenchmark-" + cores + "-cores.json").getPath())
+                    .build()).run();
+        }
+
+        for (Class<?> benchmark : HOT_PATH_BENCHMARKS) {
+            new Runner(new OptionsBuilder()
+                    .include(benchmark.getName() + "\\.")
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDirectory, benchmark.getSimpleName() + ".json").getPath())
+                    .build()).run();
+        }
+    }
+}
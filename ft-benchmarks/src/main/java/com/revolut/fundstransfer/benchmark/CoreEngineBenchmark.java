@@ -0,0 +1,74 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.gateway.ServicesGateway;
+import com.revolut.core.fundstransfer.ledger.Ledger;
+import com.revolut.core.fundstransfer.service.locate.ServiceRegistry;
+import com.revolut.fundstransfer.CoreEngine;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.services.AccountService;
+import com.revolut.sdk.fundstransfer.services.FundsTransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers between random pairs of the seeded accounts through the gateway, executed by the database services against
+ * the single writer ledger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CoreEngineBenchmark {
+
+    private static final long[] ACCOUNT_IDS = {1L, 2L, 3L, 4L, 5L};
+
+    @Param({"DATABASE", "LEDGER"})
+    public CoreEngine coreEngine;
+
+    private final ServicesGateway servicesGateway = ServicesGateway.getServicesGateway();
+
+    @Setup
+    public void prepare() throws Exception {
+        BenchmarkDatabase.prepare();
+        BenchmarkDatabase.setBalance(new BigDecimal("100000000000000"), ACCOUNT_IDS);
+        if (coreEngine == CoreEngine.LEDGER) {
+            Ledger.getInstance().start();
+        }
+        ServiceRegistry.getInstance().initialize(coreEngine.getImplementationPackage(), AccountService.class, FundsTransferService.class);
+    }
+
+    @TearDown
+    public void stop() throws InterruptedException {
+        Ledger.getInstance().stop();
+    }
+
+    @Benchmark
+    public Object transfer() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int source = random.nextInt(ACCOUNT_IDS.length);
+        int destination = (source + 1 + random.nextInt(ACCOUNT_IDS.length - 1)) % ACCOUNT_IDS.length;
+        TransferRequestVO transferRequest = new TransferRequestVO();
+        transferRequest.setSourceAccountId(ACCOUNT_IDS[source]);
+        transferRequest.setDestinationAccountId(ACCOUNT_IDS[destination]);
+        transferRequest.setTransferAmount(BigDecimal.ONE);
+        return servicesGateway.pass(FundsTransferService.class, "transferFunds", transferRequest);
+    }
+}
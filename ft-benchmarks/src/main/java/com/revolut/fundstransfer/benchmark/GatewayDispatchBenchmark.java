@@ -0,0 +1,101 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.gateway.ReflectionUtils;
+import com.revolut.core.fundstransfer.gateway.ServiceMethodCache;
+import com.revolut.sdk.fundstransfer.model.AccountPageVO;
+import com.revolut.sdk.fundstransfer.model.AccountVO;
+import com.revolut.sdk.fundstransfer.services.AccountExportHandler;
+import com.revolut.sdk.fundstransfer.services.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving and invoking a service method the way the gateway does, on a stub service doing no work:
+ * the reflective lookup with Method.invoke against the cached method handle invoker.
+ * getAccount is overloaded, depositToAccount is not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GatewayDispatchBenchmark {
+
+    @Param({"getAccount", "depositToAccount"})
+    public String methodName;
+
+    private final AccountService accountService = new StubAccountService();
+    private Object[] arguments;
+
+    @Setup
+    public void prepareArguments() {
+        arguments = "getAccount".equals(methodName)
+                ? new Object[]{1L}
+                : new Object[]{1L, BigDecimal.TEN};
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        return ReflectionUtils.findMatchingMethodUsingReflection(AccountService.class, methodName, arguments)
+                .invoke(accountService, arguments);
+    }
+
+    @Benchmark
+    public Object cachedInvoker() throws Exception {
+        return ServiceMethodCache.findServiceMethod(AccountService.class, methodName, arguments)
+                .invoke(accountService, arguments);
+    }
+
+    static class StubAccountService implements AccountService {
+
+        private final AccountVO account = new AccountVO();
+
+        @Override
+        public List<AccountVO> getAllAccounts() {
+            return Collections.singletonList(account);
+        }
+
+        @Override
+        public AccountPageVO getAccountsPage(Long afterAccountId, Integer limit) {
+            return new AccountPageVO(Collections.singletonList(account), null);
+        }
+
+        @Override
+        public long exportAccounts(AccountExportHandler exportHandler) {
+            return 0;
+        }
+
+        @Override
+        public AccountVO getAccount(Long accountId) {
+            return account;
+        }
+
+        @Override
+        public AccountVO getAccount(Long accountId, boolean isTest) {
+            return account;
+        }
+
+        @Override
+        public void withdrawFromAccount(Long accountId, BigDecimal amount) {
+        }
+
+        @Override
+        public void depositToAccount(Long accountId, BigDecimal amount) {
+        }
+    }
+}
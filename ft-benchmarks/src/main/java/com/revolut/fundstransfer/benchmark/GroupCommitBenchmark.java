@@ -0,0 +1,109 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.gateway.ServicesGateway;
+import com.revolut.core.fundstransfer.impl.CommitMode;
+import com.revolut.core.fundstransfer.impl.GroupCommitCoordinator;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.services.FundsTransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers per second against commits per second, with a commit per transfer and with group commit, on a file database
+ * storing every commit (WRITE_DELAY=0) so that each commit pays its log write. Concurrent threads transfer between random
+ * accounts. With GROUP, every iteration prints the commits of the coordinator and the transfers they carried.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class GroupCommitBenchmark {
+
+    private static final long FIRST_ACCOUNT_ID = 1000L;
+    private static final int ACCOUNTS = 1000;
+
+    @Param({"PER_TRANSFER", "GROUP"})
+    public CommitMode commitMode;
+
+    private ServicesGateway servicesGateway;
+    private File databaseDirectory;
+    private long iterationStartNanos;
+    private long iterationStartCommits;
+    private long iterationStartTransfers;
+
+    @Setup
+    public void prepareDatabase() throws Exception {
+        //every param value runs in a fresh fork, so the pool and the services are created after the settings are set
+        databaseDirectory = Files.createTempDirectory("ft-group-commit").toFile();
+        System.setProperty("db.connection.url", "jdbc:h2:file:" + new File(databaseDirectory, "ftoltp").getAbsolutePath()
+                + ";WRITE_DELAY=0;LOCK_TIMEOUT=10000");
+        System.setProperty("core.commit.mode", commitMode.name());
+        BenchmarkDatabase.prepare();
+        BenchmarkDatabase.createAccounts(FIRST_ACCOUNT_ID, ACCOUNTS, new BigDecimal("100000000000000"));
+        servicesGateway = ServicesGateway.getServicesGateway();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationStartNanos = System.nanoTime();
+        if (commitMode == CommitMode.GROUP) {
+            iterationStartCommits = GroupCommitCoordinator.getInstance().getCommits();
+            iterationStartTransfers = GroupCommitCoordinator.getInstance().getCommittedTransfers();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportCommits() {
+        if (commitMode == CommitMode.GROUP) {
+            double seconds = (System.nanoTime() - iterationStartNanos) / 1e9;
+            long commits = GroupCommitCoordinator.getInstance().getCommits() - iterationStartCommits;
+            long transfers = GroupCommitCoordinator.getInstance().getCommittedTransfers() - iterationStartTransfers;
+            System.out.printf(" commits/s: %.0f, transfers/s: %.0f, transfers per commit: %.1f%n",
+                    commits / seconds, transfers / seconds, commits == 0 ? 0.0 : (double) transfers / commits);
+        }
+    }
+
+    @TearDown
+    public void deleteDatabase() {
+        File[] files = databaseDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        databaseDirectory.delete();
+    }
+
+    @Benchmark
+    public Object transfer() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int source = random.nextInt(ACCOUNTS);
+        int destination = (source + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        TransferRequestVO transferRequest = new TransferRequestVO();
+        transferRequest.setSourceAccountId(FIRST_ACCOUNT_ID + source);
+        transferRequest.setDestinationAccountId(FIRST_ACCOUNT_ID + destination);
+        transferRequest.setTransferAmount(BigDecimal.ONE);
+        return servicesGateway.pass(FundsTransferService.class, "transferFunds", transferRequest);
+    }
+}
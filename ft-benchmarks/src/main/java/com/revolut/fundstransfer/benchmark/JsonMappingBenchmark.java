@@ -0,0 +1,75 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.revolut.app.rest.fundstransfer.model.Account;
+import com.revolut.app.rest.fundstransfer.model.TransferRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the account returned by the rest services and deserialization of the transfer request they read,
+ * with readers and writers built once like the JSON provider of the rest services does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMappingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter accountWriter = objectMapper.writerFor(Account.class);
+    private final ObjectReader accountReader = objectMapper.readerFor(Account.class);
+    private final ObjectWriter transferRequestWriter = objectMapper.writerFor(TransferRequest.class);
+    private final ObjectReader transferRequestReader = objectMapper.readerFor(TransferRequest.class);
+    private Account account;
+    private TransferRequest transferRequest;
+    private byte[] accountJson;
+    private byte[] transferRequestJson;
+
+    @Setup
+    public void prepareDocuments() throws Exception {
+        account = new Account();
+        account.setAccountId(1234L);
+        account.setAccountNumber(98765432L);
+        account.setAccountName("account-1234");
+        account.setBalance(new BigDecimal("10250.75"));
+        transferRequest = new TransferRequest(new BigDecimal("100.50"), 1234L, 5678L);
+        accountJson = accountWriter.writeValueAsBytes(account);
+        transferRequestJson = transferRequestWriter.writeValueAsBytes(transferRequest);
+    }
+
+    @Benchmark
+    public byte[] serializeAccount() throws Exception {
+        return accountWriter.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public Account deserializeAccount() throws Exception {
+        return accountReader.readValue(accountJson);
+    }
+
+    @Benchmark
+    public byte[] serializeTransferRequest() throws Exception {
+        return transferRequestWriter.writeValueAsBytes(transferRequest);
+    }
+
+    @Benchmark
+    public TransferRequest deserializeTransferRequest() throws Exception {
+        return transferRequestReader.readValue(transferRequestJson);
+    }
+}
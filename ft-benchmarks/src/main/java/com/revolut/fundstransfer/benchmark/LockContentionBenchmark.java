@@ -0,0 +1,84 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager;
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager.LockMode;
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager.MultiLockStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Symmetric transfer pairs on the java locks: half of the threads lock A then B, the other half B then A,
+ * each holding both locks for a short critical section. Compares the multi-key lock strategies in both lock modes.
+ * profiled compares the cost of the contention profiling of core.locks.profiling.enabled against none, when most lock calls
+ * find a key busy and TRY_LOCK_RETRY calls retry many rounds.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockContentionBenchmark {
+
+    private static final long ACCOUNT_A = 1L;
+    private static final long ACCOUNT_B = 2L;
+
+    @Param({"TRY_LOCK_RETRY", "ORDERED"})
+    public MultiLockStrategy multiLockStrategy;
+
+    @Param({"STRIPED", "EXACT"})
+    public LockMode lockMode;
+
+    /**
+     * cpu work done while holding both locks, in Blackhole.consumeCPU tokens
+     */
+    @Param({"100"})
+    public long criticalSectionTokens;
+
+    @Param({"false", "true"})
+    public boolean profiled;
+
+    private ObjectsLockManager lockManager;
+
+    @Setup
+    public void createLockManager() {
+        lockManager = ObjectsLockManager.create(lockMode, 1024, multiLockStrategy, profiled);
+    }
+
+    @Benchmark
+    @Group("symmetricPair")
+    @GroupThreads(4)
+    public void transferAtoB() throws Exception {
+        transfer(ACCOUNT_A, ACCOUNT_B);
+    }
+
+    @Benchmark
+    @Group("symmetricPair")
+    @GroupThreads(4)
+    public void transferBtoA() throws Exception {
+        transfer(ACCOUNT_B, ACCOUNT_A);
+    }
+
+    private void transfer(long sourceAccountId, long destinationAccountId) throws Exception {
+        lockManager.lockMultipleAtomically(sourceAccountId, destinationAccountId);
+        try {
+            Blackhole.consumeCPU(criticalSectionTokens);
+        } finally {
+            lockManager.unlockMultiple(sourceAccountId, destinationAccountId);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager;
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager.LockMode;
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager.MultiLockStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locking and unlocking one key and two keys at once on the java locks, with keys drawn at random from a key space of the
+ * given size: a single key is full contention, a large key space barely any. Runs on one thread unless told otherwise,
+ * BenchmarkRunner repeats it from 1 to N threads e.g. java -jar benchmarks.jar LockManagerBenchmark -t 8
+ * profiled compares the cost of the contention profiling of core.locks.profiling.enabled against none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockManagerBenchmark {
+
+    @Param({"STRIPED", "EXACT"})
+    public LockMode lockMode;
+
+    @Param({"1", "1024"})
+    public int keys;
+
+    @Param({"false", "true"})
+    public boolean profiled;
+
+    private ObjectsLockManager lockManager;
+
+    @Setup
+    public void createLockManager() {
+        lockManager = ObjectsLockManager.create(lockMode, 1024, MultiLockStrategy.ORDERED, profiled);
+    }
+
+    @Benchmark
+    public void singleKey() {
+        long key = ThreadLocalRandom.current().nextInt(keys);
+        lockManager.lockKey(key);
+        lockManager.unlockKey(key);
+    }
+
+    @Benchmark
+    public void twoKeys() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long firstKey = random.nextInt(keys);
+        long secondKey = keys == 1 ? firstKey + 1 : random.nextInt(keys);
+        lockManager.lockMultipleAtomically(firstKey, secondKey);
+        lockManager.unlockMultiple(firstKey, secondKey);
+    }
+}
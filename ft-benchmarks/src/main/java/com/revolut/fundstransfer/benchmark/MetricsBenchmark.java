@@ -0,0 +1,56 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.metrics.Counter;
+import com.revolut.core.fundstransfer.metrics.LatencyHistogram;
+import com.revolut.core.fundstransfer.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one event in the metrics, which is paid on every service call, transaction and sql call: a counter
+ * increment, a histogram record of a given duration and a histogram record timed from a start, its clock read included.
+ * Each should stay well under 100ns, also from several threads e.g. java -jar benchmarks.jar MetricsBenchmark -t 4.
+ * clockRead is the cost of System.nanoTime alone, which depends on the clock source of the machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final Counter counter = MetricsRegistry.getInstance().counter("ft_benchmark_events_total", "Benchmark events");
+    private final LatencyHistogram histogram = MetricsRegistry.getInstance().histogram("ft_benchmark_seconds", "Benchmark durations");
+    private final long startNanos = System.nanoTime();
+
+    @Benchmark
+    public void counterIncrement() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(ThreadLocalRandom.current().nextLong(1000, 10000000));
+    }
+
+    @Benchmark
+    public void histogramRecordSince() {
+        histogram.recordSince(startNanos);
+    }
+
+    @Benchmark
+    public long clockRead() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,82 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.gateway.ServicesGateway;
+import com.revolut.core.fundstransfer.impl.ExecutionMode;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.services.AccountService;
+import com.revolut.sdk.fundstransfer.services.FundsTransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits to and transfers between uniformly random accounts through the gateway, executed by the calling threads
+ * against the account partitions. Scaling is shown by varying the threads and partitions e.g.
+ * java -jar benchmarks.jar PartitionedExecutionBenchmark -t 4 -p partitions=4
+ * BenchmarkRunner repeats it for 1, 2, 4... cores up to the available processors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class PartitionedExecutionBenchmark {
+
+    private static final long FIRST_ACCOUNT_ID = 1000L;
+    private static final int ACCOUNTS = 1024;
+
+    @Param({"SHARED", "PARTITIONED"})
+    public ExecutionMode executionMode;
+
+    @Param({"0"})
+    public int partitions;
+
+    private final ServicesGateway servicesGateway = ServicesGateway.getServicesGateway();
+
+    @Setup
+    public void prepare() throws Exception {
+        //every param combination runs in a fresh fork, so the services and partitions are created after the mode is set
+        System.setProperty("core.execution.mode", executionMode.name());
+        System.setProperty("core.partitions", String.valueOf(partitions));
+        BenchmarkDatabase.prepare();
+        BenchmarkDatabase.createAccounts(FIRST_ACCOUNT_ID, ACCOUNTS, new BigDecimal("100000000000000"));
+    }
+
+    @Benchmark
+    public Object deposit() throws Exception {
+        return servicesGateway.pass(AccountService.class, "depositToAccount", randomAccountId(), BigDecimal.ONE);
+    }
+
+    @Benchmark
+    public Object transfer() throws Exception {
+        long sourceAccountId = randomAccountId();
+        long destinationAccountId = randomAccountId();
+        while (destinationAccountId == sourceAccountId) {
+            destinationAccountId = randomAccountId();
+        }
+        TransferRequestVO transferRequest = new TransferRequestVO();
+        transferRequest.setSourceAccountId(sourceAccountId);
+        transferRequest.setDestinationAccountId(destinationAccountId);
+        transferRequest.setTransferAmount(BigDecimal.ONE);
+        return servicesGateway.pass(FundsTransferService.class, "transferFunds", transferRequest);
+    }
+
+    private static long randomAccountId() {
+        return FIRST_ACCOUNT_ID + ThreadLocalRandom.current().nextInt(ACCOUNTS);
+    }
+}
@@ -0,0 +1,59 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.gateway.ServicesGateway;
+import com.revolut.core.fundstransfer.service.locate.ServiceLocator;
+import com.revolut.core.fundstransfer.service.locate.ServiceRegistry;
+import com.revolut.sdk.fundstransfer.services.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of getting hold of a service implementation, meant to be run with the gc profiler to see the allocations per request:
+ * java -jar ft-benchmarks/target/benchmarks.jar ServiceLookup -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceLookupBenchmark {
+
+    private final ServicesGateway servicesGateway = ServicesGateway.getServicesGateway();
+
+    @Setup
+    public void prepareDatabase() {
+        BenchmarkDatabase.prepare();
+    }
+
+    /**
+     * what the gateway used to do on every call, a new implementation instance
+     */
+    @Benchmark
+    public Object locateNewInstance() throws Exception {
+        return ServiceLocator.getLocator(AccountService.class).locate();
+    }
+
+    @Benchmark
+    public Object registryLookup() throws Exception {
+        return ServiceRegistry.getInstance().getService(AccountService.class);
+    }
+
+    /**
+     * a whole read request through the gateway, i.e. including the transaction and the account query
+     */
+    @Benchmark
+    public Object gatewayGetAccount() throws Exception {
+        return servicesGateway.pass(AccountService.class, "getAccount", 1L);
+    }
+}
@@ -0,0 +1,45 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.gateway.ServicesGateway;
+import com.revolut.sdk.fundstransfer.services.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole call through ServicesGateway.pass on the cheapest service method: looking up the service and its method, starting
+ * and ending the transaction with its pooled connection, and reading an account from the account cache.
+ * GatewayDispatchBenchmark isolates the method lookup and invocation alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServicesGatewayBenchmark {
+
+    private static final Long ACCOUNT_ID = 1L;
+
+    private ServicesGateway servicesGateway;
+
+    @Setup
+    public void prepareDatabase() {
+        BenchmarkDatabase.prepare();
+        servicesGateway = ServicesGateway.getServicesGateway();
+    }
+
+    @Benchmark
+    public Object pass() throws Exception {
+        return servicesGateway.pass(AccountService.class, "getAccount", ACCOUNT_ID);
+    }
+}
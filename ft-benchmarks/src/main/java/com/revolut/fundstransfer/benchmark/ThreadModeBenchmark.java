@@ -0,0 +1,137 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revolut.app.rest.fundstransfer.model.TransferRequest;
+import com.revolut.fundstransfer.ThreadMode;
+import com.revolut.fundstransfer.TransferEngine;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.eclipse.jetty.server.Server;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of bursts of concurrent transfers posted to the rest services of a TransferEngine started in each
+ * engine.threads.mode, so that the business calls run on the pools of AsyncServiceExecutor: platform threads sized by
+ * rest.async.write.threads, or a virtual thread per call. The clients outnumber the platform write threads.
+ * Transfers not answered with 200 are reported by the failedTransfers counter.
+ * VIRTUAL needs a java runtime with virtual threads e.g. java -jar benchmarks.jar ThreadModeBenchmark on java 21,
+ * the engine falls back to PLATFORM otherwise.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadModeBenchmark {
+
+    private static final String TRANSFER_URL = "http://localhost:7777/transfer";
+    private static final int TRANSFERS_PER_BURST = 2000;
+    private static final int CLIENTS = 256;
+    private static final long[] ACCOUNT_IDS = {1L, 2L, 3L, 4L, 5L};
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public ThreadMode threadMode;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Server server;
+    private CloseableHttpClient client;
+    private ExecutorService clients;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Failures {
+
+        public long failedTransfers;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            failedTransfers = 0;
+        }
+    }
+
+    @Setup
+    public void startEngine() throws Exception {
+        //every param value runs in a fresh fork, so the engine reads the setting after it is set
+        System.setProperty("engine.threads.mode", threadMode.name());
+        TransferEngine transferEngine = new TransferEngine();
+        BenchmarkDatabase.setBalance(new BigDecimal("100000000000000"), ACCOUNT_IDS);
+        server = transferEngine.startInMemoryWebServer();
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(CLIENTS);
+        connectionManager.setDefaultMaxPerRoute(CLIENTS);
+        client = HttpClients.custom().setConnectionManager(connectionManager).build();
+        clients = Executors.newFixedThreadPool(CLIENTS);
+    }
+
+    @TearDown
+    public void stopEngine() throws Exception {
+        clients.shutdown();
+        client.close();
+        server.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSFERS_PER_BURST)
+    public void transferBurst(Failures failures) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(TRANSFERS_PER_BURST);
+        AtomicInteger failedTransfers = new AtomicInteger();
+        for (int i = 0; i < TRANSFERS_PER_BURST; i++) {
+            clients.execute(() -> {
+                try {
+                    if (postRandomTransfer() != 200) {
+                        failedTransfers.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failedTransfers.incrementAndGet();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        failures.failedTransfers += failedTransfers.get();
+    }
+
+    private int postRandomTransfer() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int source = random.nextInt(ACCOUNT_IDS.length);
+        int destination = (source + 1 + random.nextInt(ACCOUNT_IDS.length - 1)) % ACCOUNT_IDS.length;
+        HttpPost request = new HttpPost(TRANSFER_URL);
+        request.setEntity(new ByteArrayEntity(objectMapper.writeValueAsBytes(
+                new TransferRequest(BigDecimal.ONE, ACCOUNT_IDS[source], ACCOUNT_IDS[destination])), ContentType.APPLICATION_JSON));
+        HttpResponse response = client.execute(request);
+        //consumed so that the connection goes back to the pool
+        EntityUtils.consumeQuietly(response.getEntity());
+        return response.getStatusLine().getStatusCode();
+    }
+}
@@ -0,0 +1,56 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.core.fundstransfer.transaction.manage.TransactionDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starting and ending empty transactions: a new transaction borrowing and releasing a pooled connection, and a REQUIRED
+ * transaction joining the one already in progress, which only pushes and pops the thread's transaction stacks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionManagerBenchmark {
+
+    private final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+
+    @Setup
+    public void prepareDatabase() {
+        BenchmarkDatabase.prepare();
+    }
+
+    @Benchmark
+    public Connection newTransaction() throws Exception {
+        Connection connection = transactionManager.startTransaction(TransactionDefinition.REQUIRES_NEW);
+        transactionManager.endTransactionIfNeeded(true);
+        return connection;
+    }
+
+    @Benchmark
+    public Connection joinedTransaction() throws Exception {
+        Connection connection = transactionManager.startTransaction(TransactionDefinition.REQUIRES_NEW);
+        try {
+            transactionManager.startTransaction(TransactionDefinition.REQUIRED);
+            transactionManager.endTransactionIfNeeded(true);
+        } finally {
+            transactionManager.endTransactionIfNeeded(true);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,62 @@
+package com.revolut.fundstransfer.benchmark;
+
+import com.revolut.core.fundstransfer.gateway.ServicesGateway;
+import com.revolut.core.fundstransfer.impl.TransferMode;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.services.FundsTransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole transfers through the gateway, with both legs in the transfer transaction against
+ * one transaction per leg plus the transfer transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TransferModeBenchmark {
+
+    private static final long SOURCE_ACCOUNT_ID = 3L;
+    private static final long DESTINATION_ACCOUNT_ID = 4L;
+
+    @Param({"COMPENSATING", "SINGLE_TRANSACTION"})
+    public TransferMode transferMode;
+
+    private final ServicesGateway servicesGateway = ServicesGateway.getServicesGateway();
+    private TransferRequestVO transferRequest;
+
+    @Setup
+    public void prepareDatabase() throws Exception {
+        //every param combination runs in a fresh fork, so the services are created after the mode is set
+        System.setProperty("core.transfer.mode", transferMode.name());
+        BenchmarkDatabase.prepare();
+        BenchmarkDatabase.setBalance(new BigDecimal("100000000000000"), SOURCE_ACCOUNT_ID, DESTINATION_ACCOUNT_ID);
+
+        transferRequest = new TransferRequestVO();
+        transferRequest.setSourceAccountId(SOURCE_ACCOUNT_ID);
+        transferRequest.setDestinationAccountId(DESTINATION_ACCOUNT_ID);
+        transferRequest.setTransferAmount(new BigDecimal("1.00"));
+    }
+
+    @Benchmark
+    public Object transfer() throws Exception {
+        return servicesGateway.pass(FundsTransferService.class, "transferFunds", transferRequest);
+    }
+}
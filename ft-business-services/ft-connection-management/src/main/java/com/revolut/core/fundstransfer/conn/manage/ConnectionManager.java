@@ -1,19 +1,38 @@
 package com.revolut.core.fundstransfer.conn.manage;
 
 import com.revolut.core.fundstransfer.persist.conn.ConnectionHelper;
-import org.apache.commons.dbutils.DbUtils;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 
 /**
- * This class is supposed to use a connection pool, as of now not using any conn pool for simplicity.
+ * Hands out connections from a bounded {@link ConnectionPool}. The pool is configured with the db.pool.* keys of db.properties.
  */
 public class ConnectionManager {
 
+    private static final String POOL_MIN_SIZE_KEY = "db.pool.min.size";
+    private static final String POOL_MAX_SIZE_KEY = "db.pool.max.size";
+    private static final String POOL_BORROW_TIMEOUT_KEY = "db.pool.borrow.timeout.millis";
+    private static final String POOL_IDLE_TIMEOUT_KEY = "db.pool.idle.timeout.millis";
+    private static final String POOL_EVICTION_INTERVAL_KEY = "db.pool.eviction.interval.millis";
+    private static final String POOL_VALIDATION_TIMEOUT_KEY = "db.pool.validation.timeout.seconds";
+    private static final String STATEMENT_CACHE_SIZE_KEY = "db.statement.cache.size";
+
     private static final ConnectionManager connectionManager = new ConnectionManager();
 
+    private final ConnectionPool connectionPool;
+
     private ConnectionManager() {
+        connectionPool = new ConnectionPool(
+                ConnectionHelper::createNewConnection,
+                getIntConfigValue(POOL_MIN_SIZE_KEY, 10),
+                getIntConfigValue(POOL_MAX_SIZE_KEY, 400),
+                getIntConfigValue(POOL_BORROW_TIMEOUT_KEY, 30000),
+                getIntConfigValue(POOL_IDLE_TIMEOUT_KEY, 60000),
+                getIntConfigValue(POOL_EVICTION_INTERVAL_KEY, 30000),
+                getIntConfigValue(POOL_VALIDATION_TIMEOUT_KEY, 2),
+                getIntConfigValue(STATEMENT_CACHE_SIZE_KEY, 32)
+        );
     }
 
     public static ConnectionManager getInstance() {
@@ -21,17 +40,19 @@ public class ConnectionManager {
     }
 
     public Connection getConnection() throws SQLException {
-        //for now, always creating a new fresh connection.
-        return createNewConnection();
-
+        return connectionPool.borrow();
     }
 
     public void release(Connection connection) {
-        //for now, always directly closing the connection.
-        DbUtils.closeQuietly(connection);
+        connectionPool.release(connection);
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
     }
 
-    private Connection createNewConnection() throws SQLException {
-        return ConnectionHelper.createNewConnection();
+    private static int getIntConfigValue(String key, int defaultValue) {
+        String value = ConnectionHelper.getConfigValue(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
     }
 }
@@ -0,0 +1,320 @@
+package com.revolut.core.fundstransfer.conn.manage;
+
+import com.revolut.core.fundstransfer.persist.conn.StatementCache;
+import org.apache.commons.dbutils.DbUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of JDBC connections.
+ *
+ * Borrowers wait in a fair (FIFO) queue for one of the max size permits and give up once the borrow timeout has elapsed.
+ * Idle connections are handed out most recently used first, validated before being handed out and evicted in the background
+ * once they have been idle for too long, without ever shrinking the pool below its min size.
+ * A returned connection is rolled back if needed and reset to auto-commit, read-write and to its initial isolation level.
+ *
+ * Every physical connection gets its own {@link StatementCache}, which lives and dies with the connection.
+ */
+public class ConnectionPool {
+
+    private static Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+    /**
+     * Creates the physical connections held by the pool.
+     */
+    public interface ConnectionFactory {
+        Connection createConnection() throws SQLException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutNanos;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final Semaphore borrowPermits;
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final ConcurrentHashMap<Connection, PooledConnection> borrowedConnections = new ConcurrentHashMap<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+
+    private volatile boolean isShutdown;
+
+    public ConnectionPool(ConnectionFactory connectionFactory, int minSize, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long evictionIntervalMillis, int validationTimeoutSeconds, int statementCacheSize) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size, min:" + minSize + " max:" + maxSize);
+        }
+        this.connectionFactory = connectionFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.borrowPermits = new Semaphore(maxSize, true);
+
+        fillToMinSize();
+
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ft-connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, evictionIntervalMillis, evictionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout for one to become available.
+     *
+     * @return a valid connection in auto-commit mode
+     * @throws SQLException if no connection could be obtained in time or a new connection could not be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (isShutdown) {
+            throw new SQLException("Connection pool is shut down");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        try {
+            if (!borrowPermits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + "ms waiting for a connection, max pool size:" + maxSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        boolean isBorrowed = false;
+        try {
+            PooledConnection pooledConnection = takeIdleOrCreate(deadline);
+            borrowedConnections.put(pooledConnection.connection, pooledConnection);
+            isBorrowed = true;
+            return pooledConnection.connection;
+        } finally {
+            if (!isBorrowed) {
+                borrowPermits.release();
+            }
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool. Connections which were not borrowed from this pool are simply closed.
+     *
+     * @param connection
+     */
+    public void release(Connection connection) {
+        if (Objects.isNull(connection)) {
+            return;
+        }
+        PooledConnection pooledConnection = borrowedConnections.remove(connection);
+        if (Objects.isNull(pooledConnection)) {
+            DbUtils.closeQuietly(connection);
+            return;
+        }
+
+        try {
+            if (!isShutdown && reset(pooledConnection)) {
+                pooledConnection.lastReleasedAt = System.nanoTime();
+                //push to the head so that the warmest connection is reused first and the coldest ones become eligible for eviction
+                idleConnections.offerFirst(pooledConnection);
+            } else {
+                discard(pooledConnection);
+            }
+        } finally {
+            borrowPermits.release();
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops handing out new ones. Borrowed connections are closed as they are released.
+     */
+    public void shutdown() {
+        isShutdown = true;
+        evictor.shutdownNow();
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            discard(pooledConnection);
+        }
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    public int getActiveConnections() {
+        return borrowedConnections.size();
+    }
+
+    public int getWaitingBorrowers() {
+        return borrowPermits.getQueueLength();
+    }
+
+    private PooledConnection takeIdleOrCreate(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection pooledConnection = idleConnections.pollFirst();
+            if (pooledConnection != null) {
+                if (isValid(pooledConnection)) {
+                    return pooledConnection;
+                }
+                discard(pooledConnection);
+                continue;
+            }
+
+            if (reserveNewConnection()) {
+                return openConnection();
+            }
+
+            //the pool is at its max size and every other connection is idle in somebody else's hands for a moment, wait for it
+            long remainingNanos = deadline - System.nanoTime();
+            try {
+                pooledConnection = remainingNanos > 0 ? idleConnections.pollFirst(remainingNanos, TimeUnit.NANOSECONDS) : null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            if (pooledConnection == null) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + "ms waiting for a connection, max pool size:" + maxSize);
+            }
+            if (isValid(pooledConnection)) {
+                return pooledConnection;
+            }
+            discard(pooledConnection);
+        }
+    }
+
+    private boolean reserveNewConnection() {
+        int current;
+        do {
+            current = totalConnections.get();
+            if (current >= maxSize) {
+                return false;
+            }
+        } while (!totalConnections.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /*
+        the caller must have reserved a slot in totalConnections beforehand
+     */
+    private PooledConnection openConnection() throws SQLException {
+        try {
+            Connection connection = connectionFactory.createConnection();
+            PooledConnection pooledConnection = new PooledConnection(connection, connection.getTransactionIsolation());
+            StatementCache.bind(connection, statementCacheSize);
+            return pooledConnection;
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            logger.log(Level.SEVERE, "Error while opening a new connection:" + e);
+            throw e;
+        }
+    }
+
+    private boolean isValid(PooledConnection pooledConnection) {
+        try {
+            return pooledConnection.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean reset(PooledConnection pooledConnection) {
+        Connection connection = pooledConnection.connection;
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            StatementCache statementCache = StatementCache.of(connection);
+            if (statementCache != null && !statementCache.isIdle()) {
+                //a statement was never handed back, don't let it leak into the next transaction
+                logger.log(Level.WARNING, "Discarding connection with statements still in use");
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                //never hand over uncommitted work to the next borrower
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (connection.isReadOnly()) {
+                connection.setReadOnly(false);
+            }
+            if (connection.getTransactionIsolation() != pooledConnection.initialIsolation) {
+                connection.setTransactionIsolation(pooledConnection.initialIsolation);
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Discarding connection which could not be reset:" + e);
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooledConnection) {
+        totalConnections.decrementAndGet();
+        StatementCache.unbind(pooledConnection.connection);
+        DbUtils.closeQuietly(pooledConnection.connection);
+    }
+
+    private void evictIdleConnections() {
+        try {
+            long now = System.nanoTime();
+            Iterator<PooledConnection> coldestFirst = idleConnections.descendingIterator();
+            while (coldestFirst.hasNext() && totalConnections.get() > minSize) {
+                PooledConnection pooledConnection = coldestFirst.next();
+                if (now - pooledConnection.lastReleasedAt < idleTimeoutNanos) {
+                    //the remaining ones have been used more recently
+                    break;
+                }
+                if (idleConnections.removeFirstOccurrence(pooledConnection)) {
+                    discard(pooledConnection);
+                }
+            }
+            fillToMinSize();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error while evicting idle connections:" + e);
+        }
+    }
+
+    private void fillToMinSize() {
+        while (!isShutdown && totalConnections.get() < minSize && reserveNewConnection()) {
+            try {
+                PooledConnection pooledConnection = openConnection();
+                pooledConnection.lastReleasedAt = System.nanoTime();
+                idleConnections.offerLast(pooledConnection);
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Unable to fill connection pool to its min size:" + e);
+                return;
+            }
+        }
+    }
+
+    private static class PooledConnection {
+
+        private final Connection connection;
+        private final int initialIsolation;
+        private volatile long lastReleasedAt;
+
+        private PooledConnection(Connection connection, int initialIsolation) {
+            this.connection = connection;
+            this.initialIsolation = initialIsolation;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.revolut.core.fundstransfer.conn.manage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests of the bounded borrowing, the timeout and the reset on release of the connection pool, on an in memory H2 DB
+ */
+public class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:connection-pool-test;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool connectionPool;
+
+    @Before
+    public void createTable() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS POOL_TEST(ID INT)");
+            statement.execute("DELETE FROM POOL_TEST");
+        }
+    }
+
+    @After
+    public void shutdownPool() {
+        if (connectionPool != null) {
+            connectionPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBorrowTimesOutAtMaxSize() throws SQLException {
+        connectionPool = newPool(2, 100);
+        connectionPool.borrow();
+        connectionPool.borrow();
+
+        long start = System.nanoTime();
+        try {
+            connectionPool.borrow();
+            fail("borrowed beyond the max size");
+        } catch (SQLTimeoutException e) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+        }
+        assertEquals(2, connectionPool.getTotalConnections());
+        assertEquals(2, connectionPool.getActiveConnections());
+    }
+
+    @Test
+    public void testReleasedConnectionIsReused() throws SQLException {
+        connectionPool = newPool(2, 100);
+        Connection connection = connectionPool.borrow();
+        connectionPool.release(connection);
+
+        assertSame(connection, connectionPool.borrow());
+        assertEquals(1, connectionPool.getTotalConnections());
+    }
+
+    @Test
+    public void testWaitingBorrowerGetsReleasedConnection() throws Exception {
+        connectionPool = newPool(1, 10000);
+        Connection connection = connectionPool.borrow();
+
+        CompletableFuture<Connection> waitingBorrower = CompletableFuture.supplyAsync(() -> {
+            try {
+                return connectionPool.borrow();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (connectionPool.getWaitingBorrowers() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(waitingBorrower.isDone());
+        connectionPool.release(connection);
+
+        assertSame(connection, waitingBorrower.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReleaseRollsBackAndResetsConnection() throws SQLException {
+        connectionPool = newPool(1, 100);
+        Connection connection = connectionPool.borrow();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO POOL_TEST VALUES(1)");
+        }
+        connectionPool.release(connection);
+
+        Connection reborrowed = connectionPool.borrow();
+        assertSame(connection, reborrowed);
+        assertTrue(reborrowed.getAutoCommit());
+        try (Statement statement = reborrowed.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM POOL_TEST")) {
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void testClosedConnectionIsDiscardedOnRelease() throws SQLException {
+        connectionPool = newPool(1, 100);
+        Connection connection = connectionPool.borrow();
+        connection.close();
+        connectionPool.release(connection);
+
+        assertEquals(0, connectionPool.getTotalConnections());
+        Connection replacement = connectionPool.borrow();
+        assertFalse(replacement.isClosed());
+        assertEquals(1, connectionPool.getTotalConnections());
+    }
+
+    @Test
+    public void testForeignConnectionIsClosedOnRelease() throws SQLException {
+        connectionPool = newPool(1, 100);
+        Connection foreignConnection = DriverManager.getConnection(URL);
+        connectionPool.release(foreignConnection);
+
+        assertTrue(foreignConnection.isClosed());
+        assertEquals(0, connectionPool.getTotalConnections());
+    }
+
+    private static ConnectionPool newPool(int maxSize, long borrowTimeoutMillis) {
+        return new ConnectionPool(() -> DriverManager.getConnection(URL), 0, maxSize, borrowTimeoutMillis,
+                60000, 60000, 2, 8);
+    }
+}
@@ -0,0 +1,304 @@
+package com.revolut.core.fundstransfer.cache;
+
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.metrics.MetricsRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of committed accounts keyed by primitive account id, evicting the least recently used account.
+ * Sized with core.account.cache.size, 0 disables it.
+ *
+ * The cache is split into segments, each guarded by its own monitor and holding its entries in flat arrays: an intrusive
+ * lru list and a chained hash table of entry indexes, so neither the ids nor the entries are boxed or allocated per access.
+ *
+ * An account is only ever invalidated after the commit changing it. To keep a reader that loaded the account just before
+ * that commit from caching the old state afterwards, every invalidation bumps the stamp of its segment and a loaded account
+ * is only cached if the stamp read before loading it is unchanged.
+ */
+public class AccountCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private static final AccountCache instance = new AccountCache(
+            CoreConfiguration.getInstance().getIntConfigValue("core.account.cache.size", 0));
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private AccountCache(int size) {
+        int segmentCount = size <= 0 ? 0 : Integer.highestOneBit(Math.min(size, MAX_SEGMENTS));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((size + segmentCount - 1) / segmentCount);
+        }
+        MetricsRegistry metricsRegistry = MetricsRegistry.getInstance();
+        metricsRegistry.counter("ft_account_cache_hits_total", "Account lookups answered by the cache", hits::sum);
+        metricsRegistry.counter("ft_account_cache_misses_total", "Account lookups missing the cache", misses::sum);
+        metricsRegistry.counter("ft_account_cache_evictions_total", "Accounts evicted to make room", evictions::sum);
+        metricsRegistry.counter("ft_account_cache_invalidations_total", "Accounts invalidated by a balance update", invalidations::sum);
+        metricsRegistry.gauge("ft_account_cache_size", "Accounts currently cached", this::size);
+    }
+
+    public static AccountCache getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return segments.length > 0;
+    }
+
+    /**
+     * @return the cached account or null, counted as a hit or a miss
+     */
+    AccountSnapshot get(long accountId) {
+        AccountSnapshot account = segmentOf(accountId).get(accountId);
+        if (account == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return account;
+    }
+
+    /**
+     * @return the stamp to pass to {@link #put(long, AccountSnapshot, long)}, to be read before loading the account
+     */
+    long getStamp(long accountId) {
+        return segmentOf(accountId).stamp;
+    }
+
+    /**
+     * Caches the loaded account unless an account of its segment was invalidated since the stamp was read.
+     */
+    void put(long accountId, AccountSnapshot account, long stamp) {
+        if (segmentOf(accountId).put(accountId, account, stamp)) {
+            evictions.increment();
+        }
+    }
+
+    void invalidate(long accountId) {
+        segmentOf(accountId).remove(accountId);
+        invalidations.increment();
+    }
+
+    /**
+     * Drops every account e.g. once the database is recreated, the statistics are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return hits over lookups since startup, 0 without lookups
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentOf(long accountId) {
+        return segments[spread(accountId) & (segments.length - 1)];
+    }
+
+    private static int spread(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private static class Segment {
+
+        private static final int NONE = -1;
+
+        private final int capacity;
+        private final long[] keys;
+        private final AccountSnapshot[] values;
+        //lru list from the least recently used entry at head to the most recently used one at tail, free entries are chained through next
+        private final int[] previous;
+        private final int[] next;
+        private final int[] buckets;
+        private final int[] bucketNext;
+        private int head = NONE;
+        private int tail = NONE;
+        private int free;
+        private int size;
+        private volatile long stamp;
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+            this.keys = new long[capacity];
+            this.values = new AccountSnapshot[capacity];
+            this.previous = new int[capacity];
+            this.next = new int[capacity];
+            this.buckets = new int[Integer.highestOneBit(Math.max(1, capacity * 2 - 1)) << 1];
+            this.bucketNext = new int[capacity];
+            clearEntries();
+        }
+
+        private synchronized AccountSnapshot get(long key) {
+            int entry = find(key);
+            if (entry == NONE) {
+                return null;
+            }
+            moveToTail(entry);
+            return values[entry];
+        }
+
+        /**
+         * @return true if an entry was evicted to make room
+         */
+        private synchronized boolean put(long key, AccountSnapshot value, long expectedStamp) {
+            if (stamp != expectedStamp) {
+                return false;
+            }
+            int entry = find(key);
+            if (entry != NONE) {
+                values[entry] = value;
+                moveToTail(entry);
+                return false;
+            }
+            boolean isEvicted = false;
+            if (size == capacity) {
+                removeEntry(head);
+                isEvicted = true;
+            }
+            entry = free;
+            free = next[entry];
+            keys[entry] = key;
+            values[entry] = value;
+            int bucket = bucketOf(key);
+            bucketNext[entry] = buckets[bucket];
+            buckets[bucket] = entry;
+            linkAtTail(entry);
+            size++;
+            return isEvicted;
+        }
+
+        private synchronized void remove(long key) {
+            stamp++;
+            int entry = find(key);
+            if (entry != NONE) {
+                removeEntry(entry);
+            }
+        }
+
+        private synchronized void clear() {
+            stamp++;
+            clearEntries();
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private void clearEntries() {
+            Arrays.fill(buckets, NONE);
+            Arrays.fill(values, null);
+            for (int i = 0; i < capacity; i++) {
+                next[i] = i + 1 < capacity ? i + 1 : NONE;
+            }
+            free = 0;
+            head = NONE;
+            tail = NONE;
+            size = 0;
+        }
+
+        private int find(long key) {
+            for (int entry = buckets[bucketOf(key)]; entry != NONE; entry = bucketNext[entry]) {
+                if (keys[entry] == key) {
+                    return entry;
+                }
+            }
+            return NONE;
+        }
+
+        private void removeEntry(int entry) {
+            int bucket = bucketOf(keys[entry]);
+            if (buckets[bucket] == entry) {
+                buckets[bucket] = bucketNext[entry];
+            } else {
+                int chained = buckets[bucket];
+                while (bucketNext[chained] != entry) {
+                    chained = bucketNext[chained];
+                }
+                bucketNext[chained] = bucketNext[entry];
+            }
+            unlink(entry);
+            values[entry] = null;
+            next[entry] = free;
+            free = entry;
+            size--;
+        }
+
+        private void moveToTail(int entry) {
+            if (entry != tail) {
+                unlink(entry);
+                linkAtTail(entry);
+            }
+        }
+
+        private void linkAtTail(int entry) {
+            previous[entry] = tail;
+            next[entry] = NONE;
+            if (tail == NONE) {
+                head = entry;
+            } else {
+                next[tail] = entry;
+            }
+            tail = entry;
+        }
+
+        private void unlink(int entry) {
+            if (previous[entry] == NONE) {
+                head = next[entry];
+            } else {
+                next[previous[entry]] = next[entry];
+            }
+            if (next[entry] == NONE) {
+                tail = previous[entry];
+            } else {
+                previous[next[entry]] = previous[entry];
+            }
+        }
+
+        private int bucketOf(long key) {
+            //the segment was picked with at most the 4 low bits of the spread key, the bucket takes the ones above
+            return (spread(key) >>> 4) & (buckets.length - 1);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.revolut.core.fundstransfer.cache;
+
+import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
+
+import java.math.BigDecimal;
+
+/**
+ * An immutable copy of a committed account held by the {@link AccountCache}, handed out as a fresh {@link BankAccountTO}
+ * so that callers can't change what is cached.
+ */
+final class AccountSnapshot {
+
+    private final long bankAccountId;
+    private final Long accountNumber;
+    private final String accountName;
+    private final BigDecimal balance;
+
+    private AccountSnapshot(long bankAccountId, Long accountNumber, String accountName, BigDecimal balance) {
+        this.bankAccountId = bankAccountId;
+        this.accountNumber = accountNumber;
+        this.accountName = accountName;
+        this.balance = balance;
+    }
+
+    static AccountSnapshot of(BankAccountTO account) {
+        return new AccountSnapshot(account.getBankAccountId(), account.getAccountNumber(), account.getAccountName(), account.getBalance());
+    }
+
+    BankAccountTO toTO() {
+        return new BankAccountTO(bankAccountId, accountNumber, accountName, balance);
+    }
+}
@@ -0,0 +1,165 @@
+package com.revolut.core.fundstransfer.cache;
+
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountAccessor;
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountRowHandler;
+import com.revolut.core.fundstransfer.persist.exception.DataException;
+import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
+import com.revolut.core.fundstransfer.persist.to.JournalEntryTO;
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Reads accounts through the {@link AccountCache} and invalidates the accounts changed by a transaction once it commits,
+ * so that a rolled back change never reaches the cache. Every other call goes straight to the wrapped accessor.
+ * The connection passed in is expected to be the one of the current transaction of the {@link RevolutTransactionManager}.
+ *
+ * An account read by a transaction that changed it is read from the database, with the uncommitted change, and isn't
+ * cached, as the change may still be rolled back.
+ */
+public class CachingBankAccountAccessor implements BankAccountAccessor {
+
+    private final BankAccountAccessor bankAccountAccessor;
+    private final AccountCache accountCache;
+    private final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+
+    private CachingBankAccountAccessor(BankAccountAccessor bankAccountAccessor, AccountCache accountCache) {
+        this.bankAccountAccessor = bankAccountAccessor;
+        this.accountCache = accountCache;
+    }
+
+    /**
+     * @return the accessor wrapped with the account cache, or as is if the cache is disabled
+     */
+    public static BankAccountAccessor wrap(BankAccountAccessor bankAccountAccessor) {
+        AccountCache accountCache = AccountCache.getInstance();
+        return accountCache.isEnabled() ? new CachingBankAccountAccessor(bankAccountAccessor, accountCache) : bankAccountAccessor;
+    }
+
+    @Override
+    public boolean isJournalEnabled() {
+        return bankAccountAccessor.isJournalEnabled();
+    }
+
+    @Override
+    public List<BankAccountTO> getAllAccounts(Connection connection) throws DataException {
+        return bankAccountAccessor.getAllAccounts(connection);
+    }
+
+    @Override
+    public BankAccountTO getAccount(Connection connection, long accountId) throws DataException {
+        if (transactionManager.isRegisteredAfterCommit(new AccountInvalidation(accountCache, accountId))) {
+            return bankAccountAccessor.getAccount(connection, accountId);
+        }
+        AccountSnapshot cachedAccount = accountCache.get(accountId);
+        if (cachedAccount != null) {
+            return cachedAccount.toTO();
+        }
+        long stamp = accountCache.getStamp(accountId);
+        BankAccountTO account = bankAccountAccessor.getAccount(connection, accountId);
+        if (account != null) {
+            accountCache.put(accountId, AccountSnapshot.of(account), stamp);
+        }
+        return account;
+    }
+
+    @Override
+    public long streamAllAccounts(Connection connection, BankAccountRowHandler rowHandler) throws DataException {
+        return bankAccountAccessor.streamAllAccounts(connection, rowHandler);
+    }
+
+    @Override
+    public List<BankAccountTO> getAccountsAfter(Connection connection, long afterAccountId, int limit) throws DataException {
+        return bankAccountAccessor.getAccountsAfter(connection, afterAccountId, limit);
+    }
+
+    @Override
+    public int deposit(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        invalidateAfterCommit(accountId);
+        return bankAccountAccessor.deposit(connection, transferId, accountId, amount);
+    }
+
+    @Override
+    public int withdraw(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        invalidateAfterCommit(accountId);
+        return bankAccountAccessor.withdraw(connection, transferId, accountId, amount);
+    }
+
+    @Override
+    public int addToBalance(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        invalidateAfterCommit(accountId);
+        return bankAccountAccessor.addToBalance(connection, transferId, accountId, amount);
+    }
+
+    @Override
+    public int subtractFromBalanceIfSufficient(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        invalidateAfterCommit(accountId);
+        return bankAccountAccessor.subtractFromBalanceIfSufficient(connection, transferId, accountId, amount);
+    }
+
+    @Override
+    public List<BankAccountTO> lockAccounts(Connection connection, long firstAccountId, long secondAccountId) throws DataException {
+        return bankAccountAccessor.lockAccounts(connection, firstAccountId, secondAccountId);
+    }
+
+    @Override
+    public int[] updateBalances(Connection connection, long transferId, BankAccountTO firstAccount, BigDecimal firstBalance,
+                                BankAccountTO secondAccount, BigDecimal secondBalance) throws DataException {
+        invalidateAfterCommit(firstAccount.getBankAccountId());
+        invalidateAfterCommit(secondAccount.getBankAccountId());
+        return bankAccountAccessor.updateBalances(connection, transferId, firstAccount, firstBalance, secondAccount, secondBalance);
+    }
+
+    @Override
+    public List<BankAccountTO> lockAccounts(Connection connection, long[] accountIds) throws DataException {
+        return bankAccountAccessor.lockAccounts(connection, accountIds);
+    }
+
+    @Override
+    public int[] updateBalances(Connection connection, List<JournalEntryTO> journalEntries, long[] accountIds, BigDecimal[] balances)
+            throws DataException {
+        for (long accountId : accountIds) {
+            invalidateAfterCommit(accountId);
+        }
+        return bankAccountAccessor.updateBalances(connection, journalEntries, accountIds, balances);
+    }
+
+    private void invalidateAfterCommit(long accountId) {
+        AccountInvalidation invalidation = new AccountInvalidation(accountCache, accountId);
+        //also tells the reads of the transaction that the account has pending changes
+        if (!transactionManager.isRegisteredAfterCommit(invalidation)) {
+            transactionManager.runAfterCommit(invalidation);
+        }
+    }
+
+    /*
+        invalidation of an account once the transaction changing it commits, equal to any other of the same account
+     */
+    private static class AccountInvalidation implements Runnable {
+
+        private final AccountCache accountCache;
+        private final long accountId;
+
+        private AccountInvalidation(AccountCache accountCache, long accountId) {
+            this.accountCache = accountCache;
+            this.accountId = accountId;
+        }
+
+        @Override
+        public void run() {
+            accountCache.invalidate(accountId);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof AccountInvalidation && ((AccountInvalidation) other).accountId == accountId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(accountId);
+        }
+    }
+}
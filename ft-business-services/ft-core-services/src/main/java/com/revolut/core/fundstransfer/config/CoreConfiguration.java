@@ -0,0 +1,49 @@
+package com.revolut.core.fundstransfer.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Configuration of the core business services, loaded from core.properties.
+ * Any key can be overridden with a system property of the same name e.g. -Dcore.balance.update.mode=CONDITIONAL_UPDATE
+ */
+public class CoreConfiguration {
+
+    private static Logger log = Logger.getLogger(CoreConfiguration.class.getName());
+
+    private static final CoreConfiguration instance = new CoreConfiguration();
+
+    private final Properties coreProperties = new Properties();
+
+    private CoreConfiguration() {
+        String fileName = "core.properties";
+        try (InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(fileName)) {
+            if (inputStream != null) {
+                coreProperties.load(inputStream);
+            }
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "error while loading core config:", e);
+        }
+    }
+
+    public static CoreConfiguration getInstance() {
+        return instance;
+    }
+
+    public String getConfigValue(String key) {
+        return System.getProperty(key, coreProperties.getProperty(key));
+    }
+
+    public int getIntConfigValue(String key, int defaultValue) {
+        String value = getConfigValue(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public <E extends Enum<E>> E getEnumConfigValue(String key, Class<E> enumType, E defaultValue) {
+        String value = getConfigValue(key);
+        return value == null ? defaultValue : Enum.valueOf(enumType, value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,61 @@
+package com.revolut.core.fundstransfer.idempotency;
+
+import com.revolut.core.fundstransfer.gateway.IdempotencyKeyStore;
+import com.revolut.core.fundstransfer.gateway.StoredIdempotencyKey;
+import com.revolut.core.fundstransfer.persist.accessor.DataAccessorFactory;
+import com.revolut.core.fundstransfer.persist.accessor.IdempotencyKeyAccessor;
+import com.revolut.core.fundstransfer.persist.exception.DataException;
+import com.revolut.core.fundstransfer.persist.to.IdempotencyKeyTO;
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.sdk.fundstransfer.exception.ServiceException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+
+/**
+ * Keeps the idempotency keys in the IDEMPOTENCY_KEY table, through the connection of the current transaction. A concurrent
+ * claim of the same key waits for the first one on the row lock of the key.
+ */
+public class DatabaseIdempotencyKeyStore implements IdempotencyKeyStore {
+
+    private static final DatabaseIdempotencyKeyStore instance = new DatabaseIdempotencyKeyStore();
+
+    private final IdempotencyKeyAccessor idempotencyKeyAccessor =
+            DataAccessorFactory.getDataAccessorFactory(DataAccessorFactory.DATA_ACCESSOR_FACTORY_H2).getIdempotencyKeyAccessor();
+    private final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+
+    private DatabaseIdempotencyKeyStore() {
+    }
+
+    public static DatabaseIdempotencyKeyStore getInstance() {
+        return instance;
+    }
+
+    @Override
+    public boolean insertKey(String idempotencyKey, String operation, String requestHash) throws ServiceException {
+        try {
+            return idempotencyKeyAccessor.insertKey(transactionManager.getConnectionFromCurrentTransaction(), idempotencyKey,
+                    operation, requestHash);
+        } catch (DataException e) {
+            throw new ValidationException("Idempotency-Key not available, a request with the same key may be in progress", "603");
+        }
+    }
+
+    @Override
+    public StoredIdempotencyKey getKey(String idempotencyKey) throws ServiceException {
+        IdempotencyKeyTO key;
+        try {
+            key = idempotencyKeyAccessor.getKey(transactionManager.getConnectionFromCurrentTransaction(), idempotencyKey);
+        } catch (DataException e) {
+            throw new ValidationException("Idempotency-Key not available, a request with the same key may be in progress", "603");
+        }
+        return key == null ? null : new StoredIdempotencyKey(key.getOperation(), key.getRequestHash(), key.getResult());
+    }
+
+    @Override
+    public void updateResult(String idempotencyKey, byte[] result) throws ServiceException {
+        try {
+            idempotencyKeyAccessor.updateResult(transactionManager.getConnectionFromCurrentTransaction(), idempotencyKey, result);
+        } catch (DataException e) {
+            throw new ServiceException("Error saving the result of Idempotency-Key:" + e.getMessage());
+        }
+    }
+}
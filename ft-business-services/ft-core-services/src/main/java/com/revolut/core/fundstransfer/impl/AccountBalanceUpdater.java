@@ -0,0 +1,371 @@
+package com.revolut.core.fundstransfer.impl;
+
+import com.revolut.core.fundstransfer.cache.CachingBankAccountAccessor;
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.journal.TransferIdGenerator;
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager;
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountAccessor;
+import com.revolut.core.fundstransfer.persist.accessor.DataAccessorFactory;
+import com.revolut.core.fundstransfer.persist.exception.DataException;
+import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
+import com.revolut.core.fundstransfer.persist.to.JournalEntryTO;
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.core.fundstransfer.validation.TransferValidator;
+import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.model.TransferResultVO;
+import com.revolut.sdk.fundstransfer.model.TransferStatus;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Withdraws from and deposits to an account within the current transaction, i.e. without starting one of its own.
+ * Shared by the account service, running each operation in its own transaction, and the single transaction transfer,
+ * running both legs of a transfer in the transaction of the transfer.
+ * Accounts are read through the account cache when it is enabled.
+ * Each withdrawal, deposit and transfer is journaled under a transfer id of its own, so is each transfer of a batch or a group commit.
+ * Without java locking, the caller guarantees that nothing else updates the account concurrently e.g. its partition.
+ */
+class AccountBalanceUpdater {
+
+    private final BankAccountAccessor bankAccountAccessor = CachingBankAccountAccessor.wrap(
+            DataAccessorFactory.getDataAccessorFactory(DataAccessorFactory.DATA_ACCESSOR_FACTORY_H2).getBankAccountAccessor());
+    private final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+    private final ObjectsLockManager lockManager = ObjectsLockManager.getInstance();
+    private final TransferIdGenerator transferIdGenerator = TransferIdGenerator.getInstance();
+    private final BalanceUpdateMode balanceUpdateMode = CoreConfiguration.getInstance()
+            .getEnumConfigValue("core.balance.update.mode", BalanceUpdateMode.class, BalanceUpdateMode.SELECT_FOR_UPDATE);
+    private final boolean isJavaLocking;
+
+    AccountBalanceUpdater() {
+        this(true);
+    }
+
+    AccountBalanceUpdater(boolean isJavaLocking) {
+        this.isJavaLocking = isJavaLocking;
+    }
+
+    /**
+     * Withdraws a valid amount, refer {@link TransferValidator}.
+     */
+    void withdraw(long accountId, BigDecimal amount) throws InternalCoreException, ValidationException {
+
+        if (balanceUpdateMode == BalanceUpdateMode.CONDITIONAL_UPDATE) {
+            withdrawIfSufficient(accountId, amount);
+            return;
+        }
+
+        BankAccountTO account = fetchAccount(accountId);
+
+        if (account.getBalance().compareTo(amount) < 0) {
+            throw new ValidationException("Account doesn't have sufficient balance", "203");
+        }
+
+        long bankAccountId = account.getBankAccountId();
+        int updateCount = 0;
+        lockKey(bankAccountId);
+        try {
+            updateCount = bankAccountAccessor.withdraw(
+                    transactionManager.getConnectionFromCurrentTransaction(), transferIdGenerator.nextTransferId(), bankAccountId, amount
+            );
+        } catch (DataException e) {
+            throw new InternalCoreException("Withdrawal Failed:" + e.getMessage());
+        } finally {
+            unlockKey(bankAccountId);
+        }
+        if (updateCount != 1) {
+            // withdrawal failed
+            throw new InternalCoreException("Withdrawal Failed");
+        }
+    }
+
+    /**
+     * Deposits a valid amount, refer {@link TransferValidator}.
+     */
+    void deposit(long accountId, BigDecimal amount) throws InternalCoreException, ValidationException {
+
+        if (balanceUpdateMode == BalanceUpdateMode.CONDITIONAL_UPDATE) {
+            depositUnconditionally(accountId, amount);
+            return;
+        }
+
+        BankAccountTO account = fetchAccount(accountId);
+
+        long bankAccountId = account.getBankAccountId();
+        int updateCount = 0;
+        lockKey(bankAccountId);
+        try {
+            updateCount = bankAccountAccessor.deposit(
+                    transactionManager.getConnectionFromCurrentTransaction(), transferIdGenerator.nextTransferId(), bankAccountId, amount
+            );
+        } catch (DataException e) {
+            throw new InternalCoreException("Deposit Failed" + e.getMessage());
+        } finally {
+            unlockKey(bankAccountId);
+        }
+        if (updateCount != 1) {
+            // deposit failed
+            throw new InternalCoreException("Deposit Failed");
+        }
+    }
+
+    /*
+        a single UPDATE guarded by the balance condition, without reading the account first nor taking its java lock:
+        the row lock of the update serializes concurrent updates of the account. The account is only read when nothing was
+        updated, to tell a missing account from an insufficient balance
+     */
+    private void withdrawIfSufficient(long accountId, BigDecimal amount) throws InternalCoreException, ValidationException {
+        int updateCount;
+        try {
+            updateCount = bankAccountAccessor.subtractFromBalanceIfSufficient(
+                    transactionManager.getConnectionFromCurrentTransaction(), transferIdGenerator.nextTransferId(), accountId, amount
+            );
+        } catch (DataException e) {
+            throw new InternalCoreException("Withdrawal Failed:" + e.getMessage());
+        }
+        if (updateCount == 0) {
+            //throws if the account doesn't exist
+            fetchAccount(accountId);
+            throw new ValidationException("Account doesn't have sufficient balance", "203");
+        }
+        if (updateCount != 1) {
+            throw new InternalCoreException("Withdrawal Failed");
+        }
+    }
+
+    private void depositUnconditionally(long accountId, BigDecimal amount) throws InternalCoreException {
+        int updateCount;
+        try {
+            updateCount = bankAccountAccessor.addToBalance(
+                    transactionManager.getConnectionFromCurrentTransaction(), transferIdGenerator.nextTransferId(), accountId, amount
+            );
+        } catch (DataException e) {
+            throw new InternalCoreException("Deposit Failed" + e.getMessage());
+        }
+        if (updateCount == 0) {
+            throw new InternalCoreException("Account doesn't Exists:" + accountId, "202");
+        }
+        if (updateCount != 1) {
+            throw new InternalCoreException("Deposit Failed");
+        }
+    }
+
+    /**
+     * Moves the amount between two accounts, locking and reading both rows once with a single statement and validating
+     * existence and sufficient balance from that locked snapshot. The caller holds the java locks of both accounts.
+     */
+    void transfer(long sourceAccountId, long destinationAccountId, BigDecimal amount) throws InternalCoreException, ValidationException {
+        Connection connection = transactionManager.getConnectionFromCurrentTransaction();
+        try {
+            List<BankAccountTO> lockedAccounts = bankAccountAccessor.lockAccounts(connection, sourceAccountId, destinationAccountId);
+            BankAccountTO sourceAccount = findAccount(lockedAccounts, sourceAccountId);
+            BankAccountTO destinationAccount = findAccount(lockedAccounts, destinationAccountId);
+
+            if (sourceAccount.getBalance().compareTo(amount) < 0) {
+                throw new ValidationException("Source Account doesn't have sufficient balance", "105");
+            }
+            if (sourceAccountId == destinationAccountId) {
+                // nothing moves
+                return;
+            }
+
+            int[] updateCounts = bankAccountAccessor.updateBalances(connection, transferIdGenerator.nextTransferId(),
+                    sourceAccount, sourceAccount.getBalance().subtract(amount),
+                    destinationAccount, destinationAccount.getBalance().add(amount));
+            if (updateCounts.length != 2 || updateCounts[0] != 1 || updateCounts[1] != 1) {
+                throw new InternalCoreException("Transfer Failed");
+            }
+        } catch (DataException e) {
+            throw new InternalCoreException("Transfer Failed:" + e.getMessage());
+        }
+    }
+
+    /**
+     * Executes a batch of transfers all or nothing, locking and reading every account involved up front in ascending id order.
+     * Each transfer is validated against the balances left by the previous ones, the final balances of the changed accounts are
+     * written as one batch only if every transfer is valid. The caller holds the java locks of all the accounts.
+     */
+    List<TransferResultVO> transferBatch(List<TransferRequestVO> transferRequests, long[] sortedAccountIds) throws InternalCoreException {
+        Connection connection = transactionManager.getConnectionFromCurrentTransaction();
+        try {
+            //the locked accounts, carrying the balances and journal sequences left by the transfers applied so far
+            Map<Long, BankAccountTO> accounts = new HashMap<>();
+            for (BankAccountTO account : bankAccountAccessor.lockAccounts(connection, sortedAccountIds)) {
+                accounts.put(account.getBankAccountId(), account);
+            }
+
+            List<TransferResultVO> results = new ArrayList<>(transferRequests.size());
+            //changed accounts in ascending id order, to update the rows in the order they were locked
+            Map<Long, BigDecimal> changedBalances = new TreeMap<>();
+            List<JournalEntryTO> journalEntries = bankAccountAccessor.isJournalEnabled() ? new ArrayList<>() : null;
+            boolean isAllValid = true;
+            for (int index = 0; index < transferRequests.size(); index++) {
+                TransferResultVO result = applyToBalances(index, transferRequests.get(index), accounts, changedBalances, journalEntries);
+                isAllValid &= result.getStatus() == TransferStatus.COMPLETED;
+                results.add(result);
+            }
+
+            if (!isAllValid) {
+                // nothing is written, the valid transfers are reported as not executed
+                for (TransferResultVO result : results) {
+                    if (result.getStatus() == TransferStatus.COMPLETED) {
+                        result.setStatus(TransferStatus.NOT_EXECUTED);
+                    }
+                }
+                return results;
+            }
+
+            if (!changedBalances.isEmpty()) {
+                long[] accountIds = new long[changedBalances.size()];
+                BigDecimal[] finalBalances = new BigDecimal[changedBalances.size()];
+                int i = 0;
+                for (Map.Entry<Long, BigDecimal> changedBalance : changedBalances.entrySet()) {
+                    accountIds[i] = changedBalance.getKey();
+                    finalBalances[i++] = changedBalance.getValue();
+                }
+                for (int updateCount : bankAccountAccessor.updateBalances(connection,
+                        journalEntries == null ? Collections.emptyList() : journalEntries, accountIds, finalBalances)) {
+                    if (updateCount != 1) {
+                        throw new InternalCoreException("Batch Transfer Failed");
+                    }
+                }
+            }
+            return results;
+        } catch (DataException e) {
+            throw new InternalCoreException("Batch Transfer Failed:" + e.getMessage());
+        }
+    }
+
+    /**
+     * Executes transfers one after the other, each on its own, locking and reading every account involved up front in ascending
+     * id order. Each transfer is validated against the balances left by the previous ones and its two balances written and
+     * journaled right away. The caller holds the java locks of all the accounts.
+     *
+     * @return the failure of each transfer, null for the executed ones
+     */
+    Exception[] transferEach(List<TransferRequestVO> transferRequests, long[] sortedAccountIds) throws InternalCoreException {
+        Connection connection = transactionManager.getConnectionFromCurrentTransaction();
+        try {
+            //the locked accounts, left by the accessor with the balances and journal sequences it wrote
+            Map<Long, BankAccountTO> accounts = new HashMap<>();
+            for (BankAccountTO account : bankAccountAccessor.lockAccounts(connection, sortedAccountIds)) {
+                accounts.put(account.getBankAccountId(), account);
+            }
+
+            Exception[] failures = new Exception[transferRequests.size()];
+            for (int index = 0; index < transferRequests.size(); index++) {
+                TransferRequestVO transferRequest = transferRequests.get(index);
+                long sourceAccountId = transferRequest.getSourceAccountId();
+                long destinationAccountId = transferRequest.getDestinationAccountId();
+                BigDecimal amount = transferRequest.getTransferAmount();
+                BankAccountTO sourceAccount = accounts.get(sourceAccountId);
+                BankAccountTO destinationAccount = accounts.get(destinationAccountId);
+                if (sourceAccount == null || destinationAccount == null) {
+                    failures[index] = new InternalCoreException("Account doesn't Exists:"
+                            + (sourceAccount == null ? sourceAccountId : destinationAccountId), "202");
+                } else if (sourceAccount.getBalance().compareTo(amount) < 0) {
+                    failures[index] = new ValidationException("Source Account doesn't have sufficient balance", "105");
+                } else if (sourceAccountId != destinationAccountId) {
+                    int[] updateCounts = bankAccountAccessor.updateBalances(connection, transferIdGenerator.nextTransferId(),
+                            sourceAccount, sourceAccount.getBalance().subtract(amount),
+                            destinationAccount, destinationAccount.getBalance().add(amount));
+                    if (updateCounts.length != 2 || updateCounts[0] != 1 || updateCounts[1] != 1) {
+                        throw new InternalCoreException("Transfer Failed");
+                    }
+                }
+            }
+            return failures;
+        } catch (DataException e) {
+            throw new InternalCoreException("Transfer Failed:" + e.getMessage());
+        }
+    }
+
+    BankAccountTO fetchAccount(long accountId) throws InternalCoreException {
+        BankAccountTO account;
+        try {
+            account = bankAccountAccessor.getAccount(transactionManager.getConnectionFromCurrentTransaction(), accountId);
+        } catch (DataException e) {
+            throw new InternalCoreException("Unable to fetch Account:" + accountId);
+        }
+
+        if (Objects.isNull(account)) {
+            throw new InternalCoreException("Account doesn't Exists:" + accountId, "202");
+        }
+
+        return account;
+    }
+
+    private void lockKey(long accountId) throws InternalCoreException {
+        if (isJavaLocking) {
+            TransactionLocks.lockKey(lockManager, accountId);
+        }
+    }
+
+    private void unlockKey(long accountId) {
+        if (isJavaLocking) {
+            lockManager.unlockKey(accountId);
+        }
+    }
+
+    /*
+        applies the transfer to the balances of the accounts. the legs of the transfer are added to the journal entries under
+        a transfer id of its own, each taking the next journal sequence of its account, null when not journaling
+     */
+    private TransferResultVO applyToBalances(int index, TransferRequestVO transferRequest, Map<Long, BankAccountTO> accounts,
+                                             Map<Long, BigDecimal> changedBalances, List<JournalEntryTO> journalEntries) {
+        ValidationException failure = TransferValidator.checkTransfer(transferRequest);
+        if (failure != null) {
+            return new TransferResultVO(index, TransferStatus.FAILED, failure.getReasonCode(), failure.getMessage());
+        }
+        BigDecimal amount = transferRequest.getTransferAmount();
+        long sourceAccountId = transferRequest.getSourceAccountId();
+        long destinationAccountId = transferRequest.getDestinationAccountId();
+        BankAccountTO sourceAccount = accounts.get(sourceAccountId);
+        if (sourceAccount == null) {
+            return new TransferResultVO(index, TransferStatus.FAILED, "202", "Account doesn't Exists:" + sourceAccountId);
+        }
+        BankAccountTO destinationAccount = accounts.get(destinationAccountId);
+        if (destinationAccount == null) {
+            return new TransferResultVO(index, TransferStatus.FAILED, "202", "Account doesn't Exists:" + destinationAccountId);
+        }
+        if (sourceAccount.getBalance().compareTo(amount) < 0) {
+            return new TransferResultVO(index, TransferStatus.FAILED, "105", "Source Account doesn't have sufficient balance");
+        }
+        if (sourceAccountId != destinationAccountId) {
+            sourceAccount.setBalance(sourceAccount.getBalance().subtract(amount));
+            destinationAccount.setBalance(destinationAccount.getBalance().add(amount));
+            changedBalances.put(sourceAccountId, sourceAccount.getBalance());
+            changedBalances.put(destinationAccountId, destinationAccount.getBalance());
+            if (journalEntries != null) {
+                long transferId = transferIdGenerator.nextTransferId();
+                journalEntries.add(journalLeg(transferId, sourceAccount, amount.negate()));
+                journalEntries.add(journalLeg(transferId, destinationAccount, amount));
+            }
+        }
+        return new TransferResultVO(index, TransferStatus.COMPLETED, null, null);
+    }
+
+    private static JournalEntryTO journalLeg(long transferId, BankAccountTO account, BigDecimal signedAmount) {
+        account.setJournalSequence(account.getJournalSequence() + 1);
+        return new JournalEntryTO(transferId, account.getBankAccountId(), account.getJournalSequence(), signedAmount,
+                account.getBalance());
+    }
+
+    private BankAccountTO findAccount(List<BankAccountTO> accounts, long accountId) throws InternalCoreException {
+        for (BankAccountTO account : accounts) {
+            if (account.getBankAccountId() == accountId) {
+                return account;
+            }
+        }
+        throw new InternalCoreException("Account doesn't Exists:" + accountId, "202");
+    }
+}
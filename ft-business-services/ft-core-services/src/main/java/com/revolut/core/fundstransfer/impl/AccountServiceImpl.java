@@ -1,27 +1,43 @@
 package com.revolut.core.fundstransfer.impl;
 
-import com.revolut.core.fundstransfer.locks.ObjectsLockManager;
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.gateway.SelfTransactedService;
 import com.revolut.core.fundstransfer.mapper.BankAccountMapper;
-import com.revolut.core.fundstransfer.persist.accessor.BankAccountAccessor;
+import com.revolut.core.fundstransfer.partition.AccountPartitions;
 import com.revolut.core.fundstransfer.persist.accessor.DataAccessorFactory;
 import com.revolut.core.fundstransfer.persist.exception.DataException;
-import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
 import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.core.fundstransfer.validation.TransferValidator;
+import com.revolut.sdk.fundstransfer.services.AccountExportHandler;
 import com.revolut.sdk.fundstransfer.services.AccountService;
 import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
 import com.revolut.sdk.fundstransfer.exception.ValidationException;
+import com.revolut.sdk.fundstransfer.model.AccountPageVO;
 import com.revolut.sdk.fundstransfer.model.AccountVO;
+import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
-public class AccountServiceImpl implements AccountService {
+public class AccountServiceImpl implements AccountService, SelfTransactedService {
 
     private final DataAccessorFactory dataAccessorFactory = DataAccessorFactory.getDataAccessorFactory(DataAccessorFactory.DATA_ACCESSOR_FACTORY_H2);
     private final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
-    private final ObjectsLockManager lockManager = ObjectsLockManager.getInstance();
+    private final ExecutionMode executionMode = CoreConfiguration.getInstance()
+            .getEnumConfigValue("core.execution.mode", ExecutionMode.class, ExecutionMode.SHARED);
+    private final AccountBalanceUpdater balanceUpdater = new AccountBalanceUpdater(executionMode == ExecutionMode.SHARED);
+    private final AccountPartitions partitions = AccountPartitions.getInstance();
+
+    /*
+        partitioned balance updates run in a transaction of the partition, the caller has no use for one
+     */
+    @Override
+    public boolean isSelfTransacted(String methodName) {
+        return executionMode == ExecutionMode.PARTITIONED
+                && ("withdrawFromAccount".equals(methodName) || "depositToAccount".equals(methodName));
+    }
 
     @Override
     public List<AccountVO> getAllAccounts() throws InternalCoreException {
@@ -36,86 +52,75 @@ public class AccountServiceImpl implements AccountService {
     }
 
     @Override
-    public AccountVO getAccount(Long accountId) throws InternalCoreException {
-        return BankAccountMapper.convertFromTO(fetchAccount(dataAccessorFactory.getBankAccountAccessor(), accountId));
+    public long exportAccounts(AccountExportHandler exportHandler) throws InternalCoreException {
+        try {
+            //straight from the database, the cache would only hold a fraction of the accounts
+            return dataAccessorFactory.getBankAccountAccessor().streamAllAccounts(
+                    transactionManager.getConnectionFromCurrentTransaction(), exportHandler::onAccount);
+        } catch (DataException e) {
+            throw new InternalCoreException("Account Export Failed:" + e.getMessage());
+        }
     }
 
     /*
-        Added for testing purpose, should be ignored
+        reads one account more than the limit, to tell whether there is a next page without another query
      */
     @Override
-    public AccountVO getAccount(Long accountId, boolean isTest) throws InternalCoreException {
-        return getAccount(accountId);
-    }
-
-    @Override
-    public void withdrawFromAccount(Long accountId, BigDecimal amount) throws InternalCoreException, ValidationException {
-
-        if (Objects.isNull(amount) || amount.longValue() <= 0) {
-            throw new ValidationException("Invalid withdrawal amount", "301");
-        }
-
-        BankAccountTO account = fetchAccount(dataAccessorFactory.getBankAccountAccessor(), accountId);
-
-        if (account.getBalance().longValue() < amount.longValue()) {
-            throw new ValidationException("Account doesn't have sufficient balance", "203");
+    public AccountPageVO getAccountsPage(Long afterAccountId, Integer limit) throws InternalCoreException, ValidationException {
+        if (limit == null || limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new ValidationException("Invalid page limit, should be from 1 to " + MAX_PAGE_LIMIT, "304");
         }
-
-        int updateCount = 0;
+        List<BankAccountTO> accounts;
         try {
-            lockManager.lockKey(account.getBankAccountId());
-            updateCount = dataAccessorFactory.getBankAccountAccessor().withdraw(
-                    transactionManager.getConnectionFromCurrentTransaction(), account.getBankAccountId(), amount
-            );
+            accounts = dataAccessorFactory.getBankAccountAccessor().getAccountsAfter(transactionManager.getConnectionFromCurrentTransaction(),
+                    afterAccountId == null ? Long.MIN_VALUE : afterAccountId, limit + 1);
         } catch (DataException e) {
-            throw new InternalCoreException("Withdrawal Failed:" + e.getMessage());
-        } finally {
-            lockManager.unlockKey(account.getBankAccountId());
+            throw new InternalCoreException(e.getMessage());
         }
-        if (updateCount != 1) {
-            // withdrawal failed
-            throw new InternalCoreException("Withdrawal Failed");
+        boolean hasNextPage = accounts.size() > limit;
+        List<AccountVO> page = new ArrayList<>(Math.min(accounts.size(), limit));
+        for (int i = 0; i < accounts.size() && i < limit; i++) {
+            page.add(BankAccountMapper.convertFromTO(accounts.get(i)));
         }
+        return new AccountPageVO(page, hasNextPage ? page.get(page.size() - 1).getAccountId() : null);
     }
 
     @Override
-    public void depositToAccount(Long accountId, BigDecimal amount) throws InternalCoreException, ValidationException {
-
-        if (Objects.isNull(amount) || amount.longValue() <= 0) {
-            throw new ValidationException("Invalid depositToAccount amount", "302");
-        }
-
-        BankAccountTO account = fetchAccount(dataAccessorFactory.getBankAccountAccessor(), accountId);
+    public AccountVO getAccount(Long accountId) throws InternalCoreException {
+        return BankAccountMapper.convertFromTO(balanceUpdater.fetchAccount(accountId));
+    }
 
-        int updateCount = 0;
-        try {
-            lockManager.lockKey(account.getBankAccountId());
-            updateCount = dataAccessorFactory.getBankAccountAccessor().deposit(
-                    transactionManager.getConnectionFromCurrentTransaction(), account.getBankAccountId(), amount
-            );
-        } catch (DataException e) {
-            throw new InternalCoreException("Deposit Failed" + e.getMessage());
-        } finally {
-            lockManager.unlockKey(account.getBankAccountId());
-        }
-        if (updateCount != 1) {
-            // deposit failed
-            throw new InternalCoreException("Deposit Failed");
-        }
+    /*
+        Added for testing purpose, should be ignored
+     */
+    @Override
+    public AccountVO getAccount(Long accountId, boolean isTest) throws InternalCoreException {
+        return getAccount(accountId);
     }
 
-    private BankAccountTO fetchAccount(BankAccountAccessor bankAccountAccessor, Long accountId) throws InternalCoreException {
-        BankAccountTO account;
-        try {
-            account = bankAccountAccessor.getAccount(transactionManager.getConnectionFromCurrentTransaction(), accountId);
-        } catch (DataException e) {
-            throw new InternalCoreException("Unable to fetch Account:" + accountId);
+    @Override
+    public void withdrawFromAccount(Long accountId, BigDecimal amount) throws InternalCoreException, ValidationException {
+        TransferValidator.validateWithdrawal(accountId, amount);
+        if (executionMode == ExecutionMode.PARTITIONED) {
+            partitions.execute(accountId, () -> {
+                balanceUpdater.withdraw(accountId, amount);
+                return null;
+            });
+            return;
         }
+        balanceUpdater.withdraw(accountId, amount);
+    }
 
-        if (Objects.isNull(account)) {
-            throw new InternalCoreException("Account doesn't Exists:" + accountId, "202");
+    @Override
+    public void depositToAccount(Long accountId, BigDecimal amount) throws InternalCoreException, ValidationException {
+        TransferValidator.validateDeposit(accountId, amount);
+        if (executionMode == ExecutionMode.PARTITIONED) {
+            partitions.execute(accountId, () -> {
+                balanceUpdater.deposit(accountId, amount);
+                return null;
+            });
+            return;
         }
-
-        return account;
+        balanceUpdater.deposit(accountId, amount);
     }
 }
@@ -0,0 +1,17 @@
+package com.revolut.core.fundstransfer.impl;
+
+/**
+ * How a withdrawal or a deposit writes the new balance of an account, configured with core.balance.update.mode
+ */
+public enum BalanceUpdateMode {
+
+    /**
+     * Lock and read the account row, compute the new balance in java and write it back, two round trips per update.
+     */
+    SELECT_FOR_UPDATE,
+
+    /**
+     * A single update doing the arithmetic in the database, a withdrawal is guarded by a sufficient balance condition.
+     */
+    CONDITIONAL_UPDATE
+}
@@ -0,0 +1,17 @@
+package com.revolut.core.fundstransfer.impl;
+
+/**
+ * How the transactions of single transfers are committed, configured with core.commit.mode
+ */
+public enum CommitMode {
+
+    /**
+     * Each transfer commits its own transaction on the calling thread.
+     */
+    PER_TRANSFER,
+
+    /**
+     * Concurrent transfers are handed over to the {@link GroupCommitCoordinator}, which runs them in one transaction and commits them together.
+     */
+    GROUP
+}
@@ -0,0 +1,18 @@
+package com.revolut.core.fundstransfer.impl;
+
+/**
+ * Which threads execute the balance updates, configured with core.execution.mode
+ */
+public enum ExecutionMode {
+
+    /**
+     * The calling threads, concurrent updates of an account are serialized with java locks and row locks.
+     */
+    SHARED,
+
+    /**
+     * The single thread of the partition owning the account, without java locks. A transfer between accounts of two
+     * partitions is executed by one of them while the other one is held.
+     */
+    PARTITIONED
+}
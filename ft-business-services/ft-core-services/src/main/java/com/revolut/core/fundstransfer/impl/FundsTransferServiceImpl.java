@@ -1,7 +1,11 @@
 package com.revolut.core.fundstransfer.impl;
 
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.gateway.SelfTransactedService;
 import com.revolut.core.fundstransfer.gateway.ServicesGateway;
 import com.revolut.core.fundstransfer.locks.ObjectsLockManager;
+import com.revolut.core.fundstransfer.partition.AccountPartitions;
+import com.revolut.core.fundstransfer.validation.TransferValidator;
 import com.revolut.sdk.fundstransfer.services.AccountService;
 import com.revolut.sdk.fundstransfer.services.FundsTransferService;
 import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
@@ -9,22 +13,54 @@ import com.revolut.sdk.fundstransfer.exception.ServiceException;
 import com.revolut.sdk.fundstransfer.exception.ValidationException;
 import com.revolut.sdk.fundstransfer.model.AccountVO;
 import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.model.TransferResultVO;
 
-import java.util.Objects;
+import java.util.List;
+import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class FundsTransferServiceImpl implements FundsTransferService {
+public class FundsTransferServiceImpl implements FundsTransferService, SelfTransactedService {
 
     private static Logger logger = Logger.getLogger(FundsTransferServiceImpl.class.getName());
     private final ServicesGateway servicesGateway = ServicesGateway.getServicesGateway();
     private final ObjectsLockManager lockManager = ObjectsLockManager.getInstance();
+    private final AccountBalanceUpdater balanceUpdater = new AccountBalanceUpdater();
+    private final AccountPartitions partitions = AccountPartitions.getInstance();
+    private final TransferMode transferMode = CoreConfiguration.getInstance()
+            .getEnumConfigValue("core.transfer.mode", TransferMode.class, TransferMode.SINGLE_TRANSACTION);
+    private final ExecutionMode executionMode = CoreConfiguration.getInstance()
+            .getEnumConfigValue("core.execution.mode", ExecutionMode.class, ExecutionMode.SHARED);
+    private final CommitMode commitMode = CoreConfiguration.getInstance()
+            .getEnumConfigValue("core.commit.mode", CommitMode.class, CommitMode.PER_TRANSFER);
+
+    /*
+        partitioned transfers run in a transaction of the partitions and group committed ones in a transaction of their group,
+        the caller has no use for one
+     */
+    @Override
+    public boolean isSelfTransacted(String methodName) {
+        return "transferFunds".equals(methodName) && (executionMode == ExecutionMode.PARTITIONED
+                || (transferMode == TransferMode.SINGLE_TRANSACTION && commitMode == CommitMode.GROUP));
+    }
 
     @Override
     public void transferFunds(TransferRequestVO transferRequest) throws InternalCoreException, ValidationException {
 
-        if (Objects.isNull(transferRequest.getTransferAmount()) || transferRequest.getTransferAmount().longValue() <= 0) {
-            throw new ValidationException("Invalid transfer amount", "303");
+        TransferValidator.validateTransfer(transferRequest);
+
+        if (executionMode == ExecutionMode.PARTITIONED) {
+            transferOnPartitions(transferRequest);
+            return;
+        }
+
+        if (transferMode == TransferMode.SINGLE_TRANSACTION) {
+            if (commitMode == CommitMode.GROUP) {
+                GroupCommitCoordinator.getInstance().transfer(transferRequest);
+                return;
+            }
+            transferInCurrentTransaction(transferRequest);
+            return;
         }
 
         AccountVO sourceAccount = null;
@@ -38,14 +74,14 @@ public class FundsTransferServiceImpl implements FundsTransferService {
             throw new InternalCoreException(e.getMessage(), e.getReasonCode());
         }
 
-        if (sourceAccount.getBalance().longValue() < transferRequest.getTransferAmount().longValue()) {
+        if (sourceAccount.getBalance().compareTo(transferRequest.getTransferAmount()) < 0) {
             throw new ValidationException("Source Account doesn't have sufficient balance", "105");
         }
 
         int updateCount = 0;
         InternalCoreException exception = null;
+        TransactionLocks.lockMultipleAtomically(lockManager, sourceAccount.getAccountId(), destinationAccount.getAccountId());
         try {
-            lockManager.lockMultipleAtomically(sourceAccount.getAccountId(), destinationAccount.getAccountId());
             servicesGateway.pass(
                     AccountService.class, "withdrawFromAccount", sourceAccount.getAccountId(), transferRequest.getTransferAmount());
             updateCount++;
@@ -78,4 +114,88 @@ public class FundsTransferServiceImpl implements FundsTransferService {
             }
         }
     }
+
+    /*
+        both legs run on the connection of the transfer transaction, on any failure the gateway rolls back the transfer as a whole
+        so there is nothing to compensate. Both rows are locked and read once, the accounts are not fetched through the gateway.
+     */
+    private void transferInCurrentTransaction(TransferRequestVO transferRequest) throws InternalCoreException, ValidationException {
+        long sourceAccountId = transferRequest.getSourceAccountId();
+        long destinationAccountId = transferRequest.getDestinationAccountId();
+
+        InternalCoreException exception = null;
+        TransactionLocks.lockMultipleAtomically(lockManager, sourceAccountId, destinationAccountId);
+        try {
+            balanceUpdater.transfer(sourceAccountId, destinationAccountId, transferRequest.getTransferAmount());
+        } catch (InternalCoreException e) {
+            exception = new InternalCoreException("Transfer Failed:" + e.getMessage(), e.getReasonCode());
+        } finally {
+            try {
+                lockManager.unlockMultiple(sourceAccountId, destinationAccountId);
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Transfer Failed while unlocking accounts: "+e.getMessage());
+                exception = new InternalCoreException("Transfer Failed while unlocking accounts");
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /*
+        both legs run in one transaction of the partitions owning the accounts, which are their only writers, hence without
+        java locks. A failure rolls back the transfer as a whole, whatever the transfer mode.
+     */
+    private void transferOnPartitions(TransferRequestVO transferRequest) throws InternalCoreException, ValidationException {
+        long sourceAccountId = transferRequest.getSourceAccountId();
+        long destinationAccountId = transferRequest.getDestinationAccountId();
+        try {
+            partitions.execute(sourceAccountId, destinationAccountId, () -> {
+                balanceUpdater.transfer(sourceAccountId, destinationAccountId, transferRequest.getTransferAmount());
+                return null;
+            });
+        } catch (InternalCoreException e) {
+            throw new InternalCoreException("Transfer Failed:" + e.getMessage(), e.getReasonCode());
+        }
+    }
+
+    /*
+        batches always run both legs of every transfer in the batch transaction, whatever the transfer mode, as all or nothing
+        can't be guaranteed by compensation. All the accounts are locked up front, the ordered strategy takes them in canonical order.
+        Batches run on the calling thread in every execution mode, the row locks keep them consistent with the partitions.
+     */
+    @Override
+    public List<TransferResultVO> transferFundsBatch(List<TransferRequestVO> transferRequests) throws InternalCoreException {
+        TreeSet<Long> accountIds = new TreeSet<>();
+        for (TransferRequestVO transferRequest : transferRequests) {
+            if (TransferValidator.checkTransfer(transferRequest) != null) {
+                //reported as failed by the batch, without locking anything
+                continue;
+            }
+            accountIds.add(transferRequest.getSourceAccountId());
+            accountIds.add(transferRequest.getDestinationAccountId());
+        }
+        Object[] lockKeys = accountIds.toArray();
+        long[] sortedAccountIds = accountIds.stream().mapToLong(Long::longValue).toArray();
+
+        List<TransferResultVO> results = null;
+        InternalCoreException exception = null;
+        TransactionLocks.lockMultipleAtomically(lockManager, lockKeys);
+        try {
+            results = balanceUpdater.transferBatch(transferRequests, sortedAccountIds);
+        } catch (InternalCoreException e) {
+            exception = e;
+        } finally {
+            try {
+                lockManager.unlockMultiple(lockKeys);
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Batch Transfer Failed while unlocking accounts: "+e.getMessage());
+                exception = new InternalCoreException("Batch Transfer Failed while unlocking accounts");
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return results;
+    }
 }
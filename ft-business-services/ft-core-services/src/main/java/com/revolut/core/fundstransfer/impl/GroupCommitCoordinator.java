@@ -0,0 +1,305 @@
+package com.revolut.core.fundstransfer.impl;
+
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager;
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.core.fundstransfer.transaction.manage.TransactionDefinition;
+import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+
+import javax.transaction.Transactional.TxType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Commits concurrent transfers in groups, so that they share one commit and its log flush.
+ *
+ * Callers hand their transfer over and wait, in no transaction of their own. A single committer thread takes the first waiting
+ * transfer, collects the transfers handed over within core.group.commit.window.micros of it, up to core.group.commit.max.size,
+ * runs them one after the other in one transaction and commits them together. A caller returns once the commit of its group
+ * succeeded, or fails with it.
+ *
+ * The group transaction times out after core.group.commit.timeout.seconds, its lock waits included. A caller waits as long for
+ * its transfer to be taken into a group, then withdraws it, and as long again for the group to end.
+ *
+ * All the accounts of a group are locked up front in ascending id order, java locks then rows, so a group can't deadlock with
+ * other transactions and transfers of one group may share accounts.
+ * Every account is read once per group, each transfer is validated against the balances left by the previous ones: an invalid
+ * transfer changes nothing and its caller alone gets its exception. A group failing in the database is retried split into
+ * the transfers sharing accounts with each other, so that a failure only fails the transfers of the accounts involved.
+ */
+public class GroupCommitCoordinator {
+
+    private static Logger log = Logger.getLogger(GroupCommitCoordinator.class.getName());
+
+    private static final GroupCommitCoordinator instance = new GroupCommitCoordinator();
+
+    private final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+    private final ObjectsLockManager lockManager = ObjectsLockManager.getInstance();
+    private final AccountBalanceUpdater balanceUpdater = new AccountBalanceUpdater(false);
+    private final BlockingQueue<PendingTransfer> pendingTransfers = new LinkedBlockingQueue<>();
+    private final long windowNanos;
+    private final int maxGroupSize;
+    private final long timeoutMillis;
+    private final TransactionDefinition groupTransaction;
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder committedTransfers = new LongAdder();
+
+    private GroupCommitCoordinator() {
+        CoreConfiguration configuration = CoreConfiguration.getInstance();
+        windowNanos = TimeUnit.MICROSECONDS.toNanos(configuration.getIntConfigValue("core.group.commit.window.micros", 100));
+        maxGroupSize = Math.max(1, configuration.getIntConfigValue("core.group.commit.max.size", 128));
+        int timeoutSeconds = Math.max(1, configuration.getIntConfigValue("core.group.commit.timeout.seconds", 30));
+        timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        groupTransaction = new TransactionDefinition(TxType.REQUIRES_NEW, false, timeoutSeconds, TransactionDefinition.DEFAULT_ISOLATION);
+        Thread committer = new Thread(this::commitGroups, "ft-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    public static GroupCommitCoordinator getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the group commits since startup
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * @return the transfers committed by the group commits since startup
+     */
+    public long getCommittedTransfers() {
+        return committedTransfers.sum();
+    }
+
+    /**
+     * Hands the transfer over to the committer and waits until it is committed with its group.
+     */
+    void transfer(TransferRequestVO transferRequest) throws InternalCoreException, ValidationException {
+        PendingTransfer pendingTransfer = new PendingTransfer(transferRequest);
+        pendingTransfers.add(pendingTransfer);
+        try {
+            try {
+                pendingTransfer.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pendingTransfer.take()) {
+                    //withdrawn, the committer skips it
+                    throw new InternalCoreException("Transfer timed out waiting for its group commit");
+                }
+                //taken into a group, whose transaction times out by now
+                pendingTransfer.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            throw new InternalCoreException("Transfer timed out waiting for its group commit, its outcome is unknown");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InternalCoreException) {
+                throw (InternalCoreException) cause;
+            } else if (cause instanceof ValidationException) {
+                throw (ValidationException) cause;
+            }
+            throw new InternalCoreException("Transfer Failed:" + cause.getMessage());
+        } catch (InterruptedException e) {
+            //withdrawn, unless already taken into a group which may still commit it
+            pendingTransfer.take();
+            Thread.currentThread().interrupt();
+            throw new InternalCoreException("Transfer Interrupted");
+        }
+    }
+
+    private void commitGroups() {
+        List<PendingTransfer> group = new ArrayList<>(maxGroupSize);
+        while (true) {
+            try {
+                group.add(pendingTransfers.take());
+                collectGroup(group);
+                //drops the transfers withdrawn by their callers
+                group.removeIf(pendingTransfer -> !pendingTransfer.take());
+                if (!group.isEmpty()) {
+                    commitGroupOrSplit(group);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                log.log(Level.SEVERE, "Group commit failed", e);
+                for (PendingTransfer pendingTransfer : group) {
+                    pendingTransfer.result.completeExceptionally(new InternalCoreException("Transfer Failed:" + e.getMessage()));
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void collectGroup(List<PendingTransfer> group) throws InterruptedException {
+        long deadline = System.nanoTime() + windowNanos;
+        pendingTransfers.drainTo(group, maxGroupSize - group.size());
+        while (group.size() < maxGroupSize) {
+            PendingTransfer next = pendingTransfers.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+            pendingTransfers.drainTo(group, maxGroupSize - group.size());
+        }
+    }
+
+    /*
+        a group failing in the database e.g. on a lock or transaction timeout is rolled back, then each set of transfers sharing
+        accounts is committed on its own, unless the group is such a set already
+     */
+    private void commitGroupOrSplit(List<PendingTransfer> group) throws Exception {
+        List<List<PendingTransfer>> components;
+        try {
+            commitGroup(group);
+            return;
+        } catch (Exception e) {
+            components = splitByAccounts(group);
+            if (components.size() == 1) {
+                throw e;
+            }
+            log.log(Level.WARNING, "Group commit of " + group.size() + " transfers failed, committing its " + components.size()
+                    + " independent parts one by one:" + e.getMessage());
+        }
+        for (List<PendingTransfer> component : components) {
+            try {
+                commitGroup(component);
+            } catch (Exception e) {
+                log.log(Level.SEVERE, "Group commit failed", e);
+                for (PendingTransfer pendingTransfer : component) {
+                    pendingTransfer.result.completeExceptionally(new InternalCoreException("Transfer Failed:" + e.getMessage()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the transfers of the group linked by their accounts, each list in the order of the group
+     */
+    static <T> List<List<T>> splitByAccounts(List<T> transfers, long[] sourceAccountIds, long[] destinationAccountIds) {
+        //union find over the accounts, each account pointing towards the root of its set
+        Map<Long, Long> parents = new HashMap<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            long sourceRoot = root(parents, sourceAccountIds[i]);
+            long destinationRoot = root(parents, destinationAccountIds[i]);
+            if (sourceRoot != destinationRoot) {
+                parents.put(sourceRoot, destinationRoot);
+            }
+        }
+        Map<Long, List<T>> components = new LinkedHashMap<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            components.computeIfAbsent(root(parents, sourceAccountIds[i]), root -> new ArrayList<>()).add(transfers.get(i));
+        }
+        return new ArrayList<>(components.values());
+    }
+
+    private static long root(Map<Long, Long> parents, long accountId) {
+        long root = accountId;
+        Long parent;
+        while ((parent = parents.get(root)) != null) {
+            root = parent;
+        }
+        //path compression
+        for (long node = accountId; node != root; ) {
+            long next = parents.get(node);
+            parents.put(node, root);
+            node = next;
+        }
+        return root;
+    }
+
+    private static List<List<PendingTransfer>> splitByAccounts(List<PendingTransfer> group) {
+        long[] sourceAccountIds = new long[group.size()];
+        long[] destinationAccountIds = new long[group.size()];
+        for (int i = 0; i < group.size(); i++) {
+            sourceAccountIds[i] = group.get(i).transferRequest.getSourceAccountId();
+            destinationAccountIds[i] = group.get(i).transferRequest.getDestinationAccountId();
+        }
+        return splitByAccounts(group, sourceAccountIds, destinationAccountIds);
+    }
+
+    private void commitGroup(List<PendingTransfer> group) throws Exception {
+        TreeSet<Long> accountIds = new TreeSet<>();
+        for (PendingTransfer pendingTransfer : group) {
+            accountIds.add(pendingTransfer.transferRequest.getSourceAccountId());
+            accountIds.add(pendingTransfer.transferRequest.getDestinationAccountId());
+        }
+        Object[] lockKeys = accountIds.toArray();
+        long[] sortedAccountIds = accountIds.stream().mapToLong(Long::longValue).toArray();
+
+        List<TransferRequestVO> transferRequests = new ArrayList<>(group.size());
+        for (PendingTransfer pendingTransfer : group) {
+            transferRequests.add(pendingTransfer.transferRequest);
+        }
+
+        Exception[] failures;
+        boolean isLocked = false;
+        boolean isSuccessful = false;
+        //started first, so that the lock wait counts against the timeout of the group
+        transactionManager.startTransaction(groupTransaction);
+        try {
+            TransactionLocks.lockMultipleAtomically(lockManager, lockKeys);
+            isLocked = true;
+            failures = balanceUpdater.transferEach(transferRequests, sortedAccountIds);
+            isSuccessful = true;
+        } finally {
+            try {
+                transactionManager.endTransactionIfNeeded(isSuccessful);
+            } finally {
+                if (isLocked) {
+                    lockManager.unlockMultiple(lockKeys);
+                }
+            }
+        }
+
+        commits.increment();
+        for (int i = 0; i < group.size(); i++) {
+            if (failures[i] == null) {
+                committedTransfers.increment();
+                group.get(i).result.complete(null);
+            } else if (failures[i] instanceof InternalCoreException) {
+                InternalCoreException failure = (InternalCoreException) failures[i];
+                group.get(i).result.completeExceptionally(new InternalCoreException("Transfer Failed:" + failure.getMessage(), failure.getReasonCode()));
+            } else {
+                group.get(i).result.completeExceptionally(failures[i]);
+            }
+        }
+    }
+
+    private static class PendingTransfer {
+
+        private final TransferRequestVO transferRequest;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private final AtomicBoolean isTaken = new AtomicBoolean();
+
+        PendingTransfer(TransferRequestVO transferRequest) {
+            this.transferRequest = transferRequest;
+        }
+
+        /**
+         * @return true for the one of the committer and the timed out caller getting the transfer first
+         */
+        boolean take() {
+            return isTaken.compareAndSet(false, true);
+        }
+    }
+}
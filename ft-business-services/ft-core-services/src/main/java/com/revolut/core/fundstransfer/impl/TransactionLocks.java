@@ -0,0 +1,74 @@
+package com.revolut.core.fundstransfer.impl;
+
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager;
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.core.fundstransfer.transaction.manage.TransactionDefinition;
+import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
+
+/**
+ * Takes java locks on behalf of the current transaction: the wait is bounded by the time the transaction has left before it
+ * times out, a transaction without timeout waits as long as it takes.
+ */
+final class TransactionLocks {
+
+    private static final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+
+    private TransactionLocks() {
+    }
+
+    static void lockKey(ObjectsLockManager lockManager, long key) throws InternalCoreException {
+        long remainingMillis = transactionManager.getRemainingTimeoutMillis();
+        if (remainingMillis == TransactionDefinition.NO_TIMEOUT) {
+            lockManager.lockKey(key);
+            return;
+        }
+        try {
+            lockManager.lockKeyWithTimeout(key, checkRemaining(remainingMillis));
+        } catch (InternalCoreException e) {
+            throw e;
+        } catch (Exception e) {
+            throw timedOut();
+        }
+    }
+
+    static void lockMultipleAtomically(ObjectsLockManager lockManager, long firstKey, long secondKey) throws InternalCoreException {
+        long remainingMillis = transactionManager.getRemainingTimeoutMillis();
+        if (remainingMillis == TransactionDefinition.NO_TIMEOUT) {
+            lockManager.lockMultipleAtomically(firstKey, secondKey);
+            return;
+        }
+        try {
+            lockManager.lockMultipleAtomicallyWithTimeout(checkRemaining(remainingMillis), firstKey, secondKey);
+        } catch (InternalCoreException e) {
+            throw e;
+        } catch (Exception e) {
+            throw timedOut();
+        }
+    }
+
+    static void lockMultipleAtomically(ObjectsLockManager lockManager, Object... keys) throws InternalCoreException {
+        long remainingMillis = transactionManager.getRemainingTimeoutMillis();
+        if (remainingMillis == TransactionDefinition.NO_TIMEOUT) {
+            lockManager.lockMultipleAtomically(keys);
+            return;
+        }
+        try {
+            lockManager.lockMultipleAtomicallyWithTimeout(checkRemaining(remainingMillis), keys);
+        } catch (InternalCoreException e) {
+            throw e;
+        } catch (Exception e) {
+            throw timedOut();
+        }
+    }
+
+    private static long checkRemaining(long remainingMillis) throws InternalCoreException {
+        if (remainingMillis <= 0) {
+            throw timedOut();
+        }
+        return remainingMillis;
+    }
+
+    private static InternalCoreException timedOut() {
+        return new InternalCoreException("Transaction timed out while waiting for the account locks");
+    }
+}
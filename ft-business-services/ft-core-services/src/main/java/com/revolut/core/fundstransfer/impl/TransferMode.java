@@ -0,0 +1,17 @@
+package com.revolut.core.fundstransfer.impl;
+
+/**
+ * How a transfer executes its withdrawal and deposit, configured with core.transfer.mode
+ */
+public enum TransferMode {
+
+    /**
+     * Both legs run in the transaction of the transfer on one connection, a failure simply rolls back both of them.
+     */
+    SINGLE_TRANSACTION,
+
+    /**
+     * Each leg runs in its own transaction through the account service, a failed deposit is compensated by crediting back the source account.
+     */
+    COMPENSATING
+}
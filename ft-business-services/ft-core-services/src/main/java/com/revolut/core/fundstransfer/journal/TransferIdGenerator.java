@@ -0,0 +1,27 @@
+package com.revolut.core.fundstransfer.journal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the ids the entries of TRANSFER_JOURNAL are grouped by, one per transfer or balance changing operation,
+ * so that a batch journals each of its transfers under its own id.
+ * Seeded from the clock at startup, so that ids keep increasing across restarts on the same database.
+ */
+public class TransferIdGenerator {
+
+    private static final TransferIdGenerator instance = new TransferIdGenerator();
+
+    //up to 65536 ids per millisecond of downtime before ids of two runs could overlap
+    private final AtomicLong lastTransferId = new AtomicLong(System.currentTimeMillis() << 16);
+
+    private TransferIdGenerator() {
+    }
+
+    public static TransferIdGenerator getInstance() {
+        return instance;
+    }
+
+    public long nextTransferId() {
+        return lastTransferId.incrementAndGet();
+    }
+}
@@ -0,0 +1,91 @@
+package com.revolut.core.fundstransfer.ledger;
+
+import com.revolut.core.fundstransfer.gateway.SelfTransactedService;
+import com.revolut.core.fundstransfer.validation.TransferValidator;
+import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+import com.revolut.sdk.fundstransfer.model.AccountPageVO;
+import com.revolut.sdk.fundstransfer.model.AccountVO;
+import com.revolut.sdk.fundstransfer.services.AccountExportHandler;
+import com.revolut.sdk.fundstransfer.services.AccountService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Account service executing on the {@link Ledger} instead of the database, selected with core.engine=LEDGER
+ */
+public class AccountServiceImpl implements AccountService, SelfTransactedService {
+
+    private final Ledger ledger = Ledger.getInstance();
+
+    /*
+        the ledger owns the balances, only its persister thread touches the database
+     */
+    @Override
+    public boolean isSelfTransacted(String methodName) {
+        return true;
+    }
+
+    @Override
+    public List<AccountVO> getAllAccounts() throws InternalCoreException {
+        return ledger.getAllAccounts();
+    }
+
+    /*
+        page by page, so that the writer is never held for long and only a page of accounts is copied at a time.
+        Accounts changing while paging are exported as of their page
+     */
+    @Override
+    public long exportAccounts(AccountExportHandler exportHandler) throws InternalCoreException {
+        long exported = 0;
+        Long afterAccountId = Long.MIN_VALUE;
+        try {
+            while (afterAccountId != null) {
+                AccountPageVO page = ledger.getAccountsPage(afterAccountId, MAX_PAGE_LIMIT);
+                for (AccountVO account : page.getAccounts()) {
+                    exportHandler.onAccount(account.getAccountId(), account.getAccountNumber(), account.getAccountName(), account.getBalance());
+                }
+                exported += page.getAccounts().size();
+                afterAccountId = page.getNextAfterAccountId();
+            }
+        } catch (ValidationException | IOException e) {
+            throw new InternalCoreException("Account Export Failed:" + e.getMessage());
+        }
+        return exported;
+    }
+
+    @Override
+    public AccountPageVO getAccountsPage(Long afterAccountId, Integer limit) throws InternalCoreException, ValidationException {
+        if (limit == null || limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new ValidationException("Invalid page limit, should be from 1 to " + MAX_PAGE_LIMIT, "304");
+        }
+        return ledger.getAccountsPage(afterAccountId == null ? Long.MIN_VALUE : afterAccountId, limit);
+    }
+
+    @Override
+    public AccountVO getAccount(Long accountId) throws InternalCoreException {
+        return ledger.getAccount(accountId);
+    }
+
+    /*
+        Added for testing purpose, should be ignored
+     */
+    @Override
+    public AccountVO getAccount(Long accountId, boolean isTest) throws InternalCoreException {
+        return getAccount(accountId);
+    }
+
+    @Override
+    public void withdrawFromAccount(Long accountId, BigDecimal amount) throws InternalCoreException, ValidationException {
+        TransferValidator.validateWithdrawal(accountId, amount);
+        ledger.withdraw(accountId, Ledger.toCents(amount, "301"));
+    }
+
+    @Override
+    public void depositToAccount(Long accountId, BigDecimal amount) throws InternalCoreException, ValidationException {
+        TransferValidator.validateDeposit(accountId, amount);
+        ledger.deposit(accountId, Ledger.toCents(amount, "302"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.revolut.core.fundstransfer.ledger;
+
+import com.revolut.core.fundstransfer.gateway.SelfTransactedService;
+import com.revolut.core.fundstransfer.validation.TransferValidator;
+import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.model.TransferResultVO;
+import com.revolut.sdk.fundstransfer.services.FundsTransferService;
+
+import java.util.List;
+
+/**
+ * Funds transfer service executing on the {@link Ledger} instead of the database, selected with core.engine=LEDGER.
+ * Both legs of a transfer, and all the transfers of a batch, are applied by the ledger writer at once, so no lock is needed.
+ */
+public class FundsTransferServiceImpl implements FundsTransferService, SelfTransactedService {
+
+    private final Ledger ledger = Ledger.getInstance();
+
+    /*
+        the ledger owns the balances, only its persister thread touches the database
+     */
+    @Override
+    public boolean isSelfTransacted(String methodName) {
+        return true;
+    }
+
+    @Override
+    public void transferFunds(TransferRequestVO transferRequest) throws InternalCoreException, ValidationException {
+        TransferValidator.validateTransfer(transferRequest);
+        ledger.transfer(transferRequest.getSourceAccountId(), transferRequest.getDestinationAccountId(), Ledger.toCents(transferRequest.getTransferAmount(), "303"));
+    }
+
+    @Override
+    public List<TransferResultVO> transferFundsBatch(List<TransferRequestVO> transferRequests) throws InternalCoreException {
+        return ledger.transferBatch(transferRequests);
+    }
+}
@@ -0,0 +1,701 @@
+package com.revolut.core.fundstransfer.ledger;
+
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.journal.TransferIdGenerator;
+import com.revolut.core.fundstransfer.metrics.MetricsRegistry;
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountAccessor;
+import com.revolut.core.fundstransfer.persist.accessor.DataAccessorFactory;
+import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
+import com.revolut.core.fundstransfer.persist.to.JournalEntryTO;
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.core.fundstransfer.transaction.manage.TransactionDefinition;
+import com.revolut.core.fundstransfer.validation.TransferValidator;
+import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
+import com.revolut.sdk.fundstransfer.exception.ServiceException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+import com.revolut.sdk.fundstransfer.model.AccountPageVO;
+import com.revolut.sdk.fundstransfer.model.AccountVO;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.model.TransferResultVO;
+import com.revolut.sdk.fundstransfer.model.TransferStatus;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An in memory ledger of all the account balances, owned by a single writer thread.
+ *
+ * Balances are kept as cents in primitive arrays indexed by the position of the account id in a sorted array, loaded from the
+ * database on start. Callers hand their operations to the writer through a {@link LedgerRingBuffer} and wait for the result,
+ * the writer executes them one after the other without any lock, validating against the current balances.
+ * After each batch of operations found published, the final balances of the changed accounts are published to the readers
+ * before the operations of the batch complete, then written to the database by a persister thread, asynchronously and in order:
+ * a completed operation is durable once its batch is written. Accounts are read from the published balances without the writer.
+ * When journaling, every leg applied is journaled along with the balances of its batch, under a transfer id per operation,
+ * or per transfer of a batch.
+ *
+ * A batch failing to be written fails the ledger: the database is behind the memory from then on, so every later write is
+ * rejected with the error, while the accounts can still be read. The ft_ledger_failed gauge reports it.
+ *
+ * Accounts can't be created or removed while the ledger runs, as no service does so.
+ */
+public class Ledger {
+
+    private static Logger log = Logger.getLogger(Ledger.class.getName());
+
+    private static final Ledger instance = new Ledger();
+
+    private static final int CENTS_SCALE = 2;
+    private static final long AWAIT_WRITER_NANOS = TimeUnit.SECONDS.toNanos(1);
+    //attempts to copy a consistent set of published balances before asking the writer
+    private static final int SNAPSHOT_READ_ATTEMPTS = 3;
+
+    private final DataAccessorFactory dataAccessorFactory = DataAccessorFactory.getDataAccessorFactory(DataAccessorFactory.DATA_ACCESSOR_FACTORY_H2);
+    private final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+    private final TransferIdGenerator transferIdGenerator = TransferIdGenerator.getInstance();
+    private final boolean isJournaling = dataAccessorFactory.getBankAccountAccessor().isJournalEnabled();
+
+    private volatile boolean running;
+    private volatile LedgerRingBuffer ringBuffer;
+    private volatile Thread writerThread;
+    private ExecutorService persister;
+    private volatile Snapshot snapshot;
+    private volatile Exception failure;
+
+    //owned by the writer thread once started
+    private long[] accountIds;
+    private long[] balances;
+    //the last journal sequence of each account, the writer being the only one to journal while running
+    private long[] journalSequences;
+    private boolean[] dirty;
+    private int[] dirtyIndexes;
+    private int dirtyCount;
+    private List<JournalEntryTO> journalEntries = new ArrayList<>();
+    //results of the batch, completed once its balances are published
+    private final List<CompletableFuture<Object>> batchFutures = new ArrayList<>();
+    private final List<Object> batchResults = new ArrayList<>();
+
+    private Ledger() {
+        MetricsRegistry.getInstance().gauge("ft_ledger_failed", "1 once a batch of ledger balances failed to be written to the database",
+                () -> failure == null ? 0 : 1);
+    }
+
+    public static Ledger getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads all the accounts from the database and starts the writer, does nothing if already running.
+     */
+    public synchronized void start() throws Exception {
+        if (running) {
+            return;
+        }
+        failure = null;
+        journalEntries = new ArrayList<>();
+        loadAccounts();
+        ringBuffer = new LedgerRingBuffer(CoreConfiguration.getInstance().getIntConfigValue("core.ledger.ring.size", 4096));
+        persister = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ft-ledger-persister");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        Thread writer = new Thread(this::runWriter, "ft-ledger-writer");
+        writer.setDaemon(true);
+        writerThread = writer;
+        writer.start();
+        log.log(Level.INFO, "Ledger started with " + accountIds.length + " accounts");
+    }
+
+    /**
+     * Stops the writer once every published operation is executed, then waits for all the balances to be written.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writerThread.join();
+        persister.shutdown();
+        if (!persister.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.log(Level.SEVERE, "Ledger balances not written within 30 seconds");
+        }
+        if (failure != null) {
+            log.log(Level.SEVERE, "Ledger stopped after failing, the database misses balances since:" + failure.getMessage());
+        }
+        log.log(Level.INFO, "Ledger stopped");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the error which failed to write a batch of balances to the database, null while the ledger accepts writes
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /*
+        a single balance is always published whole, no version check needed
+     */
+    AccountVO getAccount(long accountId) throws InternalCoreException {
+        Snapshot published = runningSnapshot();
+        int index = indexOf(published.accountIds, accountId);
+        return toAccountVO(published, index, published.balances.get(index));
+    }
+
+    @SuppressWarnings("unchecked")
+    List<AccountVO> getAllAccounts() throws InternalCoreException {
+        Snapshot published = runningSnapshot();
+        List<AccountVO> accounts = readAccounts(published, 0, published.accountIds.length);
+        if (accounts != null) {
+            return accounts;
+        }
+        return (List<AccountVO>) executeWithoutValidation(LedgerCommand.Operation.GET_ALL_ACCOUNTS, 0, null);
+    }
+
+    AccountPageVO getAccountsPage(long afterAccountId, int limit) throws InternalCoreException, ValidationException {
+        Snapshot published = runningSnapshot();
+        int from = pageStart(published.accountIds, afterAccountId);
+        int to = pageEnd(published.accountIds, from, limit);
+        List<AccountVO> page = readAccounts(published, from, to);
+        if (page != null) {
+            return toPage(published.accountIds, page, to);
+        }
+        //the limit is carried as the amount of the command
+        return (AccountPageVO) execute(LedgerCommand.Operation.GET_ACCOUNTS_PAGE, afterAccountId, 0, limit, null);
+    }
+
+    void withdraw(long accountId, long amount) throws InternalCoreException, ValidationException {
+        execute(LedgerCommand.Operation.WITHDRAW, accountId, 0, amount, null);
+    }
+
+    void deposit(long accountId, long amount) throws InternalCoreException, ValidationException {
+        execute(LedgerCommand.Operation.DEPOSIT, accountId, 0, amount, null);
+    }
+
+    void transfer(long sourceAccountId, long destinationAccountId, long amount) throws InternalCoreException, ValidationException {
+        execute(LedgerCommand.Operation.TRANSFER, sourceAccountId, destinationAccountId, amount, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    List<TransferResultVO> transferBatch(List<TransferRequestVO> transferRequests) throws InternalCoreException {
+        return (List<TransferResultVO>) executeWithoutValidation(LedgerCommand.Operation.TRANSFER_BATCH, 0, transferRequests);
+    }
+
+    /**
+     * @param reasonCode of the failure if the amount isn't valid, refer {@link TransferValidator#isValidAmount(BigDecimal)}
+     * @return the amount in cents
+     */
+    static long toCents(BigDecimal amount, String reasonCode) throws ValidationException {
+        if (!TransferValidator.isValidAmount(amount)) {
+            throw new ValidationException("Invalid amount, expected a positive amount with at most " + CENTS_SCALE
+                    + " decimals up to " + TransferValidator.MAX_AMOUNT, reasonCode);
+        }
+        return amount.setScale(CENTS_SCALE).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, CENTS_SCALE);
+    }
+
+    /*
+        for operations reporting failures only as internal errors or in their result
+     */
+    private Object executeWithoutValidation(LedgerCommand.Operation operation, long accountId,
+                                            List<TransferRequestVO> transferRequests) throws InternalCoreException {
+        try {
+            return execute(operation, accountId, 0, 0, transferRequests);
+        } catch (ValidationException e) {
+            throw new InternalCoreException(e.getMessage(), e.getReasonCode());
+        }
+    }
+
+    private Snapshot runningSnapshot() throws InternalCoreException {
+        Snapshot published = snapshot;
+        if (!running || published == null) {
+            throw new InternalCoreException("Ledger is not running");
+        }
+        return published;
+    }
+
+    /**
+     * @return the accounts from the given index to the given one with balances all published by the same batch,
+     * or null if batches kept being published while copying them
+     */
+    private static List<AccountVO> readAccounts(Snapshot published, int from, int to) {
+        long[] copy = new long[to - from];
+        for (int attempt = 0; attempt < SNAPSHOT_READ_ATTEMPTS; attempt++) {
+            long version = published.version;
+            if ((version & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            for (int index = from; index < to; index++) {
+                copy[index - from] = published.balances.get(index);
+            }
+            if (published.version == version) {
+                return toAccountVOs(published, from, copy);
+            }
+        }
+        return null;
+    }
+
+    private void checkNotFailed() throws InternalCoreException {
+        Exception persistFailure = failure;
+        if (persistFailure != null) {
+            throw new InternalCoreException("Ledger failed to write balances to the database, no more writes accepted:"
+                    + persistFailure.getMessage());
+        }
+    }
+
+    private Object execute(LedgerCommand.Operation operation, long accountId, long destinationAccountId, long amount,
+                           List<TransferRequestVO> transferRequests) throws InternalCoreException, ValidationException {
+        LedgerRingBuffer ring = ringBuffer;
+        Thread writer = writerThread;
+        if (!running || ring == null) {
+            throw new InternalCoreException("Ledger is not running");
+        }
+        if (operation.isWrite()) {
+            checkNotFailed();
+        }
+
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        long sequence = ring.claim();
+        LedgerCommand command = ring.get(sequence);
+        command.operation = operation;
+        command.accountId = accountId;
+        command.destinationAccountId = destinationAccountId;
+        command.amount = amount;
+        command.transferRequests = transferRequests;
+        command.result = result;
+        ring.publish(sequence);
+
+        try {
+            while (true) {
+                try {
+                    return result.get(AWAIT_WRITER_NANOS, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (!writer.isAlive() && !result.isDone()) {
+                        throw new InternalCoreException("Ledger stopped before executing the operation");
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InternalCoreException) {
+                throw (InternalCoreException) cause;
+            } else if (cause instanceof ValidationException) {
+                throw (ValidationException) cause;
+            }
+            throw new InternalCoreException(operation + " Failed:" + cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalCoreException(operation + " Interrupted");
+        }
+    }
+
+    private void runWriter() {
+        LedgerRingBuffer ring = ringBuffer;
+        long nextSequence = 0;
+        //keeps draining after stop until every claimed sequence is executed
+        while (running || nextSequence <= ring.getClaimedSequence()) {
+            if (!ring.awaitPublished(nextSequence, AWAIT_WRITER_NANOS)) {
+                continue;
+            }
+            do {
+                LedgerCommand command = ring.get(nextSequence);
+                CompletableFuture<Object> result = command.result;
+                try {
+                    Object value = apply(command);
+                    batchFutures.add(result);
+                    batchResults.add(value);
+                } catch (ServiceException | RuntimeException e) {
+                    //a failed operation changes nothing
+                    result.completeExceptionally(e);
+                } finally {
+                    command.clear();
+                    ring.consumed(nextSequence);
+                }
+                nextSequence++;
+            } while (ring.isPublished(nextSequence));
+            //end of batch
+            publishDirtyBalances();
+            for (int i = 0; i < batchFutures.size(); i++) {
+                batchFutures.get(i).complete(batchResults.get(i));
+            }
+            batchFutures.clear();
+            batchResults.clear();
+        }
+    }
+
+    /*
+        reads only reach the writer when batches keep being published while copying the published balances
+     */
+    private Object apply(LedgerCommand command) throws InternalCoreException, ValidationException {
+        if (command.operation.isWrite()) {
+            checkNotFailed();
+        }
+        switch (command.operation) {
+            case GET_ACCOUNT: {
+                int index = indexOf(accountIds, command.accountId);
+                return toAccountVO(snapshot, index, balances[index]);
+            }
+            case GET_ALL_ACCOUNTS:
+                return toAccountVOs(snapshot, 0, balances.clone());
+            case GET_ACCOUNTS_PAGE: {
+                int from = pageStart(accountIds, command.accountId);
+                //the limit is carried as the amount of the command
+                int to = pageEnd(accountIds, from, command.amount);
+                return toPage(accountIds, toAccountVOs(snapshot, from, Arrays.copyOfRange(balances, from, to)), to);
+            }
+            case WITHDRAW: {
+                int index = indexOf(accountIds, command.accountId);
+                if (balances[index] < command.amount) {
+                    throw new ValidationException("Account doesn't have sufficient balance", "203");
+                }
+                setBalance(index, balances[index] - command.amount);
+                journal(isJournaling ? transferIdGenerator.nextTransferId() : 0, index, -command.amount, balances[index]);
+                return null;
+            }
+            case DEPOSIT: {
+                int index = indexOf(accountIds, command.accountId);
+                setBalance(index, addBalance(index, command.amount, "Deposit Failed"));
+                journal(isJournaling ? transferIdGenerator.nextTransferId() : 0, index, command.amount, balances[index]);
+                return null;
+            }
+            case TRANSFER:
+                applyTransfer(command.accountId, command.destinationAccountId, command.amount);
+                return null;
+            case TRANSFER_BATCH:
+                return applyTransferBatch(command.transferRequests);
+            default:
+                throw new InternalCoreException("Unsupported ledger operation:" + command.operation);
+        }
+    }
+
+    private void applyTransfer(long sourceAccountId, long destinationAccountId, long amount) throws InternalCoreException, ValidationException {
+        int sourceIndex;
+        int destinationIndex;
+        try {
+            sourceIndex = indexOf(accountIds, sourceAccountId);
+            destinationIndex = indexOf(accountIds, destinationAccountId);
+        } catch (InternalCoreException e) {
+            throw new InternalCoreException("Transfer Failed:" + e.getMessage(), e.getReasonCode());
+        }
+        if (balances[sourceIndex] < amount) {
+            throw new ValidationException("Source Account doesn't have sufficient balance", "105");
+        }
+        if (sourceIndex == destinationIndex) {
+            // nothing moves
+            return;
+        }
+        long destinationBalance = addBalance(destinationIndex, amount, "Transfer Failed");
+        setBalance(sourceIndex, balances[sourceIndex] - amount);
+        setBalance(destinationIndex, destinationBalance);
+        long transferId = isJournaling ? transferIdGenerator.nextTransferId() : 0;
+        journal(transferId, sourceIndex, -amount, balances[sourceIndex]);
+        journal(transferId, destinationIndex, amount, destinationBalance);
+    }
+
+    /*
+        validates every transfer against the balances left by the previous ones on a copy of the touched balances,
+        applied only if all of them are valid
+     */
+    private List<TransferResultVO> applyTransferBatch(List<TransferRequestVO> transferRequests) {
+        List<TransferResultVO> results = new ArrayList<>(transferRequests.size());
+        int[] touchedIndexes = new int[transferRequests.size() * 2];
+        long[] touchedBalances = new long[transferRequests.size() * 2];
+        int touchedCount = 0;
+        boolean isAllValid = true;
+        //legs of the valid transfers, journaled only if all of them are
+        int journaledCount = journalEntries.size();
+
+        for (int i = 0; i < transferRequests.size(); i++) {
+            TransferRequestVO transferRequest = transferRequests.get(i);
+            ValidationException failure = TransferValidator.checkTransfer(transferRequest);
+            long amount = 0;
+            if (failure == null) {
+                try {
+                    amount = toCents(transferRequest.getTransferAmount(), "303");
+                } catch (ValidationException e) {
+                    failure = e;
+                }
+            }
+            int sourceIndex = failure == null ? Arrays.binarySearch(accountIds, transferRequest.getSourceAccountId()) : -1;
+            int destinationIndex = failure == null ? Arrays.binarySearch(accountIds, transferRequest.getDestinationAccountId()) : -1;
+            TransferResultVO result;
+            if (failure != null) {
+                result = new TransferResultVO(i, TransferStatus.FAILED, failure.getReasonCode(), failure.getMessage());
+            } else if (sourceIndex < 0) {
+                result = new TransferResultVO(i, TransferStatus.FAILED, "202", "Account doesn't Exists:" + transferRequest.getSourceAccountId());
+            } else if (destinationIndex < 0) {
+                result = new TransferResultVO(i, TransferStatus.FAILED, "202", "Account doesn't Exists:" + transferRequest.getDestinationAccountId());
+            } else {
+                int sourceSlot = touch(sourceIndex, touchedIndexes, touchedBalances, touchedCount);
+                touchedCount = Math.max(touchedCount, sourceSlot + 1);
+                int destinationSlot = touch(destinationIndex, touchedIndexes, touchedBalances, touchedCount);
+                touchedCount = Math.max(touchedCount, destinationSlot + 1);
+
+                if (touchedBalances[sourceSlot] < amount) {
+                    result = new TransferResultVO(i, TransferStatus.FAILED, "105", "Source Account doesn't have sufficient balance");
+                } else if (touchedBalances[destinationSlot] > Long.MAX_VALUE - amount) {
+                    result = new TransferResultVO(i, TransferStatus.FAILED, "999", "Destination balance overflow");
+                } else {
+                    touchedBalances[sourceSlot] -= amount;
+                    touchedBalances[destinationSlot] += amount;
+                    if (sourceIndex != destinationIndex) {
+                        long transferId = isJournaling ? transferIdGenerator.nextTransferId() : 0;
+                        journal(transferId, sourceIndex, -amount, touchedBalances[sourceSlot]);
+                        journal(transferId, destinationIndex, amount, touchedBalances[destinationSlot]);
+                    }
+                    result = new TransferResultVO(i, TransferStatus.COMPLETED, null, null);
+                }
+            }
+            isAllValid &= result.getStatus() == TransferStatus.COMPLETED;
+            results.add(result);
+        }
+
+        if (!isAllValid) {
+            // nothing is applied, the valid transfers are reported as not executed
+            journalEntries.subList(journaledCount, journalEntries.size()).clear();
+            for (TransferResultVO result : results) {
+                if (result.getStatus() == TransferStatus.COMPLETED) {
+                    result.setStatus(TransferStatus.NOT_EXECUTED);
+                }
+            }
+            return results;
+        }
+        for (int slot = 0; slot < touchedCount; slot++) {
+            //journaled legs are written along with the balance of their account, even if the batch nets it to zero
+            if (isJournaling || balances[touchedIndexes[slot]] != touchedBalances[slot]) {
+                setBalance(touchedIndexes[slot], touchedBalances[slot]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the slot of the account among the touched ones, appended with its current balance if not touched yet
+     */
+    private int touch(int index, int[] touchedIndexes, long[] touchedBalances, int touchedCount) {
+        for (int slot = 0; slot < touchedCount; slot++) {
+            if (touchedIndexes[slot] == index) {
+                return slot;
+            }
+        }
+        touchedIndexes[touchedCount] = index;
+        touchedBalances[touchedCount] = balances[index];
+        return touchedCount;
+    }
+
+    private static int indexOf(long[] accountIds, long accountId) throws InternalCoreException {
+        int index = Arrays.binarySearch(accountIds, accountId);
+        if (index < 0) {
+            throw new InternalCoreException("Account doesn't Exists:" + accountId, "202");
+        }
+        return index;
+    }
+
+    private long addBalance(int index, long amount, String failureMessage) throws InternalCoreException {
+        try {
+            return Math.addExact(balances[index], amount);
+        } catch (ArithmeticException e) {
+            throw new InternalCoreException(failureMessage + ": balance overflow");
+        }
+    }
+
+    private void journal(long transferId, int index, long amount, long balance) {
+        if (isJournaling) {
+            //sequenced once published, as the legs of a batch not applied are dropped
+            journalEntries.add(new JournalEntryTO(transferId, accountIds[index], 0, fromCents(amount), fromCents(balance)));
+        }
+    }
+
+    private void setBalance(int index, long balance) {
+        balances[index] = balance;
+        if (!dirty[index]) {
+            dirty[index] = true;
+            dirtyIndexes[dirtyCount++] = index;
+        }
+    }
+
+    /*
+        the account ids are sorted, a page starts at the first id after the given one
+     */
+    private static int pageStart(long[] accountIds, long afterAccountId) {
+        int from = Arrays.binarySearch(accountIds, afterAccountId);
+        return from >= 0 ? from + 1 : -from - 1;
+    }
+
+    private static int pageEnd(long[] accountIds, int from, long limit) {
+        return (int) Math.min(accountIds.length, from + limit);
+    }
+
+    private static AccountPageVO toPage(long[] accountIds, List<AccountVO> page, int to) {
+        return new AccountPageVO(page, to < accountIds.length ? accountIds[to - 1] : null);
+    }
+
+    private static List<AccountVO> toAccountVOs(Snapshot published, int from, long[] balances) {
+        List<AccountVO> accounts = new ArrayList<>(balances.length);
+        for (int i = 0; i < balances.length; i++) {
+            accounts.add(toAccountVO(published, from + i, balances[i]));
+        }
+        return accounts;
+    }
+
+    private static AccountVO toAccountVO(Snapshot published, int index, long balance) {
+        AccountVO account = new AccountVO();
+        account.setAccountId(published.accountIds[index]);
+        account.setAccountNumber(published.accountNumbers[index]);
+        account.setAccountName(published.accountNames[index]);
+        account.setBalance(fromCents(balance));
+        return account;
+    }
+
+    /*
+        publishes the changed balances under an odd version, so that readers copying several balances can tell a batch
+        was published meanwhile, then hands them to the persister
+     */
+    private void publishDirtyBalances() {
+        if (dirtyCount == 0) {
+            return;
+        }
+        //ascending ids, the order the database locks rows in
+        Arrays.sort(dirtyIndexes, 0, dirtyCount);
+        long[] ids = new long[dirtyCount];
+        BigDecimal[] finalBalances = new BigDecimal[dirtyCount];
+        Snapshot published = snapshot;
+        long version = published.version;
+        published.version = version + 1;
+        for (int i = 0; i < dirtyCount; i++) {
+            int index = dirtyIndexes[i];
+            published.balances.set(index, balances[index]);
+            ids[i] = accountIds[index];
+            finalBalances[i] = fromCents(balances[index]);
+            dirty[index] = false;
+        }
+        published.version = version + 2;
+        dirtyCount = 0;
+        List<JournalEntryTO> entries = isJournaling ? journalEntries : Collections.emptyList();
+        if (isJournaling) {
+            for (JournalEntryTO entry : entries) {
+                entry.setAccountSequence(++journalSequences[Arrays.binarySearch(accountIds, entry.getBankAccountId())]);
+            }
+            journalEntries = new ArrayList<>();
+        }
+        persister.execute(() -> writeBalances(entries, ids, finalBalances));
+    }
+
+    private void writeBalances(List<JournalEntryTO> entries, long[] ids, BigDecimal[] finalBalances) {
+        boolean isSuccessful = false;
+        try {
+            transactionManager.startTransaction(TransactionDefinition.REQUIRES_NEW);
+            try {
+                int[] updateCounts = dataAccessorFactory.getBankAccountAccessor().updateBalances(
+                        transactionManager.getConnectionFromCurrentTransaction(), entries, ids, finalBalances);
+                isSuccessful = updateCounts.length == ids.length;
+            } finally {
+                transactionManager.endTransactionIfNeeded(isSuccessful);
+            }
+            if (!isSuccessful) {
+                fail(new Exception("Balances not written for accounts " + Arrays.toString(ids)));
+            }
+        } catch (Exception e) {
+            fail(new Exception("Error writing the balances of accounts " + Arrays.toString(ids) + ":" + e.getMessage(), e));
+        }
+    }
+
+    /*
+        the later batches are still written, they only bring the database closer to the memory
+     */
+    private void fail(Exception persistFailure) {
+        if (failure == null) {
+            failure = persistFailure;
+        }
+        log.log(Level.SEVERE, "Ledger failed, no more writes accepted:" + persistFailure.getMessage(), persistFailure);
+    }
+
+    private void loadAccounts() throws Exception {
+        BankAccountAccessor bankAccountAccessor = dataAccessorFactory.getBankAccountAccessor();
+        List<BankAccountTO> accounts;
+        boolean isSuccessful = false;
+        transactionManager.startTransaction(TransactionDefinition.REQUIRES_NEW);
+        try {
+            accounts = new ArrayList<>(bankAccountAccessor.getAllAccounts(transactionManager.getConnectionFromCurrentTransaction()));
+            isSuccessful = true;
+        } finally {
+            transactionManager.endTransactionIfNeeded(isSuccessful);
+        }
+        accounts.sort((first, second) -> Long.compare(first.getBankAccountId(), second.getBankAccountId()));
+
+        int size = accounts.size();
+        accountIds = new long[size];
+        long[] accountNumbers = new long[size];
+        String[] accountNames = new String[size];
+        balances = new long[size];
+        journalSequences = new long[size];
+        dirty = new boolean[size];
+        dirtyIndexes = new int[size];
+        dirtyCount = 0;
+        for (int index = 0; index < size; index++) {
+            BankAccountTO account = accounts.get(index);
+            accountIds[index] = account.getBankAccountId();
+            accountNumbers[index] = account.getAccountNumber();
+            accountNames[index] = account.getAccountName();
+            balances[index] = balanceInCents(account);
+            journalSequences[index] = account.getJournalSequence();
+        }
+        snapshot = new Snapshot(accountIds, accountNumbers, accountNames, new AtomicLongArray(balances));
+    }
+
+    /*
+        the balance of a loaded account in cents. the DB allows balances beyond the cents a long holds, which the ledger
+        can't keep: it refuses to start rather than truncate them
+     */
+    private static long balanceInCents(BankAccountTO account) throws InternalCoreException {
+        BigDecimal balance = account.getBalance();
+        if (balance == null || balance.signum() < 0 || balance.compareTo(TransferValidator.MAX_AMOUNT) > 0
+                || balance.stripTrailingZeros().scale() > CENTS_SCALE) {
+            throw new InternalCoreException("Ledger can't load the balance " + balance + " of account "
+                    + account.getBankAccountId() + ", expected a balance from 0 to " + TransferValidator.MAX_AMOUNT
+                    + " with at most " + CENTS_SCALE + " decimals");
+        }
+        return balance.setScale(CENTS_SCALE).unscaledValue().longValueExact();
+    }
+
+    /*
+        the accounts as published to the readers, the ids, numbers and names never change while the ledger runs.
+        The version is odd while the writer publishes a batch
+     */
+    private static final class Snapshot {
+
+        private final long[] accountIds;
+        private final long[] accountNumbers;
+        private final String[] accountNames;
+        private final AtomicLongArray balances;
+        private volatile long version;
+
+        private Snapshot(long[] accountIds, long[] accountNumbers, String[] accountNames, AtomicLongArray balances) {
+            this.accountIds = accountIds;
+            this.accountNumbers = accountNumbers;
+            this.accountNames = accountNames;
+            this.balances = balances;
+        }
+    }
+}
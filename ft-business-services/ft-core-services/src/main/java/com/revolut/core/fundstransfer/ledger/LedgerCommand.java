@@ -0,0 +1,45 @@
+package com.revolut.core.fundstransfer.ledger;
+
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A slot of the {@link LedgerRingBuffer}, preallocated and reused: filled by the producer owning the claimed sequence
+ * and read by the writer once published. The result is handed back through the future, never through the slot.
+ */
+class LedgerCommand {
+
+    enum Operation {
+        GET_ACCOUNT(false),
+        GET_ALL_ACCOUNTS(false),
+        GET_ACCOUNTS_PAGE(false),
+        WITHDRAW(true),
+        DEPOSIT(true),
+        TRANSFER(true),
+        TRANSFER_BATCH(true);
+
+        private final boolean isWrite;
+
+        Operation(boolean isWrite) {
+            this.isWrite = isWrite;
+        }
+
+        boolean isWrite() {
+            return isWrite;
+        }
+    }
+
+    Operation operation;
+    long accountId;
+    long destinationAccountId;
+    long amount;
+    List<TransferRequestVO> transferRequests;
+    CompletableFuture<Object> result;
+
+    void clear() {
+        transferRequests = null;
+        result = null;
+    }
+}
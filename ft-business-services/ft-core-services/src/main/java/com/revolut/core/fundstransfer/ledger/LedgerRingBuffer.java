@@ -0,0 +1,104 @@
+package com.revolut.core.fundstransfer.ledger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded multi producer, single consumer ring of preallocated {@link LedgerCommand} slots, without locks.
+ *
+ * A producer claims the next sequence with a CAS free increment, waits for its slot to be consumed if the ring has wrapped,
+ * fills the slot and publishes the sequence. The consumer processes published sequences strictly in order and marks each
+ * one consumed once done with its slot. A consumer out of work parks, producers unpark it when they publish.
+ */
+class LedgerRingBuffer {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LedgerCommand[] slots;
+    private final int mask;
+    private final AtomicLong claimedSequence = new AtomicLong(-1);
+    private final AtomicLongArray publishedSequences;
+    private final AtomicLong consumedSequence = new AtomicLong(-1);
+    private volatile Thread waitingConsumer;
+
+    LedgerRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new LedgerCommand[size];
+        this.mask = size - 1;
+        this.publishedSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LedgerCommand();
+            publishedSequences.set(i, -1);
+        }
+    }
+
+    /**
+     * @return the claimed sequence, whose slot is free to be filled
+     */
+    long claim() {
+        long sequence = claimedSequence.incrementAndGet();
+        while (sequence - slots.length > consumedSequence.get()) {
+            //wrapped, the consumer hasn't released this slot yet
+            Thread.yield();
+        }
+        return sequence;
+    }
+
+    LedgerCommand get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        //a volatile write, so that the read of the waiting consumer below can't be reordered before it
+        publishedSequences.set((int) sequence & mask, sequence);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    boolean isPublished(long sequence) {
+        return publishedSequences.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * Releases the slot of the sequence to producers, to be called by the consumer once done with the slot.
+     */
+    void consumed(long sequence) {
+        consumedSequence.lazySet(sequence);
+    }
+
+    long getClaimedSequence() {
+        return claimedSequence.get();
+    }
+
+    /**
+     * Spins, then yields, then parks the consumer until the sequence is published or the timeout expires.
+     *
+     * @return true if the sequence is published
+     */
+    boolean awaitPublished(long sequence, long timeoutNanos) {
+        for (int i = 0; i < SPIN_TRIES + YIELD_TRIES; i++) {
+            if (isPublished(sequence)) {
+                return true;
+            }
+            if (i >= SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+        waitingConsumer = Thread.currentThread();
+        try {
+            //checked again after announcing the wait, a producer publishing in between unparks this thread
+            if (!isPublished(sequence)) {
+                LockSupport.parkNanos(this, Math.min(timeoutNanos, MAX_PARK_NANOS));
+            }
+        } finally {
+            waitingConsumer = null;
+        }
+        return isPublished(sequence);
+    }
+}
@@ -0,0 +1,165 @@
+package com.revolut.core.fundstransfer.locks;
+
+import com.revolut.core.fundstransfer.metrics.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A point in time view of the contention on the locks of an {@link ObjectsLockManager}, counted since startup or the last
+ * {@link ObjectsLockManager#resetProfile()}. Durations are in nanoseconds, quantiles within 6.25% of the exact value and
+ * over the last 10 minutes whatever the reset.
+ */
+public class LockProfile {
+
+    private final boolean enabled;
+    private final long busyKeys;
+    private final long retries;
+    private final long timeouts;
+    private final Distribution waitTime;
+    private final Distribution holdTime;
+    private final List<HotKey> hotKeys;
+
+    LockProfile(boolean enabled, long busyKeys, long retries, long timeouts, Distribution waitTime, Distribution holdTime,
+                List<HotKey> hotKeys) {
+        this.enabled = enabled;
+        this.busyKeys = busyKeys;
+        this.retries = retries;
+        this.timeouts = timeouts;
+        this.waitTime = waitTime;
+        this.holdTime = holdTime;
+        this.hotKeys = hotKeys;
+    }
+
+    static LockProfile disabled() {
+        return new LockProfile(false, 0, 0, 0, null, null, Collections.emptyList());
+    }
+
+    /**
+     * @return false if core.locks.profiling.enabled is off, in which case nothing is counted
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return times a key was found locked by another thread, once per key a lock call waited for. A
+     * {@link ObjectsLockManager.MultiLockStrategy#TRY_LOCK_RETRY} call only counts the first busy key of its rounds
+     */
+    public long getBusyKeys() {
+        return busyKeys;
+    }
+
+    /**
+     * @return rounds of {@link ObjectsLockManager.MultiLockStrategy#TRY_LOCK_RETRY} started over because a key was busy
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return timed lock calls which gave up
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return time from the first busy key of a lock call until the call locked all of its keys, 0 without busy key.
+     * A timed call is measured from its start until it locked or gave up
+     */
+    public Distribution getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * @return time from locking a lock until its last unlock, reentrant locking included
+     */
+    public Distribution getHoldTime() {
+        return holdTime;
+    }
+
+    /**
+     * @return the keys most often found busy, by descending count. In {@link ObjectsLockManager.LockMode#STRIPED} mode a
+     * key is found busy when its stripe is, possibly locked for another key sharing the stripe: the hot key is then the key
+     * of the waiting call, and keys with few transfers of their own may show up as hot because of a hot neighbour
+     */
+    public List<HotKey> getHotKeys() {
+        return hotKeys;
+    }
+
+    public static class Distribution {
+
+        private final long count;
+        private final long meanNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+
+        /**
+         * @param since the snapshot the count and the mean are counted from, null to count since startup
+         */
+        Distribution(LatencyHistogram.Snapshot snapshot, LatencyHistogram.Snapshot since) {
+            this.count = snapshot.getCount() - (since == null ? 0 : since.getCount());
+            double totalSeconds = snapshot.getTotalSeconds() - (since == null ? 0 : since.getTotalSeconds());
+            this.meanNanos = count == 0 ? 0 : Math.round(totalSeconds * 1e9 / count);
+            this.p50Nanos = snapshot.getValueAtQuantile(0.5);
+            this.p90Nanos = snapshot.getValueAtQuantile(0.9);
+            this.p99Nanos = snapshot.getValueAtQuantile(0.99);
+            this.p999Nanos = snapshot.getValueAtQuantile(0.999);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanNanos() {
+            return meanNanos;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getP999Nanos() {
+            return p999Nanos;
+        }
+    }
+
+    public static class HotKey {
+
+        private final String key;
+        private final long count;
+        private final long error;
+
+        HotKey(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return times the key was found busy, overestimated by at most {@link #getError()}
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
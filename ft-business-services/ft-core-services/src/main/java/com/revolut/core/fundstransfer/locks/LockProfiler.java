@@ -0,0 +1,139 @@
+package com.revolut.core.fundstransfer.locks;
+
+import com.revolut.core.fundstransfer.metrics.LatencyHistogram;
+import com.revolut.core.fundstransfer.metrics.MetricsRegistry;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention statistics of an {@link ObjectsLockManager}: wait and hold time histograms, retries, timeouts and the keys
+ * most often found busy.
+ *
+ * Cheap enough to stay on: a free lock costs the clock reads of its hold time and two lock free histogram records. Only a
+ * busy key reads the clock for the wait and is offered to the hot keys sketch, which is the only synchronized part, once
+ * per lock call at most.
+ *
+ * The quantiles cover the last 10 minutes, the counts run since startup or the last {@link #reset()}. A reset leaves the
+ * metrics alone, as Prometheus expects counters never to go down: it takes a baseline the profile is counted from.
+ */
+class LockProfiler {
+
+    private static final int TRACKED_KEYS_PER_HOT_KEY = 4;
+
+    private final LatencyHistogram waits;
+    private final LatencyHistogram holds;
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final SpaceSavingSketch busyKeys;
+    private final int hotKeyCount;
+    private volatile Baseline baseline = new Baseline(0, 0, 0, null, null);
+
+    private LockProfiler(LatencyHistogram waits, LatencyHistogram holds, int hotKeyCount) {
+        this.waits = waits;
+        this.holds = holds;
+        this.hotKeyCount = hotKeyCount;
+        //tracking more keys than reported keeps the reported counts close to exact
+        this.busyKeys = new SpaceSavingSketch(hotKeyCount * TRACKED_KEYS_PER_HOT_KEY);
+    }
+
+    /**
+     * @return a profiler of its own, not exposed in the {@link MetricsRegistry}
+     */
+    static LockProfiler create(int hotKeyCount) {
+        return new LockProfiler(new LatencyHistogram(), new LatencyHistogram(), hotKeyCount);
+    }
+
+    /**
+     * @return a profiler whose statistics are also exposed in the {@link MetricsRegistry}
+     */
+    static LockProfiler createRegistered(int hotKeyCount) {
+        MetricsRegistry metricsRegistry = MetricsRegistry.getInstance();
+        LockProfiler profiler = new LockProfiler(
+                metricsRegistry.histogram("ft_lock_wait_seconds", "Time java lock calls waited for busy keys, 0 without busy key"),
+                metricsRegistry.histogram("ft_lock_hold_seconds", "Time java locks were held"),
+                hotKeyCount);
+        metricsRegistry.counter("ft_lock_busy_keys_total", "Keys found locked by another thread", profiler.busyKeys::getTotal);
+        metricsRegistry.counter("ft_lock_retries_total", "Multi key lock rounds started over on a busy key", profiler.retries::sum);
+        metricsRegistry.counter("ft_lock_timeouts_total", "Timed java lock calls which gave up", profiler.timeouts::sum);
+        return profiler;
+    }
+
+    void recordBusy(Object key) {
+        busyKeys.offer(key);
+    }
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    void recordTimeout() {
+        timeouts.increment();
+    }
+
+    /**
+     * @param waitStartNanos when the call found its first busy key, 0 if it found none
+     */
+    void recordWait(long waitStartNanos) {
+        if (waitStartNanos == 0) {
+            waits.record(0);
+        } else {
+            waits.recordSince(waitStartNanos);
+        }
+    }
+
+    void recordHold(long lockedAtNanos) {
+        holds.recordSince(lockedAtNanos);
+    }
+
+    LockProfile getProfile() {
+        return profileSince(baseline, busyKeys.getTotal(), retries.sum(), timeouts.sum(), waits.snapshot(), holds.snapshot(),
+                busyKeys.top(hotKeyCount));
+    }
+
+    /**
+     * Starts the counts and the mean times over and forgets the hot keys, the quantiles keep their 10 minutes window.
+     *
+     * @return the profile up to the reset
+     */
+    synchronized LockProfile reset() {
+        long busyKeyCount = busyKeys.getTotal();
+        long retryCount = retries.sum();
+        long timeoutCount = timeouts.sum();
+        LatencyHistogram.Snapshot waitSnapshot = waits.snapshot();
+        LatencyHistogram.Snapshot holdSnapshot = holds.snapshot();
+        LockProfile profile = profileSince(baseline, busyKeyCount, retryCount, timeoutCount, waitSnapshot, holdSnapshot,
+                busyKeys.clear(hotKeyCount));
+        baseline = new Baseline(busyKeyCount, retryCount, timeoutCount, waitSnapshot, holdSnapshot);
+        return profile;
+    }
+
+    private static LockProfile profileSince(Baseline baseline, long busyKeyCount, long retryCount, long timeoutCount,
+                                            LatencyHistogram.Snapshot waitSnapshot, LatencyHistogram.Snapshot holdSnapshot,
+                                            List<LockProfile.HotKey> hotKeys) {
+        return new LockProfile(true, busyKeyCount - baseline.busyKeys, retryCount - baseline.retries,
+                timeoutCount - baseline.timeouts, new LockProfile.Distribution(waitSnapshot, baseline.waits),
+                new LockProfile.Distribution(holdSnapshot, baseline.holds), hotKeys);
+    }
+
+    /*
+        the counts at the last reset, the snapshots are null before any
+     */
+    private static class Baseline {
+
+        private final long busyKeys;
+        private final long retries;
+        private final long timeouts;
+        private final LatencyHistogram.Snapshot waits;
+        private final LatencyHistogram.Snapshot holds;
+
+        private Baseline(long busyKeys, long retries, long timeouts, LatencyHistogram.Snapshot waits,
+                         LatencyHistogram.Snapshot holds) {
+            this.busyKeys = busyKeys;
+            this.retries = retries;
+            this.timeouts = timeouts;
+            this.waits = waits;
+            this.holds = holds;
+        }
+    }
+}
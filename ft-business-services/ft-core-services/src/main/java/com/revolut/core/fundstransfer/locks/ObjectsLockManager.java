@@ -1,46 +1,197 @@
 package com.revolut.core.fundstransfer.locks;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.Objects;
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Java level locks on arbitrary keys e.g. account ids.
+ *
+ * Depending on the {@link LockMode} keys are either mapped onto a fixed array of lock stripes, which keeps memory bounded no matter
+ * how many keys are ever locked, or each key gets its own lock which is reclaimed as soon as no thread holds or waits for it.
+ * Locks are reentrant, so a thread holding a key may lock it again e.g. a transfer locking both accounts and then withdrawing
+ * from one of them.
+ *
+ * Multiple keys are locked atomically according to the {@link MultiLockStrategy}.
+ *
+ * The long overloads avoid boxing account ids on the hot path. A long key and the equal boxed Long map onto the same lock.
+ *
+ * With core.locks.profiling.enabled the contention is profiled, refer {@link #getProfile()}.
+ */
 public class ObjectsLockManager {
 
-    private static final ConcurrentHashMap<Object, Lock> keys2LockMap = new ConcurrentHashMap<>();
-    private static final ObjectsLockManager instance = new ObjectsLockManager();
+    /**
+     * How keys are mapped to locks, configured with core.locks.mode
+     */
+    public enum LockMode {
+
+        /**
+         * A fixed power of two array of locks indexed by a spread hash of the key. Unrelated keys may share a lock.
+         */
+        STRIPED,
+
+        /**
+         * One lock per key, reclaimed once no thread holds or waits for it.
+         */
+        EXACT
+    }
+
+    /**
+     * How multiple keys are locked atomically, configured with core.locks.multi.strategy
+     */
+    public enum MultiLockStrategy {
+
+        /**
+         * Try to lock every key without waiting and release all of them on a miss, then start over after a bounded
+         * exponential back off.
+         */
+        TRY_LOCK_RETRY,
+
+        /**
+         * Sort the locks into a canonical order and block on each in turn, two threads locking the same keys can never deadlock.
+         */
+        ORDERED
+    }
+
+    //failed try lock rounds only yielding the cpu before parking
+    private static final int YIELD_ROUNDS = 4;
+    private static final long MIN_BACK_OFF_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long MAX_BACK_OFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
 
-    private ObjectsLockManager() {
+    private static final ObjectsLockManager instance = new ObjectsLockManager(
+            CoreConfiguration.getInstance().getEnumConfigValue("core.locks.mode", LockMode.class, LockMode.STRIPED),
+            CoreConfiguration.getInstance().getIntConfigValue("core.locks.stripes", 1024),
+            CoreConfiguration.getInstance().getEnumConfigValue("core.locks.multi.strategy", MultiLockStrategy.class, MultiLockStrategy.ORDERED),
+            !"false".equalsIgnoreCase(CoreConfiguration.getInstance().getConfigValue("core.locks.profiling.enabled"))
+                    ? LockProfiler.createRegistered(CoreConfiguration.getInstance().getIntConfigValue("core.locks.profiling.hot.keys", 10))
+                    : null);
+
+    private final LockMode lockMode;
+    private final MultiLockStrategy multiLockStrategy;
+    private final OrderedLock[] stripes;
+    private final int stripeMask;
+    private final ConcurrentHashMap<Object, OrderedLock> keys2LockMap;
+    private final AtomicLong lockSequence;
+    //null unless profiling
+    private final LockProfiler profiler;
+
+    private ObjectsLockManager(LockMode lockMode, int stripeCount, MultiLockStrategy multiLockStrategy, LockProfiler profiler) {
+        this.lockMode = lockMode;
+        this.multiLockStrategy = multiLockStrategy;
+        this.profiler = profiler;
+        if (lockMode == LockMode.STRIPED) {
+            int size = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+            stripes = new OrderedLock[size];
+            for (int i = 0; i < size; i++) {
+                stripes[i] = new OrderedLock(i, profiler);
+            }
+            stripeMask = size - 1;
+            keys2LockMap = null;
+            lockSequence = null;
+        } else {
+            stripes = null;
+            stripeMask = 0;
+            keys2LockMap = new ConcurrentHashMap<>();
+            lockSequence = new AtomicLong();
+        }
     }
 
     public static ObjectsLockManager getInstance() {
         return instance;
     }
 
-    public Lock getLock(Object key) {
-        Lock lock = keys2LockMap.get(key);
-        if (Objects.isNull(lock)) {
-            lock = new ReentrantLock();
-            keys2LockMap.putIfAbsent(key, lock);
-        }
+    /**
+     * Creates a lock manager independent from the configured instance, meant for benchmarks and tests.
+     *
+     * @param lockMode
+     * @param stripeCount rounded up to the next power of two, ignored in {@link LockMode#EXACT} mode
+     * @param multiLockStrategy
+     */
+    public static ObjectsLockManager create(LockMode lockMode, int stripeCount, MultiLockStrategy multiLockStrategy) {
+        return create(lockMode, stripeCount, multiLockStrategy, false);
+    }
+
+    /**
+     * Same as {@link #create(LockMode, int, MultiLockStrategy)}, profiling the contention if asked to. The profile is only
+     * available through {@link #getProfile()}, it is not exposed in the metrics.
+     */
+    public static ObjectsLockManager create(LockMode lockMode, int stripeCount, MultiLockStrategy multiLockStrategy, boolean isProfiled) {
+        return new ObjectsLockManager(lockMode, stripeCount, multiLockStrategy, isProfiled ? LockProfiler.create(10) : null);
+    }
+
+    public LockMode getLockMode() {
+        return lockMode;
+    }
 
-        return lock;
+    public MultiLockStrategy getMultiLockStrategy() {
+        return multiLockStrategy;
+    }
+
+    /**
+     * @return the contention on the locks since startup or the last {@link #resetProfile()}, quantiles over the last
+     * 10 minutes, disabled unless profiling
+     */
+    public LockProfile getProfile() {
+        return profiler == null ? LockProfile.disabled() : profiler.getProfile();
+    }
+
+    /**
+     * Starts the counts of the profile over, e.g. before a load test, and forgets the hot keys. The wait and hold time
+     * quantiles are left alone, they keep covering the last 10 minutes whatever the resets, and the metrics of the profile
+     * keep counting since startup.
+     *
+     * @return the profile up to the reset
+     */
+    public LockProfile resetProfile() {
+        return profiler == null ? LockProfile.disabled() : profiler.reset();
     }
 
     public void lockKey(Object key) {
-        Lock lock = getLock(key);
-        lock.lock();
+        recordWait(lock(referenceLock(key), key, 0));
+    }
+
+    public void lockKey(long key) {
+        recordWait(lock(referenceLock(key), key, 0));
     }
 
     public void lockKeyWithTimeout(Object key, long timeoutInMillis) throws Exception {
         if (timeoutInMillis <=0) {
             throw new Exception("timeout value should be greater than zero");
         }
-        Lock lock = getLock(key);
-        lock.tryLock(timeoutInMillis, TimeUnit.MILLISECONDS);
+        long startNanos = System.nanoTime();
+        boolean isLocked = false;
+        try {
+            isLocked = tryLock(referenceLock(key), key, startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        } finally {
+            if (!isLocked) {
+                dereferenceLock(key);
+            }
+            recordWait(startNanos);
+        }
+        if (!isLocked) {
+            throw timeout();
+        }
+    }
+
+    public void lockKeyWithTimeout(long key, long timeoutInMillis) throws Exception {
+        if (lockMode == LockMode.EXACT) {
+            lockKeyWithTimeout((Object) key, timeoutInMillis);
+            return;
+        }
+        if (timeoutInMillis <=0) {
+            throw new Exception("timeout value should be greater than zero");
+        }
+        long startNanos = System.nanoTime();
+        boolean isLocked = tryLock(stripeFor(key), key, startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        recordWait(startNanos);
+        if (!isLocked) {
+            throw timeout();
+        }
     }
 
     /**
@@ -49,28 +200,84 @@ public class ObjectsLockManager {
      * @param keys
      */
     public void lockMultipleAtomically(Object... keys) {
-        Deque<Lock> lockedStack = new ArrayDeque<>();
+        if (multiLockStrategy == MultiLockStrategy.ORDERED) {
+            try {
+                lockOrdered(keys, false, 0);
+            } catch (InterruptedException e) {
+                //not possible, waiting without a deadline is not interruptible
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        long waitStartNanos = 0;
+        int round = 0;
         boolean isAllLocked;
         do {
             isAllLocked = true;
+            int lockedCount = 0;
             try {
                 for (Object key : keys) {
-                    Lock lock = getLock(key);
-                    boolean isLocked = lock.tryLock();
+                    boolean isLocked = referenceLock(key).tryLock();
                     if (isLocked) {
-                        lockedStack.push(lock);
+                        lockedCount++;
                     } else {
+                        dereferenceLock(key);
                         isAllLocked = false;
+                        waitStartNanos = retry(key, waitStartNanos);
                         break;
                     }
                 }
             } finally {
                 if (!isAllLocked) {
                     //unable to lock all the keys, hence release acquired locks immediately to avoid any deadlocks or to re-enter already acquired locks
-                    releaseAcquiredLocks(lockedStack);
+                    releaseAcquiredLocks(keys, lockedCount);
                 }
             }
+            if (!isAllLocked) {
+                backOff(round++);
+            }
         } while (!isAllLocked);
+        recordWait(waitStartNanos);
+    }
+
+    /**
+     * Same as {@link #lockMultipleAtomically(Object...)} for the usual pair of account ids, without boxing them.
+     */
+    public void lockMultipleAtomically(long firstKey, long secondKey) {
+        if (lockMode == LockMode.EXACT) {
+            lockMultipleAtomically((Object) firstKey, (Object) secondKey);
+            return;
+        }
+        OrderedLock firstLock = stripeFor(firstKey);
+        OrderedLock secondLock = stripeFor(secondKey);
+        if (multiLockStrategy == MultiLockStrategy.ORDERED) {
+            if (firstLock.order > secondLock.order) {
+                OrderedLock lock = firstLock;
+                firstLock = secondLock;
+                secondLock = lock;
+                long key = firstKey;
+                firstKey = secondKey;
+                secondKey = key;
+            }
+            long waitStartNanos = lock(firstLock, firstKey, 0);
+            recordWait(lock(secondLock, secondKey, waitStartNanos));
+            return;
+        }
+        long waitStartNanos = 0;
+        int round = 0;
+        while (true) {
+            if (firstLock.tryLock()) {
+                if (secondLock.tryLock()) {
+                    recordWait(waitStartNanos);
+                    return;
+                }
+                firstLock.unlock();
+                waitStartNanos = retry(secondKey, waitStartNanos);
+            } else {
+                waitStartNanos = retry(firstKey, waitStartNanos);
+            }
+            backOff(round++);
+        }
     }
 
     /**
@@ -82,43 +289,109 @@ public class ObjectsLockManager {
         if (timeoutInMillis <=0) {
             throw new Exception("timeout value should be greater than zero");
         }
-        Deque<Lock> lockedStack = new ArrayDeque<>();
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+        if (multiLockStrategy == MultiLockStrategy.ORDERED) {
+            boolean isAllLocked = lockOrdered(keys, true, deadline);
+            recordWait(startNanos);
+            if (!isAllLocked) {
+                throw timeout();
+            }
+            return;
+        }
+        int lockedCount = 0;
         boolean isAllLocked = false;
-        long startTime = System.currentTimeMillis();
-        long timeoutResidual = timeoutInMillis;
         try {
             for (Object key : keys) {
-                Lock lock = getLock(key);
-                boolean isLocked = lock.tryLock(timeoutResidual, TimeUnit.MILLISECONDS);
-                timeoutResidual = timeoutResidual - (System.currentTimeMillis() - startTime);
+                boolean isLocked = false;
+                try {
+                    isLocked = tryLock(referenceLock(key), key, deadline);
+                } finally {
+                    if (!isLocked) {
+                        dereferenceLock(key);
+                    }
+                }
                 if (isLocked) {
-                    lockedStack.push(lock);
+                    lockedCount++;
                 } else {
-                    throw new Exception("Timeout Occurred");
+                    throw timeout();
                 }
             }
             isAllLocked = true;
         } finally {
             if (!isAllLocked) {
                 //unable to lock all the keys, hence release acquired locks
-                releaseAcquiredLocks(lockedStack);
+                releaseAcquiredLocks(keys, lockedCount);
+            }
+            recordWait(startNanos);
+        }
+    }
+
+    /**
+     * Same as {@link #lockMultipleAtomicallyWithTimeout(long, Object...)} for the usual pair of account ids, without boxing them.
+     */
+    public void lockMultipleAtomicallyWithTimeout(long timeoutInMillis, long firstKey, long secondKey) throws Exception {
+        if (lockMode == LockMode.EXACT || multiLockStrategy == MultiLockStrategy.TRY_LOCK_RETRY) {
+            lockMultipleAtomicallyWithTimeout(timeoutInMillis, (Object) firstKey, (Object) secondKey);
+            return;
+        }
+        if (timeoutInMillis <=0) {
+            throw new Exception("timeout value should be greater than zero");
+        }
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+        OrderedLock firstLock = stripeFor(firstKey);
+        OrderedLock secondLock = stripeFor(secondKey);
+        if (firstLock.order > secondLock.order) {
+            OrderedLock lock = firstLock;
+            firstLock = secondLock;
+            secondLock = lock;
+            long key = firstKey;
+            firstKey = secondKey;
+            secondKey = key;
+        }
+        boolean isLocked = false;
+        try {
+            if (!tryLock(firstLock, firstKey, deadline)) {
+                throw timeout();
             }
+            try {
+                isLocked = tryLock(secondLock, secondKey, deadline);
+            } finally {
+                if (!isLocked) {
+                    firstLock.unlock();
+                }
+            }
+        } finally {
+            recordWait(startNanos);
+        }
+        if (!isLocked) {
+            throw timeout();
         }
     }
 
     public void unlockKey(Object key) {
-        ReentrantLock lock = (ReentrantLock) getLock(key);
-        lock.unlock();
+        currentLock(key).unlock();
+        dereferenceLock(key);
+    }
+
+    public void unlockKey(long key) {
+        if (lockMode == LockMode.EXACT) {
+            unlockKey((Object) key);
+            return;
+        }
+        stripeFor(key).unlock();
     }
 
     public void unlockMultiple(Object... keys) throws Exception{
         boolean wasAllLocked = true;
         for (Object key : keys) {
-            ReentrantLock lock = (ReentrantLock) getLock(key);
-            if (!lock.isLocked()) {
+            ReentrantLock lock = currentLock(key);
+            if (lock == null || !lock.isHeldByCurrentThread()) {
                 wasAllLocked = false;
             } else {
                 lock.unlock();
+                dereferenceLock(key);
             }
         }
 
@@ -128,10 +401,323 @@ public class ObjectsLockManager {
 
     }
 
-    private void releaseAcquiredLocks(Deque<Lock> lockedStack) {
-        Lock lock;
-        while (!lockedStack.isEmpty() && (lock = lockedStack.pop()) != null) {
-            lock.unlock();
+    /**
+     * Same as {@link #unlockMultiple(Object...)} for the usual pair of account ids, without boxing them.
+     */
+    public void unlockMultiple(long firstKey, long secondKey) throws Exception {
+        if (lockMode == LockMode.EXACT) {
+            unlockMultiple((Object) firstKey, (Object) secondKey);
+            return;
+        }
+        boolean wasAllLocked = unlockStripeIfHeld(stripeFor(firstKey));
+        wasAllLocked &= unlockStripeIfHeld(stripeFor(secondKey));
+        if (!wasAllLocked) {
+            throw new Exception("One or more keys were found not locked");
+        }
+    }
+
+    /**
+     * @return number of locks currently allocated, for {@link LockMode#EXACT} it is the number of keys held or waited for
+     */
+    public int getLockCount() {
+        return lockMode == LockMode.STRIPED ? stripes.length : keys2LockMap.size();
+    }
+
+    /*
+        locks all the keys in ascending lock order, blocking on each of them or, if timed, waiting until the deadline at most.
+        keys sharing a stripe simply lock the same stripe again. only the wait of an untimed call is recorded, by the call itself.
+        returns false if the deadline has elapsed, in which case nothing is left locked or referenced.
+     */
+    private boolean lockOrdered(Object[] keys, boolean isTimed, long deadline) throws InterruptedException {
+        OrderedLock[] locks = new OrderedLock[keys.length];
+        int[] lockOrder = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            //referencing pins the lock of an EXACT key, so its order can't change while sorting and waiting
+            locks[i] = referenceLock(keys[i]);
+            //insertion sort, there are hardly ever more than two keys
+            int j = i;
+            while (j > 0 && locks[lockOrder[j - 1]].order > locks[i].order) {
+                lockOrder[j] = lockOrder[j - 1];
+                j--;
+            }
+            lockOrder[j] = i;
+        }
+
+        int lockedCount = 0;
+        long waitStartNanos = 0;
+        try {
+            for (; lockedCount < keys.length; lockedCount++) {
+                OrderedLock lock = locks[lockOrder[lockedCount]];
+                Object key = keys[lockOrder[lockedCount]];
+                if (!isTimed) {
+                    waitStartNanos = lock(lock, key, waitStartNanos);
+                } else if (!tryLock(lock, key, deadline)) {
+                    break;
+                }
+            }
+            if (!isTimed) {
+                recordWait(waitStartNanos);
+            }
+        } finally {
+            if (lockedCount < keys.length) {
+                for (int i = keys.length - 1; i >= 0; i--) {
+                    if (i < lockedCount) {
+                        locks[lockOrder[i]].unlock();
+                    }
+                    dereferenceLock(keys[lockOrder[i]]);
+                }
+            }
+        }
+        return lockedCount == keys.length;
+    }
+
+    /*
+        blocks on the lock, trying it first when profiling so that only a busy key reads the clock.
+        returns when the call found its first busy key, unchanged if the lock was free. a call blocks on each of its keys once,
+        so each busy key is recorded once per call
+     */
+    private long lock(OrderedLock lock, Object key, long waitStartNanos) {
+        if (profiler == null) {
+            lock.lock();
+            return waitStartNanos;
+        }
+        if (lock.tryLock()) {
+            return waitStartNanos;
+        }
+        profiler.recordBusy(key);
+        long startNanos = waitStartNanos == 0 ? System.nanoTime() : waitStartNanos;
+        lock.lock();
+        return startNanos;
+    }
+
+    private long lock(OrderedLock lock, long key, long waitStartNanos) {
+        if (profiler == null) {
+            lock.lock();
+            return waitStartNanos;
+        }
+        if (lock.tryLock()) {
+            return waitStartNanos;
+        }
+        profiler.recordBusy(key);
+        long startNanos = waitStartNanos == 0 ? System.nanoTime() : waitStartNanos;
+        lock.lock();
+        return startNanos;
+    }
+
+    /*
+        waits for the lock until the deadline at most, trying it first when profiling to tell a busy key
+     */
+    private boolean tryLock(OrderedLock lock, Object key, long deadline) throws InterruptedException {
+        if (profiler != null) {
+            if (lock.tryLock()) {
+                return true;
+            }
+            profiler.recordBusy(key);
+        }
+        return lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private boolean tryLock(OrderedLock lock, long key, long deadline) throws InterruptedException {
+        if (profiler != null) {
+            if (lock.tryLock()) {
+                return true;
+            }
+            profiler.recordBusy(key);
+        }
+        return lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /*
+        a try lock round found the key busy and starts over, returns when the call found its first busy key.
+        only the first busy key of the call is offered to the synchronized hot keys sketch, the rounds after it are merely
+        counted, so that spinning threads don't serialize on the sketch
+     */
+    private long retry(Object busyKey, long waitStartNanos) {
+        if (profiler == null) {
+            return waitStartNanos;
+        }
+        profiler.recordRetry();
+        if (waitStartNanos != 0) {
+            return waitStartNanos;
+        }
+        profiler.recordBusy(busyKey);
+        return System.nanoTime();
+    }
+
+    private long retry(long busyKey, long waitStartNanos) {
+        if (profiler == null) {
+            return waitStartNanos;
+        }
+        profiler.recordRetry();
+        if (waitStartNanos != 0) {
+            return waitStartNanos;
+        }
+        profiler.recordBusy(busyKey);
+        return System.nanoTime();
+    }
+
+    /*
+        waits before the next try lock round so that retrying threads don't spin hot on a busy key: the first rounds only
+        yield, then the thread parks for a random time under a cap doubling each round, up to MAX_BACK_OFF_NANOS
+     */
+    private static void backOff(int round) {
+        if (round < YIELD_ROUNDS) {
+            Thread.yield();
+            return;
+        }
+        long capNanos = MIN_BACK_OFF_NANOS << Math.min(round - YIELD_ROUNDS, 20);
+        if (capNanos > MAX_BACK_OFF_NANOS) {
+            capNanos = MAX_BACK_OFF_NANOS;
+        }
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(capNanos / 2, capNanos + 1));
+    }
+
+    private void recordWait(long waitStartNanos) {
+        if (profiler != null) {
+            profiler.recordWait(waitStartNanos);
+        }
+    }
+
+    private Exception timeout() {
+        if (profiler != null) {
+            profiler.recordTimeout();
+        }
+        return new Exception("Timeout Occurred");
+    }
+
+    /*
+        releases the first lockedCount keys in reverse order
+     */
+    private void releaseAcquiredLocks(Object[] keys, int lockedCount) {
+        for (int i = lockedCount - 1; i >= 0; i--) {
+            unlockKey(keys[i]);
+        }
+    }
+
+    private boolean unlockStripeIfHeld(ReentrantLock lock) {
+        if (!lock.isHeldByCurrentThread()) {
+            return false;
+        }
+        lock.unlock();
+        return true;
+    }
+
+    /*
+        returns the lock of the key, in EXACT mode the lock is pinned until dereferenceLock is called for the same key
+     */
+    private OrderedLock referenceLock(Object key) {
+        if (lockMode == LockMode.STRIPED) {
+            return stripes[stripeIndex(key)];
+        }
+        return keys2LockMap.compute(key, (k, lock) -> {
+            if (lock == null) {
+                lock = new OrderedLock(lockSequence.incrementAndGet(), profiler);
+            }
+            lock.references++;
+            return lock;
+        });
+    }
+
+    private OrderedLock referenceLock(long key) {
+        return lockMode == LockMode.STRIPED ? stripeFor(key) : referenceLock((Object) key);
+    }
+
+    private void dereferenceLock(Object key) {
+        if (lockMode == LockMode.EXACT) {
+            //the lock is reclaimed with the last reference, a later lockKey on the same key simply creates a new one
+            keys2LockMap.computeIfPresent(key, (k, lock) -> --lock.references == 0 ? null : lock);
+        }
+    }
+
+    private ReentrantLock currentLock(Object key) {
+        if (lockMode == LockMode.STRIPED) {
+            return stripes[stripeIndex(key)];
+        }
+        return keys2LockMap.get(key);
+    }
+
+    private OrderedLock stripeFor(long key) {
+        return stripes[spread(key) & stripeMask];
+    }
+
+    private int stripeIndex(Object key) {
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return spread(((Number) key).longValue()) & stripeMask;
+        }
+        return spread(key.hashCode()) & stripeMask;
+    }
+
+    /*
+        murmur3 64 bit finalizer, sequential account ids end up spread over all the stripes
+     */
+    private static int spread(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /*
+        a lock with its position in the canonical lock order: the stripe index, or for EXACT keys a sequence number
+        which stays the same for as long as the lock is referenced. When profiling it records how long it is held, from
+        its first lock to its last unlock by the holding thread.
+     */
+    private static class OrderedLock extends ReentrantLock {
+
+        private final long order;
+        private final LockProfiler profiler;
+
+        /*
+            number of threads holding or waiting for an EXACT key lock, only changed inside ConcurrentHashMap.compute for the key
+         */
+        private int references;
+
+        //only accessed by the holding thread
+        private long lockedAtNanos;
+
+        private OrderedLock(long order, LockProfiler profiler) {
+            this.order = order;
+            this.profiler = profiler;
+        }
+
+        @Override
+        public void lock() {
+            super.lock();
+            locked();
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (super.tryLock()) {
+                locked();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+            if (super.tryLock(timeout, unit)) {
+                locked();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void unlock() {
+            if (profiler != null && getHoldCount() == 1) {
+                profiler.recordHold(lockedAtNanos);
+            }
+            super.unlock();
+        }
+
+        private void locked() {
+            if (profiler != null && getHoldCount() == 1) {
+                lockedAtNanos = System.nanoTime();
+            }
         }
     }
 
@@ -0,0 +1,91 @@
+package com.revolut.core.fundstransfer.locks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy hitters sketch: counts occurrences of at most capacity keys in bounded memory, however many distinct
+ * keys are offered. An untracked key replaces the key with the lowest count and inherits that count as its error, so a
+ * count overestimates by at most its error, and any key occurring more than total / capacity times is always tracked.
+ *
+ * Offers are serialized on the sketch, callers only offer on slow paths e.g. when a lock is found busy.
+ */
+class SpaceSavingSketch {
+
+    private final int capacity;
+    private final Map<Object, Entry> entries;
+    private long total;
+
+    SpaceSavingSketch(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new HashMap<>(this.capacity * 2);
+    }
+
+    synchronized void offer(Object key) {
+        total++;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.count++;
+            return;
+        }
+        if (entries.size() < capacity) {
+            entries.put(key, new Entry(key));
+            return;
+        }
+        //linear scan for the minimum, the sketch is small and only offered to on contention
+        Entry minimum = null;
+        for (Entry candidate : entries.values()) {
+            if (minimum == null || candidate.count < minimum.count) {
+                minimum = candidate;
+            }
+        }
+        entries.remove(minimum.key);
+        minimum.key = key;
+        minimum.error = minimum.count;
+        minimum.count++;
+        entries.put(key, minimum);
+    }
+
+    /**
+     * @return the count of all the keys ever offered, cleared or not
+     */
+    synchronized long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return up to limit tracked keys by descending count
+     */
+    synchronized List<LockProfile.HotKey> top(int limit) {
+        List<LockProfile.HotKey> hotKeys = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            hotKeys.add(new LockProfile.HotKey(String.valueOf(entry.key), entry.count, entry.error));
+        }
+        hotKeys.sort((first, second) -> Long.compare(second.getCount(), first.getCount()));
+        return hotKeys.size() > limit ? new ArrayList<>(hotKeys.subList(0, limit)) : hotKeys;
+    }
+
+    /**
+     * Forgets the tracked keys, the total keeps counting
+     *
+     * @return up to limit keys tracked until then by descending count
+     */
+    synchronized List<LockProfile.HotKey> clear(int limit) {
+        List<LockProfile.HotKey> hotKeys = top(limit);
+        entries.clear();
+        return hotKeys;
+    }
+
+    private static class Entry {
+
+        private Object key;
+        private long count = 1;
+        private long error;
+
+        private Entry(Object key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.revolut.core.fundstransfer.partition;
+
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.core.fundstransfer.transaction.manage.TransactionDefinition;
+import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Accounts hashed to core.partitions single threaded partitions, by default one per available processor.
+ *
+ * A partition executes the tasks of its accounts one at a time, each in a transaction of its own committed before the
+ * next one starts, so it is the only writer of the rows of its accounts and never waits on a lock for them.
+ * A task on the accounts of two partitions is executed by the lower partition while the higher one is held on a parked
+ * task. A partition only ever waits for a higher one, so partitions can't wait on each other in a cycle.
+ */
+public class AccountPartitions {
+
+    private static final AccountPartitions instance = new AccountPartitions();
+
+    private final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+    private final ExecutorService[] partitions;
+
+    private AccountPartitions() {
+        int partitionCount = CoreConfiguration.getInstance().getIntConfigValue("core.partitions", 0);
+        if (partitionCount <= 0) {
+            partitionCount = Runtime.getRuntime().availableProcessors();
+        }
+        partitions = new ExecutorService[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            //the thread is only started with the first task
+            String threadName = "ft-partition-" + i;
+            partitions[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public static AccountPartitions getInstance() {
+        return instance;
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    public int partitionOf(long accountId) {
+        return Math.floorMod(spread(accountId), partitions.length);
+    }
+
+    /**
+     * Executes the task in a new transaction on the partition owning the account and waits for its result.
+     */
+    public <T> T execute(long accountId, PartitionTask<T> task) throws InternalCoreException, ValidationException {
+        return await(partitions[partitionOf(accountId)].submit(() -> executeInTransaction(task)));
+    }
+
+    /**
+     * Executes the task in a new transaction while holding the partitions owning both accounts and waits for its result.
+     */
+    public <T> T execute(long firstAccountId, long secondAccountId, PartitionTask<T> task) throws InternalCoreException, ValidationException {
+        int firstPartition = partitionOf(firstAccountId);
+        int secondPartition = partitionOf(secondAccountId);
+        if (firstPartition == secondPartition) {
+            return execute(firstAccountId, task);
+        }
+        ExecutorService higherPartition = partitions[Math.max(firstPartition, secondPartition)];
+        return await(partitions[Math.min(firstPartition, secondPartition)].submit(() -> {
+            CountDownLatch held = new CountDownLatch(1);
+            CountDownLatch released = new CountDownLatch(1);
+            higherPartition.execute(() -> {
+                held.countDown();
+                awaitUninterruptibly(released);
+            });
+            try {
+                held.await();
+                return executeInTransaction(task);
+            } finally {
+                released.countDown();
+            }
+        }));
+    }
+
+    private <T> T executeInTransaction(PartitionTask<T> task) throws Exception {
+        boolean isSuccessful = false;
+        transactionManager.startTransaction(TransactionDefinition.REQUIRES_NEW);
+        try {
+            T result = task.execute();
+            isSuccessful = true;
+            return result;
+        } finally {
+            transactionManager.endTransactionIfNeeded(isSuccessful);
+        }
+    }
+
+    private static <T> T await(Future<T> result) throws InternalCoreException, ValidationException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InternalCoreException) {
+                throw (InternalCoreException) cause;
+            } else if (cause instanceof ValidationException) {
+                throw (ValidationException) cause;
+            }
+            throw new InternalCoreException("Partition Task Failed:" + cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalCoreException("Partition Task Interrupted");
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //same mixing as the striped locks, so that sequential ids spread evenly
+    private static int spread(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,13 @@
+package com.revolut.core.fundstransfer.partition;
+
+import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+
+/**
+ * Work executed by {@link AccountPartitions} on the thread of the partitions owning its accounts.
+ */
+@FunctionalInterface
+public interface PartitionTask<T> {
+
+    T execute() throws InternalCoreException, ValidationException;
+}
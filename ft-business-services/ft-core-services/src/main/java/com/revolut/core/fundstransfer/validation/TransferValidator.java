@@ -0,0 +1,79 @@
+package com.revolut.core.fundstransfer.validation;
+
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Validates the arguments of withdrawals, deposits and transfers, the same way for single and batch transfers whatever the
+ * engine. Amounts are compared without truncation, an amount is valid if positive with at most {@link #AMOUNT_SCALE} decimals,
+ * the scale of the balances, and at most {@link #MAX_AMOUNT}. Account ids are positive.
+ */
+public final class TransferValidator {
+
+    public static final int AMOUNT_SCALE = 2;
+
+    /**
+     * The largest amount whose cents fit in a long, as the ledger keeps them
+     */
+    public static final BigDecimal MAX_AMOUNT = BigDecimal.valueOf(Long.MAX_VALUE, AMOUNT_SCALE);
+
+    private TransferValidator() {
+    }
+
+    public static boolean isValidAmount(BigDecimal amount) {
+        return !Objects.isNull(amount) && amount.signum() > 0 && amount.stripTrailingZeros().scale() <= AMOUNT_SCALE
+                && amount.compareTo(MAX_AMOUNT) <= 0;
+    }
+
+    public static boolean isValidAccountId(Long accountId) {
+        return !Objects.isNull(accountId) && accountId > 0;
+    }
+
+    public static void validateWithdrawal(Long accountId, BigDecimal amount) throws ValidationException {
+        validateAccountId(accountId);
+        if (!isValidAmount(amount)) {
+            throw new ValidationException("Invalid withdrawal amount", "301");
+        }
+    }
+
+    public static void validateDeposit(Long accountId, BigDecimal amount) throws ValidationException {
+        validateAccountId(accountId);
+        if (!isValidAmount(amount)) {
+            throw new ValidationException("Invalid depositToAccount amount", "302");
+        }
+    }
+
+    public static void validateTransfer(TransferRequestVO transferRequest) throws ValidationException {
+        ValidationException failure = checkTransfer(transferRequest);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Same as {@link #validateTransfer(TransferRequestVO)} for the transfers of a batch, reported one by one.
+     *
+     * @return the validation failure of the transfer, null if it is valid
+     */
+    public static ValidationException checkTransfer(TransferRequestVO transferRequest) {
+        if (Objects.isNull(transferRequest)) {
+            return new ValidationException("Invalid transfer request", "305");
+        }
+        if (!isValidAccountId(transferRequest.getSourceAccountId()) || !isValidAccountId(transferRequest.getDestinationAccountId())) {
+            return new ValidationException("Invalid account id", "306");
+        }
+        if (!isValidAmount(transferRequest.getTransferAmount())) {
+            return new ValidationException("Invalid transfer amount", "303");
+        }
+        return null;
+    }
+
+    private static void validateAccountId(Long accountId) throws ValidationException {
+        if (!isValidAccountId(accountId)) {
+            throw new ValidationException("Invalid account id", "306");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.revolut.core.fundstransfer.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests of the split of a failed group into the transfers sharing accounts with each other
+ */
+public class GroupCommitCoordinatorTest {
+
+    @Test
+    public void testSplitByAccountsKeepsLinkedTransfersTogether() {
+        //1->2 and 3->2 are linked through 2, 4->5 and 5->6 through 5, 7->7 on its own
+        List<String> transfers = Arrays.asList("1->2", "4->5", "3->2", "7->7", "5->6");
+        long[] sourceAccountIds = {1, 4, 3, 7, 5};
+        long[] destinationAccountIds = {2, 5, 2, 7, 6};
+
+        List<List<String>> components = GroupCommitCoordinator.splitByAccounts(transfers, sourceAccountIds, destinationAccountIds);
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("1->2", "3->2"),
+                Arrays.asList("4->5", "5->6"),
+                Collections.singletonList("7->7")), components);
+    }
+
+    @Test
+    public void testSplitByAccountsOfLinkedGroup() {
+        //a chain links every transfer, merging sets built separately
+        List<String> transfers = Arrays.asList("1->2", "3->4", "2->3");
+        long[] sourceAccountIds = {1, 3, 2};
+        long[] destinationAccountIds = {2, 4, 3};
+
+        List<List<String>> components = GroupCommitCoordinator.splitByAccounts(transfers, sourceAccountIds, destinationAccountIds);
+
+        assertEquals(Collections.singletonList(transfers), components);
+    }
+}
@@ -0,0 +1,76 @@
+package com.revolut.core.fundstransfer.locks;
+
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager.LockMode;
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager.MultiLockStrategy;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of the contention profile of the java locks: counting a busy key once per lock call and starting over
+ */
+public class ObjectsLockManagerProfileTest {
+
+    @Test
+    public void testRetriedCallCountsItsBusyKeyOnce() throws Exception {
+        ObjectsLockManager lockManager = ObjectsLockManager.create(LockMode.EXACT, 0, MultiLockStrategy.TRY_LOCK_RETRY, true);
+
+        lockBusy(lockManager, 1L, 100);
+
+        LockProfile profile = lockManager.getProfile();
+        assertTrue(profile.getRetries() > 1);
+        assertEquals(1, profile.getBusyKeys());
+        assertEquals(1, profile.getHotKeys().size());
+        assertEquals("1", profile.getHotKeys().get(0).getKey());
+        assertEquals(1, profile.getHotKeys().get(0).getCount());
+    }
+
+    @Test
+    public void testResetStartsTheProfileOver() throws Exception {
+        ObjectsLockManager lockManager = ObjectsLockManager.create(LockMode.EXACT, 0, MultiLockStrategy.TRY_LOCK_RETRY, true);
+        lockBusy(lockManager, 1L, 10);
+
+        LockProfile profileUpToReset = lockManager.resetProfile();
+        LockProfile profile = lockManager.getProfile();
+
+        assertEquals(1, profileUpToReset.getBusyKeys());
+        assertEquals(1, profileUpToReset.getHotKeys().size());
+        assertEquals(2, profileUpToReset.getWaitTime().getCount());
+        assertEquals(0, profile.getBusyKeys());
+        assertEquals(0, profile.getRetries());
+        assertTrue(profile.getHotKeys().isEmpty());
+        assertEquals(0, profile.getWaitTime().getCount());
+        assertEquals(0, profile.getHoldTime().getMeanNanos());
+
+        lockBusy(lockManager, 2L, 10);
+        assertEquals(1, lockManager.getProfile().getBusyKeys());
+        assertEquals("2", lockManager.getProfile().getHotKeys().get(0).getKey());
+    }
+
+    /*
+        locks the pair of the key and the next one while another thread holds the key for holdMillis
+     */
+    private static void lockBusy(ObjectsLockManager lockManager, long key, long holdMillis) throws Exception {
+        CountDownLatch isLocked = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            lockManager.lockKey(key);
+            isLocked.countDown();
+            try {
+                Thread.sleep(holdMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lockManager.unlockKey(key);
+            }
+        });
+        holder.start();
+        isLocked.await();
+
+        lockManager.lockMultipleAtomically(key, key + 1);
+        lockManager.unlockMultiple(key, key + 1);
+        holder.join();
+    }
+}
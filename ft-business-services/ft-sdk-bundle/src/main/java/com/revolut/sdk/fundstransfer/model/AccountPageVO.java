@@ -0,0 +1,40 @@
+package com.revolut.sdk.fundstransfer.model;
+
+import java.util.List;
+
+public class AccountPageVO {
+
+    private List<AccountVO> accounts;
+
+    private Long nextAfterAccountId;
+
+    public AccountPageVO() {
+    }
+
+    public AccountPageVO(List<AccountVO> accounts, Long nextAfterAccountId) {
+        this.accounts = accounts;
+        this.nextAfterAccountId = nextAfterAccountId;
+    }
+
+    /**
+     * @return accounts of the page in ascending account id order
+     */
+    public List<AccountVO> getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(List<AccountVO> accounts) {
+        this.accounts = accounts;
+    }
+
+    /**
+     * @return the account id to continue after for the next page, null if this is the last one
+     */
+    public Long getNextAfterAccountId() {
+        return nextAfterAccountId;
+    }
+
+    public void setNextAfterAccountId(Long nextAfterAccountId) {
+        this.nextAfterAccountId = nextAfterAccountId;
+    }
+}
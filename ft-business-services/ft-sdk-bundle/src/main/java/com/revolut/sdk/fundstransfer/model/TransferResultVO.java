@@ -0,0 +1,57 @@
+package com.revolut.sdk.fundstransfer.model;
+
+public class TransferResultVO {
+
+    private int index;
+
+    private TransferStatus status;
+
+    private String reasonCode;
+
+    private String message;
+
+    public TransferResultVO() {
+    }
+
+    public TransferResultVO(int index, TransferStatus status, String reasonCode, String message) {
+        this.index = index;
+        this.status = status;
+        this.reasonCode = reasonCode;
+        this.message = message;
+    }
+
+    /**
+     * @return position of the transfer within its batch
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public TransferStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TransferStatus status) {
+        this.status = status;
+    }
+
+    public String getReasonCode() {
+        return reasonCode;
+    }
+
+    public void setReasonCode(String reasonCode) {
+        this.reasonCode = reasonCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
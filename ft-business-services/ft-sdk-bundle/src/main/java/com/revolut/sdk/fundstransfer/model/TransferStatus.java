@@ -0,0 +1,22 @@
+package com.revolut.sdk.fundstransfer.model;
+
+/**
+ * Outcome of a single transfer of a batch
+ */
+public enum TransferStatus {
+
+    /**
+     * the transfer has been executed and committed
+     */
+    COMPLETED,
+
+    /**
+     * the transfer is invalid, hence none of the transfers of its batch have been executed
+     */
+    FAILED,
+
+    /**
+     * the transfer is valid but has not been executed, as another transfer of its batch failed, or its batch failed with an error
+     */
+    NOT_EXECUTED
+}
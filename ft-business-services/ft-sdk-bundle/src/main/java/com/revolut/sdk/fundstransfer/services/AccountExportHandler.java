@@ -0,0 +1,14 @@
+package com.revolut.sdk.fundstransfer.services;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Receives the accounts exported by {@link AccountService#exportAccounts(AccountExportHandler)} one at a time, in
+ * ascending account id order, typically writing each one straight to an output stream.
+ */
+@FunctionalInterface
+public interface AccountExportHandler {
+
+    void onAccount(long accountId, long accountNumber, String accountName, BigDecimal balance) throws IOException;
+}
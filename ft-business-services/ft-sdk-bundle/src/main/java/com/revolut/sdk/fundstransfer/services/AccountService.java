@@ -2,7 +2,9 @@ package com.revolut.sdk.fundstransfer.services;
 
 import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
 import com.revolut.sdk.fundstransfer.exception.ValidationException;
+import com.revolut.sdk.fundstransfer.model.AccountPageVO;
 import com.revolut.sdk.fundstransfer.model.AccountVO;
+import com.revolut.sdk.fundstransfer.transaction.TransactionAttributes;
 
 import javax.transaction.Transactional;
 import java.math.BigDecimal;
@@ -12,6 +14,16 @@ import static javax.transaction.Transactional.TxType;
 
 public interface AccountService {
 
+    /**
+     * Page size of {@link #getAccountsPage(Long, Integer)} when none is requested
+     */
+    int DEFAULT_PAGE_LIMIT = 100;
+
+    /**
+     * Largest page size of {@link #getAccountsPage(Long, Integer)}, which bounds the memory of a single call
+     */
+    int MAX_PAGE_LIMIT = 1000;
+
     /**
      * Find all accounts
      *
@@ -19,8 +31,34 @@ public interface AccountService {
      * @throws InternalCoreException
      */
     @Transactional(TxType.REQUIRED)
+    @TransactionAttributes(readOnly = true)
     List<AccountVO> getAllAccounts() throws InternalCoreException;
 
+    /**
+     * Find a page of accounts in ascending account id order, keyset paginated on the account id
+     *
+     * @param afterAccountId the next page cursor of the previous page, null for the first page
+     * @param limit maximum number of accounts of the page, from 1 to {@link #MAX_PAGE_LIMIT}
+     * @return
+     * @throws InternalCoreException
+     * @throws ValidationException
+     */
+    @Transactional(TxType.REQUIRED)
+    @TransactionAttributes(readOnly = true)
+    AccountPageVO getAccountsPage(Long afterAccountId, Integer limit) throws InternalCoreException, ValidationException;
+
+    /**
+     * Export all accounts in ascending account id order, handing them to the handler one at a time without collecting them.
+     * The accounts are read without locks, concurrent transfers are neither blocked nor blocking.
+     *
+     * @param exportHandler
+     * @return the number of accounts exported
+     * @throws InternalCoreException
+     */
+    @Transactional(TxType.REQUIRED)
+    @TransactionAttributes(readOnly = true)
+    long exportAccounts(AccountExportHandler exportHandler) throws InternalCoreException;
+
     /**
      * Find by account id
      *
@@ -29,6 +67,7 @@ public interface AccountService {
      * @throws InternalCoreException
      */
     @Transactional(TxType.REQUIRED)
+    @TransactionAttributes(readOnly = true)
     AccountVO getAccount(Long accountId) throws InternalCoreException;
 
     /**
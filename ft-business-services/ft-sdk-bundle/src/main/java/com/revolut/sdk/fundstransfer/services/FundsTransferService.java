@@ -3,8 +3,10 @@ package com.revolut.sdk.fundstransfer.services;
 import com.revolut.sdk.fundstransfer.exception.InternalCoreException;
 import com.revolut.sdk.fundstransfer.exception.ValidationException;
 import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.model.TransferResultVO;
 
 import javax.transaction.Transactional;
+import java.util.List;
 
 import static javax.transaction.Transactional.TxType;
 
@@ -18,4 +20,13 @@ public interface FundsTransferService {
      * @throws com.revolut.sdk.fundstransfer.exception.InternalCoreException
      */
     void transferFunds(TransferRequestVO transferRequest) throws InternalCoreException, ValidationException;
+
+    /**
+     * Transfer funds for a batch of transfers in one transaction, all or nothing: either every transfer is valid and executed,
+     * or none of them is executed. The transfers are validated in order, each against the balances left by the previous ones.
+     * @param transferRequests
+     * @return the result of each transfer, in the order of the requests
+     * @throws com.revolut.sdk.fundstransfer.exception.InternalCoreException
+     */
+    List<TransferResultVO> transferFundsBatch(List<TransferRequestVO> transferRequests) throws InternalCoreException;
 }
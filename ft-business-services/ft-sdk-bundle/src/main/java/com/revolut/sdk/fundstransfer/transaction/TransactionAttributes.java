@@ -0,0 +1,38 @@
+package com.revolut.sdk.fundstransfer.transaction;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Transaction attributes of a service method, or of all the methods of a service, complementing the propagation
+ * declared with {@link javax.transaction.Transactional}. They only apply when the method starts a new transaction,
+ * a method joining its caller's transaction runs with the caller's attributes.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface TransactionAttributes {
+
+    int DEFAULT_ISOLATION = -1;
+    int NO_TIMEOUT = -1;
+
+    /**
+     * the transaction doesn't write, the connection is put in read only mode
+     */
+    boolean readOnly() default false;
+
+    /**
+     * seconds after which the transaction is rolled back instead of committed
+     */
+    int timeout() default NO_TIMEOUT;
+
+    /**
+     * one of the java.sql.Connection TRANSACTION_* isolation levels, by default the isolation level of the connection
+     */
+    int isolation() default DEFAULT_ISOLATION;
+}
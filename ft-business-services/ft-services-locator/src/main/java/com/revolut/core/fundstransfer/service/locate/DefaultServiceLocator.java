@@ -8,18 +8,24 @@ package com.revolut.core.fundstransfer.service.locate;
  * The Default logic for locating implementation class goes below:
  * Look for the class inside the base package com.revolut.core.fundstransfer.impl and that ends with <ServiceInterfaceName>Impl.
  * e.g. for FundsTransferService, the implementation class will be com.revolut.core.fundstransfer.impl.FundsTransferServiceImpl
+ * Another base package can be given to switch all services to another implementation e.g. com.revolut.core.fundstransfer.ledger
  */
 public class DefaultServiceLocator implements ServiceLocator {
 
     private Class serviceClassType;
+    private String basePackageName;
 
     DefaultServiceLocator(Class serviceClassType) {
+        this(serviceClassType, DEFAULT_IMPLEMENTATION_PACKAGE);
+    }
+
+    DefaultServiceLocator(Class serviceClassType, String basePackageName) {
         this.serviceClassType = serviceClassType;
+        this.basePackageName = basePackageName;
     }
 
     @Override
     public Object locate() throws Exception {
-        String basePackageName = "com.revolut.core.fundstransfer.impl";
         String childClassName = basePackageName + "." + serviceClassType.getSimpleName() + "Impl";
         Class classObj = Class.forName(childClassName);
         return classObj.newInstance();
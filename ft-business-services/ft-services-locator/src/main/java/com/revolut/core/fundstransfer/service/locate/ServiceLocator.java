@@ -8,14 +8,25 @@ import com.revolut.sdk.fundstransfer.services.AccountService;
  */
 public interface ServiceLocator<T> {
 
+    /**
+     * base package of the default service implementations
+     */
+    String DEFAULT_IMPLEMENTATION_PACKAGE = "com.revolut.core.fundstransfer.impl";
+
     T locate() throws Exception;
 
     static <T> ServiceLocator<T> getLocator(Class<T> type) {
-        String className = type.getCanonicalName();
-        if (AccountService.class.getCanonicalName().equals(className)) {
+        return getLocator(type, DEFAULT_IMPLEMENTATION_PACKAGE);
+    }
+
+    /**
+     * @param implementationPackage base package of the implementation classes, custom locators only apply to the default one
+     */
+    static <T> ServiceLocator<T> getLocator(Class<T> type, String implementationPackage) {
+        if (type == AccountService.class && DEFAULT_IMPLEMENTATION_PACKAGE.equals(implementationPackage)) {
             return (ServiceLocator<T>) new AccountServiceLocator();
         } else {
-            return new DefaultServiceLocator(type);
+            return new DefaultServiceLocator(type, implementationPackage);
         }
 
     }
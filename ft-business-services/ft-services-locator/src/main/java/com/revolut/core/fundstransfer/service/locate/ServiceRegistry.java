@@ -0,0 +1,92 @@
+package com.revolut.core.fundstransfer.service.locate;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one implementation instance per service interface, located through the {@link ServiceLocator} of the service
+ * the first time it is asked for and shared afterwards. Service implementations must therefore be thread safe.
+ *
+ * Services can be registered at startup with {@link #initialize(Class[])} so that a missing implementation fails the boot
+ * instead of the first request. Registering them with another implementation package replaces all the registered instances.
+ */
+public class ServiceRegistry {
+
+    private static final ServiceRegistry serviceRegistry = new ServiceRegistry();
+
+    private final ConcurrentHashMap<Class<?>, Object> serviceType2InstanceMap = new ConcurrentHashMap<>();
+    private volatile String implementationPackage = ServiceLocator.DEFAULT_IMPLEMENTATION_PACKAGE;
+
+    private ServiceRegistry() {
+    }
+
+    public static ServiceRegistry getInstance() {
+        return serviceRegistry;
+    }
+
+    /**
+     * Locates and registers the implementations of all the given services.
+     *
+     * @param serviceTypes
+     * @throws Exception if the implementation of any of the services can't be located
+     */
+    public void initialize(Class<?>... serviceTypes) throws Exception {
+        initialize(ServiceLocator.DEFAULT_IMPLEMENTATION_PACKAGE, serviceTypes);
+    }
+
+    /**
+     * Locates and registers the implementations of all the given services from the given base package.
+     *
+     * @param implementationPackage base package of the implementation classes
+     * @param serviceTypes
+     * @throws Exception if the implementation of any of the services can't be located
+     */
+    public synchronized void initialize(String implementationPackage, Class<?>... serviceTypes) throws Exception {
+        if (!implementationPackage.equals(this.implementationPackage)) {
+            this.implementationPackage = implementationPackage;
+            serviceType2InstanceMap.clear();
+        }
+        for (Class<?> serviceType : serviceTypes) {
+            getService(serviceType);
+        }
+    }
+
+    /**
+     * @param serviceType class type of the service interface
+     * @return the shared implementation instance of the service
+     * @throws Exception if the implementation can't be located
+     */
+    public <T> T getService(Class<T> serviceType) throws Exception {
+        Object service = serviceType2InstanceMap.get(serviceType);
+        if (service == null) {
+            try {
+                //computeIfAbsent locates the implementation only once and safely publishes it to all threads
+                service = serviceType2InstanceMap.computeIfAbsent(serviceType, this::locate);
+            } catch (ServiceLocationException e) {
+                throw (Exception) e.getCause();
+            }
+        }
+        return serviceType.cast(service);
+    }
+
+    private Object locate(Class<?> serviceType) {
+        try {
+            Object service = ServiceLocator.getLocator(serviceType, implementationPackage).locate();
+            if (service == null) {
+                throw new ClassNotFoundException("No implementation found for service:" + serviceType.getName());
+            }
+            return service;
+        } catch (Exception e) {
+            throw new ServiceLocationException(e);
+        }
+    }
+
+    /*
+        carries the checked exception of a locator out of computeIfAbsent
+     */
+    private static class ServiceLocationException extends RuntimeException {
+
+        private ServiceLocationException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.revolut.core.fundstransfer.transaction.manage;
 
 import com.revolut.core.fundstransfer.conn.manage.ConnectionManager;
+import com.revolut.core.fundstransfer.metrics.LatencyHistogram;
+import com.revolut.core.fundstransfer.metrics.MetricsRegistry;
+import com.revolut.core.fundstransfer.persist.conn.StatementCache;
 
 import javax.transaction.NotSupportedException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,7 +25,14 @@ public class RevolutTransactionManager {
 
     private static final RevolutTransactionManager transactionManager = new RevolutTransactionManager();
 
-    private ThreadLocal<Deque<Connection>> currentThreadConnectionStack = new ThreadLocal<>();
+    private static final LatencyHistogram beginDurations = MetricsRegistry.getInstance().histogram("ft_transaction_begin_seconds",
+            "Duration of starting a new transaction, borrowing its connection included");
+    private static final LatencyHistogram commitDurations = MetricsRegistry.getInstance().histogram("ft_transaction_commit_seconds",
+            "Duration of the commits of transactions");
+    private static final LatencyHistogram rollbackDurations = MetricsRegistry.getInstance().histogram("ft_transaction_rollback_seconds",
+            "Duration of the rollbacks of transactions");
+
+    private ThreadLocal<Deque<ActiveTransaction>> currentThreadTransactionStack = new ThreadLocal<>();
     private ThreadLocal<Deque<Boolean>> currentThreadEndTxFlagStack = new ThreadLocal<>();
 
     public static RevolutTransactionManager getInstance() {
@@ -41,15 +54,29 @@ public class RevolutTransactionManager {
      */
 
     public Connection startTransaction(TxType transactionPropagation) throws Exception {
+        return startTransaction(transactionPropagation == TxType.REQUIRES_NEW ? TransactionDefinition.REQUIRES_NEW : TransactionDefinition.REQUIRED);
+    }
+
+    /**
+     * Same as {@link #startTransaction(TxType)}, a newly started transaction additionally gets the read only flag, isolation level
+     * and timeout of the definition. The remaining time is the query timeout of the statements run in the transaction, and the
+     * longest wait for a java lock, refer {@link #getRemainingTimeoutMillis()}. A transaction timed out when it ends is rolled back.
+     *
+     * @param transactionDefinition
+     * @return
+     * @throws Exception
+     */
+    public Connection startTransaction(TransactionDefinition transactionDefinition) throws Exception {
 
+        TxType transactionPropagation = transactionDefinition.getPropagation();
         if (!isValidTransactionType(transactionPropagation)) {
             throw new NotSupportedException("Trx Type Not Supported: "+transactionPropagation.name());
         }
 
-        Deque<Connection> connectionStack = currentThreadConnectionStack.get();
-        if (Objects.isNull(connectionStack)) {
-            connectionStack = new ArrayDeque<>();
-            currentThreadConnectionStack.set(connectionStack);
+        Deque<ActiveTransaction> transactionStack = currentThreadTransactionStack.get();
+        if (Objects.isNull(transactionStack)) {
+            transactionStack = new ArrayDeque<>();
+            currentThreadTransactionStack.set(transactionStack);
         }
 
         boolean isNewConnection = false;
@@ -59,17 +86,29 @@ public class RevolutTransactionManager {
 
         try {
 
-            if(isNewTransactionNeeded(transactionPropagation, connectionStack)) {
+            if(isNewTransactionNeeded(transactionPropagation, transactionStack)) {
+                long beginNanos = System.nanoTime();
                 //get a new connection from pool
                 connection = ConnectionManager.getInstance().getConnection();
                 isNewConnection = true;
                 connection.setAutoCommit(false);
+                if (transactionDefinition.isReadOnly()) {
+                    connection.setReadOnly(true);
+                }
+                if (transactionDefinition.getIsolation() != TransactionDefinition.DEFAULT_ISOLATION) {
+                    connection.setTransactionIsolation(transactionDefinition.getIsolation());
+                }
                 //push the new connection to stack
-                connectionStack.push(connection);
+                ActiveTransaction transaction = new ActiveTransaction(connection, transactionDefinition.getTimeoutSeconds());
+                transactionStack.push(transaction);
                 isPushedToConnStack = true;
+                if (transaction.timeoutSeconds > 0) {
+                    StatementCache.setDeadline(connection, transaction.deadlineNanos);
+                }
+                beginDurations.recordSince(beginNanos);
             } else {
                 //retrieve the existing connection from stack i.e. use the connection from parent transaction itself
-                connection = connectionStack.peek();
+                connection = transactionStack.peek().connection;
             }
 
             Deque<Boolean> endTransactionFlagStack = currentThreadEndTxFlagStack.get();
@@ -89,10 +128,11 @@ public class RevolutTransactionManager {
             if (isFailure) {
                 //any error occurred, make sure stacks are not in inconsistent state to avoid any connection leak.
                 if (isPushedToConnStack) {
-                    connectionStack.pop();
+                    transactionStack.pop();
                 }
                 //make sure to return the newly created connection back to the pool
                 if (isNewConnection) {
+                    StatementCache.clearDeadline(connection);
                     ConnectionManager.getInstance().release(connection);
                 }
             }
@@ -109,52 +149,117 @@ public class RevolutTransactionManager {
      */
     public void endTransactionIfNeeded(boolean isSuccessful) throws SQLException {
 
-        Deque<Connection> connectionStack = currentThreadConnectionStack.get();
+        Deque<ActiveTransaction> transactionStack = currentThreadTransactionStack.get();
         Deque<Boolean> endTransactionFlagStack = currentThreadEndTxFlagStack.get();
 
-        if(isTransactionNotStarted(connectionStack, endTransactionFlagStack)) {
+        if(isTransactionNotStarted(transactionStack, endTransactionFlagStack)) {
             throw new RuntimeException("Error: A transaction is not started, please start one");
         }
 
         boolean shouldCloseTransaction = endTransactionFlagStack.pop();
         if (shouldCloseTransaction) {
-            Connection currentConnection = connectionStack.pop();
-            if (isSuccessful) {
-                try {
-                    currentConnection.commit();
-                } catch (SQLException e) {
-                    logger.log(Level.SEVERE, "Error while committing transaction:" + e);
-                    throw e;
-                }
-            } else {
-                try {
-                    currentConnection.rollback();
-                } catch (SQLException e) {
-                    logger.log(Level.SEVERE, "Error while rollback transaction:" + e);
-                    throw e;
+            ActiveTransaction currentTransaction = transactionStack.pop();
+            boolean isCommitted = false;
+            Connection currentConnection = currentTransaction.connection;
+            try {
+                if (isSuccessful && currentTransaction.isTimedOut()) {
+                    logger.log(Level.WARNING, "Transaction timed out, rolling back");
+                    rollback(currentConnection);
+                    throw new SQLException("Transaction timed out after " + currentTransaction.timeoutSeconds + "s");
+                } else if (isSuccessful) {
+                    try {
+                        long commitNanos = System.nanoTime();
+                        currentConnection.commit();
+                        commitDurations.recordSince(commitNanos);
+                        isCommitted = true;
+                    } catch (SQLException e) {
+                        logger.log(Level.SEVERE, "Error while committing transaction:" + e);
+                        throw e;
+                    }
+                } else {
+                    try {
+                        rollback(currentConnection);
+                    } catch (SQLException e) {
+                        logger.log(Level.SEVERE, "Error while rollback transaction:" + e);
+                        throw e;
+                    }
                 }
+            } finally {
+                // close the transaction i.e. return the connection back to the pool, the pool rolls back anything left uncommitted
+                StatementCache.clearDeadline(currentConnection);
+                ConnectionManager.getInstance().release(currentConnection);
+            }
+            if (isCommitted) {
+                currentTransaction.runAfterCommitActions();
             }
-            // close the transaction i.e. return the connection back to the pool
-            ConnectionManager.getInstance().release(currentConnection);
         } else {
             //a new transaction was not created by current active transaction, so no action is needed. It needs to be propagated back to the parent transaction.
             //It's the responsibility of parent transaction to close the transaction with commit or rollback.
         }
     }
 
+    /**
+     * Registers an action to run once the current transaction, or the parent transaction it is propagated to, is committed.
+     * The action is dropped if the transaction is rolled back. Actions run on the committing thread after the connection is
+     * released, in registration order, a failing action is logged and doesn't affect the others or the transaction.
+     *
+     * @param action
+     */
+    public void runAfterCommit(Runnable action) {
+        Deque<ActiveTransaction> transactionStack = currentThreadTransactionStack.get();
+        if (Objects.isNull(transactionStack) || transactionStack.isEmpty()) {
+            throw new RuntimeException("Error: A transaction is not started, please start one");
+        }
+        ActiveTransaction currentTransaction = transactionStack.peek();
+        if (currentTransaction.afterCommitActions == null) {
+            currentTransaction.afterCommitActions = new ArrayList<>(2);
+        }
+        currentTransaction.afterCommitActions.add(action);
+    }
+
+    /**
+     * @return whether an action equal to the given one is registered to run once the current transaction commits,
+     * false if no transaction is started
+     */
+    public boolean isRegisteredAfterCommit(Runnable action) {
+        Deque<ActiveTransaction> transactionStack = currentThreadTransactionStack.get();
+        if (Objects.isNull(transactionStack) || transactionStack.isEmpty()) {
+            return false;
+        }
+        List<Runnable> afterCommitActions = transactionStack.peek().afterCommitActions;
+        return afterCommitActions != null && afterCommitActions.contains(action);
+    }
+
+    /**
+     * @return the milliseconds left before the current transaction times out, zero once timed out, or
+     * {@link TransactionDefinition#NO_TIMEOUT} if it has no timeout or if no transaction is started
+     */
+    public long getRemainingTimeoutMillis() {
+        Deque<ActiveTransaction> transactionStack = currentThreadTransactionStack.get();
+        if (Objects.isNull(transactionStack) || transactionStack.isEmpty() || transactionStack.peek().timeoutSeconds <= 0) {
+            return TransactionDefinition.NO_TIMEOUT;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(transactionStack.peek().deadlineNanos - System.nanoTime()));
+    }
+
     public Connection getConnectionFromCurrentTransaction() {
-        return currentThreadConnectionStack.get().peek();
+        return currentThreadTransactionStack.get().peek().connection;
+    }
+
+    private static void rollback(Connection connection) throws SQLException {
+        long rollbackNanos = System.nanoTime();
+        connection.rollback();
+        rollbackDurations.recordSince(rollbackNanos);
     }
 
-    private boolean isNewTransactionNeeded(TxType transactionPropagation, Deque<Connection> connectionStack) {
+    private boolean isNewTransactionNeeded(TxType transactionPropagation, Deque<ActiveTransaction> transactionStack) {
         return transactionPropagation == TxType.REQUIRES_NEW
-                || connectionStack.isEmpty()
-                || Objects.isNull(connectionStack.peek());
+                || transactionStack.isEmpty();
     }
 
-    private boolean isTransactionNotStarted(Deque<Connection> connectionStack, Deque<Boolean> endTransactionFlagStack) {
-        return Objects.isNull(connectionStack)
-                || connectionStack.isEmpty()
+    private boolean isTransactionNotStarted(Deque<ActiveTransaction> transactionStack, Deque<Boolean> endTransactionFlagStack) {
+        return Objects.isNull(transactionStack)
+                || transactionStack.isEmpty()
                 || Objects.isNull(endTransactionFlagStack)
                 || endTransactionFlagStack.isEmpty();
     }
@@ -164,4 +269,39 @@ public class RevolutTransactionManager {
                 || transactionPropagation == TxType.REQUIRED;
     }
 
+    /*
+        a transaction started by this transaction manager, i.e. owning its connection
+     */
+    private static class ActiveTransaction {
+
+        private final Connection connection;
+        private final int timeoutSeconds;
+        private final long deadlineNanos;
+        //created with the first action, most transactions have none
+        private List<Runnable> afterCommitActions;
+
+        private ActiveTransaction(Connection connection, int timeoutSeconds) {
+            this.connection = connection;
+            this.timeoutSeconds = timeoutSeconds;
+            this.deadlineNanos = timeoutSeconds > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds) : 0;
+        }
+
+        private boolean isTimedOut() {
+            return timeoutSeconds > 0 && System.nanoTime() - deadlineNanos > 0;
+        }
+
+        private void runAfterCommitActions() {
+            if (afterCommitActions == null) {
+                return;
+            }
+            for (Runnable action : afterCommitActions) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    logger.log(Level.SEVERE, "Error while running after commit action:" + e);
+                }
+            }
+        }
+    }
+
 }
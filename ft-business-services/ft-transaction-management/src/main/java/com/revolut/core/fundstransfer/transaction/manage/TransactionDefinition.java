@@ -0,0 +1,55 @@
+package com.revolut.core.fundstransfer.transaction.manage;
+
+import javax.transaction.Transactional.TxType;
+
+/**
+ * Describes the transaction a service method runs in. Immutable, resolved once per service method.
+ */
+public class TransactionDefinition {
+
+    public static final int DEFAULT_ISOLATION = -1;
+    public static final int NO_TIMEOUT = -1;
+
+    public static final TransactionDefinition REQUIRED = new TransactionDefinition(TxType.REQUIRED, false, NO_TIMEOUT, DEFAULT_ISOLATION);
+    public static final TransactionDefinition REQUIRES_NEW = new TransactionDefinition(TxType.REQUIRES_NEW, false, NO_TIMEOUT, DEFAULT_ISOLATION);
+
+    private final TxType propagation;
+    private final boolean readOnly;
+    private final int timeoutSeconds;
+    private final int isolation;
+
+    /**
+     * @param propagation
+     * @param readOnly       put the connection of a new transaction in read only mode
+     * @param timeoutSeconds roll back instead of commit once elapsed, {@link #NO_TIMEOUT} for none
+     * @param isolation      java.sql.Connection isolation level of a new transaction, {@link #DEFAULT_ISOLATION} to keep the connection's one
+     */
+    public TransactionDefinition(TxType propagation, boolean readOnly, int timeoutSeconds, int isolation) {
+        this.propagation = propagation;
+        this.readOnly = readOnly;
+        this.timeoutSeconds = timeoutSeconds;
+        this.isolation = isolation;
+    }
+
+    public TxType getPropagation() {
+        return propagation;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public int getIsolation() {
+        return isolation;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionDefinition{propagation=" + propagation + ", readOnly=" + readOnly
+                + ", timeoutSeconds=" + timeoutSeconds + ", isolation=" + isolation + "}";
+    }
+}
@@ -0,0 +1,27 @@
+package com.revolut.fundstransfer;
+
+/**
+ * Implementation of the business services, configured with core.engine
+ */
+public enum CoreEngine {
+
+    /**
+     * Every operation runs in a database transaction, concurrency is controlled with java locks and row locks.
+     */
+    DATABASE("com.revolut.core.fundstransfer.impl"),
+
+    /**
+     * Operations are executed in memory by the single writer of the ledger, which writes the balances to the database asynchronously.
+     */
+    LEDGER("com.revolut.core.fundstransfer.ledger");
+
+    private final String implementationPackage;
+
+    CoreEngine(String implementationPackage) {
+        this.implementationPackage = implementationPackage;
+    }
+
+    public String getImplementationPackage() {
+        return implementationPackage;
+    }
+}
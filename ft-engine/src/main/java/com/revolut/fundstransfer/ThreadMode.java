@@ -0,0 +1,18 @@
+package com.revolut.fundstransfer;
+
+/**
+ * Threads running the business calls of the rest services, configured with engine.threads.mode
+ */
+public enum ThreadMode {
+
+    /**
+     * Bounded pools of platform threads, one thread per in flight call.
+     */
+    PLATFORM,
+
+    /**
+     * One virtual thread per in flight call, so that a blocked call doesn't hold a platform thread.
+     * Requires a java runtime with virtual threads, falls back to PLATFORM otherwise.
+     */
+    VIRTUAL
+}
@@ -1,15 +1,29 @@
 package com.revolut.fundstransfer;
 
 import com.revolut.app.rest.fundstransfer.service.AccountRestService;
+import com.revolut.app.rest.fundstransfer.service.AsyncServiceExecutor;
 import com.revolut.app.rest.fundstransfer.service.FundsTransferRestService;
 import com.revolut.app.rest.fundstransfer.service.GenericExceptionMapper;
+import com.revolut.app.rest.fundstransfer.service.MetricsRestService;
 import com.revolut.app.rest.fundstransfer.service.RevolutExceptionMapper;
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.gateway.IdempotencyKeys;
+import com.revolut.core.fundstransfer.idempotency.DatabaseIdempotencyKeyStore;
+import com.revolut.core.fundstransfer.ledger.Ledger;
+import com.revolut.core.fundstransfer.service.locate.ServiceRegistry;
+import com.revolut.fundstransfer.admin.LockAdminRestService;
 import com.revolut.fundstransfer.tools.H2SchemaGenerator;
+import com.revolut.fundstransfer.tools.VirtualThreads;
+import com.revolut.sdk.fundstransfer.services.AccountService;
+import com.revolut.sdk.fundstransfer.services.FundsTransferService;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.glassfish.jersey.servlet.ServletContainer;
 
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,23 +44,84 @@ public class TransferEngine {
 	}
 
 	public Server startInMemoryWebServer() throws Exception{
+        CoreEngine coreEngine = CoreConfiguration.getInstance().getEnumConfigValue("core.engine", CoreEngine.class, CoreEngine.DATABASE);
+        if (coreEngine == CoreEngine.LEDGER) {
+            //loads the balances, hence after the db is prepared
+            Ledger.getInstance().start();
+        }
+        //fail fast if any service implementation is missing
+        ServiceRegistry.getInstance().initialize(coreEngine.getImplementationPackage(), AccountService.class, FundsTransferService.class);
+        initializeAsyncServiceExecutor();
+        IdempotencyKeys.getInstance().initialize(DatabaseIdempotencyKeyStore.getInstance(),
+                CoreConfiguration.getInstance().getIntConfigValue("core.idempotency.index.size", 100000),
+                TimeUnit.SECONDS.toMillis(CoreConfiguration.getInstance().getIntConfigValue("core.idempotency.index.ttl.seconds", 86400)));
+
         Server server = new Server(7777);
         ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
         context.setContextPath("/");
         server.setHandler(context);
         log.log(Level.INFO,"########Starting server...");
         ServletHolder servletHolder = context.addServlet(ServletContainer.class, "/*");
+        //rest services suspend their requests and resume them from the business pools
+        servletHolder.setAsyncSupported(true);
         servletHolder.setInitParameter("jersey.config.server.provider.classnames",
                 AccountRestService.class.getCanonicalName() + ","
                         + FundsTransferRestService.class.getCanonicalName() + ","
+                        + MetricsRestService.class.getCanonicalName() + ","
+                        + LockAdminRestService.class.getCanonicalName() + ","
                         + RevolutExceptionMapper.class.getCanonicalName() + ","
                         + GenericExceptionMapper.class.getCanonicalName());
+        server.addLifeCycleListener(new AbstractLifeCycle.AbstractLifeCycleListener() {
+            @Override
+            public void lifeCycleStopped(LifeCycle event) {
+                AsyncServiceExecutor.getInstance().shutdown();
+                try {
+                    //every balance is written to the db before the engine is reported stopped
+                    Ledger.getInstance().stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
         server.start();
         log.log(Level.INFO,"######Server Started...");
 
         return server;
     }
 
+    /**
+     * (Re)creates the business pools of the rest services from the rest.async.* and engine.threads.mode settings,
+     * e.g. to restore them after a test resized them.
+     */
+    public static void initializeAsyncServiceExecutor() {
+        CoreConfiguration configuration = CoreConfiguration.getInstance();
+        ThreadMode threadMode = configuration.getEnumConfigValue("engine.threads.mode", ThreadMode.class, ThreadMode.PLATFORM);
+        if (threadMode == ThreadMode.VIRTUAL && !VirtualThreads.isSupported()) {
+            log.log(Level.WARNING, "Virtual threads are not supported by java " + System.getProperty("java.version")
+                    + ", falling back to platform threads");
+            threadMode = ThreadMode.PLATFORM;
+        }
+
+        if (threadMode == ThreadMode.VIRTUAL) {
+            log.log(Level.INFO, "Running business calls on virtual threads");
+            //the server threads stay platform threads, they only do I/O since the rest services are asynchronous
+            AsyncServiceExecutor.getInstance().initialize(
+                    configuration.getIntConfigValue("rest.async.virtual.read.threads", 10000),
+                    configuration.getIntConfigValue("rest.async.virtual.write.threads", 100000),
+                    configuration.getIntConfigValue("rest.async.export.threads", 2),
+                    configuration.getIntConfigValue("rest.async.queue.capacity", 1024),
+                    configuration.getIntConfigValue("rest.async.timeout.millis", 30000),
+                    VirtualThreads::factory);
+            return;
+        }
+        AsyncServiceExecutor.getInstance().initialize(
+                configuration.getIntConfigValue("rest.async.read.threads", 16),
+                configuration.getIntConfigValue("rest.async.write.threads", 64),
+                configuration.getIntConfigValue("rest.async.export.threads", 2),
+                configuration.getIntConfigValue("rest.async.queue.capacity", 1024),
+                configuration.getIntConfigValue("rest.async.timeout.millis", 30000));
+    }
+
     public static void main(String[] args) throws Exception {
         new TransferEngine().start();
     }
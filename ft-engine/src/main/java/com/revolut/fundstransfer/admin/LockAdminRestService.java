@@ -0,0 +1,38 @@
+package com.revolut.fundstransfer.admin;
+
+import com.revolut.core.fundstransfer.locks.LockProfile;
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Admin view of the contention on the java locks of the core services. Admin services read the engine internals directly
+ * rather than through the service gateway, which is why they live in the engine and not in the rest services.
+ */
+@Path("/admin")
+@Produces(MediaType.APPLICATION_JSON)
+public class LockAdminRestService {
+
+    /*
+        wait and hold time distributions, retries, timeouts and hottest keys since startup or the last reset, with enabled
+        false and nothing counted if core.locks.profiling.enabled is off
+     */
+    @GET
+    @Path("/locks")
+    public LockProfile getLockProfile() {
+        return ObjectsLockManager.getInstance().getProfile();
+    }
+
+    /*
+        starts the profile over e.g. before a load test, returning the profile up to then. the metrics are left alone
+     */
+    @DELETE
+    @Path("/locks")
+    public LockProfile resetLockProfile() {
+        return ObjectsLockManager.getInstance().resetProfile();
+    }
+}
@@ -1,5 +1,7 @@
 package com.revolut.fundstransfer.tools;
 
+import com.revolut.core.fundstransfer.cache.AccountCache;
+import com.revolut.core.fundstransfer.gateway.IdempotencyKeys;
 import com.revolut.core.fundstransfer.persist.conn.ConnectionHelper;
 import org.apache.commons.dbutils.DbUtils;
 import org.h2.tools.RunScript;
@@ -25,6 +27,9 @@ public class H2SchemaGenerator {
         try(InputStream testSqlStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("prepareh2.sql");) {
             connection = ConnectionHelper.createNewConnection();
             RunScript.execute(connection, new InputStreamReader(testSqlStream));
+            //the cached accounts and the indexed idempotency keys are those of the previous db
+            AccountCache.getInstance().clear();
+            IdempotencyKeys.getInstance().clear();
         } catch (SQLException | IOException e) {
             log.log(Level.SEVERE, "Error while creating demo h2 db:", e);
             throw new RuntimeException(e);
@@ -0,0 +1,77 @@
+package com.revolut.fundstransfer.tools;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Access to virtual threads through reflection, as the engine is built for java 8 but may run on a runtime having them.
+ */
+public class VirtualThreads {
+
+    private static Logger log = Logger.getLogger(VirtualThreads.class.getName());
+
+    private static final Method ofVirtual;
+    private static final Method name;
+    private static final Method factory;
+    private static final Method newThreadPerTaskExecutor;
+
+    static {
+        Method ofVirtualMethod = null;
+        Method nameMethod = null;
+        Method factoryMethod = null;
+        Method newThreadPerTaskExecutorMethod = null;
+        try {
+            //builder methods are looked up on the public interface, the builder implementation isn't accessible
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+            nameMethod = builderType.getMethod("name", String.class, long.class);
+            factoryMethod = builderType.getMethod("factory");
+            newThreadPerTaskExecutorMethod = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            log.log(Level.FINE, "virtual threads are not supported by this java runtime");
+        }
+        ofVirtual = ofVirtualMethod;
+        name = nameMethod;
+        factory = factoryMethod;
+        newThreadPerTaskExecutor = newThreadPerTaskExecutorMethod;
+    }
+
+    public static boolean isSupported() {
+        return newThreadPerTaskExecutor != null;
+    }
+
+    /**
+     * @return a factory of virtual threads named namePrefix followed by a sequence number
+     */
+    public static ThreadFactory factory(String namePrefix) {
+        checkSupported();
+        try {
+            Object builder = name.invoke(ofVirtual.invoke(null), namePrefix, 1L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create virtual thread factory", e);
+        }
+    }
+
+    /**
+     * @return an executor starting a new virtual thread for each task
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory threadFactory = factory(namePrefix);
+        try {
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create virtual thread executor", e);
+        }
+    }
+
+    private static void checkSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by java " + System.getProperty("java.version"));
+        }
+    }
+}
@@ -1,3 +1,5 @@
+DROP TABLE IF EXISTS TRANSFER_JOURNAL;
+DROP TABLE IF EXISTS IDEMPOTENCY_KEY;
 DROP TABLE IF EXISTS BANK_ACCOUNT;
 
 CREATE TABLE BANK_ACCOUNT
@@ -5,7 +7,28 @@ CREATE TABLE BANK_ACCOUNT
 BANK_ACCOUNT_ID LONG PRIMARY KEY AUTO_INCREMENT NOT NULL,
 ACCOUNT_NUMBER LONG NOT NULL,
 ACCOUNT_NAME VARCHAR(50) NOT NULL,
-BALANCE DECIMAL(20,2) NOT NULL
+BALANCE DECIMAL(20,2) NOT NULL CHECK (BALANCE >= 0),
+JOURNAL_SEQUENCE LONG DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE TRANSFER_JOURNAL
+(
+JOURNAL_ID LONG PRIMARY KEY AUTO_INCREMENT NOT NULL,
+TRANSFER_ID LONG NOT NULL,
+BANK_ACCOUNT_ID LONG NOT NULL,
+ACCOUNT_SEQUENCE LONG NOT NULL,
+AMOUNT DECIMAL(20,2) NOT NULL,
+BALANCE DECIMAL(20,2) NOT NULL,
+CREATED_AT TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IDEMPOTENCY_KEY
+(
+IDEMPOTENCY_KEY VARCHAR(255) PRIMARY KEY NOT NULL,
+OPERATION VARCHAR(255) NOT NULL,
+REQUEST_HASH VARCHAR(64) NOT NULL,
+RESULT VARBINARY,
+CREATED_AT TIMESTAMP NOT NULL
 );
 
 INSERT INTO BANK_ACCOUNT (BANK_ACCOUNT_ID,ACCOUNT_NUMBER,ACCOUNT_NAME,BALANCE) VALUES ('1','093801051','account-1',1000.00);
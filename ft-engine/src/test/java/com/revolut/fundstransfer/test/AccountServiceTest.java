@@ -2,17 +2,31 @@ package com.revolut.fundstransfer.test;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.revolut.app.rest.fundstransfer.model.Account;
+import com.revolut.app.rest.fundstransfer.model.AccountPage;
 import com.revolut.app.rest.fundstransfer.model.ErrorResponse;
 import com.revolut.app.rest.fundstransfer.model.TransactionRequest;
+import com.revolut.core.fundstransfer.cache.AccountCache;
+import com.revolut.core.fundstransfer.cache.CachingBankAccountAccessor;
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountAccessor;
+import com.revolut.core.fundstransfer.persist.accessor.DataAccessorFactory;
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.core.fundstransfer.transaction.manage.TransactionDefinition;
+import com.revolut.fundstransfer.CoreEngine;
 import org.eclipse.jetty.util.StringUtil;
+import org.junit.Assume;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URISyntaxException;
+import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
@@ -21,6 +35,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -32,13 +48,58 @@ public class AccountServiceTest extends FTServiceTest {
     private static final int THREAD_COUNT = 1000;
 
     /*
-        test get all accounts, total 5 accounts
+        test get all accounts, total 5 accounts fitting the first page of the default size
     */
     @Test
     public void testGetAllAccounts() throws IOException, URISyntaxException {
         String responseJsonBody = testGet("/account/list", 200);
-        Account[] accounts = new ObjectMapper().readValue(responseJsonBody, Account[].class);
-        assertTrue(accounts.length == 5);
+        AccountPage page = new ObjectMapper().readValue(responseJsonBody, AccountPage.class);
+        assertTrue(page.getAccounts().size() == 5);
+        assertNull(page.getNextAfterId());
+    }
+
+    /*
+        test listing all the accounts page by page, following the next page cursor
+    */
+    @Test
+    public void testGetAccountsPaginated() throws IOException, URISyntaxException {
+        Map<String, Object> queryParams = new LinkedHashMap<>();
+        queryParams.put("limit", 2);
+        List<Long> accountIds = new ArrayList<>();
+        int pages = 0;
+        Long nextAfterId;
+        do {
+            AccountPage page = new ObjectMapper().readValue(testGet("/account/list", queryParams, 200), AccountPage.class);
+            assertTrue(page.getAccounts().size() <= 2);
+            for (Account account : page.getAccounts()) {
+                accountIds.add(account.getAccountId());
+            }
+            nextAfterId = page.getNextAfterId();
+            queryParams.put("afterId", nextAfterId);
+            pages++;
+        } while (nextAfterId != null);
+
+        assertEquals(3, pages);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), accountIds);
+
+        queryParams.put("afterId", 0);
+        queryParams.put("limit", 0);
+        ErrorResponse errorResponse = new ObjectMapper().readValue(testGet("/account/list", queryParams, 500), ErrorResponse.class);
+        assertEquals("304", errorResponse.getErrorCode());
+    }
+
+    /*
+        test exporting every account as one JSON account per line
+    */
+    @Test
+    public void testExportAccounts() throws IOException, URISyntaxException {
+        String[] lines = testGet("/account/export", 200).split("\n");
+        assertEquals(5, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            Account account = new ObjectMapper().readValue(lines[i], Account.class);
+            assertEquals(Long.valueOf(i + 1), account.getAccountId());
+            assertEquals(getAccountById(i + 1).getBalance().longValue(), account.getBalance().longValue());
+        }
     }
 
     /*
@@ -83,6 +144,59 @@ public class AccountServiceTest extends FTServiceTest {
         assertTrue(errorResponse.getErrorCode().equals("203"));
     }
 
+    /*
+       test withdrawal exceeding the balance by a fraction only, the balance check doesn't truncate the amounts
+    */
+    @Test
+    public void testWithDrawInSufficientFundByFraction() throws IOException, URISyntaxException {
+        Account account = getAccountById(3L);
+        BigDecimal withdrawalAmount = account.getBalance().add(new BigDecimal("0.50"));
+        String responseJsonBody = testPost("/account/withdraw", new TransactionRequest(account.getAccountId(), withdrawalAmount), 500);
+        ErrorResponse errorResponse = new ObjectMapper().readValue(responseJsonBody, ErrorResponse.class);
+        assertEquals("203", errorResponse.getErrorCode());
+        assertEquals(account.getBalance().longValue(), getAccountById(3L).getBalance().longValue());
+    }
+
+    /*
+       test repeated reads are served by the account cache, which never serves a balance older than the last commit
+    */
+    @Test
+    public void testAccountCacheServesCommittedBalances() throws Exception {
+        AccountCache accountCache = AccountCache.getInstance();
+        Assume.assumeTrue(accountCache.isEnabled() && CoreConfiguration.getInstance().getEnumConfigValue("core.engine",
+                CoreEngine.class, CoreEngine.DATABASE) == CoreEngine.DATABASE);
+
+        Account account = getAccountById(2L);
+        long hitsBefore = accountCache.getHits();
+        assertEquals(account.getBalance().longValue(), getAccountById(2L).getBalance().longValue());
+        assertTrue(accountCache.getHits() > hitsBefore);
+
+        // rolled back, the cached balance stays
+        testPost("/account/withdraw", new TransactionRequest(2L, account.getBalance().add(BigDecimal.ONE)), 500);
+        assertEquals(account.getBalance().longValue(), getAccountById(2L).getBalance().longValue());
+
+        // read by the transaction that changed it, the uncommitted balance is not cached
+        BankAccountAccessor bankAccountAccessor = CachingBankAccountAccessor.wrap(
+                DataAccessorFactory.getDataAccessorFactory(DataAccessorFactory.DATA_ACCESSOR_FACTORY_H2).getBankAccountAccessor());
+        RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+        accountCache.clear();
+        Connection connection = transactionManager.startTransaction(TransactionDefinition.REQUIRES_NEW);
+        try {
+            bankAccountAccessor.withdraw(connection, 0L, 2L, BigDecimal.ONE);
+            assertEquals(account.getBalance().longValue() - 1,
+                    bankAccountAccessor.getAccount(connection, 2L).getBalance().longValue());
+        } finally {
+            transactionManager.endTransactionIfNeeded(false);
+        }
+        assertEquals(account.getBalance().longValue(), getAccountById(2L).getBalance().longValue());
+
+        // committed, the next read sees the new balance
+        long invalidationsBefore = accountCache.getInvalidations();
+        depositMoney(2L, new BigDecimal(100L), 200);
+        assertTrue(accountCache.getInvalidations() > invalidationsBefore);
+        assertEquals(account.getBalance().longValue() + 100, getAccountById(2L).getBalance().longValue());
+    }
+
     /*
        test deposit
     */
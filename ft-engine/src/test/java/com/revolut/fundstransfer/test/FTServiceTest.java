@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Map;
 
 import static org.junit.Assert.assertTrue;
 
@@ -85,6 +86,18 @@ public abstract class FTServiceTest {
         return responseJsonBody;
     }
 
+    protected String testGet(String url, Map<String, Object> queryParams, int expectedStatusCode) throws URISyntaxException, IOException {
+        URIBuilder queryUriBuilder = new URIBuilder().setScheme("http").setHost("localhost:7777").setPath(url);
+        for (Map.Entry<String, Object> queryParam : queryParams.entrySet()) {
+            queryUriBuilder.addParameter(queryParam.getKey(), String.valueOf(queryParam.getValue()));
+        }
+        HttpGet request = new HttpGet(queryUriBuilder.build());
+        HttpResponse response = client.execute(request);
+        int statusCode = response.getStatusLine().getStatusCode();
+        assertTrue(statusCode == expectedStatusCode);
+        return EntityUtils.toString(response.getEntity());
+    }
+
     protected String testPost(String url, Object body, int expectedStatusCode) throws URISyntaxException, IOException {
         URI uri = uriBuilder.setPath(url).build();
         String reqJsonBody = new ObjectMapper().writeValueAsString(body);
@@ -98,6 +111,33 @@ public abstract class FTServiceTest {
         return responseJsonBody;
     }
 
+    protected String testPost(String url, Object body, String idempotencyKey, int expectedStatusCode) throws URISyntaxException, IOException {
+        URI uri = uriBuilder.setPath(url).build();
+        String reqJsonBody = new ObjectMapper().writeValueAsString(body);
+        HttpPost request = new HttpPost(uri);
+        request.setHeader("Content-type", "application/json");
+        request.setHeader("Idempotency-Key", idempotencyKey);
+        request.setEntity(new StringEntity(reqJsonBody));
+        HttpResponse response = client.execute(request);
+        int statusCode = response.getStatusLine().getStatusCode();
+        assertTrue(statusCode == expectedStatusCode);
+        return EntityUtils.toString(response.getEntity());
+    }
+
+    protected String testPost(String url, String queryParamName, Object queryParamValue, Object body, int expectedStatusCode) throws URISyntaxException, IOException {
+        URI uri = new URIBuilder().setScheme("http").setHost("localhost:7777")
+                .setPath(url).addParameter(queryParamName, String.valueOf(queryParamValue)).build();
+        String reqJsonBody = new ObjectMapper().writeValueAsString(body);
+        HttpPost request = new HttpPost(uri);
+        request.setHeader("Content-type", "application/json");
+        request.setEntity(new StringEntity(reqJsonBody));
+        HttpResponse response = client.execute(request);
+        int statusCode = response.getStatusLine().getStatusCode();
+        assertTrue(statusCode == expectedStatusCode);
+        String responseJsonBody = EntityUtils.toString(response.getEntity());
+        return responseJsonBody;
+    }
+
     protected String testPost(String url, Object body) throws URISyntaxException, IOException {
         URI uri = uriBuilder.setPath(url).build();
         String reqJsonBody = new ObjectMapper().writeValueAsString(body);
@@ -1,13 +1,27 @@
 package com.revolut.fundstransfer.test;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.revolut.app.rest.fundstransfer.model.Account;
 import com.revolut.app.rest.fundstransfer.model.ErrorResponse;
 import com.revolut.app.rest.fundstransfer.model.TransactionRequest;
 import com.revolut.app.rest.fundstransfer.model.TransferRequest;
+import com.revolut.app.rest.fundstransfer.model.TransferResult;
+import com.revolut.app.rest.fundstransfer.service.AsyncServiceExecutor;
+import com.revolut.core.fundstransfer.config.CoreConfiguration;
+import com.revolut.core.fundstransfer.gateway.SelfTransactedService;
+import com.revolut.core.fundstransfer.impl.ExecutionMode;
+import com.revolut.core.fundstransfer.impl.TransferMode;
+import com.revolut.core.fundstransfer.locks.ObjectsLockManager;
 import com.revolut.core.fundstransfer.persist.conn.ConnectionHelper;
+import com.revolut.core.fundstransfer.persist.stats.DataAccessStatistics;
 import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
+import com.revolut.core.fundstransfer.service.locate.ServiceRegistry;
+import com.revolut.fundstransfer.CoreEngine;
+import com.revolut.fundstransfer.TransferEngine;
+import com.revolut.sdk.fundstransfer.services.FundsTransferService;
 import org.apache.commons.dbutils.DbUtils;
+import org.junit.Assume;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -18,8 +32,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -31,6 +52,14 @@ public class FundsTransferServiceTest extends FTServiceTest {
     private static final int THREAD_COUNT = 1000;
 
     private static final String SELECT_FOR_UPDATE = "SELECT * FROM BANK_ACCOUNT WHERE BANK_ACCOUNT_ID = ? FOR UPDATE";
+    private static final String SELECT_LAST_JOURNAL_ID = "SELECT COALESCE(MAX(JOURNAL_ID), 0) FROM TRANSFER_JOURNAL";
+    private static final String SELECT_JOURNAL_AFTER = "SELECT * FROM TRANSFER_JOURNAL WHERE JOURNAL_ID > ? ORDER BY BANK_ACCOUNT_ID";
+    private static final String SELECT_JOURNAL_OF_ACCOUNT_AFTER =
+            "SELECT * FROM TRANSFER_JOURNAL WHERE JOURNAL_ID > ? AND BANK_ACCOUNT_ID = ? ORDER BY ACCOUNT_SEQUENCE";
+    private static final String COUNT_JOURNAL_OF_ACCOUNT_AFTER =
+            "SELECT COUNT(*) FROM TRANSFER_JOURNAL WHERE JOURNAL_ID > ? AND BANK_ACCOUNT_ID = ?";
+    private static final String SELECT_PREVIOUS_SEQUENCE =
+            "SELECT COALESCE(MAX(ACCOUNT_SEQUENCE), 0) FROM TRANSFER_JOURNAL WHERE BANK_ACCOUNT_ID = ? AND JOURNAL_ID <= ?";
 
    /*
        test case for funds transfer positive scenario i.e. with required balance in source account
@@ -54,6 +83,387 @@ public class FundsTransferServiceTest extends FTServiceTest {
         assertTrue(destinationAccount.getBalance().add(transferAmount).longValue() == updatedDestinationAccount.getBalance().longValue());
     }
 
+    /*
+        test that a single transaction transfer locks and reads both accounts exactly once, with one statement
+     */
+    @Test
+    public void testFundsTransferReadsEachAccountOnce() throws IOException, URISyntaxException {
+        assumeDatabaseEngine();
+        Assume.assumeTrue(CoreConfiguration.getInstance().getEnumConfigValue("core.transfer.mode", TransferMode.class,
+                TransferMode.SINGLE_TRANSACTION) == TransferMode.SINGLE_TRANSACTION);
+
+        long readStatementsBefore = DataAccessStatistics.getAccountReadStatements();
+        long rowsReadBefore = DataAccessStatistics.getAccountRowsRead();
+
+        testPost("/transfer", new TransferRequest(new BigDecimal(100L), 3L, 4L), 200);
+
+        assertEquals(1, DataAccessStatistics.getAccountReadStatements() - readStatementsBefore);
+        assertEquals(2, DataAccessStatistics.getAccountRowsRead() - rowsReadBefore);
+    }
+
+    /*
+        test that a transfer is counted at the gateway and that the metrics are exposed in the prometheus text format
+     */
+    @Test
+    public void testFundsTransferMetrics() throws IOException, URISyntaxException {
+        transfer(3L, 4L, new BigDecimal(10L));
+
+        String metrics = testGet("/metrics", 200);
+
+        assertTrue(metrics.contains("# TYPE ft_service_call_seconds summary"));
+        assertTrue(metrics.contains("ft_service_call_seconds_count{service=\"FundsTransferService\",method=\"transferFunds\"}"));
+        assertTrue(metrics.contains("# TYPE ft_transaction_commit_seconds summary"));
+    }
+
+    /*
+        test that a transfer waiting for a locked account is profiled, and that the account shows up as a hot key
+     */
+    @Test
+    public void testFundsTransferLockProfile() throws IOException, URISyntaxException, InterruptedException {
+        assumeDatabaseEngine();
+        Assume.assumeTrue(CoreConfiguration.getInstance().getEnumConfigValue("core.execution.mode", ExecutionMode.class,
+                ExecutionMode.SHARED) == ExecutionMode.SHARED);
+        ObjectsLockManager lockManager = ObjectsLockManager.getInstance();
+        Assume.assumeTrue(lockManager.getProfile().isEnabled());
+
+        long busyKeysBefore = lockManager.getProfile().getBusyKeys();
+        Thread transfer;
+        lockManager.lockKey(3L);
+        try {
+            transfer = new Thread(() -> {
+                try {
+                    testPost("/transfer", new TransferRequest(new BigDecimal(10L), 3L, 4L), 200);
+                } catch (Exception e) {
+                    System.out.println("#######Error occurred while transfer: "+e.getMessage());
+                }
+            });
+            transfer.start();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (lockManager.getProfile().getBusyKeys() == busyKeysBefore && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            lockManager.unlockKey(3L);
+        }
+        transfer.join();
+
+        JsonNode profile = new ObjectMapper().readTree(testGet("/admin/locks", 200));
+        assertTrue(profile.get("enabled").asBoolean());
+        assertTrue(profile.get("busyKeys").asLong() > busyKeysBefore);
+        assertTrue(profile.get("waitTime").get("p999Nanos").asLong() > 0);
+        assertTrue(profile.get("holdTime").get("count").asLong() > 0);
+        boolean isHotKey = false;
+        for (JsonNode hotKey : profile.get("hotKeys")) {
+            isHotKey |= "3".equals(hotKey.get("key").asText());
+        }
+        assertTrue(isHotKey);
+    }
+
+    /*
+        test that a transfer journals both legs under one transfer id, with signed amounts, resulting balances and the next
+        sequence of each account
+     */
+    @Test
+    public void testFundsTransferIsJournaled() throws IOException, URISyntaxException, SQLException {
+        assumeDatabaseEngine();
+        Assume.assumeTrue("true".equalsIgnoreCase(ConnectionHelper.getConfigValue("db.journal.enabled")));
+        Assume.assumeTrue(CoreConfiguration.getInstance().getEnumConfigValue("core.transfer.mode", TransferMode.class,
+                TransferMode.SINGLE_TRANSACTION) == TransferMode.SINGLE_TRANSACTION);
+
+        long lastJournalId;
+        try (Connection connection = ConnectionHelper.createNewConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_LAST_JOURNAL_ID);
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            lastJournalId = rs.getLong(1);
+        }
+
+        BigDecimal transferAmount = new BigDecimal(100L);
+        transfer(3L, 4L, transferAmount);
+        Account sourceAccount = getAccountById(3L);
+        Account destinationAccount = getAccountById(4L);
+
+        try (Connection connection = ConnectionHelper.createNewConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_JOURNAL_AFTER)) {
+            statement.setLong(1, lastJournalId);
+            try (ResultSet rs = statement.executeQuery()) {
+                assertTrue(rs.next());
+                long transferId = rs.getLong("TRANSFER_ID");
+                long sourceSequence = rs.getLong("ACCOUNT_SEQUENCE");
+                assertEquals(3L, rs.getLong("BANK_ACCOUNT_ID"));
+                assertEquals(0, transferAmount.negate().compareTo(rs.getBigDecimal("AMOUNT")));
+                assertEquals(0, sourceAccount.getBalance().compareTo(rs.getBigDecimal("BALANCE")));
+
+                assertTrue(rs.next());
+                assertEquals(transferId, rs.getLong("TRANSFER_ID"));
+                assertEquals(4L, rs.getLong("BANK_ACCOUNT_ID"));
+                assertEquals(0, transferAmount.compareTo(rs.getBigDecimal("AMOUNT")));
+                assertEquals(0, destinationAccount.getBalance().compareTo(rs.getBigDecimal("BALANCE")));
+
+                assertEquals(false, rs.next());
+
+                //the previous entry of the source account, if any, has the previous sequence
+                try (PreparedStatement previousStatement = connection.prepareStatement(SELECT_PREVIOUS_SEQUENCE)) {
+                    previousStatement.setLong(1, 3L);
+                    previousStatement.setLong(2, lastJournalId);
+                    try (ResultSet previous = previousStatement.executeQuery()) {
+                        previous.next();
+                        assertEquals(sourceSequence - 1, previous.getLong(1));
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+        test that a batch journals every leg of its transfers, each transfer under its own id, with the running balance
+        and the next sequence of each account
+     */
+    @Test
+    public void testFundsTransferBatchIsJournaled() throws IOException, URISyntaxException, SQLException, InterruptedException {
+        Assume.assumeTrue("true".equalsIgnoreCase(ConnectionHelper.getConfigValue("db.journal.enabled")));
+
+        long lastJournalId;
+        try (Connection connection = ConnectionHelper.createNewConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_LAST_JOURNAL_ID);
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            lastJournalId = rs.getLong(1);
+        }
+
+        BigDecimal sourceBalance = getAccountById(3L).getBalance();
+        List<TransferRequest> transferRequests = Arrays.asList(
+                new TransferRequest(new BigDecimal(10L), 3L, 4L),
+                new TransferRequest(new BigDecimal(20L), 4L, 3L));
+        TransferResult[] results = new ObjectMapper().readValue(
+                testPost("/transfer/batch", transferRequests, 200), TransferResult[].class);
+        assertEquals("COMPLETED", results[0].getStatus());
+        assertEquals("COMPLETED", results[1].getStatus());
+
+        try (Connection connection = ConnectionHelper.createNewConnection();
+             PreparedStatement countStatement = connection.prepareStatement(COUNT_JOURNAL_OF_ACCOUNT_AFTER);
+             PreparedStatement statement = connection.prepareStatement(SELECT_JOURNAL_OF_ACCOUNT_AFTER)) {
+            //the ledger engine writes the balances and the journal asynchronously
+            countStatement.setLong(1, lastJournalId);
+            countStatement.setLong(2, 3L);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < deadline) {
+                try (ResultSet count = countStatement.executeQuery()) {
+                    count.next();
+                    if (count.getLong(1) >= 2) {
+                        break;
+                    }
+                }
+                Thread.sleep(20);
+            }
+
+            statement.setLong(1, lastJournalId);
+            statement.setLong(2, 3L);
+            try (ResultSet rs = statement.executeQuery()) {
+                assertTrue(rs.next());
+                long firstTransferId = rs.getLong("TRANSFER_ID");
+                long firstSequence = rs.getLong("ACCOUNT_SEQUENCE");
+                assertEquals(0, new BigDecimal(-10L).compareTo(rs.getBigDecimal("AMOUNT")));
+                assertEquals(0, sourceBalance.subtract(new BigDecimal(10L)).compareTo(rs.getBigDecimal("BALANCE")));
+
+                assertTrue(rs.next());
+                assertTrue(firstTransferId != rs.getLong("TRANSFER_ID"));
+                assertEquals(firstSequence + 1, rs.getLong("ACCOUNT_SEQUENCE"));
+                assertEquals(0, new BigDecimal(20L).compareTo(rs.getBigDecimal("AMOUNT")));
+                assertEquals(0, sourceBalance.add(new BigDecimal(10L)).compareTo(rs.getBigDecimal("BALANCE")));
+
+                assertEquals(false, rs.next());
+            }
+        }
+    }
+
+    /*
+        test that a transfer repeated with the same Idempotency-Key, one after the other or concurrently, is executed once,
+        and that the key can't be reused by another operation or with other arguments
+     */
+    @Test
+    public void testFundsTransferIdempotencyKey() throws Exception {
+        Assume.assumeFalse(isSelfTransacted(FundsTransferService.class, "transferFunds"));
+        Account sourceAccount = getAccountById(3L);
+        Account destinationAccount = getAccountById(4L);
+        BigDecimal transferAmount = new BigDecimal(10L);
+        TransferRequest transferRequest = new TransferRequest(transferAmount, 3L, 4L);
+
+        String idempotencyKey = UUID.randomUUID().toString();
+        testPost("/transfer", transferRequest, idempotencyKey, 200);
+        testPost("/transfer", transferRequest, idempotencyKey, 200);
+        //the same amount written otherwise is the same request
+        testPost("/transfer", new TransferRequest(new BigDecimal("10.00"), 3L, 4L), idempotencyKey, 200);
+
+        String concurrentIdempotencyKey = UUID.randomUUID().toString();
+        int threadCount = 10;
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        List<Integer> statusCodes = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(() -> {
+                try {
+                    testPost("/transfer", transferRequest, concurrentIdempotencyKey, 200);
+                    statusCodes.add(200);
+                } catch (Throwable e) {
+                    statusCodes.add(500);
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        assertTrue(latch.await(60, TimeUnit.SECONDS));
+        assertEquals(Collections.nCopies(threadCount, 200), statusCodes);
+
+        //two transfers in total
+        assertEquals(0, sourceAccount.getBalance().subtract(transferAmount.multiply(new BigDecimal(2)))
+                .compareTo(getAccountById(3L).getBalance()));
+        assertEquals(0, destinationAccount.getBalance().add(transferAmount.multiply(new BigDecimal(2)))
+                .compareTo(getAccountById(4L).getBalance()));
+
+        String errorResponseJson = testPost("/account/deposit", new TransactionRequest(3L, transferAmount), idempotencyKey, 422);
+        assertEquals("602", new ObjectMapper().readValue(errorResponseJson, ErrorResponse.class).getErrorCode());
+
+        errorResponseJson = testPost("/transfer", new TransferRequest(new BigDecimal(11L), 3L, 4L), idempotencyKey, 422);
+        assertEquals("604", new ObjectMapper().readValue(errorResponseJson, ErrorResponse.class).getErrorCode());
+        assertEquals(0, sourceAccount.getBalance().subtract(transferAmount.multiply(new BigDecimal(2)))
+                .compareTo(getAccountById(3L).getBalance()));
+    }
+
+    /*
+        test that an Idempotency-Key is rejected by the calls running outside the transaction of the gateway, e.g. of the ledger
+        engine or partitioned execution, as the key would not commit along with the operation
+     */
+    @Test
+    public void testFundsTransferIdempotencyKeyRejectedWhenSelfTransacted() throws Exception {
+        Assume.assumeTrue(isSelfTransacted(FundsTransferService.class, "transferFunds"));
+        Account sourceAccount = getAccountById(3L);
+
+        String errorResponseJson = testPost("/transfer", new TransferRequest(new BigDecimal(10L), 3L, 4L),
+                UUID.randomUUID().toString(), 422);
+        assertEquals("605", new ObjectMapper().readValue(errorResponseJson, ErrorResponse.class).getErrorCode());
+        assertEquals(0, sourceAccount.getBalance().compareTo(getAccountById(3L).getBalance()));
+    }
+
+    /*
+        test that a batch executes every transfer, each one validated against the balances left by the previous ones
+     */
+    @Test
+    public void testFundsTransferBatch() throws IOException, URISyntaxException {
+        List<TransferRequest> transferRequests = Arrays.asList(
+                new TransferRequest(new BigDecimal(1300L), 3L, 1L),
+                new TransferRequest(new BigDecimal(2000L), 1L, 2L),
+                new TransferRequest(new BigDecimal(500L), 4L, 3L));
+
+        TransferResult[] results = new ObjectMapper().readValue(
+                testPost("/transfer/batch", transferRequests, 200), TransferResult[].class);
+
+        assertEquals(3, results.length);
+        for (int i = 0; i < results.length; i++) {
+            assertEquals(i, results[i].getIndex());
+            assertEquals("COMPLETED", results[i].getStatus());
+        }
+        assertEquals(300L, getAccountById(1L).getBalance().longValue());
+        assertEquals(3500L, getAccountById(2L).getBalance().longValue());
+        assertEquals(500L, getAccountById(3L).getBalance().longValue());
+        assertEquals(6500L, getAccountById(4L).getBalance().longValue());
+    }
+
+    /*
+        test that a batch with one invalid transfer executes none of its transfers
+     */
+    @Test
+    public void testFundsTransferBatchAllOrNothing() throws IOException, URISyntaxException {
+        Account sourceAccount = getAccountById(3L);
+        Account destinationAccount = getAccountById(4L);
+
+        List<TransferRequest> transferRequests = Arrays.asList(
+                new TransferRequest(new BigDecimal(100L), 3L, 4L),
+                new TransferRequest(sourceAccount.getBalance(), 3L, 4L));
+
+        TransferResult[] results = new ObjectMapper().readValue(
+                testPost("/transfer/batch", transferRequests, 200), TransferResult[].class);
+
+        assertEquals("NOT_EXECUTED", results[0].getStatus());
+        assertEquals("FAILED", results[1].getStatus());
+        assertEquals("105", results[1].getErrorCode());
+        assertEquals(sourceAccount.getBalance().longValue(), getAccountById(3L).getBalance().longValue());
+        assertEquals(destinationAccount.getBalance().longValue(), getAccountById(4L).getBalance().longValue());
+    }
+
+    /*
+        test that chunks commit on their own: every transfer of a valid chunk completes, the transfers of a chunk holding an invalid
+        transfer are not executed, and the result of each transfer is reported at its index in the request.
+        Throughput of batches against single transfers is measured by the load test, refer load.batch.size
+     */
+    @Test
+    public void testFundsTransferBatchChunked() throws IOException, URISyntaxException {
+        Account account4 = getAccountById(4L);
+        Account account5 = getAccountById(5L);
+
+        int transferCount = 200;
+        int invalidIndex = 120;
+        List<TransferRequest> transferRequests = new ArrayList<>(transferCount);
+        for (int i = 0; i < transferCount; i++) {
+            transferRequests.add(i % 2 == 0 ? new TransferRequest(BigDecimal.ONE, 4L, 5L) : new TransferRequest(BigDecimal.ONE, 5L, 4L));
+        }
+        transferRequests.set(invalidIndex, new TransferRequest(BigDecimal.ZERO, 4L, 5L));
+
+        TransferResult[] results = new ObjectMapper().readValue(
+                testPost("/transfer/batch", "chunkSize", 50, transferRequests, 200), TransferResult[].class);
+
+        assertEquals(transferCount, results.length);
+        for (int i = 0; i < transferCount; i++) {
+            assertEquals(i, results[i].getIndex());
+            if (i == invalidIndex) {
+                assertEquals("FAILED", results[i].getStatus());
+                assertEquals("303", results[i].getErrorCode());
+            } else if (i >= 100 && i < 150) {
+                assertEquals("NOT_EXECUTED", results[i].getStatus());
+            } else {
+                assertEquals("COMPLETED", results[i].getStatus());
+            }
+        }
+        //every committed chunk moves as much money one way as the other
+        assertEquals(account4.getBalance().longValue(), getAccountById(4L).getBalance().longValue());
+        assertEquals(account5.getBalance().longValue(), getAccountById(5L).getBalance().longValue());
+    }
+
+    /*
+        test that batch transfers are validated as single transfers are: a missing transfer, a missing account id, an amount
+        with more decimals than the balances and an amount whose cents overflow a long are reported as failed validations,
+        nothing is executed
+     */
+    @Test
+    public void testFundsTransferBatchInvalidTransfers() throws IOException, URISyntaxException {
+        Account sourceAccount = getAccountById(3L);
+
+        TransferRequest withoutSource = new TransferRequest(BigDecimal.ONE, 0L, 4L);
+        List<TransferRequest> transferRequests = Arrays.asList(
+                new TransferRequest(BigDecimal.ONE, 3L, 4L),
+                null,
+                withoutSource,
+                new TransferRequest(new BigDecimal("0.001"), 3L, 4L),
+                new TransferRequest(new BigDecimal("1E+17"), 3L, 4L));
+
+        TransferResult[] results = new ObjectMapper().readValue(
+                testPost("/transfer/batch", transferRequests, 200), TransferResult[].class);
+
+        assertEquals("NOT_EXECUTED", results[0].getStatus());
+        assertEquals("305", results[1].getErrorCode());
+        assertEquals("306", results[2].getErrorCode());
+        assertEquals("303", results[3].getErrorCode());
+        assertEquals("303", results[4].getErrorCode());
+        assertEquals(sourceAccount.getBalance().longValue(), getAccountById(3L).getBalance().longValue());
+
+        ErrorResponse errorResponse = new ObjectMapper().readValue(
+                testPost("/transfer", withoutSource, 500), ErrorResponse.class);
+        assertEquals("306", errorResponse.getErrorCode());
+        errorResponse = new ObjectMapper().readValue(
+                testPost("/transfer", new TransferRequest(new BigDecimal("1E+17"), 4L, 3L), 500), ErrorResponse.class);
+        assertEquals("303", errorResponse.getErrorCode());
+        assertEquals(sourceAccount.getBalance().longValue(), getAccountById(3L).getBalance().longValue());
+    }
+
     /*
         test case for funds transfer negative scenario i.e. source account with insufficient funds
      */
@@ -206,6 +616,7 @@ public class FundsTransferServiceTest extends FTServiceTest {
     */
     @Test
     public void testFundsTransferWithLockedDestinationAccountCreditFailed() throws IOException, URISyntaxException, SQLException {
+        assumeDatabaseEngine();
 
         Account sourceAccount = getAccountById(3L);
         Account destinationAccount = getAccountById(4L);
@@ -231,6 +642,97 @@ public class FundsTransferServiceTest extends FTServiceTest {
 
     }
 
+    /*
+        test that a transfer blocked on a locked account is answered with 503 once the server side timeout expires,
+        while reads are still served from their own pool: a starved read would time out with 503 as well.
+        The pools are resized for the test and restored from the configuration afterwards
+     */
+    @Test
+    public void testFundsTransferTimesOutWithoutStarvingReads() throws IOException, URISyntaxException, SQLException {
+        assumeDatabaseEngine();
+        AsyncServiceExecutor.getInstance().initialize(2, 2, 1, 16, 2000);
+
+        Account destinationAccount = getAccountById(4L);
+        try (Connection connection = ConnectionHelper.createNewConnection()){
+
+            connection.setAutoCommit(false);
+            lockAccount(connection, destinationAccount.getAccountId());
+
+            CountDownLatch latch = new CountDownLatch(2);
+            for (int i = 0; i < 2; i++) {
+                //keep every write thread blocked on the locked account
+                new Thread(() -> {
+                    try {
+                        testPost("/transfer", new TransferRequest(new BigDecimal(10L), 3L, destinationAccount.getAccountId()));
+                    } catch (Exception e) {
+                        System.out.println("#######Error occurred while transfer: "+e.getMessage());
+                    } finally {
+                        latch.countDown();
+                    }
+                }).start();
+            }
+
+            assertEquals(1000L, getAccountById(1L, 200).getBalance().longValue());
+
+            String responseJsonBody = testPost("/transfer", new TransferRequest(new BigDecimal(10L), 3L, destinationAccount.getAccountId()), 503);
+            assertEquals("503", new ObjectMapper().readValue(responseJsonBody, ErrorResponse.class).getErrorCode());
+            connection.rollback();
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            TransferEngine.initializeAsyncServiceExecutor();
+        }
+    }
+
+    /*
+        test that the ledger engine writes the balances of a transfer to the database after replying
+     */
+    @Test
+    public void testLedgerWritesBalancesToDatabase() throws IOException, URISyntaxException, SQLException, InterruptedException {
+        Assume.assumeTrue(CoreConfiguration.getInstance().getEnumConfigValue("core.engine", CoreEngine.class,
+                CoreEngine.DATABASE) == CoreEngine.LEDGER);
+
+        testPost("/transfer", new TransferRequest(new BigDecimal("100.25"), 3L, 4L), 200);
+
+        BigDecimal sourceBalance = null;
+        long deadline = System.currentTimeMillis() + 5000;
+        try (Connection connection = ConnectionHelper.createNewConnection()) {
+            while (System.currentTimeMillis() < deadline) {
+                sourceBalance = readBalance(connection, 3L);
+                if (sourceBalance.compareTo(new BigDecimal("1199.75")) == 0) {
+                    break;
+                }
+                Thread.sleep(20);
+            }
+            assertEquals(0, new BigDecimal("1199.75").compareTo(sourceBalance));
+            assertEquals(0, new BigDecimal("7100.25").compareTo(readBalance(connection, 4L)));
+        }
+    }
+
+    private static boolean isSelfTransacted(Class<?> serviceType, String methodName) throws Exception {
+        Object service = ServiceRegistry.getInstance().getService(serviceType);
+        return service instanceof SelfTransactedService && ((SelfTransactedService) service).isSelfTransacted(methodName);
+    }
+
+    /*
+        the ledger engine neither reads nor locks account rows while executing operations
+     */
+    private void assumeDatabaseEngine() {
+        Assume.assumeTrue(CoreConfiguration.getInstance().getEnumConfigValue("core.engine", CoreEngine.class,
+                CoreEngine.DATABASE) == CoreEngine.DATABASE);
+    }
+
+    private BigDecimal readBalance(Connection connection, long accountId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT BALANCE FROM BANK_ACCOUNT WHERE BANK_ACCOUNT_ID = ?")) {
+            statement.setLong(1, accountId);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getBigDecimal(1);
+            }
+        }
+    }
+
     private void lockAccount(Connection connection, long accountId) throws SQLException{
         PreparedStatement lockStatement = null;
         ResultSet rs = null;
@@ -0,0 +1,71 @@
+package com.revolut.fundstransfer.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks accounts at random according to a {@link KeyDistribution}, the rank of an account being its position in the given ids.
+ * Zipf draws search a precomputed cumulative distribution, so every pick costs O(log n) whatever the exponent.
+ */
+public class AccountPicker {
+
+    private final long[] accountIds;
+    private final KeyDistribution distribution;
+    private final double[] zipfCumulativeProbabilities;
+    private final int hotAccounts;
+    private final double hotFraction;
+
+    public AccountPicker(long[] accountIds, KeyDistribution distribution, double zipfExponent, int hotAccounts, double hotFraction) {
+        if (accountIds.length < 2) {
+            throw new IllegalArgumentException("At least 2 accounts are needed, found " + accountIds.length);
+        }
+        this.accountIds = accountIds;
+        this.distribution = distribution;
+        this.hotAccounts = Math.max(1, Math.min(hotAccounts, accountIds.length - 1));
+        this.hotFraction = hotFraction;
+        this.zipfCumulativeProbabilities = distribution == KeyDistribution.ZIPF ? zipfCumulativeProbabilities(accountIds.length, zipfExponent) : null;
+    }
+
+    public long next() {
+        return accountIds[nextRank()];
+    }
+
+    /**
+     * @return an account other than the given one, drawn from the same distribution
+     */
+    public long nextOtherThan(long accountId) {
+        long otherAccountId;
+        do {
+            otherAccountId = next();
+        } while (otherAccountId == accountId);
+        return otherAccountId;
+    }
+
+    private int nextRank() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (distribution) {
+            case ZIPF:
+                int rank = Arrays.binarySearch(zipfCumulativeProbabilities, random.nextDouble());
+                return Math.min(rank >= 0 ? rank : -rank - 1, accountIds.length - 1);
+            case HOT:
+                return random.nextDouble() < hotFraction
+                        ? random.nextInt(hotAccounts)
+                        : hotAccounts + random.nextInt(accountIds.length - hotAccounts);
+            default:
+                return random.nextInt(accountIds.length);
+        }
+    }
+
+    private static double[] zipfCumulativeProbabilities(int accounts, double exponent) {
+        double[] cumulative = new double[accounts];
+        double total = 0;
+        for (int rank = 0; rank < accounts; rank++) {
+            total += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < accounts; rank++) {
+            cumulative[rank] /= total;
+        }
+        return cumulative;
+    }
+}
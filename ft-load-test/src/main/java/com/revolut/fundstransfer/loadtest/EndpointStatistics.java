@@ -0,0 +1,89 @@
+package com.revolut.fundstransfer.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes and latencies of the recorded requests of one endpoint, in microseconds.
+ *
+ * The response time runs from the time the request was due to start, the service time from the time it was actually sent.
+ * Both only differ once requests wait for a connection, i.e. once the engine doesn't keep up with the rate: the response time
+ * is the one users see, the service time is what a closed loop test would have reported.
+ */
+public class EndpointStatistics {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Operation operation;
+    private final Histogram responseTimes = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram serviceTimes = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public EndpointStatistics(Operation operation) {
+        this.operation = operation;
+    }
+
+    public void recordCompleted(long dueNanos, long sentNanos, long endNanos) {
+        record(dueNanos, sentNanos, endNanos);
+        completed.increment();
+    }
+
+    /**
+     * A request refused by the engine, e.g. for insufficient funds, which is an answer like any other.
+     */
+    public void recordRejected(long dueNanos, long sentNanos, long endNanos) {
+        record(dueNanos, sentNanos, endNanos);
+        rejected.increment();
+    }
+
+    /**
+     * A request without a business answer: unavailable, timed out or not sent at all. Its latency isn't recorded.
+     */
+    public void recordFailed() {
+        failed.increment();
+    }
+
+    public long getRequests() {
+        return completed.sum() + rejected.sum() + failed.sum();
+    }
+
+    public void print(PrintStream out, double measuredSeconds) {
+        out.printf("%-24s %9d %9d %9d %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                operation.getEndpoint(), getRequests(), completed.sum(), rejected.sum(), failed.sum(),
+                getRequests() / measuredSeconds,
+                millis(responseTimes.getValueAtPercentile(50)), millis(responseTimes.getValueAtPercentile(90)),
+                millis(responseTimes.getValueAtPercentile(99)), millis(responseTimes.getValueAtPercentile(99.9)),
+                millis(responseTimes.getMaxValue()), millis(serviceTimes.getValueAtPercentile(99)));
+    }
+
+    public static void printHeader(PrintStream out) {
+        out.printf("%-24s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "completed", "rejected",
+                "failed", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99");
+    }
+
+    /**
+     * Writes the percentile distribution of the response times in milliseconds, readable by the HdrHistogram plotter.
+     */
+    public void writePercentileDistribution(File directory) throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(new File(directory, operation.name().toLowerCase() + ".hgrm"))) {
+            responseTimes.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private void record(long dueNanos, long sentNanos, long endNanos) {
+        responseTimes.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(endNanos - dueNanos), HIGHEST_TRACKABLE_MICROS));
+        serviceTimes.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(endNanos - sentNanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.revolut.fundstransfer.loadtest;
+
+/**
+ * How the load test picks the accounts of its requests, configured with load.distribution
+ */
+public enum KeyDistribution {
+
+    /**
+     * Every account equally likely.
+     */
+    UNIFORM,
+
+    /**
+     * The account of rank k with a probability proportional to 1/k^s, a few accounts get most of the requests.
+     */
+    ZIPF,
+
+    /**
+     * A fixed share of the requests on a small set of hot accounts, the rest spread evenly over the other accounts.
+     */
+    HOT
+}
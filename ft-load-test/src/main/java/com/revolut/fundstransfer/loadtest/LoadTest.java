@@ -0,0 +1,278 @@
+package com.revolut.fundstransfer.loadtest;
+
+import com.revolut.app.rest.fundstransfer.model.Account;
+import com.revolut.app.rest.fundstransfer.model.TransferRequest;
+import com.revolut.core.fundstransfer.persist.conn.ConnectionHelper;
+import com.revolut.fundstransfer.TransferEngine;
+import org.eclipse.jetty.server.Server;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An open loop load test of the rest services: requests are started at a constant rate whatever the latency of the previous
+ * ones, their operations drawn from the configured mix and their accounts from the configured distribution. Latencies are
+ * recorded per endpoint from the time each request was due, so that the waits caused by a slow engine are measured rather
+ * than omitted, and printed as percentiles at the end.
+ *
+ * Money is checked to be conserved at the end: the total of all balances must have changed by exactly the deposits minus
+ * the withdrawals that completed, transfers moving money only between accounts. A deposit or withdrawal without an answer
+ * may or may not have happened, it widens the tolerance by its amount. Exits with 1 if money isn't conserved.
+ *
+ * See loadtest.properties for the settings e.g. java -Dload.rate.per.second=2000 -Dload.distribution=ZIPF -jar load-test.jar
+ */
+public class LoadTest {
+
+    private static Logger log = Logger.getLogger(LoadTest.class.getName());
+
+    private static final String LOCAL_URL = "http://localhost:7777";
+    private static final long FIRST_ACCOUNT_ID = 1000L;
+    private static final int INSERT_BATCH_SIZE = 10000;
+    private static final String INSERT_ACCOUNT = "INSERT INTO BANK_ACCOUNT (BANK_ACCOUNT_ID,ACCOUNT_NUMBER,ACCOUNT_NAME,BALANCE) VALUES (?,?,?,?)";
+    private static final long DRAIN_TIMEOUT_MINUTES = 5;
+
+    private final LoadTestConfiguration configuration = LoadTestConfiguration.getInstance();
+    private final Map<Operation, EndpointStatistics> statistics = new EnumMap<>(Operation.class);
+    private final LongAdder depositedMinusWithdrawn = new LongAdder();
+    private final LongAdder uncertainAmount = new LongAdder();
+    private final int maxAmount = configuration.getIntConfigValue("load.max.amount", 100);
+    private final int batchSize = configuration.getIntConfigValue("load.batch.size", 10);
+
+    public LoadTest() {
+        for (Operation operation : Operation.values()) {
+            statistics.put(operation, new EndpointStatistics(operation));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new LoadTest().run() ? 0 : 1);
+    }
+
+    /**
+     * @return true if money was conserved
+     */
+    public boolean run() throws Exception {
+        String targetUrl = configuration.getConfigValue("load.target.url");
+        int accounts = configuration.getIntConfigValue("load.accounts", 10000);
+        int connections = configuration.getIntConfigValue("load.connections", 128);
+
+        Server server = null;
+        if (targetUrl == null) {
+            TransferEngine transferEngine = new TransferEngine();
+            //before the engine starts, the ledger engine loads every balance when it starts
+            createAccounts(accounts, new BigDecimal(configuration.getIntConfigValue("load.account.balance", 1000000)));
+            server = transferEngine.startInMemoryWebServer();
+            targetUrl = LOCAL_URL;
+        }
+
+        try (LoadTestClient client = new LoadTestClient(targetUrl, connections)) {
+            List<Account> initialAccounts = client.getAllAccounts();
+            long[] accountIds = server != null ? createdAccountIds(accounts) : initialAccounts.stream().mapToLong(Account::getAccountId).toArray();
+            AccountPicker accountPicker = new AccountPicker(accountIds,
+                    configuration.getEnumConfigValue("load.distribution", KeyDistribution.class, KeyDistribution.UNIFORM),
+                    configuration.getDoubleConfigValue("load.zipf.exponent", 1.0),
+                    configuration.getIntConfigValue("load.hot.accounts", 10),
+                    configuration.getDoubleConfigValue("load.hot.fraction", 0.9));
+
+            double measuredSeconds = runOpenLoop(client, connections, accountPicker,
+                    new OperationMix(configuration.getConfigValue("load.mix")));
+
+            report(measuredSeconds);
+            return checkMoneyConservation(total(initialAccounts), total(client.getAllAccounts()));
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    /*
+        a single thread starts the requests on time and hands them over to the workers, one per connection. Requests due while
+        every worker is busy wait in the executor queue, their wait counts in their response time
+     */
+    private double runOpenLoop(LoadTestClient client, int connections, AccountPicker accountPicker, OperationMix operationMix)
+            throws InterruptedException {
+        int ratePerSecond = configuration.getIntConfigValue("load.rate.per.second", 500);
+        int warmupSeconds = configuration.getIntConfigValue("load.warmup.seconds", 5);
+        int durationSeconds = configuration.getIntConfigValue("load.duration.seconds", 30);
+        log.log(Level.INFO, "Running " + ratePerSecond + " requests per second for " + warmupSeconds + "s of warmup then "
+                + durationSeconds + "s over " + connections + " connections");
+
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(connections, task -> {
+            Thread worker = new Thread(task, "load-test-" + workerCount.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+
+        long startNanos = System.nanoTime();
+        long warmupEndNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long endNanos = warmupEndNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (long request = 0; ; request++) {
+            long dueNanos = startNanos + request * TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+            if (dueNanos - endNanos >= 0) {
+                break;
+            }
+            long waitNanos;
+            while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            Operation operation = operationMix.next();
+            boolean isRecorded = dueNanos - warmupEndNanos >= 0;
+            workers.execute(() -> execute(client, accountPicker, operation, dueNanos, isRecorded));
+        }
+
+        workers.shutdown();
+        if (!workers.awaitTermination(DRAIN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            log.log(Level.WARNING, "Requests still in flight after " + DRAIN_TIMEOUT_MINUTES + " minutes, the money check may fail");
+        }
+        return durationSeconds;
+    }
+
+    private void execute(LoadTestClient client, AccountPicker accountPicker, Operation operation, long dueNanos, boolean isRecorded) {
+        long accountId = accountPicker.next();
+        long amount = 1 + ThreadLocalRandom.current().nextInt(maxAmount);
+        long sentNanos = System.nanoTime();
+        int status;
+        try {
+            switch (operation) {
+                case TRANSFER:
+                    status = client.transfer(accountId, accountPicker.nextOtherThan(accountId), BigDecimal.valueOf(amount));
+                    break;
+                case BATCH_TRANSFER:
+                    status = client.transferBatch(batchOf(accountPicker, accountId, amount));
+                    break;
+                case DEPOSIT:
+                    status = client.deposit(accountId, BigDecimal.valueOf(amount));
+                    break;
+                case WITHDRAW:
+                    status = client.withdraw(accountId, BigDecimal.valueOf(amount));
+                    break;
+                default:
+                    status = client.getAccount(accountId);
+            }
+        } catch (IOException e) {
+            status = -1;
+        }
+        long endNanos = System.nanoTime();
+
+        //a refused request is rolled back, anything but an answer leaves the outcome unknown
+        boolean isCompleted = status == 200;
+        boolean isRejected = status == 500;
+        if (isCompleted && operation == Operation.DEPOSIT) {
+            depositedMinusWithdrawn.add(amount);
+        } else if (isCompleted && operation == Operation.WITHDRAW) {
+            depositedMinusWithdrawn.add(-amount);
+        } else if (!isCompleted && !isRejected && (operation == Operation.DEPOSIT || operation == Operation.WITHDRAW)) {
+            uncertainAmount.add(amount);
+        }
+
+        if (isRecorded) {
+            EndpointStatistics endpointStatistics = statistics.get(operation);
+            if (isCompleted) {
+                endpointStatistics.recordCompleted(dueNanos, sentNanos, endNanos);
+            } else if (isRejected) {
+                endpointStatistics.recordRejected(dueNanos, sentNanos, endNanos);
+            } else {
+                endpointStatistics.recordFailed();
+            }
+        }
+    }
+
+    /*
+        batchSize transfers starting with the given account, the following ones between accounts picked the same way
+     */
+    private List<TransferRequest> batchOf(AccountPicker accountPicker, long accountId, long amount) {
+        List<TransferRequest> transferRequests = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            long sourceAccountId = i == 0 ? accountId : accountPicker.next();
+            transferRequests.add(new TransferRequest(BigDecimal.valueOf(amount), sourceAccountId, accountPicker.nextOtherThan(sourceAccountId)));
+        }
+        return transferRequests;
+    }
+
+    private void report(double measuredSeconds) throws IOException {
+        EndpointStatistics.printHeader(System.out);
+        for (EndpointStatistics endpointStatistics : statistics.values()) {
+            if (endpointStatistics.getRequests() > 0) {
+                endpointStatistics.print(System.out, measuredSeconds);
+            }
+        }
+
+        String histogramDirectory = configuration.getConfigValue("load.histogram.directory");
+        if (histogramDirectory != null) {
+            File directory = new File(histogramDirectory);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Can't create the histogram directory " + directory);
+            }
+            for (EndpointStatistics endpointStatistics : statistics.values()) {
+                if (endpointStatistics.getRequests() > 0) {
+                    endpointStatistics.writePercentileDistribution(directory);
+                }
+            }
+        }
+    }
+
+    private boolean checkMoneyConservation(BigDecimal initialTotal, BigDecimal finalTotal) {
+        BigDecimal expectedTotal = initialTotal.add(BigDecimal.valueOf(depositedMinusWithdrawn.sum()));
+        BigDecimal difference = finalTotal.subtract(expectedTotal).abs();
+        boolean isConserved = difference.compareTo(BigDecimal.valueOf(uncertainAmount.sum())) <= 0;
+        System.out.printf("money: initial %s, deposited minus withdrawn %d, final %s, expected %s, unknown outcomes %d: %s%n",
+                initialTotal.toPlainString(), depositedMinusWithdrawn.sum(), finalTotal.toPlainString(), expectedTotal.toPlainString(),
+                uncertainAmount.sum(), isConserved ? "CONSERVED" : "NOT CONSERVED");
+        return isConserved;
+    }
+
+    private static BigDecimal total(List<Account> accounts) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account account : accounts) {
+            total = total.add(account.getBalance());
+        }
+        return total;
+    }
+
+    private static long[] createdAccountIds(int accounts) {
+        long[] accountIds = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountIds[i] = FIRST_ACCOUNT_ID + i;
+        }
+        return accountIds;
+    }
+
+    /*
+        after the seeded accounts of prepareh2.sql
+     */
+    private static void createAccounts(int accounts, BigDecimal balance) throws SQLException {
+        try (Connection connection = ConnectionHelper.createNewConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_ACCOUNT)) {
+            for (long accountId = FIRST_ACCOUNT_ID; accountId < FIRST_ACCOUNT_ID + accounts; accountId++) {
+                statement.setLong(1, accountId);
+                statement.setLong(2, accountId);
+                statement.setString(3, "account-" + accountId);
+                statement.setBigDecimal(4, balance);
+                statement.addBatch();
+                if ((accountId - FIRST_ACCOUNT_ID + 1) % INSERT_BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+}
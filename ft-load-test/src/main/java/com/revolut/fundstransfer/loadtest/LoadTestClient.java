@@ -0,0 +1,121 @@
+package com.revolut.fundstransfer.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.revolut.app.rest.fundstransfer.model.Account;
+import com.revolut.app.rest.fundstransfer.model.AccountPage;
+import com.revolut.app.rest.fundstransfer.model.TransactionRequest;
+import com.revolut.app.rest.fundstransfer.model.TransferRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calls the rest services of the engine over a pool of keep alive connections.
+ */
+public class LoadTestClient implements Closeable {
+
+    private static final int TIMEOUT_MILLIS = 60000;
+    //the largest page the engine serves
+    private static final int PAGE_LIMIT = 1000;
+
+    private final String baseUrl;
+    private final CloseableHttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader pageReader = objectMapper.readerFor(AccountPage.class);
+
+    public LoadTestClient(String baseUrl, int connections) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(connections);
+        connectionManager.setDefaultMaxPerRoute(connections);
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(TIMEOUT_MILLIS)
+                        .setSocketTimeout(TIMEOUT_MILLIS)
+                        .build())
+                .build();
+    }
+
+    /**
+     * @return the http status of the transfer
+     */
+    public int transfer(long sourceAccountId, long destinationAccountId, BigDecimal amount) throws IOException {
+        return post("/transfer", new TransferRequest(amount, sourceAccountId, destinationAccountId));
+    }
+
+    /**
+     * @return the http status of the batch, 200 even if some of its transfers failed
+     */
+    public int transferBatch(List<TransferRequest> transferRequests) throws IOException {
+        return post("/transfer/batch", transferRequests);
+    }
+
+    public int deposit(long accountId, BigDecimal amount) throws IOException {
+        return post("/account/deposit", new TransactionRequest(accountId, amount));
+    }
+
+    public int withdraw(long accountId, BigDecimal amount) throws IOException {
+        return post("/account/withdraw", new TransactionRequest(accountId, amount));
+    }
+
+    public int getAccount(long accountId) throws IOException {
+        return execute(new HttpGet(baseUrl + "/account/" + accountId));
+    }
+
+    /**
+     * @return every account, listed page by page
+     */
+    public List<Account> getAllAccounts() throws IOException {
+        List<Account> accounts = new ArrayList<>();
+        String nextPage = baseUrl + "/account/list?limit=" + PAGE_LIMIT;
+        while (nextPage != null) {
+            HttpResponse response = client.execute(new HttpGet(nextPage));
+            try {
+                if (response.getStatusLine().getStatusCode() != 200) {
+                    throw new IOException("Listing accounts failed with status " + response.getStatusLine().getStatusCode());
+                }
+                AccountPage page = pageReader.readValue(response.getEntity().getContent());
+                accounts.addAll(page.getAccounts());
+                nextPage = page.getNextAfterId() == null ? null
+                        : baseUrl + "/account/list?limit=" + PAGE_LIMIT + "&afterId=" + page.getNextAfterId();
+            } finally {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+        }
+        return accounts;
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    private int post(String path, Object body) throws IOException {
+        HttpPost request = new HttpPost(baseUrl + path);
+        request.setEntity(new ByteArrayEntity(objectMapper.writeValueAsBytes(body), ContentType.APPLICATION_JSON));
+        return execute(request);
+    }
+
+    private int execute(HttpUriRequest request) throws IOException {
+        HttpResponse response = client.execute(request);
+        //consumed so that the connection goes back to the pool
+        EntityUtils.consumeQuietly(response.getEntity());
+        return response.getStatusLine().getStatusCode();
+    }
+}
@@ -0,0 +1,58 @@
+package com.revolut.fundstransfer.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Configuration of the load test, loaded from loadtest.properties.
+ * Any key can be overridden with a system property of the same name e.g. -Dload.distribution=ZIPF
+ */
+public class LoadTestConfiguration {
+
+    private static Logger log = Logger.getLogger(LoadTestConfiguration.class.getName());
+
+    private static final LoadTestConfiguration instance = new LoadTestConfiguration();
+
+    private final Properties loadTestProperties = new Properties();
+
+    private LoadTestConfiguration() {
+        String fileName = "loadtest.properties";
+        try (InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(fileName)) {
+            if (inputStream != null) {
+                loadTestProperties.load(inputStream);
+            }
+        } catch (IOException e) {
+            log.log(Level.SEVERE, "error while loading load test config:", e);
+        }
+    }
+
+    public static LoadTestConfiguration getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return the value of the key, null if it isn't set or is blank
+     */
+    public String getConfigValue(String key) {
+        String value = System.getProperty(key, loadTestProperties.getProperty(key));
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    public int getIntConfigValue(String key, int defaultValue) {
+        String value = getConfigValue(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public double getDoubleConfigValue(String key, double defaultValue) {
+        String value = getConfigValue(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    public <E extends Enum<E>> E getEnumConfigValue(String key, Class<E> enumType, E defaultValue) {
+        String value = getConfigValue(key);
+        return value == null ? defaultValue : Enum.valueOf(enumType, value.toUpperCase());
+    }
+}
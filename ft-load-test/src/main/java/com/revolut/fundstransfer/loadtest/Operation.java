@@ -0,0 +1,23 @@
+package com.revolut.fundstransfer.loadtest;
+
+/**
+ * The requests of the load test, each recorded under its own endpoint.
+ */
+public enum Operation {
+
+    TRANSFER("POST /transfer"),
+    BATCH_TRANSFER("POST /transfer/batch"),
+    DEPOSIT("POST /account/deposit"),
+    WITHDRAW("POST /account/withdraw"),
+    READ("GET /account/{id}");
+
+    private final String endpoint;
+
+    Operation(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+}
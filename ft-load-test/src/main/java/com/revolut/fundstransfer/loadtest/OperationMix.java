@@ -0,0 +1,51 @@
+package com.revolut.fundstransfer.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks operations at random according to their share of the mix, parsed from e.g. TRANSFER:70,DEPOSIT:10,WITHDRAW:10,READ:10
+ */
+public class OperationMix {
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    public OperationMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String share : mix.split(",")) {
+            String[] operationAndWeight = share.split(":");
+            if (operationAndWeight.length != 2) {
+                throw new IllegalArgumentException("Invalid operation mix, expected OPERATION:weight,... but was " + mix);
+            }
+            int weight = Integer.parseInt(operationAndWeight[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Invalid operation mix, negative weight in " + mix);
+            }
+            weights.merge(Operation.valueOf(operationAndWeight[0].trim().toUpperCase()), weight, Integer::sum);
+        }
+        weights.values().removeIf(weight -> weight == 0);
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Invalid operation mix, no operation in " + mix);
+        }
+
+        operations = weights.keySet().toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public Operation next() {
+        int draw = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+}
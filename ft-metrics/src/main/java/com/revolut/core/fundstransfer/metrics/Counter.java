@@ -0,0 +1,26 @@
+package com.revolut.core.fundstransfer.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of events that only goes up, on a {@link LongAdder} so that concurrent increments don't contend.
+ */
+public class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long events) {
+        count.add(events);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,185 @@
+package com.revolut.core.fundstransfer.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds with log linear buckets like HdrHistogram: 16 buckets per power of two, so that any
+ * duration is counted within 6.25% of its value, from 1ns up to about 18 minutes, longer durations counted in the last bucket.
+ * Recording finds the bucket with a few shifts and increments its {@link LongAdder}, without locks or allocation.
+ * Quantiles are computed when read, from a snapshot of the buckets, as the highest duration of the bucket they fall in.
+ *
+ * Quantiles decay like those of the Prometheus client_java summaries: the buckets are kept once per age, in a ring of ageCount
+ * ages each lasting maxAge / ageCount. Durations are recorded in the current age, the oldest age is cleared and reused once
+ * the current one is over, so the quantiles cover the last maxAge at most and the last maxAge minus an age at least.
+ * The count and the sum of the durations are kept since startup, as Prometheus expects of a summary.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1;
+    private static final int BUCKET_COUNT = bucketOf(MAX_TRACKABLE_NANOS) + 1;
+    private static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final int DEFAULT_AGE_COUNT = 5;
+
+    //the buckets of each age, in a ring
+    private final LongAdder[][] ages;
+    private final long ageNanos;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private volatile int currentAge;
+    private volatile long currentAgeStartNanos = System.nanoTime();
+
+    /**
+     * Creates a histogram outside of the {@link MetricsRegistry}, e.g. for a component created by a benchmark, with quantiles
+     * over the last 10 minutes in 5 ages.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_MAX_AGE_MILLIS, DEFAULT_AGE_COUNT);
+    }
+
+    /**
+     * @param maxAgeMillis how far back the quantiles look
+     * @param ageCount     the steps the window of the quantiles moves by
+     */
+    public LatencyHistogram(long maxAgeMillis, int ageCount) {
+        if (maxAgeMillis <= 0 || ageCount <= 0) {
+            throw new IllegalArgumentException("Expected a positive max age and age count");
+        }
+        ages = new LongAdder[ageCount][BUCKET_COUNT];
+        for (LongAdder[] buckets : ages) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+        ageNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(maxAgeMillis) / ageCount);
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_TRACKABLE_NANOS));
+        currentBuckets()[bucketOf(value)].increment();
+        count.increment();
+        totalNanos.add(value);
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return the durations recorded within the window of the quantiles, along with the count and the sum of all of them
+     */
+    public Snapshot snapshot() {
+        //drops the ages over, even if nothing was recorded since
+        currentBuckets();
+        long[] counts = new long[BUCKET_COUNT];
+        long windowCount = 0;
+        for (LongAdder[] buckets : ages) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long bucketCount = buckets[i].sum();
+                counts[i] += bucketCount;
+                windowCount += bucketCount;
+            }
+        }
+        return new Snapshot(counts, windowCount, count.sum(), totalNanos.sum());
+    }
+
+    private LongAdder[] currentBuckets() {
+        if (System.nanoTime() - currentAgeStartNanos >= ageNanos) {
+            rotate();
+        }
+        return ages[currentAge];
+    }
+
+    /*
+        moves on by the ages over, clearing each one moved to. The age is published before its start, so that a thread seeing
+        the new start records in the new age. A duration racing with the clearing of its age may be lost, or kept for a window
+     */
+    private synchronized void rotate() {
+        long elapsedAges = (System.nanoTime() - currentAgeStartNanos) / ageNanos;
+        if (elapsedAges <= 0) {
+            //rotated by another thread meanwhile
+            return;
+        }
+        int age = currentAge;
+        for (long i = 0; i < Math.min(elapsedAges, ages.length); i++) {
+            age = (age + 1) % ages.length;
+            for (LongAdder bucket : ages[age]) {
+                bucket.reset();
+            }
+        }
+        currentAge = age;
+        currentAgeStartNanos += elapsedAges * ageNanos;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT + (shift << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKET_COUNT) >>> SUB_BUCKET_BITS;
+        long lowestValue = (long) (SUB_BUCKET_COUNT + ((bucket - SUB_BUCKET_COUNT) & (SUB_BUCKET_COUNT - 1))) << shift;
+        return lowestValue + (1L << shift) - 1;
+    }
+
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long windowCount;
+        private final long count;
+        private final long totalNanos;
+
+        Snapshot(long[] counts, long windowCount, long count, long totalNanos) {
+            this.counts = counts;
+            this.windowCount = windowCount;
+            this.count = count;
+            this.totalNanos = totalNanos;
+        }
+
+        /**
+         * @return the durations recorded since startup
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the durations the quantiles are computed from
+         */
+        public long getWindowCount() {
+            return windowCount;
+        }
+
+        public double getTotalSeconds() {
+            return totalNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        }
+
+        /**
+         * @param quantile from 0 to 1
+         * @return the duration in nanoseconds below which the given share of the durations of the window fall, 0 if none was
+         * recorded within the window
+         */
+        public long getValueAtQuantile(double quantile) {
+            long rank = Math.max(1, (long) Math.ceil(quantile * windowCount));
+            long cumulativeCount = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulativeCount += counts[i];
+                if (cumulativeCount >= rank) {
+                    return highestValueOf(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.revolut.core.fundstransfer.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process wide registry of the metrics of the engine, written out in the Prometheus text format.
+ *
+ * Metrics are looked up by name and labels once, typically into a field, and recorded through the returned object: a
+ * {@link Counter} or a {@link LatencyHistogram}, both lock free. Looking up the same name and labels again returns the same
+ * metric. Values already counted elsewhere, e.g. by a cache, are registered as functions read when the metrics are written.
+ * Histograms are written as summaries in seconds: a few quantiles over the last 10 minutes, the sum and the count of the
+ * durations since startup.
+ *
+ * Labels are given as name value pairs e.g. counter("ft_calls_total", "Calls", "service", "AccountService").
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").metric(labels, Counter::new);
+    }
+
+    /**
+     * Registers a counter maintained elsewhere, read from the given function. Registering it again replaces the function.
+     */
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, "counter").replace(labels, value);
+    }
+
+    /**
+     * Registers a value that can go up and down, read from the given function. Registering it again replaces the function.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").replace(labels, value);
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, "summary").metric(labels, LatencyHistogram::new);
+    }
+
+    /**
+     * @return every metric in the Prometheus text exposition format, families sorted by name
+     */
+    public String scrape() {
+        StringWriter writer = new StringWriter();
+        try {
+            write(writer);
+        } catch (IOException e) {
+            //a StringWriter doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    public void write(Writer writer) throws IOException {
+        for (Family family : families.values()) {
+            family.write(writer);
+        }
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, familyName -> new Family(familyName, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static class Family {
+
+        private final String name;
+        private final String help;
+        private final String type;
+        //by their labels as written out, sorted so that the output is stable
+        private final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        Object metric(String[] labels, Supplier<Object> factory) {
+            return metrics.computeIfAbsent(formatLabels(labels), formattedLabels -> factory.get());
+        }
+
+        void replace(String[] labels, Object value) {
+            metrics.put(formatLabels(labels), value);
+        }
+
+        void write(Writer writer) throws IOException {
+            writer.write("# HELP " + name + " " + help + "\n");
+            writer.write("# TYPE " + name + " " + type + "\n");
+            for (Map.Entry<String, Object> metric : metrics.entrySet()) {
+                String labels = metric.getKey();
+                Object value = metric.getValue();
+                if (value instanceof LatencyHistogram) {
+                    LatencyHistogram.Snapshot snapshot = ((LatencyHistogram) value).snapshot();
+                    for (double quantile : QUANTILES) {
+                        writeSample(writer, name, withLabel(labels, "quantile", Double.toString(quantile)),
+                                snapshot.getValueAtQuantile(quantile) / NANOS_PER_SECOND);
+                    }
+                    writeSample(writer, name + "_sum", labels, snapshot.getTotalSeconds());
+                    writeSample(writer, name + "_count", labels, snapshot.getCount());
+                } else if (value instanceof Counter) {
+                    writeSample(writer, name, labels, ((Counter) value).get());
+                } else if (value instanceof LongSupplier) {
+                    writeSample(writer, name, labels, ((LongSupplier) value).getAsLong());
+                } else {
+                    writeSample(writer, name, labels, ((DoubleSupplier) value).getAsDouble());
+                }
+            }
+        }
+
+        private static void writeSample(Writer writer, String name, String labels, double value) throws IOException {
+            writer.write(name + labels + " " + value + "\n");
+        }
+
+        private static void writeSample(Writer writer, String name, String labels, long value) throws IOException {
+            writer.write(name + labels + " " + value + "\n");
+        }
+
+        private static String formatLabels(String[] labels) {
+            if (labels.length % 2 != 0) {
+                throw new IllegalArgumentException("Labels are expected as name value pairs");
+            }
+            String formattedLabels = "";
+            for (int i = 0; i < labels.length; i += 2) {
+                formattedLabels = withLabel(formattedLabels, labels[i], labels[i + 1]);
+            }
+            return formattedLabels;
+        }
+
+        private static String withLabel(String formattedLabels, String name, String value) {
+            String label = name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+            return formattedLabels.isEmpty()
+                    ? "{" + label + "}"
+                    : formattedLabels.substring(0, formattedLabels.length() - 1) + "," + label + "}";
+        }
+    }
+}
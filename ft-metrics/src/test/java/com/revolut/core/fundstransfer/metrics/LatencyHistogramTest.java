@@ -0,0 +1,77 @@
+package com.revolut.core.fundstransfer.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of the buckets of the latency histogram and of the window of its quantiles
+ */
+public class LatencyHistogramTest {
+
+    private static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1;
+
+    @Test
+    public void testSmallValuesHaveTheirOwnBucket() {
+        for (long value = 0; value < 16; value++) {
+            assertEquals(value, LatencyHistogram.bucketOf(value));
+            assertEquals(value, LatencyHistogram.highestValueOf((int) value));
+        }
+    }
+
+    @Test
+    public void testBucketsFollowEachOther() {
+        int lastBucket = LatencyHistogram.bucketOf(MAX_TRACKABLE_NANOS);
+        assertEquals(MAX_TRACKABLE_NANOS, LatencyHistogram.highestValueOf(lastBucket));
+        for (int bucket = 0; bucket < lastBucket; bucket++) {
+            long highestValue = LatencyHistogram.highestValueOf(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(highestValue));
+            assertEquals(bucket + 1, LatencyHistogram.bucketOf(highestValue + 1));
+        }
+    }
+
+    @Test
+    public void testHighestValueOfBucketIsWithinSixPercent() {
+        for (long value = 1; value <= MAX_TRACKABLE_NANOS; value = value * 3 / 2 + 1) {
+            long highestValue = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+            assertTrue(highestValue >= value);
+            assertTrue(highestValue - value <= value / 16);
+        }
+    }
+
+    @Test
+    public void testQuantilesOfRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(value));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000, snapshot.getWindowCount());
+        assertWithinSixPercent(TimeUnit.MICROSECONDS.toNanos(500), snapshot.getValueAtQuantile(0.5));
+        assertWithinSixPercent(TimeUnit.MICROSECONDS.toNanos(990), snapshot.getValueAtQuantile(0.99));
+    }
+
+    @Test
+    public void testQuantilesForgetValuesOlderThanMaxAge() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(200, 2);
+        histogram.record(1000);
+        Thread.sleep(300);
+        assertEquals(0, histogram.snapshot().getValueAtQuantile(0.5));
+
+        histogram.record(10);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10, snapshot.getValueAtQuantile(0.99));
+        assertEquals(1, snapshot.getWindowCount());
+        assertEquals(2, snapshot.getCount());
+        assertEquals(1010, Math.round(snapshot.getTotalSeconds() * 1e9));
+    }
+
+    private static void assertWithinSixPercent(long expected, long actual) {
+        assertTrue(actual + " expected about " + expected, actual >= expected && actual - expected <= expected / 16);
+    }
+}
@@ -2,14 +2,90 @@ package com.revolut.core.fundstransfer.persist.accessor;
 
 import com.revolut.core.fundstransfer.persist.exception.DataException;
 import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
+import com.revolut.core.fundstransfer.persist.to.JournalEntryTO;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.util.List;
 
+/**
+ * Every method changing balances takes the id of the transfer the change belongs to, or the legs of the transfers, and when
+ * db.journal.enabled is true appends an entry per leg to TRANSFER_JOURNAL in the transaction of the change: the signed amount,
+ * the resulting balance and the next sequence of the account, kept in BANK_ACCOUNT.JOURNAL_SEQUENCE.
+ */
 public interface BankAccountAccessor {
+
+    /**
+     * @return true if balance changes are journaled, callers may skip collecting the legs otherwise
+     */
+    boolean isJournalEnabled();
+
     List<BankAccountTO> getAllAccounts(Connection connection) throws DataException;
     BankAccountTO getAccount(Connection connection, long accountId) throws DataException;
-    int deposit(Connection connection, long accountId, BigDecimal amount) throws DataException;
-    int withdraw(Connection connection, long accountId, BigDecimal amount) throws DataException;
+
+    /**
+     * Reads every account in ascending id order with a forward only result set, handing each row to the handler as it is
+     * read, so that memory doesn't grow with the number of accounts. Plain reads, no row is locked.
+     *
+     * @return the number of accounts read
+     */
+    long streamAllAccounts(Connection connection, BankAccountRowHandler rowHandler) throws DataException;
+
+    /**
+     * Reads the accounts following the given account id in ascending id order, seeking the primary key index.
+     *
+     * @return at most limit accounts
+     */
+    List<BankAccountTO> getAccountsAfter(Connection connection, long afterAccountId, int limit) throws DataException;
+    int deposit(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException;
+    int withdraw(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException;
+
+    /**
+     * Adds the amount to the balance with a single update, without reading the account first.
+     *
+     * @return the update count, 0 if the account doesn't exist
+     */
+    int addToBalance(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException;
+
+    /**
+     * Subtracts the amount from the balance with a single update, only if the balance is sufficient.
+     *
+     * @return the update count, 0 if the account doesn't exist or doesn't have sufficient balance
+     */
+    int subtractFromBalanceIfSufficient(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException;
+
+    /**
+     * Locks and reads two accounts with a single statement, locking the rows in ascending account id order.
+     *
+     * @return the accounts found ordered by id, only one if both ids are the same, fewer if an account doesn't exist
+     */
+    List<BankAccountTO> lockAccounts(Connection connection, long firstAccountId, long secondAccountId) throws DataException;
+
+    /**
+     * Sets the balances of two accounts already locked and read by the caller, as one batch, journaling the change from
+     * the balances and journal sequences read. The accounts are left with the balances and sequences written, so that the
+     * caller may write them again in the same transaction.
+     *
+     * @return the update count of each account
+     */
+    int[] updateBalances(Connection connection, long transferId, BankAccountTO firstAccount, BigDecimal firstBalance,
+                         BankAccountTO secondAccount, BigDecimal secondBalance) throws DataException;
+
+    /**
+     * Locks and reads any number of accounts, locking the rows in ascending account id order.
+     *
+     * @param accountIds distinct account ids in ascending order
+     * @return the accounts found ordered by id, fewer than the ids if an account doesn't exist
+     */
+    List<BankAccountTO> lockAccounts(Connection connection, long[] accountIds) throws DataException;
+
+    /**
+     * Sets the balances of accounts already locked by the caller, as one batch, journaling the legs which led to them.
+     *
+     * @param journalEntries the legs of every transfer applied, in the order they were applied, ignored unless journaling.
+     *                       The sequences of the legs of an account follow the JOURNAL_SEQUENCE of its row
+     * @return the update count of each account
+     */
+    int[] updateBalances(Connection connection, List<JournalEntryTO> journalEntries, long[] accountIds, BigDecimal[] balances)
+            throws DataException;
 }
@@ -0,0 +1,13 @@
+package com.revolut.core.fundstransfer.persist.accessor;
+
+import java.math.BigDecimal;
+
+/**
+ * Receives the columns of each account row streamed by {@link BankAccountAccessor#streamAllAccounts}, while the result
+ * set is positioned on the row, so that no object is kept per row.
+ */
+@FunctionalInterface
+public interface BankAccountRowHandler {
+
+    void handle(long bankAccountId, long accountNumber, String accountName, BigDecimal balance) throws Exception;
+}
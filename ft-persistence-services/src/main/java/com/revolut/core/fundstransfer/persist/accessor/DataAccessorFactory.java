@@ -4,10 +4,14 @@ public abstract class DataAccessorFactory {
 
 	public static final String DATA_ACCESSOR_FACTORY_H2 = "h2";
 
+	private static final DataAccessorFactory h2DataAccessorFactory = new H2DataAccessorFactory();
+
 	public abstract BankAccountAccessor getBankAccountAccessor();
 
+	public abstract IdempotencyKeyAccessor getIdempotencyKeyAccessor();
+
 	public static DataAccessorFactory getDataAccessorFactory(String factoryType) {
 	    //as of now only H2DataAccessorFactory is available
-		return new H2DataAccessorFactory();
+		return h2DataAccessorFactory;
 	}
 }
\ No newline at end of file
@@ -1,12 +1,19 @@
 package com.revolut.core.fundstransfer.persist.accessor;
 
 import com.revolut.core.fundstransfer.persist.impl.BankAccountAccessorH2Impl;
+import com.revolut.core.fundstransfer.persist.impl.IdempotencyKeyAccessorH2Impl;
+import com.revolut.core.fundstransfer.persist.stats.TimedBankAccountAccessor;
 
 public class H2DataAccessorFactory extends DataAccessorFactory {
 
-	private final BankAccountAccessor bankAccountAccessor = new BankAccountAccessorH2Impl();
+	private final BankAccountAccessor bankAccountAccessor = new TimedBankAccountAccessor(new BankAccountAccessorH2Impl());
+	private final IdempotencyKeyAccessor idempotencyKeyAccessor = new IdempotencyKeyAccessorH2Impl();
 
 	public BankAccountAccessor getBankAccountAccessor() {
 		return bankAccountAccessor;
 	}
+
+	public IdempotencyKeyAccessor getIdempotencyKeyAccessor() {
+		return idempotencyKeyAccessor;
+	}
 }
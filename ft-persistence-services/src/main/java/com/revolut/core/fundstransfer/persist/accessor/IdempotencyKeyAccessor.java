@@ -0,0 +1,29 @@
+package com.revolut.core.fundstransfer.persist.accessor;
+
+import com.revolut.core.fundstransfer.persist.exception.DataException;
+import com.revolut.core.fundstransfer.persist.to.IdempotencyKeyTO;
+
+import java.sql.Connection;
+
+/**
+ * The IDEMPOTENCY_KEY table, one row per idempotency key of a completed operation, written in the transaction of the operation.
+ */
+public interface IdempotencyKeyAccessor {
+
+    /**
+     * Claims the key for the operation about to run in the transaction of the connection. A transaction inserting the same key
+     * concurrently holds its row lock until it ends, so this call waits for it up to the lock timeout of the database.
+     *
+     * @param requestHash hash of the arguments of the operation, telling a repeated request from another one reusing the key
+     * @return true if the key is claimed, false if a committed transaction already claimed it
+     * @throws DataException on a lock timeout or any other error
+     */
+    boolean insertKey(Connection connection, String idempotencyKey, String operation, String requestHash) throws DataException;
+
+    /**
+     * @return the key or null if no committed transaction claimed it
+     */
+    IdempotencyKeyTO getKey(Connection connection, String idempotencyKey) throws DataException;
+
+    int updateResult(Connection connection, String idempotencyKey, byte[] result) throws DataException;
+}
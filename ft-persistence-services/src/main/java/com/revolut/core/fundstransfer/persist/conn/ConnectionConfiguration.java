@@ -31,7 +31,10 @@ public class ConnectionConfiguration {
         DbUtils.loadDriver(dbProperties.getProperty("db.driver"));
     }
 
+    /**
+     * @return the value of the key in db.properties, unless overridden with a system property of the same name
+     */
     public String getConfigValue(String key) {
-        return dbProperties.getProperty(key);
+        return System.getProperty(key, dbProperties.getProperty(key));
     }
 }
@@ -20,4 +20,8 @@ public class ConnectionHelper {
         );
     }
 
+    public static String getConfigValue(String key) {
+        return connectionConfig.getConfigValue(key);
+    }
+
 }
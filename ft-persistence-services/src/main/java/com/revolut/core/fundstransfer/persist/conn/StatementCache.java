@@ -0,0 +1,204 @@
+package com.revolut.core.fundstransfer.persist.conn;
+
+import org.apache.commons.dbutils.DbUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An LRU cache of prepared statements keyed by sql text, bound to the lifetime of one physical connection.
+ *
+ * Statements are borrowed with {@link #prepare(Connection, String)} and must be handed back with
+ * {@link #release(Connection, String, PreparedStatement)} once their result set is closed. A borrowed statement is removed
+ * from the cache so that it is never shared, and its parameters are cleared when it comes back.
+ * A connection is only used by one thread at a time, hence a cache itself is not thread safe.
+ *
+ * Connections without a bound cache, e.g. not coming from the connection pool, simply prepare and close statements.
+ *
+ * A deadline set with {@link #setDeadline(Connection, long)}, e.g. the timeout of the transaction running on the connection,
+ * is applied to every borrowed statement as its query timeout, and a statement can't be borrowed any more once it has elapsed.
+ */
+public class StatementCache {
+
+    private static final ConcurrentHashMap<Connection, StatementCache> connection2CacheMap = new ConcurrentHashMap<>();
+
+    private static final LongAdder totalHits = new LongAdder();
+    private static final LongAdder totalMisses = new LongAdder();
+
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> sql2StatementMap;
+    private int borrowedCount;
+    private boolean isDeadlineSet;
+    private long deadlineNanos;
+    private long hits;
+    private long misses;
+
+    private StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        //borrowing removes a statement and giving it back re-inserts it, so insertion order is also least recently used order
+        this.sql2StatementMap = new LinkedHashMap<String, PreparedStatement>(capacity * 2, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > capacity) {
+                    DbUtils.closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Binds a new statement cache to the given connection, to be called when the physical connection is opened.
+     */
+    public static void bind(Connection connection, int capacity) {
+        if (capacity > 0) {
+            connection2CacheMap.put(connection, new StatementCache(connection, capacity));
+        }
+    }
+
+    /**
+     * Unbinds the statement cache of the given connection and closes all its statements,
+     * to be called when the physical connection is closed.
+     */
+    public static void unbind(Connection connection) {
+        StatementCache statementCache = connection2CacheMap.remove(connection);
+        if (statementCache != null) {
+            statementCache.closeAll();
+        }
+    }
+
+    public static StatementCache of(Connection connection) {
+        return connection2CacheMap.get(connection);
+    }
+
+    public static PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        StatementCache statementCache = connection2CacheMap.get(connection);
+        if (statementCache == null) {
+            return connection.prepareStatement(sql);
+        }
+        return statementCache.borrow(sql);
+    }
+
+    public static void release(Connection connection, String sql, PreparedStatement statement) {
+        if (Objects.isNull(statement)) {
+            return;
+        }
+        StatementCache statementCache = connection2CacheMap.get(connection);
+        if (statementCache == null) {
+            DbUtils.closeQuietly(statement);
+        } else {
+            statementCache.giveBack(sql, statement);
+        }
+    }
+
+    /**
+     * Sets the {@link System#nanoTime()} deadline of the statements borrowed on the given connection until
+     * {@link #clearDeadline(Connection)}, ignored if the connection has no bound cache.
+     */
+    public static void setDeadline(Connection connection, long deadlineNanos) {
+        StatementCache statementCache = connection2CacheMap.get(connection);
+        if (statementCache != null) {
+            statementCache.isDeadlineSet = true;
+            statementCache.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    public static void clearDeadline(Connection connection) {
+        StatementCache statementCache = connection2CacheMap.get(connection);
+        if (statementCache != null) {
+            statementCache.isDeadlineSet = false;
+        }
+    }
+
+    public static long getTotalHits() {
+        return totalHits.sum();
+    }
+
+    public static long getTotalMisses() {
+        return totalMisses.sum();
+    }
+
+    public PreparedStatement borrow(String sql) throws SQLException {
+        int queryTimeoutSeconds = 0;
+        if (isDeadlineSet) {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new SQLTimeoutException("Transaction timed out");
+            }
+            //rounded up, zero would mean no timeout
+            queryTimeoutSeconds = (int) Math.min(Integer.MAX_VALUE, (remainingNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        }
+        PreparedStatement statement = sql2StatementMap.remove(sql);
+        if (statement != null && !statement.isClosed()) {
+            hits++;
+            totalHits.increment();
+        } else {
+            misses++;
+            totalMisses.increment();
+            statement = connection.prepareStatement(sql);
+        }
+        if (queryTimeoutSeconds > 0) {
+            try {
+                statement.setQueryTimeout(queryTimeoutSeconds);
+            } catch (SQLException e) {
+                DbUtils.closeQuietly(statement);
+                throw e;
+            }
+        }
+        borrowedCount++;
+        return statement;
+    }
+
+    public void giveBack(String sql, PreparedStatement statement) {
+        borrowedCount--;
+        try {
+            statement.clearParameters();
+            if (isDeadlineSet) {
+                statement.setQueryTimeout(0);
+            }
+        } catch (SQLException e) {
+            DbUtils.closeQuietly(statement);
+            return;
+        }
+        PreparedStatement previous = sql2StatementMap.put(sql, statement);
+        if (previous != null && previous != statement) {
+            //the same sql was borrowed twice at the same time, keep only one of them
+            DbUtils.closeQuietly(previous);
+        }
+    }
+
+    /**
+     * @return true if every borrowed statement has been handed back, i.e. the connection can safely be reused by another transaction
+     */
+    public boolean isIdle() {
+        return borrowedCount == 0;
+    }
+
+    public int size() {
+        return sql2StatementMap.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    private void closeAll() {
+        for (PreparedStatement statement : sql2StatementMap.values()) {
+            DbUtils.closeQuietly(statement);
+        }
+        sql2StatementMap.clear();
+    }
+}
@@ -1,8 +1,13 @@
 package com.revolut.core.fundstransfer.persist.impl;
 
 import com.revolut.core.fundstransfer.persist.accessor.BankAccountAccessor;
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountRowHandler;
+import com.revolut.core.fundstransfer.persist.conn.ConnectionHelper;
+import com.revolut.core.fundstransfer.persist.conn.StatementCache;
 import com.revolut.core.fundstransfer.persist.exception.DataException;
+import com.revolut.core.fundstransfer.persist.stats.DataAccessStatistics;
 import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
+import com.revolut.core.fundstransfer.persist.to.JournalEntryTO;
 import org.apache.commons.dbutils.DbUtils;
 
 import java.math.BigDecimal;
@@ -10,13 +15,17 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Statements are borrowed from the {@link StatementCache} of the connection instead of being prepared on every call.
+ */
 public class BankAccountAccessorH2Impl implements BankAccountAccessor {
 
 	private static Logger log = Logger.getLogger(BankAccountAccessorH2Impl.class.getName());
@@ -24,27 +33,52 @@ public class BankAccountAccessorH2Impl implements BankAccountAccessor {
     private static final String SELECT_FOR_UPDATE = "SELECT * FROM BANK_ACCOUNT WHERE BANK_ACCOUNT_ID = ? FOR UPDATE";
 
     private static final String SELECT_ALL = "SELECT * FROM BANK_ACCOUNT";
+    private static final String SELECT_ALL_ORDERED = "SELECT * FROM BANK_ACCOUNT ORDER BY BANK_ACCOUNT_ID";
+    private static final String EXPORT_FETCH_SIZE_KEY = "db.export.fetch.size";
+    private static final int EXPORT_FETCH_SIZE = getIntConfigValue(EXPORT_FETCH_SIZE_KEY, 1000);
+    private static final String SELECT_PAGE = "SELECT * FROM BANK_ACCOUNT WHERE BANK_ACCOUNT_ID > ? ORDER BY BANK_ACCOUNT_ID LIMIT ?";
 	private static final String SELECT_BY_ID = "SELECT * FROM BANK_ACCOUNT WHERE BANK_ACCOUNT_ID = ?";
-	private static final String UPDATE_BALANCE = "UPDATE BANK_ACCOUNT SET BALANCE = ? WHERE BANK_ACCOUNT_ID = ?";
+	private static final String UPDATE_BALANCE = "UPDATE BANK_ACCOUNT SET BALANCE = ?, JOURNAL_SEQUENCE = JOURNAL_SEQUENCE + 1 WHERE BANK_ACCOUNT_ID = ?";
+    private static final String UPDATE_BALANCE_AND_SEQUENCE = "UPDATE BANK_ACCOUNT SET BALANCE = ?, JOURNAL_SEQUENCE = JOURNAL_SEQUENCE + ? WHERE BANK_ACCOUNT_ID = ?";
+    private static final String ADD_TO_BALANCE = "UPDATE BANK_ACCOUNT SET BALANCE = BALANCE + ?, JOURNAL_SEQUENCE = JOURNAL_SEQUENCE + 1 WHERE BANK_ACCOUNT_ID = ?";
+    private static final String SUBTRACT_FROM_BALANCE = "UPDATE BANK_ACCOUNT SET BALANCE = BALANCE - ?, JOURNAL_SEQUENCE = JOURNAL_SEQUENCE + 1 WHERE BANK_ACCOUNT_ID = ? AND BALANCE >= ?";
+    //journals a change already applied to a row which wasn't read, reading the resulting balance and sequence from it
+    private static final String JOURNAL_APPLIED_CHANGE = "INSERT INTO TRANSFER_JOURNAL (TRANSFER_ID, BANK_ACCOUNT_ID, ACCOUNT_SEQUENCE, AMOUNT, BALANCE, CREATED_AT)"
+            + " SELECT ?, BANK_ACCOUNT_ID, JOURNAL_SEQUENCE, ?, BALANCE, CURRENT_TIMESTAMP() FROM BANK_ACCOUNT WHERE BANK_ACCOUNT_ID = ?";
+    //journals a leg of a locked row, whose sequence and balance the caller knows from reading it
+    private static final String JOURNAL_LEG = "INSERT INTO TRANSFER_JOURNAL (TRANSFER_ID, BANK_ACCOUNT_ID, ACCOUNT_SEQUENCE, AMOUNT, BALANCE, CREATED_AT)"
+            + " VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP())";
+    private static final boolean JOURNAL_ENABLED = "true".equalsIgnoreCase(ConnectionHelper.getConfigValue("db.journal.enabled"));
+    private static final String SELECT_TWO_FOR_UPDATE = "SELECT * FROM BANK_ACCOUNT WHERE BANK_ACCOUNT_ID IN (?, ?) ORDER BY BANK_ACCOUNT_ID FOR UPDATE";
+
+    //ids are locked in IN lists of power of two sizes, padded with the last id, so that only a handful of distinct statements get cached
+    private static final int MAX_IDS_PER_LOCK_STATEMENT = 256;
+    private static final String[] SELECT_MANY_FOR_UPDATE = createSelectManyForUpdate();
+
+    @Override
+    public boolean isJournalEnabled() {
+        return JOURNAL_ENABLED;
+    }
 
 	public List<BankAccountTO> getAllAccounts(Connection connection) throws DataException {
-		Statement statement = null;
+		PreparedStatement statement = null;
 		ResultSet rs = null;
 		List<BankAccountTO> bankAccountList = new ArrayList<>();
 		try {
-			statement = connection.createStatement();
-			rs = statement.executeQuery(SELECT_ALL);
+			statement = StatementCache.prepare(connection, SELECT_ALL);
+			rs = statement.executeQuery();
 			while (rs.next()) {
                 BankAccountTO account = createBankAccountFromResultSet(rs);
 				bankAccountList.add(account);
 			}
+			DataAccessStatistics.recordAccountRead(bankAccountList.size());
 			return bankAccountList;
 		} catch (SQLException e) {
             log.log(Level.SEVERE, "Error reading accounts", e);
 			throw new DataException("Error reading accounts", e);
 		} finally {
             DbUtils.closeQuietly(rs);
-            DbUtils.closeQuietly(statement);
+            StatementCache.release(connection, SELECT_ALL, statement);
 		}
 	}
 
@@ -54,37 +88,89 @@ public class BankAccountAccessorH2Impl implements BankAccountAccessor {
         ResultSet rs = null;
         BankAccountTO account = null;
         try {
-            preparedStatement = connection.prepareStatement(SELECT_BY_ID);
+            preparedStatement = StatementCache.prepare(connection, SELECT_BY_ID);
             preparedStatement.setLong(1, accountId);
             rs = preparedStatement.executeQuery();
             if (rs.next()) {
                 account = createBankAccountFromResultSet(rs);
             }
+            DataAccessStatistics.recordAccountRead(account == null ? 0 : 1);
             return account;
         } catch (SQLException e) {
             log.log(Level.SEVERE, "Error fetching account:", e);
             throw new DataException("Error fetching account:", e);
         } finally {
             DbUtils.closeQuietly(rs);
-            DbUtils.closeQuietly(preparedStatement);
+            StatementCache.release(connection, SELECT_BY_ID, preparedStatement);
+        }
+    }
+
+    @Override
+    public List<BankAccountTO> getAccountsAfter(Connection connection, long afterAccountId, int limit) throws DataException {
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        List<BankAccountTO> accounts = new ArrayList<>(limit);
+        try {
+            statement = StatementCache.prepare(connection, SELECT_PAGE);
+            statement.setLong(1, afterAccountId);
+            statement.setInt(2, limit);
+            rs = statement.executeQuery();
+            while (rs.next()) {
+                accounts.add(createBankAccountFromResultSet(rs));
+            }
+            DataAccessStatistics.recordAccountRead(accounts.size());
+            return accounts;
+        } catch (SQLException e) {
+            log.log(Level.SEVERE, "Error reading accounts after:" + afterAccountId, e);
+            throw new DataException("Error reading accounts after:" + afterAccountId, e);
+        } finally {
+            DbUtils.closeQuietly(rs);
+            StatementCache.release(connection, SELECT_PAGE, statement);
         }
     }
 
     @Override
-    public int deposit(Connection connection, long accountId, BigDecimal amount) throws DataException {
+    public long streamAllAccounts(Connection connection, BankAccountRowHandler rowHandler) throws DataException {
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        long rowsRead = 0;
+        try {
+            //cached statements are forward only and read only
+            statement = StatementCache.prepare(connection, SELECT_ALL_ORDERED);
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            rs = statement.executeQuery();
+            while (rs.next()) {
+                rowHandler.handle(rs.getLong("BANK_ACCOUNT_ID"), rs.getLong("ACCOUNT_NUMBER"),
+                        rs.getString("ACCOUNT_NAME"), rs.getBigDecimal("BALANCE"));
+                rowsRead++;
+            }
+            return rowsRead;
+        } catch (Exception e) {
+            log.log(Level.SEVERE, "Error streaming accounts after " + rowsRead + " rows", e);
+            throw new DataException("Error streaming accounts after " + rowsRead + " rows", e);
+        } finally {
+            DataAccessStatistics.recordAccountRead((int) Math.min(rowsRead, Integer.MAX_VALUE));
+            DbUtils.closeQuietly(rs);
+            StatementCache.release(connection, SELECT_ALL_ORDERED, statement);
+        }
+    }
+
+    @Override
+    public int deposit(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
         int updateCount = 0;
         PreparedStatement lockStatement = null;
         PreparedStatement updateStatement = null;
         ResultSet rs = null;
         BankAccountTO account = null;
         try {
-            lockStatement = connection.prepareStatement(SELECT_FOR_UPDATE);
+            lockStatement = StatementCache.prepare(connection, SELECT_FOR_UPDATE);
             lockStatement.setLong(1, accountId);
-            log.log(Level.INFO, "###trying to lock deposit account:" + accountId);
+            log.log(Level.FINE, "###trying to lock deposit account:" + accountId);
             rs = lockStatement.executeQuery();
             if (rs.next()) {
                 account = createBankAccountFromResultSet(rs);
             }
+            DataAccessStatistics.recordAccountRead(account == null ? 0 : 1);
 
             if (Objects.isNull(account)) {
                 log.log(Level.SEVERE, "deposit() failed to lock account:" + accountId);
@@ -93,35 +179,39 @@ public class BankAccountAccessorH2Impl implements BankAccountAccessor {
 
             BigDecimal finalBalance = account.getBalance().add(amount);
 
-            updateStatement = connection.prepareStatement(UPDATE_BALANCE);
+            updateStatement = StatementCache.prepare(connection, UPDATE_BALANCE);
             updateStatement.setBigDecimal(1, finalBalance);
             updateStatement.setLong(2, accountId);
             updateCount = updateStatement.executeUpdate();
+            if (updateCount == 1) {
+                journalLeg(connection, transferId, account, amount, finalBalance);
+            }
             return updateCount;
         } catch (Exception e) {
             throw new DataException("deposit() Failed", e);
         } finally {
             DbUtils.closeQuietly(rs);
-            DbUtils.closeQuietly(lockStatement);
-            DbUtils.closeQuietly(updateStatement);
+            StatementCache.release(connection, SELECT_FOR_UPDATE, lockStatement);
+            StatementCache.release(connection, UPDATE_BALANCE, updateStatement);
         }
     }
 
     @Override
-    public int withdraw(Connection connection, long accountId, BigDecimal amount) throws DataException {
+    public int withdraw(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
         int updateCount = 0;
         PreparedStatement lockStatement = null;
         PreparedStatement updateStatement = null;
         ResultSet rs = null;
         BankAccountTO account = null;
         try {
-            lockStatement = connection.prepareStatement(SELECT_FOR_UPDATE);
+            lockStatement = StatementCache.prepare(connection, SELECT_FOR_UPDATE);
             lockStatement.setLong(1, accountId);
 //            log.log(Level.INFO, "###trying to lock withdrawal account:" + accountId);
             rs = lockStatement.executeQuery();
             if (rs.next()) {
                 account = createBankAccountFromResultSet(rs);
             }
+            DataAccessStatistics.recordAccountRead(account == null ? 0 : 1);
 
             if (Objects.isNull(account)) {
                 log.log(Level.SEVERE, "withdraw() failed to lock account:" + accountId);
@@ -129,27 +219,298 @@ public class BankAccountAccessorH2Impl implements BankAccountAccessor {
             }
 
             BigDecimal finalBalance = account.getBalance().subtract(amount);
-            if (finalBalance.longValue() < 0) {
+            if (finalBalance.signum() < 0) {
                 throw new DataException("No sufficient balance for account:" + accountId);
             }
 
-            updateStatement = connection.prepareStatement(UPDATE_BALANCE);
+            updateStatement = StatementCache.prepare(connection, UPDATE_BALANCE);
             updateStatement.setBigDecimal(1, finalBalance);
             updateStatement.setLong(2, accountId);
             updateCount = updateStatement.executeUpdate();
+            if (updateCount == 1) {
+                journalLeg(connection, transferId, account, amount.negate(), finalBalance);
+            }
             return updateCount;
         } catch (Exception e) {
             throw new DataException("withdraw() Failed", e);
         } finally {
             DbUtils.closeQuietly(rs);
-            DbUtils.closeQuietly(lockStatement);
-            DbUtils.closeQuietly(updateStatement);
+            StatementCache.release(connection, SELECT_FOR_UPDATE, lockStatement);
+            StatementCache.release(connection, UPDATE_BALANCE, updateStatement);
+        }
+    }
+
+    @Override
+    public int addToBalance(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        PreparedStatement updateStatement = null;
+        try {
+            updateStatement = StatementCache.prepare(connection, ADD_TO_BALANCE);
+            updateStatement.setBigDecimal(1, amount);
+            updateStatement.setLong(2, accountId);
+            int updateCount = updateStatement.executeUpdate();
+            if (updateCount == 1) {
+                journalAppliedChange(connection, transferId, accountId, amount);
+            }
+            return updateCount;
+        } catch (SQLException e) {
+            throw new DataException("addToBalance() Failed", e);
+        } finally {
+            StatementCache.release(connection, ADD_TO_BALANCE, updateStatement);
+        }
+    }
+
+    @Override
+    public int subtractFromBalanceIfSufficient(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        PreparedStatement updateStatement = null;
+        try {
+            updateStatement = StatementCache.prepare(connection, SUBTRACT_FROM_BALANCE);
+            updateStatement.setBigDecimal(1, amount);
+            updateStatement.setLong(2, accountId);
+            updateStatement.setBigDecimal(3, amount);
+            int updateCount = updateStatement.executeUpdate();
+            if (updateCount == 1) {
+                journalAppliedChange(connection, transferId, accountId, amount.negate());
+            }
+            return updateCount;
+        } catch (SQLException e) {
+            throw new DataException("subtractFromBalanceIfSufficient() Failed", e);
+        } finally {
+            StatementCache.release(connection, SUBTRACT_FROM_BALANCE, updateStatement);
+        }
+    }
+
+    @Override
+    public List<BankAccountTO> lockAccounts(Connection connection, long firstAccountId, long secondAccountId) throws DataException {
+        PreparedStatement lockStatement = null;
+        ResultSet rs = null;
+        List<BankAccountTO> accounts = new ArrayList<>(2);
+        try {
+            lockStatement = StatementCache.prepare(connection, SELECT_TWO_FOR_UPDATE);
+            lockStatement.setLong(1, firstAccountId);
+            lockStatement.setLong(2, secondAccountId);
+            rs = lockStatement.executeQuery();
+            while (rs.next()) {
+                accounts.add(createBankAccountFromResultSet(rs));
+            }
+            DataAccessStatistics.recordAccountRead(accounts.size());
+            return accounts;
+        } catch (SQLException e) {
+            throw new DataException("lockAccounts() Failed", e);
+        } finally {
+            DbUtils.closeQuietly(rs);
+            StatementCache.release(connection, SELECT_TWO_FOR_UPDATE, lockStatement);
         }
     }
 
+    @Override
+    public int[] updateBalances(Connection connection, long transferId, BankAccountTO firstAccount, BigDecimal firstBalance,
+                                BankAccountTO secondAccount, BigDecimal secondBalance) throws DataException {
+        PreparedStatement updateStatement = null;
+        try {
+            journalBalancesToSet(connection, transferId, firstAccount, firstBalance, secondAccount, secondBalance);
+            updateStatement = StatementCache.prepare(connection, UPDATE_BALANCE);
+            updateStatement.setBigDecimal(1, firstBalance);
+            updateStatement.setLong(2, firstAccount.getBankAccountId());
+            updateStatement.addBatch();
+            updateStatement.setBigDecimal(1, secondBalance);
+            updateStatement.setLong(2, secondAccount.getBankAccountId());
+            updateStatement.addBatch();
+            int[] updateCounts = updateStatement.executeBatch();
+            //as written, UPDATE_BALANCE moving the sequence on whether journaling or not
+            firstAccount.setBalance(firstBalance);
+            firstAccount.setJournalSequence(firstAccount.getJournalSequence() + 1);
+            secondAccount.setBalance(secondBalance);
+            secondAccount.setJournalSequence(secondAccount.getJournalSequence() + 1);
+            return updateCounts;
+        } catch (SQLException e) {
+            throw new DataException("updateBalances() Failed", e);
+        } finally {
+            StatementCache.release(connection, UPDATE_BALANCE, updateStatement);
+        }
+    }
+
+    @Override
+    public List<BankAccountTO> lockAccounts(Connection connection, long[] accountIds) throws DataException {
+        List<BankAccountTO> accounts = new ArrayList<>(accountIds.length);
+        //chunks hold ascending ids, so rows are still locked in ascending id order across statements
+        for (int from = 0; from < accountIds.length; from += MAX_IDS_PER_LOCK_STATEMENT) {
+            int count = Math.min(MAX_IDS_PER_LOCK_STATEMENT, accountIds.length - from);
+            int bucket = 32 - Integer.numberOfLeadingZeros(count - 1);
+            String sql = SELECT_MANY_FOR_UPDATE[bucket];
+            PreparedStatement lockStatement = null;
+            ResultSet rs = null;
+            int rowsRead = 0;
+            try {
+                lockStatement = StatementCache.prepare(connection, sql);
+                for (int i = 0; i < 1 << bucket; i++) {
+                    lockStatement.setLong(i + 1, accountIds[from + Math.min(i, count - 1)]);
+                }
+                rs = lockStatement.executeQuery();
+                while (rs.next()) {
+                    accounts.add(createBankAccountFromResultSet(rs));
+                    rowsRead++;
+                }
+                DataAccessStatistics.recordAccountRead(rowsRead);
+            } catch (SQLException e) {
+                throw new DataException("lockAccounts() Failed", e);
+            } finally {
+                DbUtils.closeQuietly(rs);
+                StatementCache.release(connection, sql, lockStatement);
+            }
+        }
+        return accounts;
+    }
+
+    @Override
+    public int[] updateBalances(Connection connection, List<JournalEntryTO> journalEntries, long[] accountIds, BigDecimal[] balances)
+            throws DataException {
+        if (!JOURNAL_ENABLED) {
+            return updateBalances(connection, accountIds, balances);
+        }
+        PreparedStatement updateStatement = null;
+        try {
+            Map<Long, Integer> entryCounts = journalEntries(connection, journalEntries);
+            updateStatement = StatementCache.prepare(connection, UPDATE_BALANCE_AND_SEQUENCE);
+            for (int i = 0; i < accountIds.length; i++) {
+                updateStatement.setBigDecimal(1, balances[i]);
+                updateStatement.setInt(2, entryCounts.getOrDefault(accountIds[i], 0));
+                updateStatement.setLong(3, accountIds[i]);
+                updateStatement.addBatch();
+            }
+            return updateStatement.executeBatch();
+        } catch (SQLException e) {
+            throw new DataException("updateBalances() Failed", e);
+        } finally {
+            StatementCache.release(connection, UPDATE_BALANCE_AND_SEQUENCE, updateStatement);
+        }
+    }
+
+    private int[] updateBalances(Connection connection, long[] accountIds, BigDecimal[] balances) throws DataException {
+        PreparedStatement updateStatement = null;
+        try {
+            updateStatement = StatementCache.prepare(connection, UPDATE_BALANCE);
+            for (int i = 0; i < accountIds.length; i++) {
+                updateStatement.setBigDecimal(1, balances[i]);
+                updateStatement.setLong(2, accountIds[i]);
+                updateStatement.addBatch();
+            }
+            return updateStatement.executeBatch();
+        } catch (SQLException e) {
+            throw new DataException("updateBalances() Failed", e);
+        } finally {
+            StatementCache.release(connection, UPDATE_BALANCE, updateStatement);
+        }
+    }
+
+    /*
+        one batch of plain inserts for all the legs, the callers knowing the sequences from the locked rows
+     */
+    private Map<Long, Integer> journalEntries(Connection connection, List<JournalEntryTO> journalEntries) throws SQLException {
+        Map<Long, Integer> entryCounts = new HashMap<>();
+        PreparedStatement journalStatement = null;
+        try {
+            journalStatement = StatementCache.prepare(connection, JOURNAL_LEG);
+            for (JournalEntryTO journalEntry : journalEntries) {
+                entryCounts.merge(journalEntry.getBankAccountId(), 1, Integer::sum);
+                setJournalLeg(journalStatement, journalEntry.getTransferId(), journalEntry.getBankAccountId(),
+                        journalEntry.getAccountSequence(), journalEntry.getAmount(), journalEntry.getBalance());
+                journalStatement.addBatch();
+            }
+            journalStatement.executeBatch();
+        } finally {
+            StatementCache.release(connection, JOURNAL_LEG, journalStatement);
+        }
+        return entryCounts;
+    }
+
+    /*
+        journals the change of a row read and locked by the caller, as the next entry of the account
+     */
+    private void journalLeg(Connection connection, long transferId, BankAccountTO account, BigDecimal signedAmount,
+                            BigDecimal balance) throws SQLException {
+        if (!JOURNAL_ENABLED) {
+            return;
+        }
+        PreparedStatement journalStatement = null;
+        try {
+            journalStatement = StatementCache.prepare(connection, JOURNAL_LEG);
+            setJournalLeg(journalStatement, transferId, account.getBankAccountId(), account.getJournalSequence() + 1,
+                    signedAmount, balance);
+            journalStatement.executeUpdate();
+        } finally {
+            StatementCache.release(connection, JOURNAL_LEG, journalStatement);
+        }
+    }
+
+    private static void setJournalLeg(PreparedStatement journalStatement, long transferId, long accountId, long accountSequence,
+                                      BigDecimal signedAmount, BigDecimal balance) throws SQLException {
+        journalStatement.setLong(1, transferId);
+        journalStatement.setLong(2, accountId);
+        journalStatement.setLong(3, accountSequence);
+        journalStatement.setBigDecimal(4, signedAmount);
+        journalStatement.setBigDecimal(5, balance);
+    }
+
+    private void journalAppliedChange(Connection connection, long transferId, long accountId, BigDecimal signedAmount) throws SQLException {
+        if (!JOURNAL_ENABLED) {
+            return;
+        }
+        PreparedStatement journalStatement = null;
+        try {
+            journalStatement = StatementCache.prepare(connection, JOURNAL_APPLIED_CHANGE);
+            journalStatement.setLong(1, transferId);
+            journalStatement.setBigDecimal(2, signedAmount);
+            journalStatement.setLong(3, accountId);
+            journalStatement.executeUpdate();
+        } finally {
+            StatementCache.release(connection, JOURNAL_APPLIED_CHANGE, journalStatement);
+        }
+    }
+
+    /*
+        one batch for both accounts, the amounts and sequences following from the rows the caller read
+     */
+    private void journalBalancesToSet(Connection connection, long transferId, BankAccountTO firstAccount, BigDecimal firstBalance,
+                                      BankAccountTO secondAccount, BigDecimal secondBalance) throws SQLException {
+        if (!JOURNAL_ENABLED) {
+            return;
+        }
+        PreparedStatement journalStatement = null;
+        try {
+            journalStatement = StatementCache.prepare(connection, JOURNAL_LEG);
+            setJournalLeg(journalStatement, transferId, firstAccount.getBankAccountId(), firstAccount.getJournalSequence() + 1,
+                    firstBalance.subtract(firstAccount.getBalance()), firstBalance);
+            journalStatement.addBatch();
+            setJournalLeg(journalStatement, transferId, secondAccount.getBankAccountId(), secondAccount.getJournalSequence() + 1,
+                    secondBalance.subtract(secondAccount.getBalance()), secondBalance);
+            journalStatement.addBatch();
+            journalStatement.executeBatch();
+        } finally {
+            StatementCache.release(connection, JOURNAL_LEG, journalStatement);
+        }
+    }
+
+    private static String[] createSelectManyForUpdate() {
+        int buckets = 32 - Integer.numberOfLeadingZeros(MAX_IDS_PER_LOCK_STATEMENT - 1) + 1;
+        String[] statements = new String[buckets];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            StringBuilder sql = new StringBuilder("SELECT * FROM BANK_ACCOUNT WHERE BANK_ACCOUNT_ID IN (?");
+            for (int i = 1; i < 1 << bucket; i++) {
+                sql.append(", ?");
+            }
+            statements[bucket] = sql.append(") ORDER BY BANK_ACCOUNT_ID FOR UPDATE").toString();
+        }
+        return statements;
+    }
+
+    private static int getIntConfigValue(String key, int defaultValue) {
+        String value = ConnectionHelper.getConfigValue(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
     private BankAccountTO createBankAccountFromResultSet(ResultSet rs) throws SQLException {
         return new BankAccountTO(rs.getLong("BANK_ACCOUNT_ID"), rs.getLong("ACCOUNT_NUMBER"),
-                rs.getString("ACCOUNT_NAME"), rs.getBigDecimal("BALANCE"));
+                rs.getString("ACCOUNT_NAME"), rs.getBigDecimal("BALANCE"), rs.getLong("JOURNAL_SEQUENCE"));
     }
 
 }
@@ -0,0 +1,83 @@
+package com.revolut.core.fundstransfer.persist.impl;
+
+import com.revolut.core.fundstransfer.persist.accessor.IdempotencyKeyAccessor;
+import com.revolut.core.fundstransfer.persist.conn.StatementCache;
+import com.revolut.core.fundstransfer.persist.exception.DataException;
+import com.revolut.core.fundstransfer.persist.to.IdempotencyKeyTO;
+import org.apache.commons.dbutils.DbUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class IdempotencyKeyAccessorH2Impl implements IdempotencyKeyAccessor {
+
+    private static Logger log = Logger.getLogger(IdempotencyKeyAccessorH2Impl.class.getName());
+
+    private static final String INSERT_KEY = "INSERT INTO IDEMPOTENCY_KEY (IDEMPOTENCY_KEY, OPERATION, REQUEST_HASH, CREATED_AT) VALUES (?, ?, ?, CURRENT_TIMESTAMP())";
+    private static final String SELECT_BY_KEY = "SELECT * FROM IDEMPOTENCY_KEY WHERE IDEMPOTENCY_KEY = ?";
+    private static final String UPDATE_RESULT = "UPDATE IDEMPOTENCY_KEY SET RESULT = ? WHERE IDEMPOTENCY_KEY = ?";
+    //org.h2.api.ErrorCode.DUPLICATE_KEY_1
+    private static final int DUPLICATE_KEY_ERROR_CODE = 23505;
+
+    @Override
+    public boolean insertKey(Connection connection, String idempotencyKey, String operation, String requestHash) throws DataException {
+        PreparedStatement statement = null;
+        try {
+            statement = StatementCache.prepare(connection, INSERT_KEY);
+            statement.setString(1, idempotencyKey);
+            statement.setString(2, operation);
+            statement.setString(3, requestHash);
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            if (e.getErrorCode() == DUPLICATE_KEY_ERROR_CODE) {
+                return false;
+            }
+            log.log(Level.SEVERE, "Error claiming idempotency key:" + idempotencyKey, e);
+            throw new DataException("Error claiming idempotency key:" + idempotencyKey, e);
+        } finally {
+            StatementCache.release(connection, INSERT_KEY, statement);
+        }
+    }
+
+    @Override
+    public IdempotencyKeyTO getKey(Connection connection, String idempotencyKey) throws DataException {
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            statement = StatementCache.prepare(connection, SELECT_BY_KEY);
+            statement.setString(1, idempotencyKey);
+            rs = statement.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            return new IdempotencyKeyTO(rs.getString("IDEMPOTENCY_KEY"), rs.getString("OPERATION"), rs.getString("REQUEST_HASH"),
+                    rs.getBytes("RESULT"));
+        } catch (SQLException e) {
+            log.log(Level.SEVERE, "Error reading idempotency key:" + idempotencyKey, e);
+            throw new DataException("Error reading idempotency key:" + idempotencyKey, e);
+        } finally {
+            DbUtils.closeQuietly(rs);
+            StatementCache.release(connection, SELECT_BY_KEY, statement);
+        }
+    }
+
+    @Override
+    public int updateResult(Connection connection, String idempotencyKey, byte[] result) throws DataException {
+        PreparedStatement statement = null;
+        try {
+            statement = StatementCache.prepare(connection, UPDATE_RESULT);
+            statement.setBytes(1, result);
+            statement.setString(2, idempotencyKey);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            log.log(Level.SEVERE, "Error saving the result of idempotency key:" + idempotencyKey, e);
+            throw new DataException("Error saving the result of idempotency key:" + idempotencyKey, e);
+        } finally {
+            StatementCache.release(connection, UPDATE_RESULT, statement);
+        }
+    }
+}
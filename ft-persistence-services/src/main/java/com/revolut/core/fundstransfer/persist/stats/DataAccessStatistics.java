@@ -0,0 +1,41 @@
+package com.revolut.core.fundstransfer.persist.stats;
+
+import com.revolut.core.fundstransfer.metrics.MetricsRegistry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process wide counters of the account reads done by the accessors, cheap enough to be always on.
+ * Tests and benchmarks compare the counters before and after an operation to verify how many reads it costs.
+ */
+public class DataAccessStatistics {
+
+    private static final LongAdder accountReadStatements = new LongAdder();
+    private static final LongAdder accountRowsRead = new LongAdder();
+
+    static {
+        MetricsRegistry.getInstance().counter("ft_account_read_statements_total", "Statements reading account rows, with or without locking them",
+                DataAccessStatistics::getAccountReadStatements);
+        MetricsRegistry.getInstance().counter("ft_account_rows_read_total", "Account rows read by all the statements",
+                DataAccessStatistics::getAccountRowsRead);
+    }
+
+    public static void recordAccountRead(int rowsRead) {
+        accountReadStatements.increment();
+        accountRowsRead.add(rowsRead);
+    }
+
+    /**
+     * @return number of statements reading account rows, with or without locking them
+     */
+    public static long getAccountReadStatements() {
+        return accountReadStatements.sum();
+    }
+
+    /**
+     * @return number of account rows read by all the statements
+     */
+    public static long getAccountRowsRead() {
+        return accountRowsRead.sum();
+    }
+}
@@ -0,0 +1,221 @@
+package com.revolut.core.fundstransfer.persist.stats;
+
+import com.revolut.core.fundstransfer.metrics.Counter;
+import com.revolut.core.fundstransfer.metrics.LatencyHistogram;
+import com.revolut.core.fundstransfer.metrics.MetricsRegistry;
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountAccessor;
+import com.revolut.core.fundstransfer.persist.accessor.BankAccountRowHandler;
+import com.revolut.core.fundstransfer.persist.exception.DataException;
+import com.revolut.core.fundstransfer.persist.to.BankAccountTO;
+import com.revolut.core.fundstransfer.persist.to.JournalEntryTO;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Records the duration and the failures of every call to the wrapped accessor, i.e. of its SQL statements, under the name of
+ * the call. Overloads share their metrics. A streamed export includes the time spent by the row handler.
+ */
+public class TimedBankAccountAccessor implements BankAccountAccessor {
+
+    private final BankAccountAccessor bankAccountAccessor;
+    private final CallMetrics getAllAccounts = new CallMetrics("getAllAccounts");
+    private final CallMetrics getAccount = new CallMetrics("getAccount");
+    private final CallMetrics streamAllAccounts = new CallMetrics("streamAllAccounts");
+    private final CallMetrics getAccountsAfter = new CallMetrics("getAccountsAfter");
+    private final CallMetrics deposit = new CallMetrics("deposit");
+    private final CallMetrics withdraw = new CallMetrics("withdraw");
+    private final CallMetrics addToBalance = new CallMetrics("addToBalance");
+    private final CallMetrics subtractFromBalanceIfSufficient = new CallMetrics("subtractFromBalanceIfSufficient");
+    private final CallMetrics lockAccounts = new CallMetrics("lockAccounts");
+    private final CallMetrics updateBalances = new CallMetrics("updateBalances");
+
+    public TimedBankAccountAccessor(BankAccountAccessor bankAccountAccessor) {
+        this.bankAccountAccessor = bankAccountAccessor;
+    }
+
+    @Override
+    public boolean isJournalEnabled() {
+        return bankAccountAccessor.isJournalEnabled();
+    }
+
+    @Override
+    public List<BankAccountTO> getAllAccounts(Connection connection) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            List<BankAccountTO> accounts = bankAccountAccessor.getAllAccounts(connection);
+            isSuccessful = true;
+            return accounts;
+        } finally {
+            getAllAccounts.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public BankAccountTO getAccount(Connection connection, long accountId) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            BankAccountTO account = bankAccountAccessor.getAccount(connection, accountId);
+            isSuccessful = true;
+            return account;
+        } finally {
+            getAccount.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public long streamAllAccounts(Connection connection, BankAccountRowHandler rowHandler) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            long rows = bankAccountAccessor.streamAllAccounts(connection, rowHandler);
+            isSuccessful = true;
+            return rows;
+        } finally {
+            streamAllAccounts.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public List<BankAccountTO> getAccountsAfter(Connection connection, long afterAccountId, int limit) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            List<BankAccountTO> accounts = bankAccountAccessor.getAccountsAfter(connection, afterAccountId, limit);
+            isSuccessful = true;
+            return accounts;
+        } finally {
+            getAccountsAfter.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public int deposit(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            int updateCount = bankAccountAccessor.deposit(connection, transferId, accountId, amount);
+            isSuccessful = true;
+            return updateCount;
+        } finally {
+            deposit.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public int withdraw(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            int updateCount = bankAccountAccessor.withdraw(connection, transferId, accountId, amount);
+            isSuccessful = true;
+            return updateCount;
+        } finally {
+            withdraw.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public int addToBalance(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            int updateCount = bankAccountAccessor.addToBalance(connection, transferId, accountId, amount);
+            isSuccessful = true;
+            return updateCount;
+        } finally {
+            addToBalance.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public int subtractFromBalanceIfSufficient(Connection connection, long transferId, long accountId, BigDecimal amount) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            int updateCount = bankAccountAccessor.subtractFromBalanceIfSufficient(connection, transferId, accountId, amount);
+            isSuccessful = true;
+            return updateCount;
+        } finally {
+            subtractFromBalanceIfSufficient.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public List<BankAccountTO> lockAccounts(Connection connection, long firstAccountId, long secondAccountId) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            List<BankAccountTO> accounts = bankAccountAccessor.lockAccounts(connection, firstAccountId, secondAccountId);
+            isSuccessful = true;
+            return accounts;
+        } finally {
+            lockAccounts.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public int[] updateBalances(Connection connection, long transferId, BankAccountTO firstAccount, BigDecimal firstBalance,
+                                BankAccountTO secondAccount, BigDecimal secondBalance) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            int[] updateCounts = bankAccountAccessor.updateBalances(connection, transferId, firstAccount, firstBalance,
+                    secondAccount, secondBalance);
+            isSuccessful = true;
+            return updateCounts;
+        } finally {
+            updateBalances.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public List<BankAccountTO> lockAccounts(Connection connection, long[] accountIds) throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            List<BankAccountTO> accounts = bankAccountAccessor.lockAccounts(connection, accountIds);
+            isSuccessful = true;
+            return accounts;
+        } finally {
+            lockAccounts.record(startNanos, isSuccessful);
+        }
+    }
+
+    @Override
+    public int[] updateBalances(Connection connection, List<JournalEntryTO> journalEntries, long[] accountIds, BigDecimal[] balances)
+            throws DataException {
+        long startNanos = System.nanoTime();
+        boolean isSuccessful = false;
+        try {
+            int[] updateCounts = bankAccountAccessor.updateBalances(connection, journalEntries, accountIds, balances);
+            isSuccessful = true;
+            return updateCounts;
+        } finally {
+            updateBalances.record(startNanos, isSuccessful);
+        }
+    }
+
+    private static class CallMetrics {
+
+        private final LatencyHistogram durations;
+        private final Counter failures;
+
+        CallMetrics(String call) {
+            durations = MetricsRegistry.getInstance().histogram("ft_sql_call_seconds",
+                    "Duration of the calls to the bank account accessor, i.e. of their SQL statements", "call", call);
+            failures = MetricsRegistry.getInstance().counter("ft_sql_call_failures_total",
+                    "Calls to the bank account accessor ending with an exception", "call", call);
+        }
+
+        void record(long startNanos, boolean isSuccessful) {
+            durations.recordSince(startNanos);
+            if (!isSuccessful) {
+                failures.increment();
+            }
+        }
+    }
+}
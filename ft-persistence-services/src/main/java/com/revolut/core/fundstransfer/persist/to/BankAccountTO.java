@@ -12,6 +12,9 @@ public class BankAccountTO {
 
     private BigDecimal balance;
 
+    //sequence of the last journal entry of the account, as read with the row
+    private long journalSequence;
+
     public BankAccountTO() {
     }
 
@@ -22,6 +25,11 @@ public class BankAccountTO {
         this.balance = balance;
     }
 
+    public BankAccountTO(Long bankAccountId, Long accountNumber, String accountName, BigDecimal balance, long journalSequence) {
+        this(bankAccountId, accountNumber, accountName, balance);
+        this.journalSequence = journalSequence;
+    }
+
     public Long getBankAccountId() {
         return bankAccountId;
     }
@@ -53,4 +61,12 @@ public class BankAccountTO {
     public void setBalance(BigDecimal balance) {
         this.balance = balance;
     }
+
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public void setJournalSequence(long journalSequence) {
+        this.journalSequence = journalSequence;
+    }
 }
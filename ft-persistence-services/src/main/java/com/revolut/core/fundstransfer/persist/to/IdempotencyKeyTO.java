@@ -0,0 +1,57 @@
+package com.revolut.core.fundstransfer.persist.to;
+
+public class IdempotencyKeyTO {
+
+    private String idempotencyKey;
+
+    private String operation;
+
+    private String requestHash;
+
+    private byte[] result;
+
+    public IdempotencyKeyTO() {
+    }
+
+    public IdempotencyKeyTO(String idempotencyKey, String operation, String requestHash, byte[] result) {
+        this.idempotencyKey = idempotencyKey;
+        this.operation = operation;
+        this.requestHash = requestHash;
+        this.result = result;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    /**
+     * @return the serialized result of the operation, null for an operation without result
+     */
+    public byte[] getResult() {
+        return result;
+    }
+
+    public void setResult(byte[] result) {
+        this.result = result;
+    }
+}
@@ -0,0 +1,72 @@
+package com.revolut.core.fundstransfer.persist.to;
+
+import java.math.BigDecimal;
+
+/**
+ * A leg of a transfer to be journaled in TRANSFER_JOURNAL: the signed amount it changed the balance of the account by,
+ * the balance it left and its sequence among the legs of the account, the JOURNAL_SEQUENCE of the locked row plus one for
+ * the first leg of a write.
+ */
+public class JournalEntryTO {
+
+    private long transferId;
+
+    private long bankAccountId;
+
+    private long accountSequence;
+
+    private BigDecimal amount;
+
+    private BigDecimal balance;
+
+    public JournalEntryTO() {
+    }
+
+    public JournalEntryTO(long transferId, long bankAccountId, long accountSequence, BigDecimal amount, BigDecimal balance) {
+        this.transferId = transferId;
+        this.bankAccountId = bankAccountId;
+        this.accountSequence = accountSequence;
+        this.amount = amount;
+        this.balance = balance;
+    }
+
+    public long getTransferId() {
+        return transferId;
+    }
+
+    public void setTransferId(long transferId) {
+        this.transferId = transferId;
+    }
+
+    public long getBankAccountId() {
+        return bankAccountId;
+    }
+
+    public void setBankAccountId(long bankAccountId) {
+        this.bankAccountId = bankAccountId;
+    }
+
+    public long getAccountSequence() {
+        return accountSequence;
+    }
+
+    public void setAccountSequence(long accountSequence) {
+        this.accountSequence = accountSequence;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,148 @@
+package com.revolut.core.fundstransfer.persist.conn;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of the reuse and the eviction of the prepared statements of a connection, on an in memory H2 DB
+ */
+public class StatementCacheTest {
+
+    private static final String FIRST_SQL = "SELECT 1";
+    private static final String SECOND_SQL = "SELECT 2";
+    private static final String THIRD_SQL = "SELECT 3";
+
+    private Connection connection;
+
+    @Before
+    public void openConnection() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:statement-cache-test");
+        StatementCache.bind(connection, 2);
+    }
+
+    @After
+    public void closeConnection() throws SQLException {
+        StatementCache.unbind(connection);
+        connection.close();
+    }
+
+    @Test
+    public void testStatementIsReusedOnceReleased() throws SQLException {
+        PreparedStatement statement = StatementCache.prepare(connection, FIRST_SQL);
+        StatementCache.release(connection, FIRST_SQL, statement);
+
+        assertSame(statement, StatementCache.prepare(connection, FIRST_SQL));
+        assertEquals(1, StatementCache.of(connection).getHits());
+        assertEquals(1, StatementCache.of(connection).getMisses());
+    }
+
+    @Test
+    public void testBorrowedStatementIsNeverShared() throws SQLException {
+        PreparedStatement statement = StatementCache.prepare(connection, FIRST_SQL);
+
+        PreparedStatement concurrentStatement = StatementCache.prepare(connection, FIRST_SQL);
+        assertNotSame(statement, concurrentStatement);
+        assertFalse(StatementCache.of(connection).isIdle());
+
+        StatementCache.release(connection, FIRST_SQL, statement);
+        StatementCache.release(connection, FIRST_SQL, concurrentStatement);
+        assertTrue(StatementCache.of(connection).isIdle());
+        //only one of them is kept, the other one is closed
+        assertEquals(1, StatementCache.of(connection).size());
+        assertTrue(statement.isClosed());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedStatementIsEvicted() throws SQLException {
+        PreparedStatement first = borrowAndRelease(FIRST_SQL);
+        PreparedStatement second = borrowAndRelease(SECOND_SQL);
+        //first becomes the most recently used one
+        assertSame(first, borrowAndRelease(FIRST_SQL));
+        PreparedStatement third = borrowAndRelease(THIRD_SQL);
+
+        assertEquals(2, StatementCache.of(connection).size());
+        assertTrue(second.isClosed());
+        assertFalse(first.isClosed());
+        assertFalse(third.isClosed());
+    }
+
+    @Test
+    public void testReleasedStatementParametersAreCleared() throws SQLException {
+        String sql = "SELECT CAST(? AS INT)";
+        PreparedStatement statement = StatementCache.prepare(connection, sql);
+        statement.setInt(1, 42);
+        StatementCache.release(connection, sql, statement);
+
+        PreparedStatement reused = StatementCache.prepare(connection, sql);
+        assertSame(statement, reused);
+        try {
+            reused.executeQuery();
+            throw new AssertionError("parameter still set after release");
+        } catch (SQLException e) {
+            //expected, the parameter is not set
+        } finally {
+            StatementCache.release(connection, sql, reused);
+        }
+    }
+
+    @Test
+    public void testUnbindClosesStatements() throws SQLException {
+        PreparedStatement statement = borrowAndRelease(FIRST_SQL);
+        StatementCache.unbind(connection);
+
+        assertTrue(statement.isClosed());
+        assertNull(StatementCache.of(connection));
+    }
+
+    @Test
+    public void testConnectionWithoutCacheClosesStatements() throws SQLException {
+        StatementCache.unbind(connection);
+        PreparedStatement statement = StatementCache.prepare(connection, FIRST_SQL);
+        StatementCache.release(connection, FIRST_SQL, statement);
+
+        assertTrue(statement.isClosed());
+    }
+
+    @Test
+    public void testDeadlineIsTheQueryTimeoutOfBorrowedStatements() throws SQLException {
+        StatementCache.setDeadline(connection, System.nanoTime() + TimeUnit.SECONDS.toNanos(5));
+        PreparedStatement statement = StatementCache.prepare(connection, FIRST_SQL);
+        int queryTimeoutSeconds = statement.getQueryTimeout();
+        StatementCache.release(connection, FIRST_SQL, statement);
+        StatementCache.clearDeadline(connection);
+        assertTrue(queryTimeoutSeconds >= 1 && queryTimeoutSeconds <= 5);
+
+        //the timeout is reset when the statement comes back
+        PreparedStatement reused = StatementCache.prepare(connection, FIRST_SQL);
+        assertSame(statement, reused);
+        assertEquals(0, reused.getQueryTimeout());
+        StatementCache.release(connection, FIRST_SQL, reused);
+    }
+
+    @Test(expected = SQLTimeoutException.class)
+    public void testElapsedDeadlineFailsBorrow() throws SQLException {
+        StatementCache.setDeadline(connection, System.nanoTime() - 1);
+        StatementCache.prepare(connection, FIRST_SQL);
+    }
+
+    private PreparedStatement borrowAndRelease(String sql) throws SQLException {
+        PreparedStatement statement = StatementCache.prepare(connection, sql);
+        StatementCache.release(connection, sql, statement);
+        return statement;
+    }
+}
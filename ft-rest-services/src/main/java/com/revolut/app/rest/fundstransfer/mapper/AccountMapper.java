@@ -1,8 +1,12 @@
 package com.revolut.app.rest.fundstransfer.mapper;
 
 import com.revolut.app.rest.fundstransfer.model.Account;
+import com.revolut.app.rest.fundstransfer.model.AccountPage;
+import com.revolut.sdk.fundstransfer.model.AccountPageVO;
 import com.revolut.sdk.fundstransfer.model.AccountVO;
 
+import java.util.stream.Collectors;
+
 public class AccountMapper {
 
     public static Account convertFromVO(AccountVO accountVO) {
@@ -13,4 +17,13 @@ public class AccountMapper {
         account.setBalance(accountVO.getBalance());
         return account;
     }
+
+    public static AccountPage convertFromVO(AccountPageVO accountPageVO) {
+        AccountPage accountPage = new AccountPage();
+        accountPage.setAccounts(accountPageVO.getAccounts().stream()
+                .map(AccountMapper::convertFromVO)
+                .collect(Collectors.toList()));
+        accountPage.setNextAfterId(accountPageVO.getNextAfterAccountId());
+        return accountPage;
+    }
 }
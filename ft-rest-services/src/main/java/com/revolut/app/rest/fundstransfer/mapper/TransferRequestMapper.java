@@ -6,6 +6,10 @@ import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
 public class TransferRequestMapper {
 
     public static TransferRequestVO convertIntoVO(TransferRequest transferRequest){
+        if (transferRequest == null) {
+            //rejected by the service validation
+            return null;
+        }
         TransferRequestVO transferRequestVO = new TransferRequestVO();
         transferRequestVO.setSourceAccountId(transferRequest.getSourceAccountId());
         transferRequestVO.setDestinationAccountId(transferRequest.getDestinationAccountId());
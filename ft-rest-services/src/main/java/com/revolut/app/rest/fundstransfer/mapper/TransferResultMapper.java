@@ -0,0 +1,16 @@
+package com.revolut.app.rest.fundstransfer.mapper;
+
+import com.revolut.app.rest.fundstransfer.model.TransferResult;
+import com.revolut.sdk.fundstransfer.model.TransferResultVO;
+
+public class TransferResultMapper {
+
+    public static TransferResult convertFromVO(TransferResultVO transferResultVO, int indexOffset) {
+        TransferResult transferResult = new TransferResult();
+        transferResult.setIndex(indexOffset + transferResultVO.getIndex());
+        transferResult.setStatus(transferResultVO.getStatus().name());
+        transferResult.setErrorCode(transferResultVO.getReasonCode());
+        transferResult.setErrorMessage(transferResultVO.getMessage());
+        return transferResult;
+    }
+}
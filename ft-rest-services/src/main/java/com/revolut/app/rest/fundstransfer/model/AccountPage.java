@@ -0,0 +1,29 @@
+package com.revolut.app.rest.fundstransfer.model;
+
+import java.util.List;
+
+public class AccountPage {
+
+    private List<Account> accounts;
+
+    private Long nextAfterId;
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(List<Account> accounts) {
+        this.accounts = accounts;
+    }
+
+    /**
+     * @return the afterId to request the next page with, null on the last page
+     */
+    public Long getNextAfterId() {
+        return nextAfterId;
+    }
+
+    public void setNextAfterId(Long nextAfterId) {
+        this.nextAfterId = nextAfterId;
+    }
+}
@@ -0,0 +1,49 @@
+package com.revolut.app.rest.fundstransfer.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.revolut.sdk.fundstransfer.services.AccountExportHandler;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+
+/**
+ * Writes exported accounts as newline delimited JSON, one account object per line with the fields of
+ * {@link com.revolut.app.rest.fundstransfer.model.Account}. Each account is written through the buffered generator as it
+ * arrives, nothing is collected. Every complete account ends with a newline, so a line without one was cut short.
+ */
+public class AccountExportWriter implements AccountExportHandler, Flushable {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final JsonFactory jsonFactory = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final JsonGenerator generator;
+
+    public AccountExportWriter(OutputStream outputStream) throws IOException {
+        this.generator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8);
+    }
+
+    @Override
+    public void onAccount(long accountId, long accountNumber, String accountName, BigDecimal balance) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("accountId", accountId);
+        generator.writeNumberField("accountNumber", accountNumber);
+        generator.writeStringField("accountName", accountName);
+        generator.writeNumberField("balance", balance);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Flushes the buffered accounts to the output stream, which is left open.
+     */
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+}
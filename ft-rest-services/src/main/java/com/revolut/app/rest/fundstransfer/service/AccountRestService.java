@@ -6,16 +6,22 @@ import com.revolut.app.rest.fundstransfer.model.TransactionRequest;
 import com.revolut.core.fundstransfer.gateway.ServicesGateway;
 import com.revolut.sdk.fundstransfer.services.AccountService;
 import com.revolut.sdk.fundstransfer.exception.ServiceException;
+import com.revolut.sdk.fundstransfer.model.AccountPageVO;
 import com.revolut.sdk.fundstransfer.model.AccountVO;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.List;
+import javax.ws.rs.core.StreamingOutput;
 
 @Path("/account")
 @Produces(MediaType.APPLICATION_JSON)
@@ -25,36 +31,77 @@ public class AccountRestService {
         propagate through service gateway to delegate the call to core business layer
      */
     private final ServicesGateway servicesGateway = ServicesGateway.getServicesGateway();
+    private final AsyncServiceExecutor asyncServiceExecutor = AsyncServiceExecutor.getInstance();
 
+    /*
+        a page of accounts keyset paginated on the account id along with the afterId of the next page, the first page of
+        the default size without any parameter. Every account at once is only served by the export
+     */
     @GET
     @Path("/list")
-    public List<Account> getAllAccounts() throws ServiceException {
-        return (List) servicesGateway.pass(AccountService.class, "getAllAccounts");
+    public void getAllAccounts(@QueryParam("afterId") Long afterId, @QueryParam("limit") Integer limit,
+                               @Suspended AsyncResponse asyncResponse) {
+        asyncServiceExecutor.read(asyncResponse, () -> AccountMapper.convertFromVO((AccountPageVO) servicesGateway.pass(
+                AccountService.class, "getAccountsPage", afterId, limit == null ? AccountService.DEFAULT_PAGE_LIMIT : limit)));
     }
 
+    /*
+        every account as newline delimited JSON, streamed from the database to the response while being read by a thread
+        of the export pool. The status is sent with the first accounts, a failure afterwards can only cut the export short
+     */
     @GET
-    @Path("/{accountId}")
-    public Account getAccount(@PathParam("accountId") long accountId) throws ServiceException {
-
-        //calling below for ServiceGateway testing purpose, should be ignored
-        AccountMapper.convertFromVO((AccountVO) servicesGateway.pass(AccountService.class, "getAccount", accountId, true));
+    @Path("/export")
+    @Produces(AccountExportWriter.MEDIA_TYPE)
+    public void exportAccounts(@Suspended AsyncResponse asyncResponse) {
+        StreamingOutput export = outputStream -> {
+            AccountExportWriter exportWriter = new AccountExportWriter(outputStream);
+            try {
+                servicesGateway.pass(AccountService.class, "exportAccounts", exportWriter);
+            } catch (ServiceException e) {
+                throw new WebApplicationException(e);
+            }
+            exportWriter.flush();
+        };
+        asyncServiceExecutor.export(asyncResponse, () -> Response.ok(export, AccountExportWriter.MEDIA_TYPE).build());
+    }
 
-        return AccountMapper.convertFromVO((AccountVO) servicesGateway.pass(AccountService.class, "getAccount", accountId));
+    @GET
+    @Path("/{accountId}")
+    public void getAccount(@PathParam("accountId") long accountId, @Suspended AsyncResponse asyncResponse) {
+        asyncServiceExecutor.read(asyncResponse, () -> getAccount(accountId));
     }
 
+    /*
+        a request repeating the Idempotency-Key header of a completed withdrawal or deposit is answered as the completed one,
+        without withdrawing or depositing again
+     */
     @POST
     @Path("/withdraw")
-    public Response withdrawFromAccount(TransactionRequest transactionRequest) throws ServiceException {
-        servicesGateway.pass(
-                AccountService.class, "withdrawFromAccount", transactionRequest.getAccountId(), transactionRequest.getTransactionAmount());
-        return Response.status(Response.Status.OK).build();
+    public void withdrawFromAccount(TransactionRequest transactionRequest, @HeaderParam("Idempotency-Key") String idempotencyKey,
+                                    @Suspended AsyncResponse asyncResponse) {
+        asyncServiceExecutor.write(asyncResponse, () -> {
+            servicesGateway.passIdempotent(idempotencyKey,
+                    AccountService.class, "withdrawFromAccount", transactionRequest.getAccountId(), transactionRequest.getTransactionAmount());
+            return Response.status(Response.Status.OK).build();
+        });
     }
 
     @POST
     @Path("/deposit")
-    public Response depositToAccount(TransactionRequest transactionRequest) throws ServiceException {
-        servicesGateway.pass(
-                AccountService.class, "depositToAccount", transactionRequest.getAccountId(), transactionRequest.getTransactionAmount());
-        return Response.status(Response.Status.OK).build();
+    public void depositToAccount(TransactionRequest transactionRequest, @HeaderParam("Idempotency-Key") String idempotencyKey,
+                                 @Suspended AsyncResponse asyncResponse) {
+        asyncServiceExecutor.write(asyncResponse, () -> {
+            servicesGateway.passIdempotent(idempotencyKey,
+                    AccountService.class, "depositToAccount", transactionRequest.getAccountId(), transactionRequest.getTransactionAmount());
+            return Response.status(Response.Status.OK).build();
+        });
+    }
+
+    private Account getAccount(long accountId) throws ServiceException {
+
+        //calling below for ServiceGateway testing purpose, should be ignored
+        AccountMapper.convertFromVO((AccountVO) servicesGateway.pass(AccountService.class, "getAccount", accountId, true));
+
+        return AccountMapper.convertFromVO((AccountVO) servicesGateway.pass(AccountService.class, "getAccount", accountId));
     }
 }
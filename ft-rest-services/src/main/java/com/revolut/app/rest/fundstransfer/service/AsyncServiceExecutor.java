@@ -0,0 +1,148 @@
+package com.revolut.app.rest.fundstransfer.service;
+
+import com.revolut.app.rest.fundstransfer.model.ErrorResponse;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the business calls of the rest services off the server threads, which are then only busy with I/O.
+ *
+ * Reads and writes have their own bounded pools so that slow transfers waiting on locks can't starve cheap reads.
+ * Exports stream for as long as the client reads, so they run on a third pool without a queue, which caps them.
+ * A request is answered with 503 if its pool is saturated, or if it isn't answered within the timeout. A timed out call
+ * that already started keeps running to completion, its outcome is simply not reported; one still queued is never started.
+ */
+public class AsyncServiceExecutor {
+
+    private static Logger log = Logger.getLogger(AsyncServiceExecutor.class.getName());
+
+    private static final AsyncServiceExecutor instance = new AsyncServiceExecutor();
+
+    private volatile ThreadPoolExecutor readExecutor;
+    private volatile ThreadPoolExecutor writeExecutor;
+    private volatile ThreadPoolExecutor exportExecutor;
+    private volatile long timeoutMillis;
+
+    private AsyncServiceExecutor() {
+        initialize(16, 64, 2, 1024, 30000);
+    }
+
+    public static AsyncServiceExecutor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replaces the pools with pools of platform threads, the previous ones complete their queued calls before shutting down.
+     */
+    public synchronized void initialize(int readThreads, int writeThreads, int exportThreads, int queueCapacity, long timeoutMillis) {
+        initialize(readThreads, writeThreads, exportThreads, queueCapacity, timeoutMillis, AsyncServiceExecutor::platformThreadFactory);
+    }
+
+    /**
+     * Replaces the pools with pools of threads created by the given factories, keyed by thread name prefix e.g. virtual threads.
+     * Idle threads are not kept, so that pools of cheap threads can be sized for many in flight calls.
+     */
+    public synchronized void initialize(int readThreads, int writeThreads, int exportThreads, int queueCapacity, long timeoutMillis,
+                                        Function<String, ThreadFactory> threadFactories) {
+        shutdown();
+        this.readExecutor = createExecutor(threadFactories.apply("ft-read-"), readThreads, queueCapacity);
+        this.writeExecutor = createExecutor(threadFactories.apply("ft-write-"), writeThreads, queueCapacity);
+        this.exportExecutor = createExecutor(threadFactories.apply("ft-export-"), exportThreads, 0);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public synchronized void shutdown() {
+        if (readExecutor != null) {
+            readExecutor.shutdown();
+            writeExecutor.shutdown();
+            exportExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Resumes the response with the result of the call run on the read pool, a {@link Response} as is and anything else as the entity.
+     */
+    public void read(AsyncResponse asyncResponse, Callable<Object> call) {
+        submit(readExecutor, asyncResponse, call);
+    }
+
+    /**
+     * Same as {@link #read(AsyncResponse, Callable)} on the write pool.
+     */
+    public void write(AsyncResponse asyncResponse, Callable<Object> call) {
+        submit(writeExecutor, asyncResponse, call);
+    }
+
+    /**
+     * Same as {@link #read(AsyncResponse, Callable)} on the export pool, whose thread writes the whole streamed response.
+     * An export is answered with 503 while every export thread is busy.
+     */
+    public void export(AsyncResponse asyncResponse, Callable<Object> call) {
+        submit(exportExecutor, asyncResponse, call);
+    }
+
+    private void submit(ThreadPoolExecutor executor, AsyncResponse asyncResponse, Callable<Object> call) {
+        asyncResponse.setTimeoutHandler(response -> response.resume(serviceUnavailable("Request Timed Out")));
+        asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            executor.execute(() -> {
+                if (asyncResponse.isDone()) {
+                    //timed out while queued
+                    return;
+                }
+                try {
+                    asyncResponse.resume(call.call());
+                } catch (Throwable e) {
+                    //mapped to an error response by the exception mappers
+                    asyncResponse.resume(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.log(Level.WARNING, "Rejecting request, service pool is saturated");
+            asyncResponse.resume(serviceUnavailable("Service Busy"));
+        }
+    }
+
+    private static Response serviceUnavailable(String message) {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setErrorCode("503");
+        errorResponse.setErrorMessage(message);
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(errorResponse)
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    /*
+        without queue capacity a call is only accepted by an idle thread
+     */
+    private static ThreadPoolExecutor createExecutor(ThreadFactory threadFactory, int threads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory platformThreadFactory(String namePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
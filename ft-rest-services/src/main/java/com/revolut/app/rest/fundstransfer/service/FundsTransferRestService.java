@@ -1,16 +1,29 @@
 package com.revolut.app.rest.fundstransfer.service;
 
 import com.revolut.app.rest.fundstransfer.mapper.TransferRequestMapper;
+import com.revolut.app.rest.fundstransfer.mapper.TransferResultMapper;
 import com.revolut.app.rest.fundstransfer.model.TransferRequest;
+import com.revolut.app.rest.fundstransfer.model.TransferResult;
 import com.revolut.core.fundstransfer.gateway.ServicesGateway;
 import com.revolut.sdk.fundstransfer.services.FundsTransferService;
 import com.revolut.sdk.fundstransfer.exception.ServiceException;
+import com.revolut.sdk.fundstransfer.model.TransferRequestVO;
+import com.revolut.sdk.fundstransfer.model.TransferResultVO;
+import com.revolut.sdk.fundstransfer.model.TransferStatus;
 
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Path("/transfer")
 @Produces(MediaType.APPLICATION_JSON)
@@ -20,10 +33,68 @@ public class FundsTransferRestService {
         propagate through service gateway to delegate the call to core business layer
      */
     private final ServicesGateway servicesGateway = ServicesGateway.getServicesGateway();
+    private final AsyncServiceExecutor asyncServiceExecutor = AsyncServiceExecutor.getInstance();
 
+    /*
+        a request repeating the Idempotency-Key header of a completed transfer is answered as the completed one, without transferring again
+     */
 	@POST
-	public Response transferFunds(TransferRequest transferRequest) throws ServiceException {
-        servicesGateway.pass(FundsTransferService.class, "transferFunds", TransferRequestMapper.convertIntoVO(transferRequest));
-        return Response.status(Response.Status.OK).build();
+	public void transferFunds(TransferRequest transferRequest, @HeaderParam("Idempotency-Key") String idempotencyKey,
+                              @Suspended AsyncResponse asyncResponse) {
+        asyncServiceExecutor.write(asyncResponse, () -> {
+            servicesGateway.passIdempotent(idempotencyKey,
+                    FundsTransferService.class, "transferFunds", TransferRequestMapper.convertIntoVO(transferRequest));
+            return Response.status(Response.Status.OK).build();
+        });
 	}
+
+    /**
+     * Executes the transfers all or nothing in one transaction, or all or nothing per chunk of chunkSize transfers, each chunk in
+     * its own transaction. A failed chunk doesn't stop the following chunks nor undo the committed ones, the result of every
+     * transfer tells what happened to it: the transfers of a chunk failing with an error are reported as not executed, along
+     * with the error.
+     */
+    @POST
+    @Path("/batch")
+    public void transferFundsBatch(List<TransferRequest> transferRequests, @QueryParam("chunkSize") @DefaultValue("0") int chunkSize,
+                                   @Suspended AsyncResponse asyncResponse) {
+        asyncServiceExecutor.write(asyncResponse, () -> transferFundsBatch(transferRequests, chunkSize));
+    }
+
+    private List<TransferResult> transferFundsBatch(List<TransferRequest> transferRequests, int chunkSize) throws ServiceException {
+        List<TransferRequestVO> transferRequestVOs = transferRequests.stream()
+                .map(TransferRequestMapper::convertIntoVO)
+                .collect(Collectors.toList());
+        if (chunkSize <= 0 || chunkSize >= transferRequestVOs.size()) {
+            //a single chunk, an error fails the request as nothing has been committed
+            return convertFromVOs((List<TransferResultVO>) servicesGateway.pass(
+                    FundsTransferService.class, "transferFundsBatch", transferRequestVOs), 0, new ArrayList<>(transferRequestVOs.size()));
+        }
+
+        List<TransferResult> results = new ArrayList<>(transferRequestVOs.size());
+        for (int from = 0; from < transferRequestVOs.size(); from += chunkSize) {
+            List<TransferRequestVO> chunk = transferRequestVOs.subList(from, Math.min(from + chunkSize, transferRequestVOs.size()));
+            List<TransferResultVO> chunkResults;
+            try {
+                chunkResults = (List<TransferResultVO>) servicesGateway.pass(
+                        FundsTransferService.class, "transferFundsBatch", new ArrayList<>(chunk));
+            } catch (ServiceException e) {
+                //the chunk has been rolled back, the previous chunks stay committed
+                chunkResults = new ArrayList<>(chunk.size());
+                String errorCode = e.getReasonCode() == null ? "999" : e.getReasonCode();
+                for (int index = 0; index < chunk.size(); index++) {
+                    chunkResults.add(new TransferResultVO(index, TransferStatus.NOT_EXECUTED, errorCode, e.getMessage()));
+                }
+            }
+            convertFromVOs(chunkResults, from, results);
+        }
+        return results;
+    }
+
+    private static List<TransferResult> convertFromVOs(List<TransferResultVO> resultVOs, int indexOffset, List<TransferResult> results) {
+        for (TransferResultVO resultVO : resultVOs) {
+            results.add(TransferResultMapper.convertFromVO(resultVO, indexOffset));
+        }
+        return results;
+    }
 }
@@ -0,0 +1,31 @@
+package com.revolut.app.rest.fundstransfer.service;
+
+import com.revolut.core.fundstransfer.metrics.MetricsRegistry;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+@Path("/metrics")
+public class MetricsRestService {
+
+    static final String MEDIA_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /*
+        every metric in the prometheus text format, read from the counters on the request thread without going through the
+        service gateway, so that a scrape neither waits for nor shows up in the business pools
+     */
+    @GET
+    @Produces(MEDIA_TYPE)
+    public StreamingOutput getMetrics() {
+        return outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            MetricsRegistry.getInstance().write(writer);
+            writer.flush();
+        };
+    }
+}
@@ -15,6 +15,9 @@ import java.util.logging.Logger;
 public class RevolutExceptionMapper implements ExceptionMapper<ServiceException> {
 	private static Logger log = Logger.getLogger(RevolutExceptionMapper.class.getName());
 
+    //Unprocessable Entity, not part of javax.ws.rs.core.Response.Status
+    private static final int UNPROCESSABLE_ENTITY = 422;
+
 	public Response toResponse(ServiceException serviceException) {
 		ErrorResponse errorResponse = new ErrorResponse();
 		String errorCode = serviceException.getReasonCode();
@@ -24,9 +27,26 @@ public class RevolutExceptionMapper implements ExceptionMapper<ServiceException>
 		errorResponse.setErrorCode(errorCode);
 		errorResponse.setErrorMessage(serviceException.getMessage());
         log.log(Level.INFO,"Returning Error Response ..." + errorResponse);
-		return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+		return Response.status(statusOf(errorCode))
                 .entity(errorResponse)
                 .type(MediaType.APPLICATION_JSON)
                 .build();
 	}
+
+    /*
+        an Idempotency-Key reused for another request can't be processed, one still held by a request in flight conflicts
+        with it, any other error is reported as an internal error
+     */
+    private static int statusOf(String errorCode) {
+        switch (errorCode) {
+            case "602":
+            case "604":
+            case "605":
+                return UNPROCESSABLE_ENTITY;
+            case "603":
+                return Response.Status.CONFLICT.getStatusCode();
+            default:
+                return Response.Status.INTERNAL_SERVER_ERROR.getStatusCode();
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package com.revolut.core.fundstransfer.gateway;
+
+import com.revolut.sdk.fundstransfer.exception.ServiceException;
+
+/**
+ * Storage of the keys of {@link IdempotencyKeys}, provided by the layer owning the database. Every call runs in the current
+ * transaction of the gateway, so that a key commits or rolls back along with the operation it was claimed for.
+ */
+public interface IdempotencyKeyStore {
+
+    /**
+     * Claims the key for the operation about to run. A transaction claiming the same key concurrently is waited for until
+     * it ends, or until the store gives up with an exception.
+     *
+     * @param requestHash hash of the arguments of the call, see {@link IdempotencyKeys#requestHashOf(Object...)}
+     * @return true if the key is claimed, false if a committed transaction already claimed it
+     */
+    boolean insertKey(String idempotencyKey, String operation, String requestHash) throws ServiceException;
+
+    /**
+     * @return the key or null if no committed transaction claimed it
+     */
+    StoredIdempotencyKey getKey(String idempotencyKey) throws ServiceException;
+
+    void updateResult(String idempotencyKey, byte[] result) throws ServiceException;
+}
@@ -0,0 +1,336 @@
+package com.revolut.core.fundstransfer.gateway;
+
+import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.sdk.fundstransfer.exception.ServiceException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the results of the calls made through {@link ServicesGateway#passIdempotent}, so that a call repeating the key of a
+ * completed call gets its result back without running the service again.
+ *
+ * The {@link IdempotencyKeyStore} is the reference: a call claims its key in the transaction the gateway starts for it before
+ * running the service, so the key commits or rolls back along with the operation, and a concurrent call with the same key waits
+ * for the first one to end. A key is claimed along with the hash of the arguments of its call, a call reusing the key for another
+ * operation or other arguments is rejected. Completed calls are also kept in a bounded in memory index, split into segments
+ * each guarded by its own monitor and evicting the oldest keys first, so that a repeated call is usually answered without
+ * touching the store. Keys expire from the index after a ttl, the store still knows them.
+ *
+ * Calls of a {@link SelfTransactedService} run outside the transaction of the gateway, their key could not commit along with
+ * them, so keys are rejected for them.
+ */
+public class IdempotencyKeys {
+
+    private static Logger log = Logger.getLogger(IdempotencyKeys.class.getName());
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_SEGMENTS = 64;
+
+    private static final IdempotencyKeys instance = new IdempotencyKeys();
+
+    //declared fields of the bean arguments, by name
+    private static final ConcurrentHashMap<Class<?>, Field[]> argumentFields = new ConcurrentHashMap<>();
+
+    private final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
+    private volatile IdempotencyKeyStore keyStore;
+    private volatile Segment[] segments;
+    private volatile long ttlNanos;
+
+    private IdempotencyKeys() {
+        initialize(null, 100000, TimeUnit.DAYS.toMillis(1));
+    }
+
+    public static IdempotencyKeys getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replaces the index with an empty one holding up to indexSize completed keys, each for up to ttlMillis.
+     *
+     * @param keyStore where the keys are claimed, null to reject every key
+     */
+    public synchronized void initialize(IdempotencyKeyStore keyStore, int indexSize, long ttlMillis) {
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(indexSize, MAX_SEGMENTS)));
+        Segment[] newSegments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            newSegments[i] = new Segment(Math.max(1, (indexSize + segmentCount - 1) / segmentCount));
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.segments = newSegments;
+        this.keyStore = keyStore;
+    }
+
+    /**
+     * Drops every key of the index e.g. once the database is recreated.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    static String operationOf(Class serviceClassType, String methodName) {
+        return serviceClassType.getSimpleName() + "." + methodName;
+    }
+
+    static void validate(String idempotencyKey) throws ValidationException {
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ValidationException("Invalid Idempotency-Key, expected 1 to " + MAX_KEY_LENGTH + " characters", "601");
+        }
+    }
+
+    /**
+     * @return hex SHA-256 of the arguments of a call. Amounts compare by value, so that 10 and 10.00 hash alike, other arguments
+     * by their string value, collections by their elements and beans by their fields
+     */
+    static String requestHashOf(Object... arguments) throws ServiceException {
+        StringBuilder canonical = new StringBuilder();
+        for (Object argument : arguments) {
+            appendCanonical(canonical, argument);
+            canonical.append(';');
+        }
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new ServiceException("Error hashing the request of Idempotency-Key:" + e.getMessage());
+        }
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void appendCanonical(StringBuilder canonical, Object value) throws ServiceException {
+        if (value == null) {
+            canonical.append("null");
+        } else if (value instanceof BigDecimal) {
+            BigDecimal amount = (BigDecimal) value;
+            canonical.append(amount.signum() == 0 ? "0" : amount.stripTrailingZeros().toPlainString());
+        } else if (value instanceof Number || value instanceof CharSequence || value instanceof Boolean
+                || value instanceof Character || value instanceof Enum) {
+            canonical.append(value);
+        } else if (value instanceof Collection) {
+            canonical.append('[');
+            for (Object element : (Collection<?>) value) {
+                appendCanonical(canonical, element);
+                canonical.append(',');
+            }
+            canonical.append(']');
+        } else {
+            canonical.append(value.getClass().getName()).append('{');
+            try {
+                for (Field field : argumentFields.computeIfAbsent(value.getClass(), IdempotencyKeys::fieldsOf)) {
+                    canonical.append(field.getName()).append('=');
+                    appendCanonical(canonical, field.get(value));
+                    canonical.append(',');
+                }
+            } catch (IllegalAccessException e) {
+                throw new ServiceException("Error hashing the request of Idempotency-Key:" + e.getMessage());
+            }
+            canonical.append('}');
+        }
+    }
+
+    private static Field[] fieldsOf(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> declaring = type; declaring != null && declaring != Object.class; declaring = declaring.getSuperclass()) {
+            for (Field field : declaring.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        fields.sort(Comparator.comparing(Field::getName));
+        return fields.toArray(new Field[0]);
+    }
+
+    /**
+     * @return the completed call of the key from the index, or null if the index doesn't know the key
+     */
+    CompletedCall findCompleted(String idempotencyKey, String operation, String requestHash) throws ValidationException {
+        CompletedCall completedCall;
+        Segment segment = segmentOf(idempotencyKey);
+        synchronized (segment) {
+            completedCall = segment.get(idempotencyKey);
+            if (completedCall != null && completedCall.isExpired(System.nanoTime())) {
+                segment.remove(idempotencyKey);
+                completedCall = null;
+            }
+        }
+        return completedCall == null ? null : completedCall.checkRequest(operation, requestHash);
+    }
+
+    /**
+     * Claims the key in the current transaction, to be called before running the service.
+     *
+     * @return null once claimed, or the completed call of the key if a committed transaction already claimed it
+     */
+    CompletedCall claim(String idempotencyKey, String operation, String requestHash) throws ServiceException {
+        IdempotencyKeyStore currentKeyStore = keyStore;
+        if (currentKeyStore == null) {
+            throw new ValidationException("Idempotency-Key not supported, no key store configured", "605");
+        }
+        if (currentKeyStore.insertKey(idempotencyKey, operation, requestHash)) {
+            return null;
+        }
+        StoredIdempotencyKey claimedKey = currentKeyStore.getKey(idempotencyKey);
+        if (claimedKey == null) {
+            //committed then gone, only when the database was recreated
+            throw new ValidationException("Idempotency-Key not available", "603");
+        }
+        CompletedCall completedCall = new CompletedCall(claimedKey.getOperation(), claimedKey.getRequestHash(),
+                deserialize(claimedKey.getResult()), expiry());
+        index(idempotencyKey, completedCall);
+        return completedCall.checkRequest(operation, requestHash);
+    }
+
+    /**
+     * Saves the result of the call in the current transaction, the key is indexed once the transaction commits.
+     */
+    void complete(String idempotencyKey, String operation, String requestHash, Object result) throws ServiceException {
+        if (result != null) {
+            keyStore.updateResult(idempotencyKey, serialize(result));
+        }
+        transactionManager.runAfterCommit(() -> index(idempotencyKey, new CompletedCall(operation, requestHash, result, expiry())));
+    }
+
+    private void index(String idempotencyKey, CompletedCall completedCall) {
+        Segment segment = segmentOf(idempotencyKey);
+        synchronized (segment) {
+            //moved to the end, in expiry order
+            segment.remove(idempotencyKey);
+            segment.put(idempotencyKey, completedCall);
+            segment.evict(System.nanoTime());
+        }
+    }
+
+    private long expiry() {
+        return System.nanoTime() + ttlNanos;
+    }
+
+    private Segment segmentOf(String idempotencyKey) {
+        Segment[] currentSegments = segments;
+        int hash = idempotencyKey.hashCode();
+        return currentSegments[(hash ^ (hash >>> 16)) & (currentSegments.length - 1)];
+    }
+
+    private static byte[] serialize(Object result) throws ServiceException {
+        if (!(result instanceof Serializable)) {
+            throw new ServiceException("Result not serializable, can't be kept for its Idempotency-Key:" + result.getClass().getName());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(result);
+        } catch (IOException e) {
+            throw new ServiceException("Error serializing the result of Idempotency-Key:" + e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] result) throws ServiceException {
+        if (result == null) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(result))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            log.log(Level.SEVERE, "Error reading the result of an Idempotency-Key", e);
+            throw new ServiceException("Error reading the result of Idempotency-Key:" + e.getMessage());
+        }
+    }
+
+    static class CompletedCall {
+
+        private final String operation;
+        private final String requestHash;
+        private final Object result;
+        private final long expiresAtNanos;
+
+        CompletedCall(String operation, String requestHash, Object result, long expiresAtNanos) {
+            this.operation = operation;
+            this.requestHash = requestHash;
+            this.result = result;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        Object getResult() {
+            return result;
+        }
+
+        boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos > 0;
+        }
+
+        CompletedCall checkRequest(String requestedOperation, String requestedHash) throws ValidationException {
+            if (!operation.equals(requestedOperation)) {
+                throw new ValidationException("Idempotency-Key already used by another operation", "602");
+            }
+            if (!requestHash.equals(requestedHash)) {
+                throw new ValidationException("Idempotency-Key already used by a request with other arguments", "604");
+            }
+            return this;
+        }
+    }
+
+    /*
+        keys in insertion order, which is also expiry order as every key lives for the same ttl
+     */
+    private static class Segment extends LinkedHashMap<String, CompletedCall> {
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+        }
+
+        void evict(long nowNanos) {
+            Iterator<Map.Entry<String, CompletedCall>> eldest = entrySet().iterator();
+            while (eldest.hasNext()) {
+                Map.Entry<String, CompletedCall> entry = eldest.next();
+                if (size() <= capacity && !entry.getValue().isExpired(nowNanos)) {
+                    return;
+                }
+                eldest.remove();
+            }
+        }
+    }
+}
@@ -18,6 +18,8 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  *  This class caches the found methods in order to avoid calling redundant refection logic every time and for increasing performance.
  *
+ *  The gateway now uses {@link ServiceMethodCache}, this class is kept as the reflective baseline of the gateway dispatch benchmark.
+ *
  */
 public class ReflectionUtils {
 
@@ -0,0 +1,15 @@
+package com.revolut.core.fundstransfer.gateway;
+
+/**
+ * Implemented by the service implementations running some of their calls without the transaction of the gateway, e.g. in
+ * transactions of their own on other threads or without touching the database at all. The gateway starts no transaction
+ * for such calls, so that no pooled connection sits idle for their length, and rejects idempotency keys for them.
+ */
+public interface SelfTransactedService {
+
+    /**
+     * @param methodName name of the service method called
+     * @return true if the calls of the method don't use the transaction started by the gateway
+     */
+    boolean isSelfTransacted(String methodName);
+}
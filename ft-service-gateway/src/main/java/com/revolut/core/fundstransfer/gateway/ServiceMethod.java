@@ -0,0 +1,98 @@
+package com.revolut.core.fundstransfer.gateway;
+
+import com.revolut.core.fundstransfer.metrics.Counter;
+import com.revolut.core.fundstransfer.metrics.LatencyHistogram;
+import com.revolut.core.fundstransfer.metrics.MetricsRegistry;
+import com.revolut.core.fundstransfer.transaction.manage.TransactionDefinition;
+import org.apache.commons.lang3.ClassUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * A resolved service interface method along with its transaction definition and a method handle invoking it on any implementation,
+ * taking the arguments as an array. Resolved once by {@link ServiceMethodCache} and reused for every call.
+ * Also holds the call metrics of the method, shared by the overloads of a name.
+ */
+public class ServiceMethod {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final Method method;
+    private final Class<?>[] argumentTypes;
+    private final MethodHandle invoker;
+    private final TransactionDefinition transactionDefinition;
+    private final LatencyHistogram callDurations;
+    private final Counter failedCalls;
+
+    ServiceMethod(Method method, TransactionDefinition transactionDefinition) throws IllegalAccessException {
+        this.method = method;
+        this.transactionDefinition = transactionDefinition;
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        this.argumentTypes = new Class<?>[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            argumentTypes[i] = ClassUtils.primitiveToWrapper(parameterTypes[i]);
+        }
+        //(implementation, arguments[]) -> result, primitives are unboxed from the array and a void result becomes null
+        this.invoker = MethodHandles.publicLookup().unreflect(method)
+                .asSpreader(Object[].class, parameterTypes.length)
+                .asType(INVOKER_TYPE);
+        String serviceName = method.getDeclaringClass().getSimpleName();
+        this.callDurations = MetricsRegistry.getInstance().histogram("ft_service_call_seconds",
+                "Duration of the calls through the services gateway, transaction included", "service", serviceName, "method", method.getName());
+        this.failedCalls = MetricsRegistry.getInstance().counter("ft_service_call_failures_total",
+                "Calls through the services gateway ending with an exception", "service", serviceName, "method", method.getName());
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public TransactionDefinition getTransactionDefinition() {
+        return transactionDefinition;
+    }
+
+    /**
+     * @return true if the arguments can be passed to this method, null is accepted for any non primitive parameter
+     */
+    boolean accepts(Object[] arguments) {
+        if (arguments.length != argumentTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            if (argument == null ? method.getParameterTypes()[i].isPrimitive() : !argumentTypes[i].isInstance(argument)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Invokes the method on the given implementation. Unlike {@link Method#invoke(Object, Object...)} an exception thrown by the
+     * method is not wrapped, it is thrown as is. An {@link Error} propagates as is too.
+     */
+    public Object invoke(Object implementation, Object... arguments) throws Exception {
+        try {
+            return (Object) invoker.invokeExact(implementation, arguments);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable tw) {
+            //neither an exception nor an error, can't be thrown by a compiled java method
+            throw new UndeclaredThrowableException(tw);
+        }
+    }
+
+    /**
+     * Records a call of the method started at the given {@link System#nanoTime()}.
+     */
+    void recordCall(long startNanos, boolean isSuccessful) {
+        callDurations.recordSince(startNanos);
+        if (!isSuccessful) {
+            failedCalls.increment();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.revolut.core.fundstransfer.gateway;
+
+import com.revolut.sdk.fundstransfer.exception.ServiceException;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the service method to be invoked based on the class type of the service interface, the method name and the actual arguments.
+ *
+ * All the methods of a name are resolved to {@link ServiceMethod}s, including their transaction definition, once.
+ * Afterwards a call only costs two map lookups and, for overloaded methods, matching the arguments against the parameter count and types of each overload.
+ * Replaces {@link ReflectionUtils} on the gateway path.
+ */
+public class ServiceMethodCache {
+
+    private static final ServiceMethod[] NO_METHODS = new ServiceMethod[0];
+
+    private static final ConcurrentHashMap<Class, ConcurrentHashMap<String, ServiceMethod[]>> classType2MethodName2MethodsMap
+            = new ConcurrentHashMap<>();
+
+    public static ServiceMethod findServiceMethod(Class serviceClassType, String methodName, Object... arguments) throws ServiceException {
+
+        ConcurrentHashMap<String, ServiceMethod[]> methodName2MethodsMap
+                = classType2MethodName2MethodsMap.computeIfAbsent(serviceClassType, classType -> new ConcurrentHashMap<>());
+
+        ServiceMethod[] serviceMethods = methodName2MethodsMap.get(methodName);
+        if (serviceMethods == null) {
+            serviceMethods = resolve(serviceClassType, methodName);
+            //concurrent resolutions of the same method are identical, keeping either of them is fine
+            methodName2MethodsMap.putIfAbsent(methodName, serviceMethods);
+        }
+
+        if (serviceMethods.length == 1) {
+            return serviceMethods[0];
+        }
+        for (ServiceMethod serviceMethod : serviceMethods) {
+            if (serviceMethod.accepts(arguments)) {
+                return serviceMethod;
+            }
+        }
+
+        throw new ServiceException("No Matching service implementation found");
+    }
+
+    private static ServiceMethod[] resolve(Class serviceClassType, String methodName) throws ServiceException {
+        List<ServiceMethod> serviceMethods = new ArrayList<>();
+        try {
+            for (Method method : serviceClassType.getMethods()) {
+                if (method.getName().equals(methodName)) {
+                    serviceMethods.add(new ServiceMethod(method, TransactionsUtil.resolveTransactionDefinition(method, serviceClassType)));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new ServiceException("Service method not accessible:" + methodName);
+        }
+        return serviceMethods.toArray(NO_METHODS);
+    }
+}
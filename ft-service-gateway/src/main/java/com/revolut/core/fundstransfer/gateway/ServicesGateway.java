@@ -1,10 +1,9 @@
 package com.revolut.core.fundstransfer.gateway;
 
-import com.revolut.core.fundstransfer.service.locate.ServiceLocator;
+import com.revolut.core.fundstransfer.service.locate.ServiceRegistry;
 import com.revolut.sdk.fundstransfer.exception.ServiceException;
+import com.revolut.sdk.fundstransfer.exception.ValidationException;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,6 +12,8 @@ public class ServicesGateway {
     private static Logger logger = Logger.getLogger(ServicesGateway.class.getName());
     private static final ServicesGateway servicesGateway = new ServicesGateway();
 
+    private final IdempotencyKeys idempotencyKeys = IdempotencyKeys.getInstance();
+
     private ServicesGateway() {
     }
 
@@ -28,18 +29,66 @@ public class ServicesGateway {
      * @throws ServiceException
      */
     public Object pass(Class serviceClassType, String methodName, Object... arguments) throws ServiceException {
+        return dispatch(null, null, null, serviceClassType, methodName, arguments);
+    }
 
+    /**
+     * Same as {@link #pass(Class, String, Object...)}, running the service at most once per idempotency key: a call repeating
+     * the key of a completed call gets its result back without running the service or taking any lock, see {@link IdempotencyKeys}.
+     * A call failing with an exception completes nothing, so the key can be retried. Keys are rejected for the calls of a
+     * {@link SelfTransactedService}, which would not commit them along with the operation.
+     *
+     * @param idempotencyKey key chosen by the client for the operation, null to run the call like {@link #pass(Class, String, Object...)}
+     */
+    public Object passIdempotent(String idempotencyKey, Class serviceClassType, String methodName, Object... arguments) throws ServiceException {
+        if (idempotencyKey == null) {
+            return pass(serviceClassType, methodName, arguments);
+        }
+        IdempotencyKeys.validate(idempotencyKey);
+        String operation = IdempotencyKeys.operationOf(serviceClassType, methodName);
+        if (isSelfTransacted(locateService(serviceClassType), methodName)) {
+            throw new ValidationException("Idempotency-Key not supported by " + operation + " in the current execution mode", "605");
+        }
+        String requestHash = IdempotencyKeys.requestHashOf(arguments);
+        IdempotencyKeys.CompletedCall completedCall = idempotencyKeys.findCompleted(idempotencyKey, operation, requestHash);
+        if (completedCall != null) {
+            return completedCall.getResult();
+        }
+        return dispatch(idempotencyKey, operation, requestHash, serviceClassType, methodName, arguments);
+    }
+
+    private Object dispatch(String idempotencyKey, String operation, String requestHash, Class serviceClassType, String methodName,
+                            Object... arguments) throws ServiceException {
+
+        long startNanos = System.nanoTime();
         Object result;
+        ServiceMethod matchingMethod = null;
+        boolean isTransactionStarted = false;
         boolean isOperationSuccessful = false;
         try {
-            // first find the matching method to be invoked using reflection, once found methods are cached to avoid calling reflection second time
-            Method matchingMethod = ReflectionUtils.findMatchingMethodUsingReflection(serviceClassType, methodName, arguments);
+            // first find the matching method to be invoked, methods are resolved once and then served from the cache
+            matchingMethod = ServiceMethodCache.findServiceMethod(serviceClassType, methodName, arguments);
+
+            Object implementationObj = locateService(serviceClassType);
 
             //do common things before invoking service method i.e. tx management, logging, security checks
-            doCommonBeforeService(matchingMethod, serviceClassType);
+            isTransactionStarted = doCommonBeforeService(matchingMethod, implementationObj);
+
+            if (idempotencyKey != null) {
+                //claimed in the transaction of the call, so that the key commits or rolls back with the operation
+                IdempotencyKeys.CompletedCall completedCall = idempotencyKeys.claim(idempotencyKey, operation, requestHash);
+                if (completedCall != null) {
+                    isOperationSuccessful = true;
+                    return completedCall.getResult();
+                }
+            }
 
             //now it's time to invoke the actual service implementation
-            result = invokeService(matchingMethod, serviceClassType, arguments);
+            result = invokeService(matchingMethod, implementationObj, arguments);
+
+            if (idempotencyKey != null) {
+                idempotencyKeys.complete(idempotencyKey, operation, requestHash, result);
+            }
 
             isOperationSuccessful = true;
 
@@ -48,45 +97,66 @@ public class ServicesGateway {
         } catch (Exception e) {
             throw new ServiceException(e.getMessage());
         } finally {
-            //do common things after invoking service method i.e. tx management, logging, any resource release
-            doCommonAfterService(isOperationSuccessful);
+            boolean isTransactionEnded = false;
+            try {
+                //do common things after invoking service method i.e. tx management, logging, any resource release
+                doCommonAfterService(isTransactionStarted, isOperationSuccessful);
+                isTransactionEnded = true;
+            } finally {
+                if (matchingMethod != null) {
+                    //a failed commit fails the call
+                    matchingMethod.recordCall(startNanos, isOperationSuccessful && isTransactionEnded);
+                }
+            }
         }
 
         return result;
     }
 
-    private Object invokeService(Method method, Class serviceClassType, Object... arguments) throws ServiceException {
+    private Object locateService(Class serviceClassType) throws ServiceException {
+        try {
+            return ServiceRegistry.getInstance().getService(serviceClassType);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error while locating service:" + e.getMessage());
+            throw new ServiceException(e.getMessage());
+        }
+    }
+
+    private Object invokeService(ServiceMethod method, Object implementationObj, Object... arguments) throws ServiceException {
 
         try {
-            //locate the service using service locator and invoke the actual method implementation
-            Object implementationObj = ServiceLocator.getLocator(serviceClassType).locate();
+            //invoke the actual method implementation
             return method.invoke(implementationObj, arguments);
 
-        } catch (InvocationTargetException e) {
-            Throwable tw = e.getTargetException();
-            logger.log(Level.SEVERE, "Error while invoking service:" + tw.getMessage());
-            if (tw instanceof ServiceException) {
-                throw (ServiceException) tw;
-            }
-            throw new ServiceException(tw.getMessage());
+        } catch (ServiceException e) {
+            //the method handle doesn't wrap exceptions thrown by the service
+            logger.log(Level.SEVERE, "Error while invoking service:" + e.getMessage());
+            throw e;
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error while invoking service:" + e.getMessage());
             throw new ServiceException(e.getMessage());
         }
     }
 
+    private static boolean isSelfTransacted(Object implementationObj, String methodName) {
+        return implementationObj instanceof SelfTransactedService && ((SelfTransactedService) implementationObj).isSelfTransacted(methodName);
+    }
+
     /*
-        As of now only transaction management is performed
+        As of now only transaction management is performed, skipped for the calls of a self transacted service
      */
-    private void doCommonBeforeService(Method methodToInvoke, Class serviceClassType) throws ServiceException {
-        TransactionsUtil.startTransaction(methodToInvoke, serviceClassType);
+    private boolean doCommonBeforeService(ServiceMethod methodToInvoke, Object implementationObj) throws ServiceException {
+        if (isSelfTransacted(implementationObj, methodToInvoke.getMethod().getName())) {
+            return false;
+        }
+        return TransactionsUtil.startTransaction(methodToInvoke.getTransactionDefinition());
     }
 
     /*
         As of now only transaction management is performed
      */
-    private void doCommonAfterService(boolean isOperationSuccessful) throws ServiceException {
-        TransactionsUtil.endTransaction(isOperationSuccessful);
+    private void doCommonAfterService(boolean isTransactionStarted, boolean isOperationSuccessful) throws ServiceException {
+        TransactionsUtil.endTransaction(isTransactionStarted, isOperationSuccessful);
     }
 
 }
@@ -0,0 +1,34 @@
+package com.revolut.core.fundstransfer.gateway;
+
+/**
+ * A key claimed by a committed call, as read back from the {@link IdempotencyKeyStore}.
+ */
+public class StoredIdempotencyKey {
+
+    private final String operation;
+
+    private final String requestHash;
+
+    private final byte[] result;
+
+    public StoredIdempotencyKey(String operation, String requestHash, byte[] result) {
+        this.operation = operation;
+        this.requestHash = requestHash;
+        this.result = result;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    /**
+     * @return the serialized result of the operation, null for an operation without result
+     */
+    public byte[] getResult() {
+        return result;
+    }
+}
@@ -1,11 +1,16 @@
 package com.revolut.core.fundstransfer.gateway;
 
 import com.revolut.core.fundstransfer.transaction.manage.RevolutTransactionManager;
+import com.revolut.core.fundstransfer.transaction.manage.TransactionDefinition;
 import com.revolut.sdk.fundstransfer.exception.ServiceException;
+import com.revolut.sdk.fundstransfer.transaction.TransactionAttributes;
+import org.apache.commons.lang3.ClassUtils;
 
 import javax.transaction.Transactional;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,46 +19,83 @@ public class TransactionsUtil {
     private static Logger logger = Logger.getLogger(TransactionsUtil.class.getName());
 
     private static final RevolutTransactionManager transactionManager = RevolutTransactionManager.getInstance();
-    private static ThreadLocal<Boolean> isTransactionStartedThreadLocal = new ThreadLocal<>();
 
-    public static void startTransaction(Method methodToInvoke, Class serviceClassType) throws ServiceException {
-        // start a transaction based on propagation level
-        Transactional.TxType txType = findTransactionPropagationLevel(methodToInvoke, serviceClassType);
+    /**
+     * Starts a transaction based on the transaction definition of the service method.
+     * The returned flag must be passed back to {@link #endTransaction(boolean, boolean)} by the same gateway call,
+     * it is not kept in a thread local as nested gateway calls on the same thread would overwrite it.
+     *
+     * @return true once the transaction is started
+     * @throws ServiceException
+     */
+    public static boolean startTransaction(TransactionDefinition transactionDefinition) throws ServiceException {
         try {
-            transactionManager.startTransaction(txType);
-            isTransactionStartedThreadLocal.set(true);
+            transactionManager.startTransaction(transactionDefinition);
+            return true;
         } catch (Exception e) {
-            isTransactionStartedThreadLocal.set(false);
             logger.log(Level.SEVERE, "Error while starting transaction:" + e.getMessage());
             throw new ServiceException(e.getMessage());
         }
     }
 
-    public static void endTransaction(boolean isSuccessful) throws ServiceException {
+    public static void endTransaction(boolean wasTxStarted, boolean isSuccessful) throws ServiceException {
+        if (!wasTxStarted) {
+            return;
+        }
         try {
-            Boolean wasTxStarted = isTransactionStartedThreadLocal.get();
-            if (wasTxStarted != null && wasTxStarted) {
-                transactionManager.endTransactionIfNeeded(isSuccessful);
-            }
+            transactionManager.endTransactionIfNeeded(isSuccessful);
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error while ending transaction:" + e.getMessage());
             throw new ServiceException(e.getMessage());
-        } finally {
-            isTransactionStartedThreadLocal.remove();
         }
     }
 
-    private static Transactional.TxType findTransactionPropagationLevel(Method methodToInvoke, Class serviceClassType) {
-
-        Transactional trx = methodToInvoke.getDeclaredAnnotation(Transactional.class);
-        if (trx == null) {
-            trx = (Transactional) serviceClassType.getDeclaredAnnotation(Transactional.class);
-        }
+    /**
+     * Resolves the transaction definition of a service method from its {@link Transactional} and {@link TransactionAttributes}
+     * annotations, meant to be called once per method. Each annotation is looked up independently, the first one found wins:
+     *
+     *  1. on the method itself
+     *  2. on the same method re-declared by any super interface of the service
+     *  3. on the service interface, then on its super interfaces
+     *
+     * Propagation defaults to REQUIRED.
+     */
+    static TransactionDefinition resolveTransactionDefinition(Method method, Class<?> serviceClassType) {
+        Transactional trx = findAnnotation(method, serviceClassType, Transactional.class);
         Transactional.TxType txType = Transactional.TxType.REQUIRED;
         if (trx != null) {
             txType = trx.value();
         }
 
-        return txType;
+        TransactionAttributes attributes = findAnnotation(method, serviceClassType, TransactionAttributes.class);
+        if (attributes == null) {
+            return txType == Transactional.TxType.REQUIRES_NEW ? TransactionDefinition.REQUIRES_NEW : TransactionDefinition.REQUIRED;
+        }
+        return new TransactionDefinition(txType, attributes.readOnly(), attributes.timeout(), attributes.isolation());
+    }
+
+    private static <A extends Annotation> A findAnnotation(Method method, Class<?> serviceClassType, Class<A> annotationType) {
+        A annotation = method.getAnnotation(annotationType);
+        if (annotation != null) {
+            return annotation;
+        }
+
+        List<Class<?>> superInterfaces = ClassUtils.getAllInterfaces(serviceClassType);
+        for (Class<?> superInterface : superInterfaces) {
+            try {
+                annotation = superInterface.getDeclaredMethod(method.getName(), method.getParameterTypes()).getAnnotation(annotationType);
+            } catch (NoSuchMethodException e) {
+                //not declared by this interface
+            }
+            if (annotation != null) {
+                return annotation;
+            }
+        }
+
+        annotation = serviceClassType.getAnnotation(annotationType);
+        for (int i = 0; annotation == null && i < superInterfaces.size(); i++) {
+            annotation = superInterfaces.get(i).getAnnotation(annotationType);
+        }
+        return annotation;
     }
 }